@@ -23,6 +23,8 @@ THE SOFTWARE.
 */
 package com.tenio.api;
 
+import java.util.Collection;
+
 import com.tenio.api.pool.ArrayPool;
 import com.tenio.api.pool.ObjectPool;
 import com.tenio.configuration.constant.TEvent;
@@ -32,8 +34,12 @@ import com.tenio.entity.element.TArray;
 import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
 import com.tenio.logger.AbstractLogger;
+import com.tenio.message.schema.Message;
 import com.tenio.network.Connection;
+import com.tenio.network.Connection.Delivery;
+import com.tenio.network.IPacket;
 import com.tenio.pool.IElementPool;
+import com.tenio.pool.PoolStatistics;
 
 /**
  * This class provides you a necessary interface for sending messages from the
@@ -100,20 +106,44 @@ public final class MessageApi extends AbstractLogger {
 	 * @param player          See {@link AbstractPlayer}
 	 * @param isSubConnection set <b>true</b> is you want to send to your client a
 	 *                        message in sub-connection (UDP)
-	 * @param message         the sending message
+	 * @param message         the sending message, a {@link TObject} or a schema
+	 *                        message
 	 */
-	private void __send(AbstractPlayer player, boolean isSubConnection, TObject message) {
+	private void __send(AbstractPlayer player, boolean isSubConnection, Object message) {
+		__send(player, isSubConnection, message, null);
+	}
+
+	/**
+	 * Send a message method to a player
+	 * 
+	 * @param player          See {@link AbstractPlayer}
+	 * @param isSubConnection set <b>true</b> is you want to send to your client a
+	 *                        message in sub-connection (UDP)
+	 * @param message         the sending message, a {@link TObject} or a schema
+	 *                        message
+	 * @param packet          the already encoded message, see {@link IPacket}, or
+	 *                        <b>null</b> to encode the message for this player only
+	 */
+	private void __send(AbstractPlayer player, boolean isSubConnection, Object message, IPacket packet) {
 		player.setCurrentWriterTime(); // update time to check TIMEOUT
 		if (!isSubConnection) {
 			if (player.hasConnection()) { // send to CLIENT (connection)
-				player.getConnection().send(message);
+				if (packet == null) {
+					__send(player.getConnection(), message);
+				} else {
+					player.getConnection().send(packet);
+				}
 				debug("SENT", player.getName(), message.toString());
 			} else {
 				debug("SENT NPC", player.getName(), message.toString());
 			}
 		} else {
 			if (player.hasSubConnection()) { // send to CLIENT (sub-connection)
-				player.getSubConnection().send(message);
+				if (packet == null) {
+					__send(player.getSubConnection(), message);
+				} else {
+					player.getSubConnection().send(packet);
+				}
 				debug("SENT SUB", player.getName(), message.toString());
 			} else {
 				debug("SENT SUB NPC", player.getName(), message.toString());
@@ -122,10 +152,72 @@ public final class MessageApi extends AbstractLogger {
 		__eventManager.getExternal().emit(TEvent.SEND_TO_PLAYER, player, isSubConnection, message);
 	}
 
+	/**
+	 * Send a message to a group of players. The message is encoded only once (by
+	 * the first connection found) and the same packet is shared by all the
+	 * players' connections.
+	 * 
+	 * @param players         the receivers, see {@link AbstractPlayer}
+	 * @param ignoredPlayer   this player will not receive the message, can be
+	 *                        <b>null</b>
+	 * @param isSubConnection set <b>true</b> is you want to send to your client a
+	 *                        message in sub-connection (UDP)
+	 * @param message         the sending message, a {@link TObject} or a schema
+	 *                        message
+	 */
+	private void __broadcast(Collection<AbstractPlayer> players, AbstractPlayer ignoredPlayer,
+			boolean isSubConnection, Object message) {
+		IPacket packet = null;
+		try {
+			for (var player : players) {
+				if (player.equals(ignoredPlayer)) {
+					continue;
+				}
+				if (packet == null) {
+					if (isSubConnection && player.hasSubConnection()) {
+						packet = __newPacket(player.getSubConnection(), message);
+					} else if (!isSubConnection && player.hasConnection()) {
+						packet = __newPacket(player.getConnection(), message);
+					}
+				}
+				__send(player, isSubConnection, message, packet);
+			}
+		} finally {
+			if (packet != null) {
+				packet.release();
+			}
+		}
+	}
+
+	/**
+	 * @param connection the connection, see {@link Connection}
+	 * @param message    a {@link TObject} or a schema message
+	 */
+	private void __send(Connection connection, Object message) {
+		if (message instanceof TObject) {
+			connection.send((TObject) message);
+		} else {
+			connection.sendMessage(message);
+		}
+	}
+
+	/**
+	 * @param connection the connection which encodes the message, see
+	 *                   {@link Connection}
+	 * @param message    a {@link TObject} or a schema message
+	 * @return an encoded packet, see {@link IPacket}
+	 */
+	private IPacket __newPacket(Connection connection, Object message) {
+		if (message instanceof TObject) {
+			return connection.newPacket((TObject) message);
+		}
+		return connection.newMessagePacket(message);
+	}
+
 	/**
 	 * Send a message to player via his connection
 	 * 
-	 * @see #__send(AbstractPlayer, boolean, TObject)
+	 * @see #__send(AbstractPlayer, boolean, Object)
 	 * 
 	 * @param key   the key of message
 	 * @param value the value of message
@@ -220,6 +312,71 @@ public final class MessageApi extends AbstractLogger {
 		__sendToPlayer(player, true, key, value, keyData, data);
 	}
 
+	/**
+	 * Send a message to a player via his sub-connection with a delivery guarantee
+	 * 
+	 * @param player   See {@link AbstractPlayer}
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 * @param message  the sending message, a {@link TObject} or a schema message
+	 */
+	private void __sendSub(AbstractPlayer player, Delivery delivery, Object message) {
+		player.setCurrentWriterTime(); // update time to check TIMEOUT
+		if (player.hasSubConnection()) { // send to CLIENT (sub-connection)
+			if (message instanceof TObject) {
+				player.getSubConnection().send((TObject) message, delivery);
+			} else {
+				player.getSubConnection().sendMessage(message, delivery);
+			}
+			debug("SENT SUB", player.getName(), message.toString());
+		} else {
+			debug("SENT SUB NPC", player.getName(), message.toString());
+		}
+		__eventManager.getExternal().emit(TEvent.SEND_TO_PLAYER, player, true, message);
+	}
+
+	/**
+	 * Send a message to a player via his sub-connection with a delivery guarantee.
+	 * A reliable ordered message is sent again until the client acknowledges it,
+	 * an unreliable sequenced message is dropped by the client when a newer one
+	 * has already arrived.
+	 * 
+	 * @param player   the desired player
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 * @param key      the key of message
+	 * @param value    the value of message
+	 */
+	public void sendToPlayerSub(AbstractPlayer player, Delivery delivery, String key, Object value) {
+		var message = __objectPool.get();
+		message.put(key, value);
+		__sendSub(player, delivery, message);
+		__objectPool.repay(message);
+		if (value instanceof TArray) {
+			__arrayPool.repay((TArray) value);
+		}
+	}
+
+	/**
+	 * Send a message to a player via his sub-connection with a delivery guarantee
+	 * 
+	 * @see #sendToPlayerSub(AbstractPlayer, Delivery, String, Object)
+	 * 
+	 * @param player   the desired player
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 * @param key      the key of message
+	 * @param value    the value of message
+	 * @param keyData  the key of message's data
+	 * @param data     the message's data, see: {@link TArray}
+	 */
+	public void sendToPlayerSub(AbstractPlayer player, Delivery delivery, String key, Object value, String keyData,
+			TArray data) {
+		var message = __objectPool.get();
+		message.put(key, value);
+		message.put(keyData, data);
+		__sendSub(player, delivery, message);
+		__objectPool.repay(message);
+		__arrayPool.repay(data);
+	}
+
 	/**
 	 * Send a message to all players of one room
 	 * 
@@ -232,9 +389,7 @@ public final class MessageApi extends AbstractLogger {
 	private void __sendToRoom(AbstractRoom room, boolean isSubConnection, String key, Object value) {
 		var message = __objectPool.get();
 		message.put(key, value);
-		for (var player : room.getPlayers().values()) {
-			__send(player, isSubConnection, message);
-		}
+		__broadcast(room.getPlayers().values(), null, isSubConnection, message);
 		__objectPool.repay(message);
 		if (value instanceof TArray) {
 			__arrayPool.repay((TArray) value);
@@ -286,9 +441,7 @@ public final class MessageApi extends AbstractLogger {
 		var message = __objectPool.get();
 		message.put(key, value);
 		message.put(keyData, data);
-		for (var player : room.getPlayers().values()) {
-			__send(player, isSubConnection, message);
-		}
+		__broadcast(room.getPlayers().values(), null, isSubConnection, message);
 		__objectPool.repay(message);
 		__arrayPool.repay(data);
 	}
@@ -336,11 +489,7 @@ public final class MessageApi extends AbstractLogger {
 		var room = player.getRoom();
 		var message = __objectPool.get();
 		message.put(key, value);
-		for (var p : room.getPlayers().values()) {
-			if (!p.equals(player)) {
-				__send(p, isSubConnection, message);
-			}
-		}
+		__broadcast(room.getPlayers().values(), player, isSubConnection, message);
 		__objectPool.repay(message);
 		if (value instanceof TArray) {
 			__arrayPool.repay((TArray) value);
@@ -395,11 +544,7 @@ public final class MessageApi extends AbstractLogger {
 		var message = __objectPool.get();
 		message.put(key, value);
 		message.put(keyData, data);
-		for (var p : room.getPlayers().values()) {
-			if (!p.equals(player)) {
-				__send(p, isSubConnection, message);
-			}
-		}
+		__broadcast(room.getPlayers().values(), player, isSubConnection, message);
 		__objectPool.repay(message);
 		__arrayPool.repay(data);
 	}
@@ -439,6 +584,99 @@ public final class MessageApi extends AbstractLogger {
 		__sendToRoomIgnorePlayer(player, true, key, value, keyData, data);
 	}
 
+	/**
+	 * Send a schema message to a player via his main connection. The message is
+	 * written by its generated codec, see {@link Message}, which is much smaller
+	 * and faster than a {@link TObject} for the frequent messages.
+	 * 
+	 * @param player  the desired player
+	 * @param message an instance of one {@link Message} class
+	 */
+	public void sendMessageToPlayer(AbstractPlayer player, Object message) {
+		__send(player, false, message);
+	}
+
+	/**
+	 * Send a schema message to a player via his sub-connection
+	 * 
+	 * @see #sendMessageToPlayer(AbstractPlayer, Object)
+	 * 
+	 * @param player  the desired player
+	 * @param message an instance of one {@link Message} class
+	 */
+	public void sendMessageToPlayerSub(AbstractPlayer player, Object message) {
+		__send(player, true, message);
+	}
+
+	/**
+	 * Send a schema message to a player via his sub-connection with a delivery
+	 * guarantee
+	 * 
+	 * @see #sendToPlayerSub(AbstractPlayer, Delivery, String, Object)
+	 * 
+	 * @param player   the desired player
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 * @param message  an instance of one {@link Message} class
+	 */
+	public void sendMessageToPlayerSub(AbstractPlayer player, Delivery delivery, Object message) {
+		__sendSub(player, delivery, message);
+	}
+
+	/**
+	 * Send a schema message to all players on one room via their main connection,
+	 * the message is encoded once
+	 * 
+	 * @see #sendMessageToPlayer(AbstractPlayer, Object)
+	 * 
+	 * @param room    the desired room
+	 * @param message an instance of one {@link Message} class
+	 */
+	public void sendMessageToRoom(AbstractRoom room, Object message) {
+		__broadcast(room.getPlayers().values(), null, false, message);
+	}
+
+	/**
+	 * Send a schema message to all players on one room via their sub-connection,
+	 * the message is encoded once
+	 * 
+	 * @see #sendMessageToPlayer(AbstractPlayer, Object)
+	 * 
+	 * @param room    the desired room
+	 * @param message an instance of one {@link Message} class
+	 */
+	public void sendMessageToRoomSub(AbstractRoom room, Object message) {
+		__broadcast(room.getPlayers().values(), null, true, message);
+	}
+
+	/**
+	 * Flush all the pending messages of a player (both connection and
+	 * sub-connection). Use it as a boundary after sending a batch of messages, e.g.
+	 * at the end of one heart-beat tick.
+	 * 
+	 * @param player the desired player
+	 */
+	public void flush(AbstractPlayer player) {
+		if (player.hasConnection()) {
+			player.getConnection().flush();
+		}
+		if (player.hasSubConnection()) {
+			player.getSubConnection().flush();
+		}
+	}
+
+	/**
+	 * Flush all the pending messages of all players in one room
+	 * 
+	 * @see #flush(AbstractPlayer)
+	 * 
+	 * @param room the desired room
+	 */
+	public void flush(AbstractRoom room) {
+		for (var player : room.getPlayers().values()) {
+			flush(player);
+		}
+	}
+
 	/**
 	 * @return a {@link TArray} object from the pooling mechanism
 	 */
@@ -446,4 +684,23 @@ public final class MessageApi extends AbstractLogger {
 		return __arrayPool.get();
 	}
 
+	/**
+	 * A growing number of arrays in use means that some arrays taken by
+	 * {@link #getArrayPack()} are never sent
+	 * 
+	 * @return the usage counters of the {@link TArray} pool, see
+	 *         {@link PoolStatistics}
+	 */
+	public PoolStatistics getArrayPoolStatistics() {
+		return __arrayPool.getStatistics();
+	}
+
+	/**
+	 * @return the usage counters of the {@link TObject} pool, see
+	 *         {@link PoolStatistics}
+	 */
+	public PoolStatistics getObjectPoolStatistics() {
+		return __objectPool.getStatistics();
+	}
+
 }
@@ -24,6 +24,8 @@ THE SOFTWARE.
 package com.tenio.api;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +35,7 @@ import com.tenio.entity.manager.IPlayerManager;
 import com.tenio.entity.manager.IRoomManager;
 import com.tenio.logger.AbstractLogger;
 import com.tenio.network.Connection;
+import com.tenio.network.TrafficMetrics;
 
 /**
  * This class provides you a necessary interface for managing players.
@@ -170,6 +173,66 @@ public final class PlayerApi extends AbstractLogger {
 		return count();
 	}
 
+	/**
+	 * Retrieve the traffic counters of a player, the counters of its connection
+	 * and sub-connection are summed.
+	 * 
+	 * @param player the player, see {@link AbstractPlayer}
+	 * @return the counters' values, see {@link TrafficMetrics.Snapshot}. All values
+	 *         are 0 for an NPC or a BOT
+	 */
+	public TrafficMetrics.Snapshot getTrafficMetrics(final AbstractPlayer player) {
+		var snapshot = TrafficMetrics.Snapshot.EMPTY;
+		var connection = player.getConnection();
+		if (connection != null) {
+			snapshot = snapshot.add(connection.getMetrics().getSnapshot());
+		}
+		var subConnection = player.getSubConnection();
+		if (subConnection != null) {
+			snapshot = snapshot.add(subConnection.getMetrics().getSnapshot());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Retrieve the traffic counters of all the connections of one transport, since
+	 * the server was started.
+	 * 
+	 * @param type the transport, see {@link Connection.Type}
+	 * @return the counters' values, see {@link TrafficMetrics.Snapshot}
+	 */
+	public TrafficMetrics.Snapshot getTrafficMetrics(final Connection.Type type) {
+		return TrafficMetrics.of(type).getSnapshot();
+	}
+
+	/**
+	 * @return the traffic counters of all current players that have connections,
+	 *         keyed by the players' names, see {@link TrafficMetrics.Snapshot}
+	 */
+	public Map<String, TrafficMetrics.Snapshot> getAllTrafficMetrics() {
+		var metrics = new HashMap<String, TrafficMetrics.Snapshot>();
+		gets().values().forEach((player) -> {
+			if (player.hasConnection()) {
+				metrics.put(player.getName(), getTrafficMetrics(player));
+			}
+		});
+		return metrics;
+	}
+
+	/**
+	 * Find the players which generate the most traffic.
+	 * 
+	 * @param count the maximum number of players in the result
+	 * @return the players' names and counters, ordered by their total bytes in
+	 *         both directions (the highest first)
+	 */
+	public List<Map.Entry<String, TrafficMetrics.Snapshot>> getTopTrafficPlayers(final int count) {
+		var entries = new ArrayList<Map.Entry<String, TrafficMetrics.Snapshot>>(getAllTrafficMetrics().entrySet());
+		entries.sort(Comparator.comparingLong(
+				(Map.Entry<String, TrafficMetrics.Snapshot> entry) -> entry.getValue().getTotalBytes()).reversed());
+		return entries.subList(0, Math.min(count, entries.size()));
+	}
+
 	/**
 	 * @return all players' information data
 	 */
@@ -0,0 +1,167 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.tenio.entity.AbstractPlayer;
+import com.tenio.entity.element.TArray;
+import com.tenio.logger.AbstractLogger;
+import com.tenio.message.snapshot.Snapshot;
+import com.tenio.message.snapshot.SnapshotDelta;
+import com.tenio.message.snapshot.SnapshotHistory;
+import com.tenio.network.Connection.Delivery;
+
+/**
+ * This class provides you a necessary interface for sending the state of your
+ * entities to clients on each update. Instead of sending the whole state every
+ * time, each player gets only the fields which changed since the last snapshot
+ * he acknowledged, see {@link SnapshotDelta}. When there is no such snapshot
+ * (a new player, or his acknowledgements are lost for too long), he gets a full
+ * snapshot. The snapshots are sent by {@link MessageApi} as the value of a key,
+ * each key is a separated stream (e.g. one for the vehicles and one for the
+ * bullets).
+ * 
+ * <br>
+ * The client must send back the sequence of each received snapshot, see
+ * {@link SnapshotDelta#getSequence(TArray)}, which is passed to
+ * {@link #acknowledge(AbstractPlayer, String, int)}, and keep the received
+ * snapshots until a newer one is built on them. When a player leaves, call
+ * {@link #clean(AbstractPlayer)}.
+ * 
+ * @author kong
+ * 
+ */
+public final class SnapshotApi extends AbstractLogger {
+
+	/**
+	 * The default number of snapshots which are kept for each player and key
+	 */
+	public static final int DEFAULT_HISTORY_SIZE = 32;
+
+	private final MessageApi __messageApi;
+	private final int __historySize;
+	/**
+	 * The snapshot histories of the players by their names, then by the keys
+	 */
+	private final Map<String, Map<String, SnapshotHistory>> __histories;
+
+	public SnapshotApi(MessageApi messageApi) {
+		this(messageApi, DEFAULT_HISTORY_SIZE);
+	}
+
+	/**
+	 * @param messageApi  See {@link MessageApi}
+	 * @param historySize the number of snapshots which are kept for each player
+	 *                    and key, a player who acknowledges a snapshot later gets
+	 *                    a full snapshot
+	 */
+	public SnapshotApi(MessageApi messageApi, int historySize) {
+		if (historySize <= 0) {
+			throw new IllegalArgumentException("Invalid history size: " + historySize);
+		}
+		__messageApi = messageApi;
+		__historySize = historySize;
+		__histories = new ConcurrentHashMap<String, Map<String, SnapshotHistory>>();
+	}
+
+	/**
+	 * Send a snapshot to a player via his main connection
+	 * 
+	 * @param player   the desired player
+	 * @param key      the key of message, it identifies the stream of snapshots
+	 * @param snapshot the snapshot, see {@link Snapshot}. It must not be changed
+	 *                 after this call, but it can be sent to many players
+	 */
+	public void sendToPlayer(AbstractPlayer player, String key, Snapshot snapshot) {
+		__messageApi.sendToPlayer(player, key, __write(player, key, snapshot));
+	}
+
+	/**
+	 * Send a snapshot to a player via his sub-connection. The snapshots are sent
+	 * as {@link Delivery#UNRELIABLE_SEQUENCED}, because an older snapshot is
+	 * useless once a newer one is received.
+	 * 
+	 * @param player   the desired player
+	 * @param key      the key of message, it identifies the stream of snapshots
+	 * @param snapshot the snapshot, see {@link Snapshot}. It must not be changed
+	 *                 after this call, but it can be sent to many players
+	 */
+	public void sendToPlayerSub(AbstractPlayer player, String key, Snapshot snapshot) {
+		__messageApi.sendToPlayerSub(player, Delivery.UNRELIABLE_SEQUENCED, key, __write(player, key, snapshot));
+	}
+
+	/**
+	 * Acknowledge a snapshot which is received by a player, the next snapshots of
+	 * this key are sent as the delta against it
+	 * 
+	 * @param player   the player
+	 * @param key      the key of message
+	 * @param sequence the received sequence
+	 * @return <b>true</b> if the snapshot is the new baseline, the older or unknown
+	 *         sequences are ignored
+	 */
+	public boolean acknowledge(AbstractPlayer player, String key, int sequence) {
+		var histories = __histories.get(player.getName());
+		if (histories == null) {
+			return false;
+		}
+		var history = histories.get(key);
+		return history != null && history.acknowledge(sequence);
+	}
+
+	/**
+	 * Forget the snapshots of a player, his next snapshots are sent in full
+	 * 
+	 * @param player the player
+	 */
+	public void clean(AbstractPlayer player) {
+		__histories.remove(player.getName());
+	}
+
+	/**
+	 * @param player the player
+	 * @param key    the key of message
+	 * @return the snapshot history, see {@link SnapshotHistory}, or <b>null</b> if
+	 *         no snapshot of this key was sent to the player
+	 */
+	public SnapshotHistory getHistory(AbstractPlayer player, String key) {
+		var histories = __histories.get(player.getName());
+		return histories != null ? histories.get(key) : null;
+	}
+
+	/**
+	 * @param player   the desired player
+	 * @param key      the key of message
+	 * @param snapshot the snapshot, see {@link Snapshot}
+	 * @return the delta, in a {@link TArray} of the pool of {@link MessageApi}
+	 */
+	private TArray __write(AbstractPlayer player, String key, Snapshot snapshot) {
+		var history = __histories.computeIfAbsent(player.getName(), name -> new ConcurrentHashMap<>())
+				.computeIfAbsent(key, k -> new SnapshotHistory(__historySize));
+		return history.write(snapshot, __messageApi.getArrayPack());
+	}
+
+}
@@ -24,9 +24,11 @@ THE SOFTWARE.
 package com.tenio.api;
 
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.tenio.logger.AbstractLogger;
 import com.tenio.task.ITaskManager;
+import com.tenio.task.TaskStatistics;
 
 /**
  * This class provides you a necessary interface for managing tasks.
@@ -54,6 +56,52 @@ public final class TaskApi extends AbstractLogger {
 		__taskManager.create(id, task);
 	}
 
+	/**
+	 * Create a new periodic task on the server's shared scheduler.
+	 * 
+	 * @param id           the unique id for management
+	 * @param task         the task
+	 * @param initialDelay the delay before the first run
+	 * @param period       the period between the starts of two runs, 0 to run the
+	 *                     task once
+	 * @param unit         the time unit, see {@link TimeUnit}
+	 * @return <b>true</b> if the task is scheduled, <b>false</b> if a task with
+	 *         the same id is still running
+	 */
+	public boolean run(String id, Runnable task, long initialDelay, long period, TimeUnit unit) {
+		return run(id, task, initialDelay, period, 0, unit);
+	}
+
+	/**
+	 * Create a new periodic task on the server's shared scheduler.
+	 * 
+	 * @param id           the unique id for management
+	 * @param task         the task
+	 * @param initialDelay the delay before the first run
+	 * @param period       the period between the starts of two runs, 0 to run the
+	 *                     task once
+	 * @param jitter       the maximum random time which is added to the initial
+	 *                     delay
+	 * @param unit         the time unit, see {@link TimeUnit}
+	 * @return <b>true</b> if the task is scheduled, <b>false</b> if a task with
+	 *         the same id is still running
+	 */
+	public boolean run(String id, Runnable task, long initialDelay, long period, long jitter, TimeUnit unit) {
+		return __taskManager.schedule(id, task, initialDelay, period, jitter, unit) != null;
+	}
+
+	/**
+	 * Retrieve the run times of one task, only for the tasks on the server's
+	 * shared scheduler.
+	 * 
+	 * @param id the task's id
+	 * @return the statistics, see {@link TaskStatistics}, or <b>null</b> if the task
+	 *         does not exist
+	 */
+	public TaskStatistics getStatistics(String id) {
+		return __taskManager.getStatistics(id);
+	}
+
 	/**
 	 * Kill or stop a running task.
 	 * 
@@ -23,13 +23,8 @@ THE SOFTWARE.
 */
 package com.tenio.api.pool;
 
-import javax.annotation.concurrent.GuardedBy;
-
-import com.tenio.configuration.constant.Constants;
 import com.tenio.entity.element.TArray;
-import com.tenio.exception.NullElementPoolException;
-import com.tenio.logger.AbstractLogger;
-import com.tenio.pool.IElementPool;
+import com.tenio.pool.AbstractElementPool;
 
 /**
  * The object pool mechanism for {@link TArray}.
@@ -37,86 +32,25 @@ import com.tenio.pool.IElementPool;
  * @author kong
  * 
  */
-public final class ArrayPool extends AbstractLogger implements IElementPool<TArray> {
-
-	@GuardedBy("this")
-	private TArray[] __pool;
-	@GuardedBy("this")
-	private boolean[] __used;
+public final class ArrayPool extends AbstractElementPool<TArray> {
 
 	public ArrayPool() {
-		__pool = new TArray[Constants.BASE_ELEMENT_POOL];
-		__used = new boolean[Constants.BASE_ELEMENT_POOL];
-
-		for (int i = 0; i < __pool.length; i++) {
-			__pool[i] = TArray.newInstance();
-			__used[i] = false;
-		}
+		super("ARRAY POOL");
 	}
 
-	@Override
-	public synchronized TArray get() {
-		for (int i = 0; i < __used.length; i++) {
-			if (!__used[i]) {
-				__used[i] = true;
-				return __pool[i];
-			}
-		}
-		// If we got here, then all the Elements are in use. We will
-		// increase the number in our pool by @ADD_ELEMENT_POOL (arbitrary value for
-		// illustration purposes).
-		var oldUsed = __used;
-		__used = new boolean[oldUsed.length + Constants.ADD_ELEMENT_POOL];
-		System.arraycopy(oldUsed, 0, __used, 0, oldUsed.length);
-
-		var oldPool = __pool;
-		__pool = new TArray[oldPool.length + Constants.ADD_ELEMENT_POOL];
-		System.arraycopy(oldPool, 0, __pool, 0, oldPool.length);
-
-		for (int i = oldPool.length; i < __pool.length; i++) {
-			__pool[i] = TArray.newInstance();
-			__used[i] = false;
-		}
-
-		info("ARRAY POOL",
-				buildgen("Increase the number of elements by ", Constants.ADD_ELEMENT_POOL, " to ", __used.length));
-
-		// and allocate the last old ELement
-		__used[oldPool.length - 1] = true;
-		return __pool[oldPool.length - 1];
-	}
-
-	@Override
-	public synchronized void repay(TArray element) {
-		boolean flagFound = false;
-		for (int i = 0; i < __pool.length; i++) {
-			if (__pool[i] == element) {
-				__used[i] = false;
-				// Clear array
-				element.clear();
-				flagFound = true;
-				break;
-			}
-		}
-		if (!flagFound) {
-			var e = new NullElementPoolException("Make sure to use {@link MessageApi.genArrayPacker}!");
-			error(e);
-			throw e;
-		}
+	public ArrayPool(int initialSize, int growSize, int maxSize) {
+		super("ARRAY POOL", initialSize, growSize, maxSize);
 	}
 
 	@Override
-	public synchronized void cleanup() {
-		for (int i = 0; i < __pool.length; i++) {
-			__pool[i] = null;
-		}
-		__used = null;
-		__pool = null;
+	protected TArray _createElement() {
+		return TArray.newInstance();
 	}
 
 	@Override
-	public synchronized int getPoolSize() {
-		return (__pool.length == __used.length) ? __pool.length : -1;
+	protected void _resetElement(TArray element) {
+		// Clear array
+		element.clear();
 	}
 
 }
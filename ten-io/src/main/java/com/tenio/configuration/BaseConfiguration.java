@@ -56,10 +56,18 @@ import com.tenio.utility.XMLUtility;
  * from the last getting message from client</li>
  * <li><i>idleWriter:</i> The max IDLE time in seconds which server can wait
  * from the last sending message to client</li>
- * <li><i>emptyRoomScan:</i> Get the period checking in seconds which server can
- * keep the empty room</li>
- * <li><i>timeoutScan:</i> The period checking player time out in seconds</li>
+ * <li><i>emptyRoomScan:</i> The time in seconds which server can keep an
+ * empty room, the room is removed when it stays empty for this time</li>
+ * <li><i>timeoutScan:</i> The period checking player time out in seconds, it
+ * is the precision of the players' time outs</li>
  * <li><i>ccuScan:</i> The period checking CCU in seconds</li>
+ * <li><i>taskThreads:</i> The number of threads shared by all the scheduled
+ * tasks</li>
+ * <li><i>poolLeakSampling:</i> One of this number of pooled elements records
+ * the stack of its acquisition, to report it when the element is never repaid.
+ * 0 to disable the leak detection</li>
+ * <li><i>poolLeakThreshold:</i> The time in seconds a sampled pooled element
+ * can stay in use before it is reported as a leak</li>
  * <li><i>serverName:</i> The server name</li>
  * <li><i>serverId:</i> The server id (module name)</li>
  * <li><i>versionName:</i> This current version name of your server in string
@@ -68,6 +76,85 @@ import com.tenio.utility.XMLUtility;
  * type (can be compared)</li>
  * </ul>
  * 
+ * <h1>Configuration for network, declared in the Network section</h1> <br>
+ * <ul>
+ * <li><i>transport:</i> The network transport: <b>nio</b>, <b>epoll</b> or
+ * <b>auto</b> (epoll when available, nio otherwise)</li>
+ * <li><i>producerThreads:</i> The number of threads accepting new connections
+ * for each transport (Socket, WebSocket), 0 for the Netty default value</li>
+ * <li><i>consumerThreads:</i> The number of threads handling I/O for each
+ * transport (Socket, Datagram, WebSocket), 0 for the Netty default value</li>
+ * <li><i>reusePort:</i> Enable SO_REUSEPORT for each transport (epoll
+ * only)</li>
+ * <li><i>allocator:</i> The buffer allocator: <b>pooled</b> or
+ * <b>unpooled</b></li>
+ * <li><i>flushMaxMessages:</i> The maximum number of messages written to a
+ * connection before it is flushed, 1 to flush every message immediately</li>
+ * <li><i>flushMaxDelay:</i> The maximum delay in milliseconds that a written
+ * message can wait before being flushed</li>
+ * <li><i>dispatcherThreads:</i> The number of threads handling the inbound
+ * messages out of the network threads, 0 to handle them on the network
+ * threads</li>
+ * <li><i>dispatcherQueueSize:</i> The maximum number of pending inbound
+ * messages per dispatcher thread</li>
+ * <li><i>dispatcherOverflow:</i> What happens to a message when its dispatcher
+ * thread's queue is full: <b>drop</b> or <b>disconnect</b></li>
+ * <li><i>floodMessageRate:</i> The maximum number of messages per second that
+ * one connection can send, 0 for no limit</li>
+ * <li><i>floodByteRate:</i> The maximum number of bytes per second that one
+ * connection can send, 0 for no limit</li>
+ * <li><i>floodAction:</i> What happens to a connection which exceeds its
+ * limits: <b>drop</b> the messages, <b>throttle</b> its reading or
+ * <b>disconnect</b> it (Datagram clients are never throttled, their messages
+ * are dropped instead)</li>
+ * <li><i>keyDictionarySize:</i> The maximum number of keys that a TCP or
+ * WebSocket client can ask to replace by small ids, 0 to refuse the key
+ * dictionaries</li>
+ * <li><i>backlog:</i> The maximum queue length of pending connections (Socket,
+ * WebSocket)</li>
+ * <li><i>sendBuffer:</i> The SO_SNDBUF size in bytes, 0 for the system
+ * default value</li>
+ * <li><i>receiveBuffer:</i> The SO_RCVBUF size in bytes, 0 for the system
+ * default value</li>
+ * <li><i>tcpNoDelay:</i> Disable the Nagle's algorithm (Socket,
+ * WebSocket)</li>
+ * <li><i>keepAlive:</i> Enable SO_KEEPALIVE (Socket, WebSocket)</li>
+ * <li><i>lowWaterMark:</i> When the pending outbound bytes drop below this
+ * value, the connection becomes writable again (Socket, WebSocket)</li>
+ * <li><i>highWaterMark:</i> When the pending outbound bytes exceed this
+ * value, the connection becomes not writable (Socket, WebSocket)</li>
+ * <li><i>idleTimeout:</i> The time in seconds after which a silent UDP
+ * address is detached from its player, 0 to keep it until the player is
+ * disconnected (Datagram)</li>
+ * <li><i>channels:</i> The number of UDP sockets bound to the same port with
+ * SO_REUSEPORT, so the packets are read by several threads (Datagram, epoll
+ * only)</li>
+ * <li><i>mtu:</i> The maximum size in bytes of a UDP packet which packs several
+ * messages for the same client, 0 to send every message in its own packet
+ * (Datagram)</li>
+ * <li><i>sessionRequired:</i> The attached UDP clients must put the session
+ * header (given on the attachment) in front of their packets, the other
+ * packets are dropped (Datagram)</li>
+ * <li><i>codec:</i> The default codec of the messages for each transport
+ * (Socket, Datagram, WebSocket): <b>msgpack</b>, <b>binary</b>, <b>json</b> or
+ * the name of a registered one. A client can choose another codec by a
+ * handshake</li>
+ * <li><i>maxFrameSize:</i> The maximum size in bytes of a frame, and of a
+ * message aggregated from fragmented frames (WebSocket)</li>
+ * <li><i>compression:</i> Enable the permessage-deflate extension
+ * (WebSocket)</li>
+ * <li><i>compressionLevel:</i> The compression level from 0 to 9
+ * (WebSocket)</li>
+ * <li><i>compressionThreshold:</i> The messages smaller than this size in
+ * bytes are sent without compression (WebSocket)</li>
+ * <li><i>compressionServerNoContext:</i> Accept the client's request for
+ * resetting the server's compression context after every message
+ * (WebSocket)</li>
+ * <li><i>compressionClientNoContext:</i> Ask the client to reset its
+ * compression context after every message, it saves memory on the client side
+ * (WebSocket)</li>
+ * </ul>
+ * 
  * @author kong
  * 
  */
@@ -109,7 +196,7 @@ public abstract class BaseConfiguration extends AbstractLogger {
 	 */
 	public static final String IDLE_WRITER = "t.idleWriter";
 	/**
-	 * Get the period checking in seconds which server can keep the empty room
+	 * The time in seconds which server can keep an empty room
 	 */
 	public static final String EMPTY_ROOM_SCAN = "t.emptyRoomScan";
 	/**
@@ -120,6 +207,20 @@ public abstract class BaseConfiguration extends AbstractLogger {
 	 * The period checking CCU in seconds
 	 */
 	public static final String CCU_SCAN = "t.ccuScan";
+	/**
+	 * The number of threads shared by all the scheduled tasks
+	 */
+	public static final String TASK_THREADS = "t.taskThreads";
+	/**
+	 * One of this number of pooled elements records the stack of its acquisition,
+	 * 0 to disable the leak detection
+	 */
+	public static final String POOL_LEAK_SAMPLING = "t.poolLeakSampling";
+	/**
+	 * The time in seconds a sampled pooled element can stay in use before it is
+	 * reported as a leak
+	 */
+	public static final String POOL_LEAK_THRESHOLD = "t.poolLeakThreshold";
 	/**
 	 * The server name
 	 */
@@ -136,6 +237,209 @@ public abstract class BaseConfiguration extends AbstractLogger {
 	 * This current version code of your server in integer type (can be compared)
 	 */
 	public static final String VERSION_CODE = "t.versionCode";
+	/**
+	 * The network transport: nio, epoll or auto
+	 */
+	public static final String NETWORK_TRANSPORT = "t.networkTransport";
+	/**
+	 * The buffer allocator: pooled or unpooled
+	 */
+	public static final String NETWORK_ALLOCATOR = "t.networkAllocator";
+	/**
+	 * The maximum number of messages written to a connection before it is flushed
+	 */
+	public static final String NETWORK_FLUSH_MAX_MESSAGES = "t.networkFlushMaxMessages";
+	/**
+	 * The maximum delay in milliseconds that a written message can wait before
+	 * being flushed
+	 */
+	public static final String NETWORK_FLUSH_MAX_DELAY = "t.networkFlushMaxDelay";
+	/**
+	 * The number of threads handling the inbound messages out of the network
+	 * threads
+	 */
+	public static final String NETWORK_DISPATCHER_THREADS = "t.networkDispatcherThreads";
+	/**
+	 * The maximum number of pending inbound messages per dispatcher thread
+	 */
+	public static final String NETWORK_DISPATCHER_QUEUE_SIZE = "t.networkDispatcherQueueSize";
+	/**
+	 * The dispatcher's overflow policy: drop or disconnect
+	 */
+	public static final String NETWORK_DISPATCHER_OVERFLOW = "t.networkDispatcherOverflow";
+	/**
+	 * The maximum number of messages per second that one connection can send
+	 */
+	public static final String NETWORK_FLOOD_MESSAGE_RATE = "t.networkFloodMessageRate";
+	/**
+	 * The maximum number of bytes per second that one connection can send
+	 */
+	public static final String NETWORK_FLOOD_BYTE_RATE = "t.networkFloodByteRate";
+	/**
+	 * The flood action: drop, throttle or disconnect
+	 */
+	public static final String NETWORK_FLOOD_ACTION = "t.networkFloodAction";
+	/**
+	 * The maximum number of keys of each table of a connection's key dictionary,
+	 * 0 to refuse the key dictionaries
+	 */
+	public static final String NETWORK_KEY_DICTIONARY_SIZE = "t.networkKeyDictionarySize";
+	/**
+	 * The number of threads accepting new TCP connections
+	 */
+	public static final String SOCKET_PRODUCER_THREADS = "t.socketProducerThreads";
+	/**
+	 * The number of threads handling TCP connections
+	 */
+	public static final String SOCKET_CONSUMER_THREADS = "t.socketConsumerThreads";
+	/**
+	 * Enable SO_REUSEPORT for the TCP port (epoll only)
+	 */
+	public static final String SOCKET_REUSE_PORT = "t.socketReusePort";
+	/**
+	 * The maximum queue length of pending TCP connections
+	 */
+	public static final String SOCKET_BACKLOG = "t.socketBacklog";
+	/**
+	 * The SO_SNDBUF size in bytes of TCP connections, 0 for the system default
+	 */
+	public static final String SOCKET_SEND_BUFFER = "t.socketSendBuffer";
+	/**
+	 * The SO_RCVBUF size in bytes of TCP connections, 0 for the system default
+	 */
+	public static final String SOCKET_RECEIVE_BUFFER = "t.socketReceiveBuffer";
+	/**
+	 * Disable the Nagle's algorithm for TCP connections
+	 */
+	public static final String SOCKET_TCP_NO_DELAY = "t.socketTcpNoDelay";
+	/**
+	 * Enable SO_KEEPALIVE for TCP connections
+	 */
+	public static final String SOCKET_KEEP_ALIVE = "t.socketKeepAlive";
+	/**
+	 * The low write buffer water mark in bytes of TCP connections
+	 */
+	public static final String SOCKET_LOW_WATER_MARK = "t.socketLowWaterMark";
+	/**
+	 * The high write buffer water mark in bytes of TCP connections
+	 */
+	public static final String SOCKET_HIGH_WATER_MARK = "t.socketHighWaterMark";
+	/**
+	 * The default codec of the TCP messages
+	 */
+	public static final String SOCKET_CODEC = "t.socketCodec";
+	/**
+	 * The number of threads handling UDP packets
+	 */
+	public static final String DATAGRAM_CONSUMER_THREADS = "t.datagramConsumerThreads";
+	/**
+	 * Enable SO_REUSEPORT for the UDP port (epoll only)
+	 */
+	public static final String DATAGRAM_REUSE_PORT = "t.datagramReusePort";
+	/**
+	 * The SO_SNDBUF size in bytes of the UDP socket, 0 for the system default
+	 */
+	public static final String DATAGRAM_SEND_BUFFER = "t.datagramSendBuffer";
+	/**
+	 * The SO_RCVBUF size in bytes of the UDP socket, 0 for the system default
+	 */
+	public static final String DATAGRAM_RECEIVE_BUFFER = "t.datagramReceiveBuffer";
+	/**
+	 * The time in seconds after which a silent UDP address is detached from its
+	 * player
+	 */
+	public static final String DATAGRAM_IDLE_TIMEOUT = "t.datagramIdleTimeout";
+	/**
+	 * The number of UDP sockets bound to the same port, each one is read by its
+	 * own thread (epoll only)
+	 */
+	public static final String DATAGRAM_CHANNELS = "t.datagramChannels";
+	/**
+	 * The maximum size in bytes of a UDP packet which packs several messages, 0 to
+	 * send every message in its own packet
+	 */
+	public static final String DATAGRAM_MTU = "t.datagramMtu";
+	/**
+	 * The attached UDP clients must put the session header in front of their
+	 * packets
+	 */
+	public static final String DATAGRAM_SESSION_REQUIRED = "t.datagramSessionRequired";
+	/**
+	 * The default codec of the UDP messages
+	 */
+	public static final String DATAGRAM_CODEC = "t.datagramCodec";
+	/**
+	 * The number of threads accepting new WebSocket connections
+	 */
+	public static final String WEBSOCKET_PRODUCER_THREADS = "t.webSocketProducerThreads";
+	/**
+	 * The number of threads handling WebSocket connections
+	 */
+	public static final String WEBSOCKET_CONSUMER_THREADS = "t.webSocketConsumerThreads";
+	/**
+	 * Enable SO_REUSEPORT for the WebSocket port (epoll only)
+	 */
+	public static final String WEBSOCKET_REUSE_PORT = "t.webSocketReusePort";
+	/**
+	 * The maximum queue length of pending WebSocket connections
+	 */
+	public static final String WEBSOCKET_BACKLOG = "t.webSocketBacklog";
+	/**
+	 * The SO_SNDBUF size in bytes of WebSocket connections, 0 for the system default
+	 */
+	public static final String WEBSOCKET_SEND_BUFFER = "t.webSocketSendBuffer";
+	/**
+	 * The SO_RCVBUF size in bytes of WebSocket connections, 0 for the system default
+	 */
+	public static final String WEBSOCKET_RECEIVE_BUFFER = "t.webSocketReceiveBuffer";
+	/**
+	 * Disable the Nagle's algorithm for WebSocket connections
+	 */
+	public static final String WEBSOCKET_TCP_NO_DELAY = "t.webSocketTcpNoDelay";
+	/**
+	 * Enable SO_KEEPALIVE for WebSocket connections
+	 */
+	public static final String WEBSOCKET_KEEP_ALIVE = "t.webSocketKeepAlive";
+	/**
+	 * The low write buffer water mark in bytes of WebSocket connections
+	 */
+	public static final String WEBSOCKET_LOW_WATER_MARK = "t.webSocketLowWaterMark";
+	/**
+	 * The high write buffer water mark in bytes of WebSocket connections
+	 */
+	public static final String WEBSOCKET_HIGH_WATER_MARK = "t.webSocketHighWaterMark";
+	/**
+	 * The maximum size in bytes of a WebSocket frame, and of a message which is
+	 * aggregated from fragmented frames
+	 */
+	public static final String WEBSOCKET_MAX_FRAME_SIZE = "t.webSocketMaxFrameSize";
+	/**
+	 * Enable the permessage-deflate extension for WebSocket connections
+	 */
+	public static final String WEBSOCKET_COMPRESSION = "t.webSocketCompression";
+	/**
+	 * The compression level from 0 to 9 of WebSocket messages
+	 */
+	public static final String WEBSOCKET_COMPRESSION_LEVEL = "t.webSocketCompressionLevel";
+	/**
+	 * The WebSocket messages which are smaller than this size in bytes are not
+	 * compressed
+	 */
+	public static final String WEBSOCKET_COMPRESSION_THRESHOLD = "t.webSocketCompressionThreshold";
+	/**
+	 * Accept the client's request for resetting the server's compression context
+	 * after every message (server_no_context_takeover)
+	 */
+	public static final String WEBSOCKET_COMPRESSION_SERVER_NO_CONTEXT = "t.webSocketCompressionServerNoContext";
+	/**
+	 * Ask the client to reset its compression context after every message
+	 * (client_no_context_takeover)
+	 */
+	public static final String WEBSOCKET_COMPRESSION_CLIENT_NO_CONTEXT = "t.webSocketCompressionClientNoContext";
+	/**
+	 * The default codec of the WebSocket messages
+	 */
+	public static final String WEBSOCKET_CODEC = "t.webSocketCodec";
 
 	/**
 	 * All configuration values will be held in this map. You access values by your
@@ -167,6 +471,8 @@ public abstract class BaseConfiguration extends AbstractLogger {
 	 */
 	public void load(final String file) throws Exception {
 
+		__putDefaultValues();
+
 		Document xDoc = XMLUtility.parseFile(new File(file));
 		Node root = xDoc.getFirstChild();
 		NodeList attrNodes = root.getChildNodes();
@@ -198,18 +504,237 @@ public abstract class BaseConfiguration extends AbstractLogger {
 			}
 
 			// Port
-			var attrRootPort = attrNode.getChildNodes();
-			for (int j = 0; j < attrRootPort.getLength(); j++) {
-				var pDataNode = attrRootPort.item(j);
-				switch (pDataNode.getNodeName()) {
-				case "Socket":
-					__configuration.put(SOCKET_PORT, pDataNode.getTextContent());
+			if (attrNode.getNodeName().equals("Port")) {
+				var attrRootPort = attrNode.getChildNodes();
+				for (int j = 0; j < attrRootPort.getLength(); j++) {
+					var pDataNode = attrRootPort.item(j);
+					switch (pDataNode.getNodeName()) {
+					case "Socket":
+						__configuration.put(SOCKET_PORT, pDataNode.getTextContent());
+						break;
+					case "Datagram":
+						__configuration.put(DATAGRAM_PORT, pDataNode.getTextContent());
+						break;
+					case "WebSocket":
+						__configuration.put(WEBSOCKET_PORT, pDataNode.getTextContent());
+						break;
+					}
+				}
+			}
+
+			// Network
+			var attrNetworkProperties = XMLUtility.getNodeList(attrNode, "//Server/Network/Properties/Property");
+			for (int j = 0; j < attrNetworkProperties.getLength(); j++) {
+				var pDataNode = attrNetworkProperties.item(j);
+				switch (pDataNode.getAttributes().getNamedItem("name").getTextContent()) {
+				case "transport":
+					__configuration.put(NETWORK_TRANSPORT, pDataNode.getTextContent());
 					break;
-				case "Datagram":
-					__configuration.put(DATAGRAM_PORT, pDataNode.getTextContent());
+
+				case "allocator":
+					__configuration.put(NETWORK_ALLOCATOR, pDataNode.getTextContent());
 					break;
-				case "WebSocket":
-					__configuration.put(WEBSOCKET_PORT, pDataNode.getTextContent());
+
+				case "flushMaxMessages":
+					__configuration.put(NETWORK_FLUSH_MAX_MESSAGES, pDataNode.getTextContent());
+					break;
+
+				case "flushMaxDelay":
+					__configuration.put(NETWORK_FLUSH_MAX_DELAY, pDataNode.getTextContent());
+					break;
+
+				case "dispatcherThreads":
+					__configuration.put(NETWORK_DISPATCHER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "dispatcherQueueSize":
+					__configuration.put(NETWORK_DISPATCHER_QUEUE_SIZE, pDataNode.getTextContent());
+					break;
+
+				case "dispatcherOverflow":
+					__configuration.put(NETWORK_DISPATCHER_OVERFLOW, pDataNode.getTextContent());
+					break;
+
+				case "floodMessageRate":
+					__configuration.put(NETWORK_FLOOD_MESSAGE_RATE, pDataNode.getTextContent());
+					break;
+
+				case "floodByteRate":
+					__configuration.put(NETWORK_FLOOD_BYTE_RATE, pDataNode.getTextContent());
+					break;
+
+				case "floodAction":
+					__configuration.put(NETWORK_FLOOD_ACTION, pDataNode.getTextContent());
+					break;
+
+				case "keyDictionarySize":
+					__configuration.put(NETWORK_KEY_DICTIONARY_SIZE, pDataNode.getTextContent());
+					break;
+				}
+			}
+
+			var attrNetworkSocket = XMLUtility.getNodeList(attrNode, "//Server/Network/Socket/Property");
+			for (int j = 0; j < attrNetworkSocket.getLength(); j++) {
+				var pDataNode = attrNetworkSocket.item(j);
+				switch (pDataNode.getAttributes().getNamedItem("name").getTextContent()) {
+				case "producerThreads":
+					__configuration.put(SOCKET_PRODUCER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "consumerThreads":
+					__configuration.put(SOCKET_CONSUMER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "reusePort":
+					__configuration.put(SOCKET_REUSE_PORT, pDataNode.getTextContent());
+					break;
+
+				case "backlog":
+					__configuration.put(SOCKET_BACKLOG, pDataNode.getTextContent());
+					break;
+
+				case "sendBuffer":
+					__configuration.put(SOCKET_SEND_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "receiveBuffer":
+					__configuration.put(SOCKET_RECEIVE_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "tcpNoDelay":
+					__configuration.put(SOCKET_TCP_NO_DELAY, pDataNode.getTextContent());
+					break;
+
+				case "keepAlive":
+					__configuration.put(SOCKET_KEEP_ALIVE, pDataNode.getTextContent());
+					break;
+
+				case "lowWaterMark":
+					__configuration.put(SOCKET_LOW_WATER_MARK, pDataNode.getTextContent());
+					break;
+
+				case "highWaterMark":
+					__configuration.put(SOCKET_HIGH_WATER_MARK, pDataNode.getTextContent());
+					break;
+
+				case "codec":
+					__configuration.put(SOCKET_CODEC, pDataNode.getTextContent());
+					break;
+				}
+			}
+
+			var attrNetworkDatagram = XMLUtility.getNodeList(attrNode, "//Server/Network/Datagram/Property");
+			for (int j = 0; j < attrNetworkDatagram.getLength(); j++) {
+				var pDataNode = attrNetworkDatagram.item(j);
+				switch (pDataNode.getAttributes().getNamedItem("name").getTextContent()) {
+				case "consumerThreads":
+					__configuration.put(DATAGRAM_CONSUMER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "reusePort":
+					__configuration.put(DATAGRAM_REUSE_PORT, pDataNode.getTextContent());
+					break;
+
+				case "sendBuffer":
+					__configuration.put(DATAGRAM_SEND_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "receiveBuffer":
+					__configuration.put(DATAGRAM_RECEIVE_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "idleTimeout":
+					__configuration.put(DATAGRAM_IDLE_TIMEOUT, pDataNode.getTextContent());
+					break;
+
+				case "channels":
+					__configuration.put(DATAGRAM_CHANNELS, pDataNode.getTextContent());
+					break;
+
+				case "mtu":
+					__configuration.put(DATAGRAM_MTU, pDataNode.getTextContent());
+					break;
+
+				case "sessionRequired":
+					__configuration.put(DATAGRAM_SESSION_REQUIRED, pDataNode.getTextContent());
+					break;
+
+				case "codec":
+					__configuration.put(DATAGRAM_CODEC, pDataNode.getTextContent());
+					break;
+				}
+			}
+
+			var attrNetworkWebSocket = XMLUtility.getNodeList(attrNode, "//Server/Network/WebSocket/Property");
+			for (int j = 0; j < attrNetworkWebSocket.getLength(); j++) {
+				var pDataNode = attrNetworkWebSocket.item(j);
+				switch (pDataNode.getAttributes().getNamedItem("name").getTextContent()) {
+				case "producerThreads":
+					__configuration.put(WEBSOCKET_PRODUCER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "consumerThreads":
+					__configuration.put(WEBSOCKET_CONSUMER_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "reusePort":
+					__configuration.put(WEBSOCKET_REUSE_PORT, pDataNode.getTextContent());
+					break;
+
+				case "backlog":
+					__configuration.put(WEBSOCKET_BACKLOG, pDataNode.getTextContent());
+					break;
+
+				case "sendBuffer":
+					__configuration.put(WEBSOCKET_SEND_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "receiveBuffer":
+					__configuration.put(WEBSOCKET_RECEIVE_BUFFER, pDataNode.getTextContent());
+					break;
+
+				case "tcpNoDelay":
+					__configuration.put(WEBSOCKET_TCP_NO_DELAY, pDataNode.getTextContent());
+					break;
+
+				case "keepAlive":
+					__configuration.put(WEBSOCKET_KEEP_ALIVE, pDataNode.getTextContent());
+					break;
+
+				case "lowWaterMark":
+					__configuration.put(WEBSOCKET_LOW_WATER_MARK, pDataNode.getTextContent());
+					break;
+
+				case "highWaterMark":
+					__configuration.put(WEBSOCKET_HIGH_WATER_MARK, pDataNode.getTextContent());
+					break;
+
+				case "maxFrameSize":
+					__configuration.put(WEBSOCKET_MAX_FRAME_SIZE, pDataNode.getTextContent());
+					break;
+
+				case "compression":
+					__configuration.put(WEBSOCKET_COMPRESSION, pDataNode.getTextContent());
+					break;
+
+				case "compressionLevel":
+					__configuration.put(WEBSOCKET_COMPRESSION_LEVEL, pDataNode.getTextContent());
+					break;
+
+				case "compressionThreshold":
+					__configuration.put(WEBSOCKET_COMPRESSION_THRESHOLD, pDataNode.getTextContent());
+					break;
+
+				case "compressionServerNoContext":
+					__configuration.put(WEBSOCKET_COMPRESSION_SERVER_NO_CONTEXT, pDataNode.getTextContent());
+					break;
+
+				case "compressionClientNoContext":
+					__configuration.put(WEBSOCKET_COMPRESSION_CLIENT_NO_CONTEXT, pDataNode.getTextContent());
+					break;
+
+				case "codec":
+					__configuration.put(WEBSOCKET_CODEC, pDataNode.getTextContent());
 					break;
 				}
 			}
@@ -251,6 +776,18 @@ public abstract class BaseConfiguration extends AbstractLogger {
 				case "ccuScan":
 					__configuration.put(CCU_SCAN, pDataNode.getTextContent());
 					break;
+
+				case "taskThreads":
+					__configuration.put(TASK_THREADS, pDataNode.getTextContent());
+					break;
+
+				case "poolLeakSampling":
+					__configuration.put(POOL_LEAK_SAMPLING, pDataNode.getTextContent());
+					break;
+
+				case "poolLeakThreshold":
+					__configuration.put(POOL_LEAK_THRESHOLD, pDataNode.getTextContent());
+					break;
 				}
 			}
 
@@ -272,6 +809,66 @@ public abstract class BaseConfiguration extends AbstractLogger {
 
 	}
 
+	/**
+	 * Optional values, which are used when they are not declared in the
+	 * configuration file.
+	 */
+	private void __putDefaultValues() {
+		// Network
+		__configuration.put(NETWORK_TRANSPORT, "nio");
+		__configuration.put(NETWORK_ALLOCATOR, "pooled");
+		__configuration.put(NETWORK_FLUSH_MAX_MESSAGES, "1");
+		__configuration.put(NETWORK_FLUSH_MAX_DELAY, "5");
+		__configuration.put(NETWORK_DISPATCHER_THREADS, "0");
+		__configuration.put(NETWORK_DISPATCHER_QUEUE_SIZE, "1024");
+		__configuration.put(NETWORK_DISPATCHER_OVERFLOW, "drop");
+		__configuration.put(NETWORK_FLOOD_MESSAGE_RATE, "0");
+		__configuration.put(NETWORK_FLOOD_BYTE_RATE, "0");
+		__configuration.put(NETWORK_FLOOD_ACTION, "drop");
+		__configuration.put(NETWORK_KEY_DICTIONARY_SIZE, "128");
+		__configuration.put(SOCKET_PRODUCER_THREADS, "1");
+		__configuration.put(SOCKET_CONSUMER_THREADS, "0");
+		__configuration.put(SOCKET_REUSE_PORT, "false");
+		__configuration.put(SOCKET_BACKLOG, "1024");
+		__configuration.put(SOCKET_SEND_BUFFER, "0");
+		__configuration.put(SOCKET_RECEIVE_BUFFER, "0");
+		__configuration.put(SOCKET_TCP_NO_DELAY, "true");
+		__configuration.put(SOCKET_KEEP_ALIVE, "true");
+		__configuration.put(SOCKET_LOW_WATER_MARK, "32768");
+		__configuration.put(SOCKET_HIGH_WATER_MARK, "65536");
+		__configuration.put(SOCKET_CODEC, "msgpack");
+		__configuration.put(DATAGRAM_CONSUMER_THREADS, "1");
+		__configuration.put(DATAGRAM_REUSE_PORT, "false");
+		__configuration.put(DATAGRAM_SEND_BUFFER, "1048576");
+		__configuration.put(DATAGRAM_RECEIVE_BUFFER, "4194304");
+		__configuration.put(DATAGRAM_IDLE_TIMEOUT, "0");
+		__configuration.put(DATAGRAM_CHANNELS, "1");
+		__configuration.put(DATAGRAM_MTU, "0");
+		__configuration.put(DATAGRAM_SESSION_REQUIRED, "false");
+		__configuration.put(DATAGRAM_CODEC, "msgpack");
+		__configuration.put(WEBSOCKET_PRODUCER_THREADS, "1");
+		__configuration.put(WEBSOCKET_CONSUMER_THREADS, "0");
+		__configuration.put(WEBSOCKET_REUSE_PORT, "false");
+		__configuration.put(WEBSOCKET_BACKLOG, "1024");
+		__configuration.put(WEBSOCKET_SEND_BUFFER, "0");
+		__configuration.put(WEBSOCKET_RECEIVE_BUFFER, "0");
+		__configuration.put(WEBSOCKET_TCP_NO_DELAY, "true");
+		__configuration.put(WEBSOCKET_KEEP_ALIVE, "true");
+		__configuration.put(WEBSOCKET_MAX_FRAME_SIZE, "65536");
+		__configuration.put(WEBSOCKET_COMPRESSION, "false");
+		__configuration.put(WEBSOCKET_COMPRESSION_LEVEL, "6");
+		__configuration.put(WEBSOCKET_COMPRESSION_THRESHOLD, "256");
+		__configuration.put(WEBSOCKET_COMPRESSION_SERVER_NO_CONTEXT, "false");
+		__configuration.put(WEBSOCKET_COMPRESSION_CLIENT_NO_CONTEXT, "false");
+		__configuration.put(WEBSOCKET_CODEC, "msgpack");
+		__configuration.put(WEBSOCKET_LOW_WATER_MARK, "32768");
+		__configuration.put(WEBSOCKET_HIGH_WATER_MARK, "65536");
+		// Configuration
+		__configuration.put(TASK_THREADS, "1");
+		__configuration.put(POOL_LEAK_SAMPLING, "0");
+		__configuration.put(POOL_LEAK_THRESHOLD, "60");
+	}
+
 	/**
 	 * Put new configuration
 	 * 
@@ -66,14 +66,17 @@ public final class Constants {
 	public static final int ADD_ELEMENT_POOL = 10;
 
 	/**
-	 * A unique key for the CCU scan schedule.
+	 * The maximum number of elements kept by a pool. When there are more, the
+	 * repaid elements are dropped until the pool shrinks back to this size.
+	 * 
+	 * @see IElementPool
 	 */
-	public static final String KEY_SCHEDULE_CCU_SCAN = "t.schedule.ccu.scan";
+	public static final int MAX_ELEMENT_POOL = 4096;
 
 	/**
-	 * A unique key for the Empty Room scan schedule.
+	 * A unique key for the CCU scan schedule.
 	 */
-	public static final String KEY_SCHEDULE_EMPTY_ROOM_SCAN = "t.schedule.empty.room.scan";
+	public static final String KEY_SCHEDULE_CCU_SCAN = "t.schedule.ccu.scan";
 
 	/**
 	 * A unique key for the Time Out scan schedule.
@@ -96,4 +99,40 @@ public final class Constants {
 	 */
 	public static final long TRAFFIC_COUNTER_CHECK_INTERVAL = 1000;
 
+	/**
+	 * The maximum number of reliable datagram messages which are sent but not
+	 * acknowledged yet, the next ones wait for free slots. It is also the number of
+	 * out-of-order messages that a receiver can hold.
+	 */
+	public static final int RELIABLE_WINDOW_SIZE = 256;
+
+	/**
+	 * The period in milliseconds of checking the unacknowledged datagram messages
+	 * and sending the pending acknowledgements.
+	 */
+	public static final long RELIABLE_TICK = 10;
+
+	/**
+	 * The retransmission timeout in milliseconds before the first round-trip time
+	 * is measured.
+	 */
+	public static final long RELIABLE_INITIAL_RTO = 200;
+
+	/**
+	 * The lower bound of the retransmission timeout in milliseconds.
+	 */
+	public static final long RELIABLE_MIN_RTO = 30;
+
+	/**
+	 * The upper bound of the retransmission timeout in milliseconds (backoff
+	 * included).
+	 */
+	public static final long RELIABLE_MAX_RTO = 2000;
+
+	/**
+	 * The number of times a reliable datagram message is sent again before its
+	 * link is considered broken.
+	 */
+	public static final int RELIABLE_MAX_RESENDS = 10;
+
 }
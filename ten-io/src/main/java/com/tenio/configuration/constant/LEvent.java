@@ -25,6 +25,7 @@ package com.tenio.configuration.constant;
 
 import com.tenio.entity.AbstractPlayer;
 import com.tenio.entity.element.TObject;
+import com.tenio.message.schema.Message;
 import com.tenio.network.Connection;
 
 /**
@@ -108,8 +109,8 @@ public enum LEvent {
 	 * type is TCP or WebSocket. <br>
 	 * <ul>
 	 * <li><b>parameter[0]</b> the connection, see {@link Connection}</li>
-	 * <li><b>parameter[1]</b> the message, see {@link TObject} which is sent by its
-	 * corresponding connection</li>
+	 * <li><b>parameter[1]</b> the message, see {@link TObject}, or a schema message,
+	 * see {@link Message}, which is sent by its corresponding connection</li>
 	 * </ul>
 	 * 
 	 * Return <b>null</b>
@@ -121,8 +122,8 @@ public enum LEvent {
 	 * UDP. <br>
 	 * <ul>
 	 * <li><b>parameter[0]</b> the player, see {@link AbstractPlayer}</li>
-	 * <li><b>parameter[1]</b> the message, see {@link TObject} which is sent by its
-	 * corresponding player</li>
+	 * <li><b>parameter[1]</b> the message, see {@link TObject}, or a schema message,
+	 * see {@link Message}, which is sent by its corresponding player</li>
 	 * </ul>
 	 * 
 	 * Return <b>null</b>
@@ -140,4 +141,14 @@ public enum LEvent {
 	 */
 	GET_PLAYER,
 
+	/**
+	 * When a player is added to the server, with or without a connection. <br>
+	 * <ul>
+	 * <li><b>parameter[0]</b> the new player, see {@link AbstractPlayer}</li>
+	 * </ul>
+	 * 
+	 * Return <b>null</b>
+	 */
+	PLAYER_ADDED,
+
 }
@@ -29,7 +29,9 @@ import com.tenio.entity.AbstractRoom;
 import com.tenio.entity.element.TObject;
 import com.tenio.extension.AbstractExtensionHandler;
 import com.tenio.extension.IExtension;
+import com.tenio.message.schema.Message;
 import com.tenio.network.Connection;
+import com.tenio.network.netty.FloodGuard;
 
 /**
  * This Enum defines all events in your server. You can handle these events by
@@ -165,7 +167,8 @@ public enum TEvent {
 	 * the sub connection (UDP). In the case of WebSocket, it can only send in the
 	 * main connection. It returns <b>true</b> for the sub connection and
 	 * <b>false</b> for the main connection</li>
-	 * <li><b>parameter[2]</b> the sent message, see {@link TObject}</li>
+	 * <li><b>parameter[2]</b> the sent message, see {@link TObject}, or a schema
+	 * message, see {@link Message}</li>
 	 * </ul>
 	 * 
 	 * Return <b>null</b>
@@ -189,6 +192,24 @@ public enum TEvent {
 	 */
 	RECEIVED_FROM_PLAYER,
 
+	/**
+	 * With a valid player, his schema message can be seen here, see
+	 * {@link Message}. This message is sent from a client to your server instead
+	 * of a {@link TObject} one. <br>
+	 * <ul>
+	 * <li><b>parameter[0]</b> the player which sent message, see
+	 * {@link AbstractPlayer} to your server</li>
+	 * <li><b>parameter[1]</b> this message was sent by the main connection (TCP) or
+	 * the sub connection (UDP). It returns <b>true</b> for the sub connection and
+	 * <b>false</b> for the main connection</li>
+	 * <li><b>parameter[2]</b> the received message, an instance of one
+	 * {@link Message} class</li>
+	 * </ul>
+	 * 
+	 * Return <b>null</b>
+	 */
+	RECEIVED_MESSAGE_FROM_PLAYER,
+
 	/**
 	 * Created a new room. A room ({@link AbstractRoom}) is a group of some players.
 	 * <br>
@@ -328,6 +349,9 @@ public enum TEvent {
 	 * <ul>
 	 * <li><b>parameter[0]</b> the corresponding player, see
 	 * {@link AbstractPlayer}</li>
+	 * <li><b>parameter[1]</b> the session id in integer type, the client can put
+	 * it in the header of its next packets so that they are validated before
+	 * decoding (0 if no session is available)</li>
 	 * </ul>
 	 * 
 	 * Return <b>null</b>
@@ -350,6 +374,41 @@ public enum TEvent {
 	 */
 	ATTACH_UDP_FAILED,
 
+	/**
+	 * The server detached the UDP connection of one player by itself, because its
+	 * address was idle for too long or it flooded the server. The player keeps
+	 * his main connection and can attach a new UDP connection. When the
+	 * dispatcher is enabled, this event is emitted on the player's dispatcher
+	 * thread, after his queued messages. <br>
+	 * <ul>
+	 * <li><b>parameter[0]</b> the corresponding player, see
+	 * {@link AbstractPlayer}</li>
+	 * <li><b>parameter[1]</b> the detached sub-connection, see
+	 * {@link Connection}</li>
+	 * </ul>
+	 * 
+	 * Return <b>null</b>
+	 */
+	DETACH_UDP,
+
+	/**
+	 * When a connection sends more messages or bytes per second than the flood
+	 * limits in your configuration, see {@link BaseConfiguration}. It occurs once
+	 * when the connection starts exceeding its limits, and again only after one of
+	 * its messages has been accepted. This event is emitted on the network
+	 * thread. <br>
+	 * <ul>
+	 * <li><b>parameter[0]</b> the connection, see {@link Connection}. It is
+	 * <b>null</b> when the client's first message has not been handled yet</li>
+	 * <li><b>parameter[1]</b> the client's address in string type</li>
+	 * <li><b>parameter[2]</b> the applied action, see
+	 * {@link FloodGuard.Action}</li>
+	 * </ul>
+	 * 
+	 * Return <b>null</b>
+	 */
+	FLOOD_DETECTED,
+
 	/**
 	 * The amount of data that can be transmitted in a fixed amount of time. <br>
 	 * <ul>
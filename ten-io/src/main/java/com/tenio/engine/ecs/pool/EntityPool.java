@@ -26,15 +26,13 @@ package com.tenio.engine.ecs.pool;
 import java.lang.reflect.InvocationTargetException;
 import java.util.UUID;
 
-import javax.annotation.concurrent.GuardedBy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-import com.tenio.configuration.constant.Constants;
 import com.tenio.engine.ecs.base.ContextInfo;
 import com.tenio.engine.ecs.base.Entity;
 import com.tenio.engine.ecs.base.IEntity;
-import com.tenio.exception.NullElementPoolException;
-import com.tenio.logger.AbstractLogger;
-import com.tenio.pool.IElementPool;
+import com.tenio.pool.AbstractElementPool;
 
 /**
  * The object pool mechanism for {@link IEntity}.
@@ -42,105 +40,42 @@ import com.tenio.pool.IElementPool;
  * @author kong
  * 
  */
-public final class EntityPool extends AbstractLogger implements IElementPool<IEntity> {
+public final class EntityPool extends AbstractElementPool<IEntity> {
 
-	@GuardedBy("this")
-	private IEntity[] __pool;
-	@GuardedBy("this")
-	private boolean[] __used;
-	private Class<? extends Entity> __clazz;
-	private ContextInfo __contextInfo;
+	private final Logger __logger = LogManager.getLogger(getClass());
+	private final Class<? extends Entity> __clazz;
+	private final ContextInfo __contextInfo;
 
 	public EntityPool(Class<? extends Entity> clazz, ContextInfo contextInfo) {
+		super("ENTITY POOL");
 		__clazz = clazz;
 		__contextInfo = contextInfo;
-		__pool = new IEntity[Constants.BASE_ELEMENT_POOL];
-		__used = new boolean[Constants.BASE_ELEMENT_POOL];
-
-		for (int i = 0; i < __pool.length; i++) {
-			try {
-				var entity = __clazz.getDeclaredConstructor().newInstance();
-				entity.setId(UUID.randomUUID().toString());
-				entity.setContextInfo(__contextInfo);
-				__pool[i] = entity;
-				__used[i] = false;
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-					| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-				error(e);
-			}
-		}
-	}
-
-	@Override
-	public synchronized IEntity get() {
-		for (int i = 0; i < __used.length; i++) {
-			if (!__used[i]) {
-				__used[i] = true;
-				return __pool[i];
-			}
-		}
-		// If we got here, then all the Elements are in use. We will
-		// increase the number in our pool by @ADD_ELEMENT_POOL (arbitrary value for
-		// illustration purposes).
-		var oldUsed = __used;
-		__used = new boolean[oldUsed.length + Constants.ADD_ELEMENT_POOL];
-		System.arraycopy(oldUsed, 0, __used, 0, oldUsed.length);
-
-		var oldPool = __pool;
-		__pool = new IEntity[oldPool.length + Constants.ADD_ELEMENT_POOL];
-		System.arraycopy(oldPool, 0, __pool, 0, oldPool.length);
-
-		for (int i = oldPool.length; i < __pool.length; i++) {
-			try {
-				var entity = __clazz.getDeclaredConstructor().newInstance();
-				entity.setId(UUID.randomUUID().toString());
-				entity.setContextInfo(__contextInfo);
-				__pool[i] = entity;
-				__used[i] = false;
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-					| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-				error(e);
-			}
-		}
-
-		info("COMPONENT POOL",
-				buildgen("Increase the number of elements by ", Constants.ADD_ELEMENT_POOL, " to ", __used.length));
-
-		// and allocate the last old ELement
-		__used[oldPool.length - 1] = true;
-		return __pool[oldPool.length - 1];
 	}
 
-	@Override
-	public synchronized void repay(IEntity element) {
-		boolean flagFound = false;
-		for (int i = 0; i < __pool.length; i++) {
-			if (__pool[i] == element) {
-				__used[i] = false;
-				element.reset();
-				flagFound = true;
-				break;
-			}
-		}
-		if (!flagFound) {
-			var e = new NullElementPoolException();
-			error(e);
-			throw e;
-		}
+	public EntityPool(Class<? extends Entity> clazz, ContextInfo contextInfo, int initialSize, int growSize,
+			int maxSize) {
+		super("ENTITY POOL", initialSize, growSize, maxSize);
+		__clazz = clazz;
+		__contextInfo = contextInfo;
 	}
 
 	@Override
-	public synchronized void cleanup() {
-		for (int i = 0; i < __pool.length; i++) {
-			__pool[i] = null;
+	protected IEntity _createElement() {
+		try {
+			var entity = __clazz.getDeclaredConstructor().newInstance();
+			entity.setId(UUID.randomUUID().toString());
+			entity.setContextInfo(__contextInfo);
+			return entity;
+		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+				| InvocationTargetException | NoSuchMethodException | SecurityException e) {
+			__logger.error(e);
+			return null;
 		}
-		__used = null;
-		__pool = null;
 	}
 
 	@Override
-	public synchronized int getPoolSize() {
-		return (__pool.length == __used.length) ? __pool.length : -1;
+	protected void _resetElement(IEntity element) {
+		element.reset();
 	}
 
 }
@@ -54,7 +54,7 @@ public abstract class AbstractPlayer {
 	/**
 	 * The UDP sub-connection. It can be set or set to <code>null</code>
 	 */
-	private Connection __subConnection;
+	private volatile Connection __subConnection;
 	/**
 	 * The unique name in the server
 	 */
@@ -73,14 +73,15 @@ public abstract class AbstractPlayer {
 	@Column(name = "room")
 	private AbstractRoom __room;
 	/**
-	 * The current system time when a new message from the client comes
+	 * The current system time when a new message from the client comes, it is
+	 * read by the time out task's thread
 	 */
-	private long __readerTime;
+	private volatile long __readerTime;
 	/**
 	 * The current system time when a new message is sent to the client from your
-	 * server
+	 * server, it is read by the time out task's thread
 	 */
-	private long __writerTime;
+	private volatile long __writerTime;
 	/**
 	 * For simple hold some states. Default value is <code>0</code>
 	 */
@@ -99,7 +100,7 @@ public abstract class AbstractPlayer {
 	/**
 	 * To quickly determine the player contains a sub-connection or not
 	 */
-	private boolean __flagSubConnection;
+	private volatile boolean __flagSubConnection;
 
 	/**
 	 * Create a new player
@@ -167,15 +168,30 @@ public abstract class AbstractPlayer {
 		return __subConnection;
 	}
 
-	public void setSubConnection(final Connection subConnection) {
-		if (__flagSubConnection && subConnection == null) {
-			// need to clear key in UDP channel
-			__subConnection.setAttr(__subConnection.getAddress(), null);
+	public synchronized void setSubConnection(final Connection subConnection) {
+		if (__flagSubConnection && __subConnection != subConnection) {
+			// need to detach the old address from the UDP channel
+			__subConnection.clean();
 		}
 		__subConnection = subConnection;
 		__flagSubConnection = (__subConnection != null);
 	}
 
+	/**
+	 * Remove the sub-connection only if it is still the current one, it is checked
+	 * and removed atomically
+	 * 
+	 * @param subConnection the expected sub-connection, see {@link Connection}
+	 * @return <b>true</b> if the sub-connection was removed
+	 */
+	public synchronized boolean removeSubConnection(final Connection subConnection) {
+		if (subConnection == null || __subConnection != subConnection) {
+			return false;
+		}
+		setSubConnection(null);
+		return true;
+	}
+
 	public AbstractRoom getRoom() {
 		return __room;
 	}
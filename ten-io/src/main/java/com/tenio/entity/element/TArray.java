@@ -49,19 +49,19 @@ public final class TArray extends ArrayList<Object> {
 	}
 
 	public double getDouble(final int index) {
-		return (double) get(index);
+		return ((Number) get(index)).doubleValue();
 	}
 
 	public float getFloat(final int index) {
-		return (float) get(index);
+		return ((Number) get(index)).floatValue();
 	}
 
 	public long getLong(final int index) {
-		return (long) get(index);
+		return ((Number) get(index)).longValue();
 	}
 
 	public int getInt(final int index) {
-		return (int) get(index);
+		return ((Number) get(index)).intValue();
 	}
 
 	public boolean getBoolean(final int index) {
@@ -80,4 +80,8 @@ public final class TArray extends ArrayList<Object> {
 		return (TArray) get(index);
 	}
 
+	public TObject getTObject(final int index) {
+		return (TObject) get(index);
+	}
+
 }
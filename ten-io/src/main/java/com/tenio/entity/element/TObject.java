@@ -45,19 +45,19 @@ public final class TObject extends HashMap<String, Object> {
 	}
 
 	public double getDouble(final String key) {
-		return (double) get(key);
+		return ((Number) get(key)).doubleValue();
 	}
 
 	public float getFloat(final String key) {
-		return (float) get(key);
+		return ((Number) get(key)).floatValue();
 	}
 
 	public long getLong(final String key) {
-		return (long) get(key);
+		return ((Number) get(key)).longValue();
 	}
 
 	public int getInt(final String key) {
-		return (int) get(key);
+		return ((Number) get(key)).intValue();
 	}
 
 	public boolean getBoolean(final String key) {
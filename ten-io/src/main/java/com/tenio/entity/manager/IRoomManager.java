@@ -26,8 +26,10 @@ package com.tenio.entity.manager;
 import java.util.Map;
 
 import com.tenio.api.RoomApi;
+import com.tenio.configuration.BaseConfiguration;
 import com.tenio.entity.AbstractPlayer;
 import com.tenio.entity.AbstractRoom;
+import com.tenio.task.ITaskManager;
 
 /**
  * Manage all your rooms ({@link AbstractRoom}) on the server. It is a singleton
@@ -39,6 +41,26 @@ import com.tenio.entity.AbstractRoom;
  */
 public interface IRoomManager {
 
+	/**
+	 * Enable the removal of empty rooms, a room is removed when it stays empty
+	 * for the <i>emptyRoomScan</i> time.
+	 * 
+	 * @param configuration see {@link BaseConfiguration}
+	 * @param taskManager   the removals are scheduled on its shared scheduler, see
+	 *                      {@link ITaskManager}
+	 */
+	void initialize(final BaseConfiguration configuration, final ITaskManager taskManager);
+
+	/**
+	 * Enable the removal of empty rooms.
+	 * 
+	 * @param emptyRoomTime the time in seconds that a room can stay empty before
+	 *                      it is removed
+	 * @param taskManager   the removals are scheduled on its shared scheduler, see
+	 *                      {@link ITaskManager}
+	 */
+	void initialize(final int emptyRoomTime, final ITaskManager taskManager);
+
 	/**
 	 * @return the number of rooms in your server
 	 */
@@ -125,6 +125,7 @@ public final class PlayerManager extends AbstractLogger implements IPlayerManage
 			player.setConnection(connection);
 
 			__players.put(player.getName(), player);
+			__eventManager.getInternal().emit(LEvent.PLAYER_ADDED, player);
 
 			// fire an event
 			__eventManager.getExternal().emit(TEvent.PLAYER_IN_SUCCESS, player);
@@ -144,6 +145,7 @@ public final class PlayerManager extends AbstractLogger implements IPlayerManage
 			}
 
 			__players.put(player.getName(), player);
+			__eventManager.getInternal().emit(LEvent.PLAYER_ADDED, player);
 			// fire an event
 			__eventManager.getExternal().emit(TEvent.PLAYER_IN_SUCCESS, player);
 		}
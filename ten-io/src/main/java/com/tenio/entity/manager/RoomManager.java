@@ -27,8 +27,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.tenio.api.RoomApi;
+import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.ErrorMsg;
 import com.tenio.configuration.constant.TEvent;
 import com.tenio.entity.AbstractPlayer;
@@ -37,11 +40,16 @@ import com.tenio.event.IEventManager;
 import com.tenio.exception.DuplicatedRoomException;
 import com.tenio.exception.NullRoomException;
 import com.tenio.logger.AbstractLogger;
+import com.tenio.task.ITaskManager;
 
 /**
  * Manage all your rooms ({@link AbstractRoom}) on the server. It is a singleton
  * pattern class, which can be called anywhere. But it's better that you use the
- * {@link RoomApi} interface for easy management.
+ * {@link RoomApi} interface for easy management. <br>
+ * Once it is initialized, a room which becomes empty is scheduled for removal,
+ * the removal is cancelled when a player joins the room in the meantime. So the
+ * cost only depends on the rooms changing their states, not on the number of
+ * rooms.
  * 
  * @see IRoomManager
  * 
@@ -54,12 +62,42 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 	 * A map object to manage your rooms with the key must be a room's id
 	 */
 	private final Map<String, AbstractRoom> __rooms = new HashMap<String, AbstractRoom>();
+	/**
+	 * The scheduled removals of the empty rooms, guarded by the rooms' map
+	 */
+	private final Map<String, ScheduledFuture<?>> __removals = new HashMap<String, ScheduledFuture<?>>();
 	private final IEventManager __eventManager;
+	/**
+	 * The time in seconds that a room can stay empty, the empty rooms are never
+	 * removed when the manager is not initialized
+	 */
+	private int __emptyRoomTime;
+	private ITaskManager __taskManager;
 
 	public RoomManager(IEventManager eventManager) {
 		__eventManager = eventManager;
 	}
 
+	@Override
+	public void initialize(final BaseConfiguration configuration, final ITaskManager taskManager) {
+		initialize(configuration.getInt(BaseConfiguration.EMPTY_ROOM_SCAN), taskManager);
+	}
+
+	@Override
+	public void initialize(final int emptyRoomTime, final ITaskManager taskManager) {
+		synchronized (__rooms) {
+			__emptyRoomTime = emptyRoomTime;
+			__taskManager = taskManager;
+			// the current empty rooms are scheduled too
+			__rooms.values().forEach(room -> {
+				if (room.isEmpty()) {
+					__scheduleRemoval(room);
+				}
+			});
+		}
+		info("EMPTY ROOM REMOVAL", buildgen(emptyRoomTime, " seconds"));
+	}
+
 	@Override
 	public int count() {
 		synchronized (__rooms) {
@@ -77,7 +115,12 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 	@Override
 	public void clear() {
 		synchronized (__rooms) {
+			__removals.values().forEach(removal -> removal.cancel(false));
+			__removals.clear();
 			__rooms.clear();
+			// the task manager is shut down with the server, the next empty rooms are
+			// not removed by a delay anymore
+			__taskManager = null;
 		}
 	}
 
@@ -106,6 +149,9 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 				throw e;
 			}
 			__rooms.put(room.getId(), room);
+			if (room.isEmpty()) {
+				__scheduleRemoval(room);
+			}
 			// fire an event
 			__eventManager.getExternal().emit(TEvent.CREATED_ROOM, room);
 		}
@@ -126,10 +172,48 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 			__forceAllPlayersLeaveRoom(room);
 			// remove itself from the current list
 			__rooms.remove(room.getId());
+			__cancelRemoval(room);
 		}
 
 	}
 
+	/**
+	 * Schedule the removal of an empty room, it must be called with the rooms'
+	 * lock held
+	 * 
+	 * @param room the empty room, see {@link AbstractRoom}
+	 */
+	private void __scheduleRemoval(final AbstractRoom room) {
+		if (__taskManager == null || __removals.containsKey(room.getId())) {
+			return;
+		}
+		var removal = __taskManager.schedule(() -> {
+			synchronized (__rooms) {
+				__removals.remove(room.getId());
+				// the room can be replaced or joined again in the meantime
+				if (__rooms.get(room.getId()) == room && room.isEmpty()) {
+					remove(room);
+				}
+			}
+		}, __emptyRoomTime, TimeUnit.SECONDS);
+		if (removal != null) {
+			__removals.put(room.getId(), removal);
+		}
+	}
+
+	/**
+	 * Cancel the scheduled removal of a room, it must be called with the rooms'
+	 * lock held
+	 * 
+	 * @param room the room, see {@link AbstractRoom}
+	 */
+	private void __cancelRemoval(final AbstractRoom room) {
+		var removal = __removals.remove(room.getId());
+		if (removal != null) {
+			removal.cancel(false);
+		}
+	}
+
 	/**
 	 * Force all players remove in one room without their desire. It's useful when
 	 * you want to kick someone from his room because of his cheating or something
@@ -164,7 +248,12 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 		// the player need to leave his room (if existed) first
 		playerLeaveRoom(player, false);
 
-		room.add(player);
+		synchronized (__rooms) {
+			if (__rooms.get(room.getId()) == room) {
+				__cancelRemoval(room);
+			}
+			room.add(player);
+		}
 		player.setRoom(room);
 		// fire an event
 		__eventManager.getExternal().emit(TEvent.PLAYER_JOIN_ROOM, player, room, true);
@@ -181,7 +270,12 @@ public final class RoomManager extends AbstractLogger implements IRoomManager {
 
 		// fire an event
 		__eventManager.getExternal().emit(TEvent.PLAYER_BEFORE_LEAVE_ROOM, player, room);
-		room.remove(player);
+		synchronized (__rooms) {
+			room.remove(player);
+			if (room.isEmpty() && __rooms.get(room.getId()) == room) {
+				__scheduleRemoval(room);
+			}
+		}
 		player.setRoom(null);
 		// fire an event
 		__eventManager.getExternal().emit(TEvent.PLAYER_LEFT_ROOM, player, room, force);
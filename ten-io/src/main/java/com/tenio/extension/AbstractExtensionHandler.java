@@ -27,6 +27,7 @@ import com.tenio.api.HeartBeatApi;
 import com.tenio.api.MessageApi;
 import com.tenio.api.PlayerApi;
 import com.tenio.api.RoomApi;
+import com.tenio.api.SnapshotApi;
 import com.tenio.api.TaskApi;
 import com.tenio.configuration.constant.TEvent;
 import com.tenio.entity.AbstractPlayer;
@@ -57,6 +58,10 @@ public abstract class AbstractExtensionHandler extends AbstractLogger {
 	 * @see MessageApi
 	 */
 	protected MessageApi _messageApi = __server.getMessageApi();
+	/**
+	 * @see SnapshotApi
+	 */
+	protected SnapshotApi _snapshotApi = __server.getSnapshotApi();
 	/**
 	 * @see PlayerApi
 	 */
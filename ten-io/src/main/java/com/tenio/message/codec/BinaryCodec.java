@@ -0,0 +1,369 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+import com.tenio.entity.element.TArray;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.schema.WireFormat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A compact binary codec. Each value starts with a header byte: its 3 high
+ * bits are the type and its 5 low bits are a small number (from 0 to 30), or
+ * {@link #EXTENDED} when the number follows as a varint. The number is:
+ * 
+ * <ul>
+ * <li>{@link #TYPE_CONSTANT}: {@link #CONSTANT_NULL}, {@link #CONSTANT_FALSE},
+ * {@link #CONSTANT_TRUE}, {@link #CONSTANT_FLOAT} (followed by 4 bytes) or
+ * {@link #CONSTANT_DOUBLE} (followed by 8 bytes)</li>
+ * <li>{@link #TYPE_INT}: a non negative {@link Integer}</li>
+ * <li>{@link #TYPE_NEGATIVE_INT}: a negative {@link Integer}, minus the value
+ * minus one</li>
+ * <li>{@link #TYPE_LONG}: a {@link Long} in zig-zag encoding</li>
+ * <li>{@link #TYPE_STRING}, {@link #TYPE_BYTES}: the length in bytes, followed
+ * by the (UTF-8) bytes</li>
+ * <li>{@link #TYPE_ARRAY}: the number of values, followed by the values</li>
+ * <li>{@link #TYPE_OBJECT}: the number of entries, followed by the entries.
+ * Each entry is a key and a value</li>
+ * </ul>
+ * 
+ * A key starts with a varint tag: an even tag is twice the length of the UTF-8
+ * bytes which follow. With a key dictionary, see {@link KeyDictionary}, the
+ * tag can also be an id: <code>(id &lt;&lt; 2) | 1</code>, or an announcement
+ * of a new id: <code>(id &lt;&lt; 2) | 3</code> followed by a varint length and
+ * the UTF-8 bytes.
+ * 
+ * So the small values, the short strings and the small collections only need
+ * the header byte, and the big integers take fewer bytes than in MessagePack.
+ * Unlike MessagePack, the {@link Integer}/{@link Long} and
+ * {@link Float}/{@link Double} types are kept as they were sent. A message is
+ * always an object.
+ * 
+ * @author kong
+ * 
+ */
+public final class BinaryCodec implements ICodec {
+
+	public static final int ID = 1;
+	public static final String NAME = "binary";
+
+	public static final int TYPE_CONSTANT = 0;
+	public static final int TYPE_INT = 1;
+	public static final int TYPE_NEGATIVE_INT = 2;
+	public static final int TYPE_LONG = 3;
+	public static final int TYPE_STRING = 4;
+	public static final int TYPE_BYTES = 5;
+	public static final int TYPE_ARRAY = 6;
+	public static final int TYPE_OBJECT = 7;
+
+	public static final int CONSTANT_NULL = 0;
+	public static final int CONSTANT_FALSE = 1;
+	public static final int CONSTANT_TRUE = 2;
+	public static final int CONSTANT_FLOAT = 3;
+	public static final int CONSTANT_DOUBLE = 4;
+
+	/**
+	 * The low bits of a header which is followed by a varint number
+	 */
+	public static final int EXTENDED = 0x1F;
+	/**
+	 * The maximum depth of the nested arrays and objects, deeper messages are
+	 * refused
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean canDecode(ByteBuf buffer) {
+		return buffer.isReadable() && (buffer.getUnsignedByte(buffer.readerIndex()) >>> 5) == TYPE_OBJECT;
+	}
+
+	@Override
+	public boolean supportsKeyDictionary() {
+		return true;
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer) {
+		return decode(buffer, null);
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer, KeyDictionary dictionary) {
+		if (!canDecode(buffer)) {
+			return null;
+		}
+		try {
+			return (TObject) __readValue(buffer, 0, dictionary);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			// truncated or malformed
+			return null;
+		}
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer) {
+		return encode(message, buffer, null);
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer, KeyDictionary dictionary) {
+		int start = buffer.writerIndex();
+		int mark = dictionary != null ? dictionary.mark() : 0;
+		try {
+			__writeValue(buffer, message, 1, dictionary);
+			return true;
+		} catch (IllegalArgumentException e) {
+			buffer.writerIndex(start);
+			if (dictionary != null) {
+				dictionary.rollback(mark);
+			}
+			return false;
+		}
+	}
+
+	private static void __writeHeader(ByteBuf buffer, int type, long number) {
+		if (number >= 0 && number < EXTENDED) {
+			buffer.writeByte((type << 5) | (int) number);
+		} else {
+			buffer.writeByte((type << 5) | EXTENDED);
+			WireFormat.writeVarint64(buffer, number);
+		}
+	}
+
+	private static void __writeValue(ByteBuf buffer, Object value, int depth, KeyDictionary dictionary) {
+		if (value == null) {
+			__writeHeader(buffer, TYPE_CONSTANT, CONSTANT_NULL);
+		} else if (value instanceof Boolean) {
+			__writeHeader(buffer, TYPE_CONSTANT, (Boolean) value ? CONSTANT_TRUE : CONSTANT_FALSE);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			int number = ((Number) value).intValue();
+			if (number >= 0) {
+				__writeHeader(buffer, TYPE_INT, number);
+			} else {
+				__writeHeader(buffer, TYPE_NEGATIVE_INT, -(number + 1));
+			}
+		} else if (value instanceof Long) {
+			long number = (Long) value;
+			long zigzag = (number << 1) ^ (number >> 63);
+			// a negative zig-zag number (above Long.MAX_VALUE) is written as a varint
+			if (zigzag >= 0 && zigzag < EXTENDED) {
+				buffer.writeByte((TYPE_LONG << 5) | (int) zigzag);
+			} else {
+				buffer.writeByte((TYPE_LONG << 5) | EXTENDED);
+				WireFormat.writeVarint64(buffer, zigzag);
+			}
+		} else if (value instanceof Float) {
+			__writeHeader(buffer, TYPE_CONSTANT, CONSTANT_FLOAT);
+			buffer.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			__writeHeader(buffer, TYPE_CONSTANT, CONSTANT_DOUBLE);
+			buffer.writeDouble((Double) value);
+		} else if (value instanceof String) {
+			var string = (String) value;
+			__writeHeader(buffer, TYPE_STRING, ByteBufUtil.utf8Bytes(string));
+			ByteBufUtil.writeUtf8(buffer, string);
+		} else if (value instanceof byte[]) {
+			var bytes = (byte[]) value;
+			__writeHeader(buffer, TYPE_BYTES, bytes.length);
+			buffer.writeBytes(bytes);
+		} else if (value instanceof Map) {
+			__checkDepth(depth);
+			var map = (Map<?, ?>) value;
+			__writeHeader(buffer, TYPE_OBJECT, map.size());
+			for (var entry : map.entrySet()) {
+				if (!(entry.getKey() instanceof String)) {
+					throw new IllegalArgumentException("The keys of a map must be strings");
+				}
+				__writeKey(buffer, (String) entry.getKey(), dictionary);
+				__writeValue(buffer, entry.getValue(), depth + 1, dictionary);
+			}
+		} else if (value instanceof Collection) {
+			__checkDepth(depth);
+			var collection = (Collection<?>) value;
+			__writeHeader(buffer, TYPE_ARRAY, collection.size());
+			for (var element : collection) {
+				__writeValue(buffer, element, depth + 1, dictionary);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported type: " + value.getClass().getName());
+		}
+	}
+
+	/**
+	 * Write a key's id, or announce its new id, or write it in full
+	 */
+	private static void __writeKey(ByteBuf buffer, String key, KeyDictionary dictionary) {
+		if (dictionary != null) {
+			int id = dictionary.getId(key);
+			if (id >= 0) {
+				WireFormat.writeVarint32(buffer, (id << 2) | 1);
+				return;
+			}
+			id = dictionary.index(key);
+			if (id >= 0) {
+				WireFormat.writeVarint32(buffer, (id << 2) | 3);
+				WireFormat.writeVarint32(buffer, ByteBufUtil.utf8Bytes(key));
+				ByteBufUtil.writeUtf8(buffer, key);
+				return;
+			}
+		}
+		WireFormat.writeVarint32(buffer, ByteBufUtil.utf8Bytes(key) << 1);
+		ByteBufUtil.writeUtf8(buffer, key);
+	}
+
+	/**
+	 * Read a key in full, or by its id, or by the announcement of its new id
+	 */
+	private static String __readKey(ByteBuf buffer, KeyDictionary dictionary) {
+		long tag = WireFormat.readVarint32(buffer) & 0xFFFFFFFFL;
+		if ((tag & 1) == 0) {
+			return __readString(buffer, tag >>> 1);
+		}
+		if (dictionary == null) {
+			throw new IllegalArgumentException("A key id without key dictionary");
+		}
+		int id = (int) (tag >>> 2);
+		if ((tag & 3) == 1) {
+			var key = dictionary.getKey(id);
+			if (key == null) {
+				throw new IllegalArgumentException("Unknown key id: " + id);
+			}
+			return key;
+		}
+		return dictionary.putKey(id, __readString(buffer, WireFormat.readVarint32(buffer) & 0xFFFFFFFFL));
+	}
+
+	private static String __readString(ByteBuf buffer, long length) {
+		int size = __checkSize(buffer, length, 1);
+		var value = buffer.toString(buffer.readerIndex(), size, StandardCharsets.UTF_8);
+		buffer.skipBytes(size);
+		return value;
+	}
+
+	private static Object __readValue(ByteBuf buffer, int depth, KeyDictionary dictionary) {
+		int header = buffer.readUnsignedByte();
+		int type = header >>> 5;
+		long number = header & EXTENDED;
+		if (number == EXTENDED) {
+			number = WireFormat.readVarint64(buffer);
+		}
+		switch (type) {
+		case TYPE_CONSTANT:
+			return __readConstant(buffer, number);
+		case TYPE_INT:
+			if (number > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The integer is out of range: " + number);
+			}
+			return (int) number;
+		case TYPE_NEGATIVE_INT:
+			if (number > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The integer is out of range: -" + number);
+			}
+			return (int) -(number + 1);
+		case TYPE_LONG:
+			return (number >>> 1) ^ -(number & 1);
+		case TYPE_STRING:
+			return __readString(buffer, number);
+		case TYPE_BYTES: {
+			var bytes = new byte[__checkSize(buffer, number, 1)];
+			buffer.readBytes(bytes);
+			return bytes;
+		}
+		case TYPE_ARRAY: {
+			__checkDepth(depth + 1);
+			int size = __checkSize(buffer, number, 1);
+			var array = TArray.newInstance();
+			array.ensureCapacity(size);
+			for (int i = 0; i < size; i++) {
+				array.add(__readValue(buffer, depth + 1, dictionary));
+			}
+			return array;
+		}
+		default: {
+			__checkDepth(depth + 1);
+			// each entry needs at least 2 bytes, a broken size can not allocate a huge map
+			int size = __checkSize(buffer, number, 2);
+			var object = TObject.newInstance();
+			for (int i = 0; i < size; i++) {
+				var key = __readKey(buffer, dictionary);
+				object.put(key, __readValue(buffer, depth + 1, dictionary));
+			}
+			return object;
+		}
+		}
+	}
+
+	private static Object __readConstant(ByteBuf buffer, long constant) {
+		switch ((int) Math.min(constant, Integer.MAX_VALUE)) {
+		case CONSTANT_NULL:
+			return null;
+		case CONSTANT_FALSE:
+			return Boolean.FALSE;
+		case CONSTANT_TRUE:
+			return Boolean.TRUE;
+		case CONSTANT_FLOAT:
+			return buffer.readFloat();
+		case CONSTANT_DOUBLE:
+			return buffer.readDouble();
+		default:
+			throw new IllegalArgumentException("Unknown constant: " + constant);
+		}
+	}
+
+	/**
+	 * @param buffer    the buffer, see {@link ByteBuf}
+	 * @param size      the read size
+	 * @param unitBytes the minimum number of bytes of each unit
+	 * @return the size, it is checked against the readable bytes
+	 */
+	private static int __checkSize(ByteBuf buffer, long size, int unitBytes) {
+		if (size < 0 || size > buffer.readableBytes() / unitBytes) {
+			throw new IndexOutOfBoundsException("The size is bigger than the readable bytes: " + size);
+		}
+		return (int) size;
+	}
+
+	private static void __checkDepth(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("The message is nested too deep");
+		}
+	}
+
+}
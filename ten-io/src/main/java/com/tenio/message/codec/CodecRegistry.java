@@ -0,0 +1,214 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.tenio.entity.element.TObject;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Holds the codecs which can be used for the {@link TObject} messages, see
+ * {@link ICodec}. The built-in ones are {@link MsgPackCodec} (the default),
+ * {@link BinaryCodec} and {@link JsonCodec}. The other codecs are listed in the
+ * service file <code>META-INF/services/com.tenio.message.codec.ICodec</code>,
+ * or added by {@link #register(ICodec)}.
+ * 
+ * <br>
+ * Each transport has a configured codec, a client can choose another one by
+ * sending a handshake: a message of 2 bytes, the {@link #HANDSHAKE} byte and
+ * the id of the codec. The server switches the connection's codec and answers
+ * with the same 2 bytes holding the id of the codec which is used from now on
+ * (it is the previous one when the requested id is unknown). The messages
+ * which are already being sent may still use the previous codec, so a client
+ * should send its handshake before its first message. So the faster codecs can
+ * be rolled out client by client.
+ * 
+ * <br>
+ * A handshake can have a third byte holding flags, then the answer also holds
+ * the flags which are accepted. With {@link #FLAG_KEY_DICTIONARY}, both sides
+ * start a new key dictionary, see {@link KeyDictionary}.
+ * 
+ * @author kong
+ * 
+ */
+public final class CodecRegistry {
+
+	/**
+	 * The first byte of a handshake. It is an extension type in MessagePack,
+	 * which can not start a MessagePack message.
+	 */
+	public static final byte HANDSHAKE = (byte) 0xC8;
+	/**
+	 * The size in bytes of a handshake without flags
+	 */
+	public static final int HANDSHAKE_BYTES = 2;
+	/**
+	 * The flag of a handshake which asks for a key dictionary, see
+	 * {@link KeyDictionary}
+	 */
+	public static final int FLAG_KEY_DICTIONARY = 0x01;
+	/**
+	 * The maximum id of a codec
+	 */
+	public static final int MAX_ID = 0xFF;
+
+	private static final ICodec __default = new MsgPackCodec();
+	private static final AtomicReferenceArray<ICodec> __codecs = new AtomicReferenceArray<ICodec>(MAX_ID + 1);
+	private static final ConcurrentHashMap<String, ICodec> __codecsByName = new ConcurrentHashMap<String, ICodec>();
+
+	static {
+		register(__default);
+		register(new BinaryCodec());
+		register(new JsonCodec());
+		for (var codec : ServiceLoader.load(ICodec.class, CodecRegistry.class.getClassLoader())) {
+			register(codec);
+		}
+	}
+
+	private CodecRegistry() {
+
+	}
+
+	/**
+	 * Register a codec
+	 * 
+	 * @param codec the codec, see {@link ICodec}
+	 * @throws IllegalArgumentException when the id is invalid or the id or the
+	 *                                  name is already used by another codec
+	 */
+	public static synchronized void register(ICodec codec) {
+		int id = codec.getId();
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException("Invalid codec id: " + id);
+		}
+		var name = codec.getName().toLowerCase(Locale.ROOT);
+		var current = __codecs.get(id);
+		if (current != null) {
+			if (current.getClass() == codec.getClass()) {
+				return;
+			}
+			throw new IllegalArgumentException("The codec id " + id + " is used by both " + current.getName()
+					+ " and " + codec.getName());
+		}
+		if (__codecsByName.containsKey(name)) {
+			throw new IllegalArgumentException("The codec name " + name + " is already used");
+		}
+		__codecsByName.put(name, codec);
+		__codecs.set(id, codec);
+	}
+
+	/**
+	 * @return the default codec, see {@link MsgPackCodec}
+	 */
+	public static ICodec getDefault() {
+		return __default;
+	}
+
+	/**
+	 * @param id the codec's id
+	 * @return the codec, see {@link ICodec}, or <b>null</b>
+	 */
+	public static ICodec getCodec(int id) {
+		return id >= 0 && id <= MAX_ID ? __codecs.get(id) : null;
+	}
+
+	/**
+	 * @param name the codec's name, it is case insensitive
+	 * @return the codec, see {@link ICodec}, or <b>null</b>
+	 */
+	public static ICodec getCodec(String name) {
+		return name == null ? null : __codecsByName.get(name.trim().toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * @param buffer the message's content, see {@link ByteBuf}
+	 * @return <b>true</b> if the content is a handshake
+	 */
+	public static boolean isHandshake(ByteBuf buffer) {
+		int bytes = buffer.readableBytes();
+		return (bytes == HANDSHAKE_BYTES || bytes == HANDSHAKE_BYTES + 1)
+				&& buffer.getByte(buffer.readerIndex()) == HANDSHAKE;
+	}
+
+	/**
+	 * Read the codec which is requested by a handshake
+	 * 
+	 * @param buffer the handshake, see {@link #isHandshake(ByteBuf)}. Its reader
+	 *               index is moved to the flags, see
+	 *               {@link #readHandshakeFlags(ByteBuf)}
+	 * @return the requested codec, see {@link ICodec}, or <b>null</b> if it is
+	 *         unknown
+	 */
+	public static ICodec readHandshake(ByteBuf buffer) {
+		buffer.skipBytes(1);
+		return getCodec(buffer.readUnsignedByte());
+	}
+
+	/**
+	 * Read the flags of a handshake, after {@link #readHandshake(ByteBuf)}
+	 * 
+	 * @param buffer the handshake, its reader index is moved to the end
+	 * @return the flags, or <b>-1</b> if the handshake has no flags
+	 */
+	public static int readHandshakeFlags(ByteBuf buffer) {
+		return buffer.isReadable() ? buffer.readUnsignedByte() : -1;
+	}
+
+	/**
+	 * Write the answer to a handshake
+	 * 
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec     the codec which is used from now on, see {@link ICodec}
+	 * @return the new buffer
+	 */
+	public static ByteBuf newHandshake(ByteBufAllocator allocator, ICodec codec) {
+		return newHandshake(allocator, codec, -1);
+	}
+
+	/**
+	 * Write the answer to a handshake with flags
+	 * 
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec     the codec which is used from now on, see {@link ICodec}
+	 * @param flags     the accepted flags, or <b>-1</b> when the handshake had no
+	 *                  flags
+	 * @return the new buffer
+	 */
+	public static ByteBuf newHandshake(ByteBufAllocator allocator, ICodec codec, int flags) {
+		var buffer = allocator.ioBuffer(HANDSHAKE_BYTES + 1);
+		buffer.writeByte(HANDSHAKE);
+		buffer.writeByte(codec.getId());
+		if (flags >= 0) {
+			buffer.writeByte(flags);
+		}
+		return buffer;
+	}
+
+}
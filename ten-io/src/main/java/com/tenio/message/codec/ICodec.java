@@ -0,0 +1,117 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import com.tenio.entity.element.TObject;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The wire format of the {@link TObject} messages. Each transport has its own
+ * configured codec and each client can choose another one by a handshake, see
+ * {@link CodecRegistry}. The schema messages are not affected, they are always
+ * written by their own codecs.
+ * 
+ * @author kong
+ * 
+ */
+public interface ICodec {
+
+	/**
+	 * @return the codec's id, it is sent in the handshake, see
+	 *         {@link CodecRegistry#HANDSHAKE}. It must be between 0 and
+	 *         {@link CodecRegistry#MAX_ID}
+	 */
+	int getId();
+
+	/**
+	 * @return the codec's name, it is used in the configuration
+	 */
+	String getName();
+
+	/**
+	 * Check the first bytes of a message without decoding it, e.g. to drop the
+	 * garbage packets cheaply
+	 * 
+	 * @param buffer the message's content, see {@link ByteBuf}. The reader index
+	 *               is not moved
+	 * @return <b>true</b> if the content can be a message of this codec
+	 */
+	boolean canDecode(ByteBuf buffer);
+
+	/**
+	 * Decode a message, the buffer's reader index is moved to the end of the
+	 * message and the caller is still responsible for releasing the buffer.
+	 * 
+	 * @param buffer the message's content, see {@link ByteBuf}
+	 * @return a new {@link TObject}, or <b>null</b> if the content is empty,
+	 *         malformed or truncated
+	 */
+	TObject decode(ByteBuf buffer);
+
+	/**
+	 * Encode a message from the buffer's current writer index
+	 * 
+	 * @param message the message, see {@link TObject}
+	 * @param buffer  the destination buffer, see {@link ByteBuf}
+	 * @return <b>true</b> if the message was written successfully
+	 */
+	boolean encode(TObject message, ByteBuf buffer);
+
+	/**
+	 * @return <b>true</b> if the codec can replace the keys by the ids of a key
+	 *         dictionary, see {@link KeyDictionary}
+	 */
+	boolean supportsKeyDictionary();
+
+	/**
+	 * Decode a message which can use the ids of a key dictionary, the codecs
+	 * without key dictionary only read the keys in full
+	 * 
+	 * @see #decode(ByteBuf)
+	 * 
+	 * @param buffer     the message's content, see {@link ByteBuf}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}
+	 * @return a new {@link TObject}, or <b>null</b> if the content is empty,
+	 *         malformed or truncated
+	 */
+	TObject decode(ByteBuf buffer, KeyDictionary dictionary);
+
+	/**
+	 * Encode a message with the ids of a key dictionary, the codecs without key
+	 * dictionary write the keys in full. When the message can not be written, the
+	 * ids given while writing are forgotten.
+	 * 
+	 * @see #encode(TObject, ByteBuf)
+	 * 
+	 * @param message    the message, see {@link TObject}
+	 * @param buffer     the destination buffer, see {@link ByteBuf}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}
+	 * @return <b>true</b> if the message was written successfully
+	 */
+	boolean encode(TObject message, ByteBuf buffer, KeyDictionary dictionary);
+
+}
@@ -0,0 +1,430 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+import com.tenio.entity.element.TArray;
+import com.tenio.entity.element.TObject;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * A <a href="https://www.json.org/">JSON</a> codec, it is meant for debugging:
+ * the messages can be read in any network tool and written by hand. The
+ * decoded values are:
+ * 
+ * <ul>
+ * <li>null: <b>null</b></li>
+ * <li>true, false: {@link Boolean}</li>
+ * <li>an integer number: {@link Integer} when it fits in 4 bytes, otherwise
+ * {@link Long} (or {@link Double} when it does not fit in 8 bytes)</li>
+ * <li>a number with a fraction or an exponent: {@link Double}</li>
+ * <li>string: {@link String}</li>
+ * <li>array: {@link TArray}</li>
+ * <li>object: {@link TObject}</li>
+ * </ul>
+ * 
+ * An array of bytes is written as a Base64 string and the non finite numbers
+ * as <b>null</b>, so they are not read back with the same types.
+ * 
+ * @author kong
+ * 
+ */
+public final class JsonCodec implements ICodec {
+
+	public static final int ID = 2;
+	public static final String NAME = "json";
+
+	/**
+	 * The maximum depth of the nested arrays and objects, deeper messages are
+	 * refused
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean canDecode(ByteBuf buffer) {
+		return buffer.isReadable() && buffer.getByte(buffer.readerIndex()) == '{';
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer) {
+		if (!buffer.isReadable()) {
+			return null;
+		}
+		var text = buffer.toString(StandardCharsets.UTF_8);
+		buffer.skipBytes(buffer.readableBytes());
+		try {
+			var parser = new Parser(text);
+			parser.skipWhitespace();
+			if (!parser.isNext('{')) {
+				return null;
+			}
+			var object = (TObject) parser.readValue(0);
+			parser.skipWhitespace();
+			return parser.isEnd() ? object : null;
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			// truncated or malformed
+			return null;
+		}
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer) {
+		var builder = new StringBuilder();
+		try {
+			__writeValue(builder, message, 1);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		ByteBufUtil.writeUtf8(buffer, builder);
+		return true;
+	}
+
+	@Override
+	public boolean supportsKeyDictionary() {
+		// the keys stay readable
+		return false;
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer, KeyDictionary dictionary) {
+		return decode(buffer);
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer, KeyDictionary dictionary) {
+		return encode(message, buffer);
+	}
+
+	private static void __writeValue(StringBuilder builder, Object value, int depth) {
+		if (value == null) {
+			builder.append("null");
+		} else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte) {
+			builder.append(value);
+		} else if (value instanceof Float || value instanceof Double) {
+			double number = ((Number) value).doubleValue();
+			if (Double.isFinite(number)) {
+				builder.append(value);
+			} else {
+				builder.append("null");
+			}
+		} else if (value instanceof String) {
+			__writeString(builder, (String) value);
+		} else if (value instanceof byte[]) {
+			__writeString(builder, Base64.getEncoder().encodeToString((byte[]) value));
+		} else if (value instanceof Map) {
+			__checkDepth(depth);
+			builder.append('{');
+			boolean first = true;
+			for (var entry : ((Map<?, ?>) value).entrySet()) {
+				if (!(entry.getKey() instanceof String)) {
+					throw new IllegalArgumentException("The keys of a map must be strings");
+				}
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				__writeString(builder, (String) entry.getKey());
+				builder.append(':');
+				__writeValue(builder, entry.getValue(), depth + 1);
+			}
+			builder.append('}');
+		} else if (value instanceof Collection) {
+			__checkDepth(depth);
+			builder.append('[');
+			boolean first = true;
+			for (var element : (Collection<?>) value) {
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				__writeValue(builder, element, depth + 1);
+			}
+			builder.append(']');
+		} else {
+			throw new IllegalArgumentException("Unsupported type: " + value.getClass().getName());
+		}
+	}
+
+	private static void __writeString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			case '\b':
+				builder.append("\\b");
+				break;
+			case '\f':
+				builder.append("\\f");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		builder.append('"');
+	}
+
+	private static void __checkDepth(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("The message is nested too deep");
+		}
+	}
+
+	/**
+	 * A recursive descent parser, the nesting is limited by {@link #MAX_DEPTH}
+	 */
+	private static final class Parser {
+
+		private final String __text;
+		private int __position;
+
+		private Parser(String text) {
+			__text = text;
+			__position = 0;
+		}
+
+		private boolean isEnd() {
+			return __position >= __text.length();
+		}
+
+		private boolean isNext(char c) {
+			return !isEnd() && __text.charAt(__position) == c;
+		}
+
+		private void skipWhitespace() {
+			while (!isEnd()) {
+				char c = __text.charAt(__position);
+				if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+					return;
+				}
+				__position++;
+			}
+		}
+
+		private void expect(char c) {
+			if (__text.charAt(__position) != c) {
+				throw new IllegalArgumentException("Expected '" + c + "' at " + __position);
+			}
+			__position++;
+		}
+
+		private Object readValue(int depth) {
+			skipWhitespace();
+			char c = __text.charAt(__position);
+			switch (c) {
+			case '{':
+				return readObject(depth + 1);
+			case '[':
+				return readArray(depth + 1);
+			case '"':
+				return readString();
+			case 't':
+				readLiteral("true");
+				return Boolean.TRUE;
+			case 'f':
+				readLiteral("false");
+				return Boolean.FALSE;
+			case 'n':
+				readLiteral("null");
+				return null;
+			default:
+				return readNumber();
+			}
+		}
+
+		private TObject readObject(int depth) {
+			__checkDepth(depth);
+			expect('{');
+			var object = TObject.newInstance();
+			skipWhitespace();
+			if (isNext('}')) {
+				__position++;
+				return object;
+			}
+			while (true) {
+				skipWhitespace();
+				var key = readString();
+				skipWhitespace();
+				expect(':');
+				object.put(key, readValue(depth));
+				skipWhitespace();
+				if (isNext(',')) {
+					__position++;
+				} else {
+					expect('}');
+					return object;
+				}
+			}
+		}
+
+		private TArray readArray(int depth) {
+			__checkDepth(depth);
+			expect('[');
+			var array = TArray.newInstance();
+			skipWhitespace();
+			if (isNext(']')) {
+				__position++;
+				return array;
+			}
+			while (true) {
+				array.add(readValue(depth));
+				skipWhitespace();
+				if (isNext(',')) {
+					__position++;
+				} else {
+					expect(']');
+					return array;
+				}
+			}
+		}
+
+		private String readString() {
+			expect('"');
+			var builder = new StringBuilder();
+			while (true) {
+				char c = __text.charAt(__position++);
+				if (c == '"') {
+					return builder.toString();
+				}
+				if (c != '\\') {
+					if (c < 0x20) {
+						throw new IllegalArgumentException("Control character in a string at " + (__position - 1));
+					}
+					builder.append(c);
+					continue;
+				}
+				c = __text.charAt(__position++);
+				switch (c) {
+				case '"':
+				case '\\':
+				case '/':
+					builder.append(c);
+					break;
+				case 'n':
+					builder.append('\n');
+					break;
+				case 'r':
+					builder.append('\r');
+					break;
+				case 't':
+					builder.append('\t');
+					break;
+				case 'b':
+					builder.append('\b');
+					break;
+				case 'f':
+					builder.append('\f');
+					break;
+				case 'u':
+					builder.append((char) Integer.parseInt(__text.substring(__position, __position + 4), 16));
+					__position += 4;
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid escape at " + (__position - 1));
+				}
+			}
+		}
+
+		private void readLiteral(String literal) {
+			if (!__text.startsWith(literal, __position)) {
+				throw new IllegalArgumentException("Unexpected token at " + __position);
+			}
+			__position += literal.length();
+		}
+
+		private Number readNumber() {
+			int start = __position;
+			boolean integer = true;
+			if (isNext('-')) {
+				__position++;
+			}
+			while (!isEnd()) {
+				char c = __text.charAt(__position);
+				if (c >= '0' && c <= '9') {
+					__position++;
+				} else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+					integer = false;
+					__position++;
+				} else {
+					break;
+				}
+			}
+			// Long.parseLong and Double.parseDouble refuse the malformed numbers
+			var token = __text.substring(start, __position);
+			if (integer) {
+				try {
+					long value = Long.parseLong(token);
+					if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+						return (int) value;
+					}
+					return value;
+				} catch (NumberFormatException e) {
+					// too big for a long, or malformed
+				}
+			}
+			var value = Double.parseDouble(token);
+			if (!Double.isFinite(value)) {
+				throw new IllegalArgumentException("Invalid number at " + start);
+			}
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The key dictionary of one connection, it shrinks the repeated keys of the
+ * {@link com.tenio.entity.element.TObject} messages, like the header tables of
+ * HPACK. When a key has been written {@link #THRESHOLD} times, it gets the next
+ * small id, which is announced once with the key, and then the id is written
+ * instead of the key. Each side has its own table: the outbound ids are given
+ * by this side, the inbound ids are announced by the other side and must come
+ * in order. So it can only be used on a reliable and ordered connection (TCP,
+ * WebSocket). The tables never evict a key, the later keys are written in full
+ * once a table is full.
+ * 
+ * <br>
+ * The outbound table must be used by one thread at a time, in the order of the
+ * written messages, and the inbound table by the reading thread. The inbound
+ * keys are interned, so the decoded messages of all the connections share the
+ * same key instances.
+ * 
+ * @see ICodec#supportsKeyDictionary()
+ * 
+ * @author kong
+ * 
+ */
+public final class KeyDictionary {
+
+	/**
+	 * The number of times a key is written in full before it gets an id
+	 */
+	public static final int THRESHOLD = 2;
+	/**
+	 * The maximum number of shared key instances, the later keys are not interned
+	 */
+	private static final int MAX_INTERNED_KEYS = 65536;
+
+	private static final ConcurrentHashMap<String, String> __interned = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * The maximum number of keys of each table
+	 */
+	private final int __capacity;
+	private final HashMap<String, Integer> __outboundIds;
+	private final List<String> __outboundKeys;
+	/**
+	 * The keys which are written in full, with their number of uses. It is
+	 * cleared when it gets too big, so the keys which are rarely used can not fill
+	 * it
+	 */
+	private final HashMap<String, Integer> __candidates;
+	private final List<String> __inboundKeys;
+
+	/**
+	 * @param capacity the maximum number of keys of each table
+	 */
+	public KeyDictionary(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		__capacity = capacity;
+		__outboundIds = new HashMap<String, Integer>();
+		__outboundKeys = new ArrayList<String>();
+		__candidates = new HashMap<String, Integer>();
+		__inboundKeys = new ArrayList<String>();
+	}
+
+	/**
+	 * @return the maximum number of keys of each table
+	 */
+	public int getCapacity() {
+		return __capacity;
+	}
+
+	/**
+	 * @param key the written key
+	 * @return the key's id, or <b>-1</b> if it has no id yet
+	 */
+	public int getId(String key) {
+		var id = __outboundIds.get(key);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Count one more use of a key which has no id yet
+	 * 
+	 * @param key the written key
+	 * @return the new id, which must be announced with the key, or <b>-1</b> if
+	 *         the key must be written in full
+	 */
+	public int index(String key) {
+		if (__outboundKeys.size() >= __capacity) {
+			return -1;
+		}
+		int uses = __candidates.getOrDefault(key, 0) + 1;
+		if (uses < THRESHOLD) {
+			if (__candidates.size() >= __capacity * 4) {
+				__candidates.clear();
+			}
+			__candidates.put(key, uses);
+			return -1;
+		}
+		__candidates.remove(key);
+		int id = __outboundKeys.size();
+		__outboundKeys.add(key);
+		__outboundIds.put(key, id);
+		return id;
+	}
+
+	/**
+	 * @return the number of outbound ids, it is the mark to roll back to, see
+	 *         {@link #rollback(int)}
+	 */
+	public int mark() {
+		return __outboundKeys.size();
+	}
+
+	/**
+	 * Forget the outbound ids which were given after a mark, when the message
+	 * announcing them is not sent
+	 * 
+	 * @param mark see {@link #mark()}
+	 */
+	public void rollback(int mark) {
+		for (int id = __outboundKeys.size() - 1; id >= mark; id--) {
+			__outboundIds.remove(__outboundKeys.remove(id));
+		}
+	}
+
+	/**
+	 * @param id an inbound id
+	 * @return the key, or <b>null</b> if the id was not announced
+	 */
+	public String getKey(int id) {
+		return id >= 0 && id < __inboundKeys.size() ? __inboundKeys.get(id) : null;
+	}
+
+	/**
+	 * Add an announced key to the inbound table
+	 * 
+	 * @param id  the announced id, it must be the next one
+	 * @param key the key
+	 * @return the shared instance of the key
+	 * @throws IllegalArgumentException when the id is not the next one or the
+	 *                                  table is full
+	 */
+	public String putKey(int id, String key) {
+		if (id != __inboundKeys.size() || id >= __capacity) {
+			throw new IllegalArgumentException("Unexpected key id: " + id);
+		}
+		var interned = intern(key);
+		__inboundKeys.add(interned);
+		return interned;
+	}
+
+	/**
+	 * @param key a key
+	 * @return the shared instance of the key, or the key itself when there are
+	 *         too many shared keys
+	 */
+	public static String intern(String key) {
+		var interned = __interned.get(key);
+		if (interned != null) {
+			return interned;
+		}
+		if (__interned.size() >= MAX_INTERNED_KEYS) {
+			return key;
+		}
+		interned = __interned.putIfAbsent(key, key);
+		return interned != null ? interned : key;
+	}
+
+}
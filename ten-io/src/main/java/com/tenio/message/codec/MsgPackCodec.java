@@ -0,0 +1,88 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import com.tenio.entity.element.TObject;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The default codec, the messages are written in
+ * <a href="https://msgpack.org/index.html">MessagePack</a>, see
+ * {@link MsgPackConverter}.
+ * 
+ * @author kong
+ * 
+ */
+public final class MsgPackCodec implements ICodec {
+
+	public static final int ID = 0;
+	public static final String NAME = "msgpack";
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean canDecode(ByteBuf buffer) {
+		if (!buffer.isReadable()) {
+			return false;
+		}
+		// a map header
+		int type = buffer.getUnsignedByte(buffer.readerIndex());
+		return (type >= 0x80 && type <= 0x8f) || type == 0xde || type == 0xdf;
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer) {
+		return MsgPackConverter.unserialize(buffer);
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer) {
+		return MsgPackConverter.serialize(message, buffer);
+	}
+
+	@Override
+	public boolean supportsKeyDictionary() {
+		return true;
+	}
+
+	@Override
+	public TObject decode(ByteBuf buffer, KeyDictionary dictionary) {
+		return MsgPackDecoder.decode(buffer, dictionary);
+	}
+
+	@Override
+	public boolean encode(TObject message, ByteBuf buffer, KeyDictionary dictionary) {
+		return MsgPackConverter.serialize(message, buffer, dictionary);
+	}
+
+}
@@ -23,20 +23,18 @@ THE SOFTWARE.
 */
 package com.tenio.message.codec;
 
-import static org.msgpack.template.Templates.TString;
-import static org.msgpack.template.Templates.TValue;
-import static org.msgpack.template.Templates.tMap;
-
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import org.msgpack.MessagePack;
-import org.msgpack.type.Value;
+import org.msgpack.packer.Packer;
 
-import com.tenio.entity.element.TArray;
 import com.tenio.entity.element.TObject;
-import com.tenio.message.pool.ByteArrayInputStreamPool;
-import com.tenio.pool.IElementPool;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 
 /**
  * <a href="https://msgpack.org/index.html">MessagePack</a> is an efficient
@@ -61,6 +59,34 @@ public final class MsgPackConverter {
 		return MsgPackUtil.pack(object);
 	}
 
+	/**
+	 * Serialize an object directly into a buffer, the data is written from the
+	 * buffer's current writer index.
+	 * 
+	 * @param object a {@link Map} type object
+	 * @param buffer the destination buffer, see {@link ByteBuf}
+	 * @return <b>true</b> if the object was written successfully
+	 */
+	public static boolean serialize(Map<String, Object> object, ByteBuf buffer) {
+		return MsgPackUtil.pack(object, buffer);
+	}
+
+	/**
+	 * Serialize an object directly into a buffer, the keys are replaced by the ids
+	 * of a key dictionary, see {@link KeyDictionary}. The values are written as
+	 * in {@link #serialize(Map, ByteBuf)}.
+	 * 
+	 * @param object     a {@link Map} type object
+	 * @param buffer     the destination buffer, see {@link ByteBuf}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}
+	 * @return <b>true</b> if the object was written successfully, otherwise the
+	 *         ids given while writing are forgotten
+	 */
+	public static boolean serialize(Map<String, Object> object, ByteBuf buffer, KeyDictionary dictionary) {
+		return MsgPackUtil.pack(object, buffer, dictionary);
+	}
+
 	/**
 	 * Un-serialize an array of bytes data to a {@link TObject}
 	 * 
@@ -68,15 +94,22 @@ public final class MsgPackConverter {
 	 * @return an object in <b>TObject</b> type
 	 */
 	public static TObject unserialize(byte[] msg) {
-		var object = TObject.newInstance();
-		var dstMap = MsgPackUtil.unpack(msg);
-		if (dstMap == null || dstMap.isEmpty()) {
-			return null;
-		}
-		dstMap.forEach((key, value) -> {
-			object.put(key, MsgPackUtil.valueToObject(value));
-		});
-		return object;
+		// the wrapper shares the array, nothing is copied
+		return MsgPackDecoder.decode(Unpooled.wrappedBuffer(msg));
+	}
+
+	/**
+	 * Un-serialize a buffer's readable data to a {@link TObject}. The data is read
+	 * directly from the buffer (heap or direct) without any intermediate array of
+	 * bytes. The buffer's reader index is moved to the end of the read message and
+	 * the caller is still responsible for releasing the buffer. The objects are
+	 * built while reading, see {@link MsgPackDecoder}.
+	 * 
+	 * @param msg a buffer, see {@link ByteBuf}
+	 * @return an object in <b>TObject</b> type
+	 */
+	public static TObject unserialize(ByteBuf msg) {
+		return MsgPackDecoder.decode(msg);
 	}
 
 	private final static class MsgPackUtil {
@@ -85,11 +118,6 @@ public final class MsgPackConverter {
 		 * A MsgPack instance
 		 */
 		private static final MessagePack __packer = new MessagePack();
-		/**
-		 * An object creation pool instance, which is used for re-use byte objects, see
-		 * {@link IElementPool}
-		 */
-		private static final IElementPool<ByteArrayInputStream> __bytesPool = new ByteArrayInputStreamPool();
 
 		/**
 		 * Converting an object ({@link TObject}) to array of bytes data
@@ -107,61 +135,99 @@ public final class MsgPackConverter {
 		}
 
 		/**
-		 * Converting an array of bytes data to a {@link Map} object
+		 * Converting an object ({@link TObject}) to a buffer's data
 		 * 
-		 * @param msg an array of bytes
-		 * @return a object in map type
+		 * @param map    an object in {@link Map} type
+		 * @param buffer the destination buffer, see {@link ByteBuf}
+		 * @return <b>true</b> if the object was written successfully
 		 */
-		public static Map<String, Value> unpack(byte[] msg) {
-			var mapTmpl = tMap(TString, TValue);
-			var in = __bytesPool.get();
-			try {
-				in.reset(msg);
-				var unpacker = __packer.createUnpacker(in);
-				return unpacker.read(mapTmpl);
-			} catch (IOException | IllegalArgumentException e) {
+		public static boolean pack(Map<String, Object> map, ByteBuf buffer) {
+			// the stream only wraps the buffer, it neither copies nor releases it
+			try (var out = new ByteBufOutputStream(buffer)) {
+				__packer.write(out, map);
+				return true;
+			} catch (IOException e) {
 				e.printStackTrace();
-				return null;
-			} finally {
-				// anyway --> repay
-				__bytesPool.repay(in);
+				return false;
 			}
 		}
 
 		/**
-		 * Converting value in MsgPack type to its corresponding in Java type
+		 * Converting an object ({@link TObject}) to a buffer's data with the ids of a
+		 * key dictionary
 		 * 
-		 * @param value the value in {@link Value} type
-		 * @return an object in Java type
+		 * @param map        an object in {@link Map} type
+		 * @param buffer     the destination buffer, see {@link ByteBuf}
+		 * @param dictionary the connection's key dictionary, see
+		 *                   {@link KeyDictionary}
+		 * @return <b>true</b> if the object was written successfully
 		 */
-		public static Object valueToObject(Value value) {
-			if (value.isNilValue()) {
-				value.asNilValue();
-				return null;
-			} else if (value.isRawValue()) {
-				// String only
-				return value.asRawValue().getString();
-			} else if (value.isBooleanValue()) {
-				return value.asBooleanValue().getBoolean();
-			} else if (value.isFloatValue()) {
-				// Double only (8 bytes)
-				return value.asFloatValue().getDouble();
-			} else if (value.isIntegerValue()) {
-				// Integer only (4 bytes)
-				return value.asIntegerValue().getInt();
-			} else if (value.isArrayValue()) {
-				// Convert value to list of objects (TArray)
-				var arr = value.asArrayValue();
-				var array = TArray.newInstance();
-				arr.forEach(element -> {
-					array.add(valueToObject(element));
-				});
-				return array;
-			} else if (value.isMapValue()) {
-				// FIXME: Temporary not support
-				throw new UnsupportedOperationException();
+		public static boolean pack(Map<String, Object> map, ByteBuf buffer, KeyDictionary dictionary) {
+			int mark = dictionary.mark();
+			boolean packed = false;
+			// the stream only wraps the buffer, it neither copies nor releases it
+			try (var out = new ByteBufOutputStream(buffer)) {
+				var packer = __packer.createPacker(out);
+				__writeMap(packer, map, dictionary);
+				packer.flush();
+				packed = true;
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				if (!packed) {
+					dictionary.rollback(mark);
+				}
+			}
+			return packed;
+		}
+
+		private static void __writeMap(Packer packer, Map<?, ?> map, KeyDictionary dictionary) throws IOException {
+			packer.writeMapBegin(map.size());
+			for (var entry : map.entrySet()) {
+				if (entry.getKey() instanceof String) {
+					__writeKey(packer, (String) entry.getKey(), dictionary);
+				} else {
+					packer.write(entry.getKey());
+				}
+				__writeValue(packer, entry.getValue(), dictionary);
+			}
+			packer.writeMapEnd();
+		}
+
+		/**
+		 * Write a key's id, or announce its new id, or write it in full
+		 */
+		private static void __writeKey(Packer packer, String key, KeyDictionary dictionary) throws IOException {
+			int id = dictionary.getId(key);
+			if (id >= 0) {
+				packer.write(id);
+				return;
+			}
+			id = dictionary.index(key);
+			if (id >= 0) {
+				packer.writeArrayBegin(2);
+				packer.write(id);
+				packer.write(key);
+				packer.writeArrayEnd();
+			} else {
+				packer.write(key);
+			}
+		}
+
+		private static void __writeValue(Packer packer, Object value, KeyDictionary dictionary) throws IOException {
+			if (value instanceof Map) {
+				__writeMap(packer, (Map<?, ?>) value, dictionary);
+			} else if (value instanceof List) {
+				var list = (List<?>) value;
+				packer.writeArrayBegin(list.size());
+				for (var element : list) {
+					__writeValue(packer, element, dictionary);
+				}
+				packer.writeArrayEnd();
+			} else if (value == null) {
+				packer.writeNil();
 			} else {
-				throw new UnsupportedOperationException();
+				packer.write(value);
 			}
 		}
 
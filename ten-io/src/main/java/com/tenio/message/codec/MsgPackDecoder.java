@@ -0,0 +1,306 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.codec;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import com.tenio.entity.element.TArray;
+import com.tenio.entity.element.TObject;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A single pass <a href="https://msgpack.org/index.html">MessagePack</a>
+ * decoder. It reads the tokens straight from a buffer and fills the
+ * {@link TObject} and {@link TArray} instances while reading, so there is no
+ * intermediate tree of values. The decoded values are:
+ * 
+ * <ul>
+ * <li>nil: <b>null</b></li>
+ * <li>boolean: {@link Boolean}</li>
+ * <li>integer: {@link Integer} when it fits in 4 bytes, otherwise {@link Long}
+ * (or {@link BigInteger} for an unsigned value above {@link Long#MAX_VALUE})</li>
+ * <li>float: {@link Double}</li>
+ * <li>string (raw): {@link String}</li>
+ * <li>binary: an array of bytes</li>
+ * <li>array: {@link TArray}</li>
+ * <li>map with string keys: {@link TObject}</li>
+ * </ul>
+ * 
+ * The extension types are not supported, a message which holds one of them is
+ * refused. With a key dictionary, see {@link KeyDictionary}, a key of a map
+ * can also be an id (a positive integer) or an announcement (an array of the
+ * new id and the key).
+ * 
+ * @author kong
+ * 
+ */
+public final class MsgPackDecoder {
+
+	/**
+	 * The maximum depth of the nested arrays and maps, deeper messages are
+	 * refused
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	private MsgPackDecoder() {
+
+	}
+
+	/**
+	 * Decode a message, it must be a map with string keys. The buffer's reader
+	 * index is moved to the end of the message.
+	 * 
+	 * @param buffer the message's content, see {@link ByteBuf}
+	 * @return a new {@link TObject}, or <b>null</b> if the message is empty,
+	 *         malformed or truncated
+	 */
+	public static TObject decode(ByteBuf buffer) {
+		return decode(buffer, null);
+	}
+
+	/**
+	 * Decode a message which can use the ids of a key dictionary
+	 * 
+	 * @see #decode(ByteBuf)
+	 * 
+	 * @param buffer     the message's content, see {@link ByteBuf}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}, or <b>null</b> when the keys are
+	 *                   always written in full
+	 * @return a new {@link TObject}, or <b>null</b> if the message is empty,
+	 *         malformed or truncated
+	 */
+	public static TObject decode(ByteBuf buffer, KeyDictionary dictionary) {
+		if (!buffer.isReadable()) {
+			return null;
+		}
+		try {
+			int type = buffer.readUnsignedByte();
+			int size = __readMapSize(buffer, type);
+			if (size <= 0) {
+				return null;
+			}
+			return __readMap(buffer, size, 1, dictionary);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			// truncated or malformed
+			return null;
+		}
+	}
+
+	/**
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @param type   the first byte of the value
+	 * @return the number of entries, or <b>-1</b> if the value is not a map
+	 */
+	private static int __readMapSize(ByteBuf buffer, int type) {
+		if (type >= 0x80 && type <= 0x8f) {
+			return type & 0x0f;
+		} else if (type == 0xde) {
+			return buffer.readUnsignedShort();
+		} else if (type == 0xdf) {
+			return __readSize(buffer);
+		}
+		return -1;
+	}
+
+	private static TObject __readMap(ByteBuf buffer, int size, int depth, KeyDictionary dictionary) {
+		// each entry needs at least 2 bytes, a broken size can not allocate a huge map
+		__checkSize(buffer, size, 2);
+		__checkDepth(depth);
+		var object = TObject.newInstance();
+		for (int i = 0; i < size; i++) {
+			var key = __readKey(buffer, depth, dictionary);
+			object.put(key, __readValue(buffer, depth, dictionary));
+		}
+		return object;
+	}
+
+	private static TArray __readArray(ByteBuf buffer, int size, int depth, KeyDictionary dictionary) {
+		__checkSize(buffer, size, 1);
+		__checkDepth(depth);
+		var array = TArray.newInstance();
+		array.ensureCapacity(size);
+		for (int i = 0; i < size; i++) {
+			array.add(__readValue(buffer, depth, dictionary));
+		}
+		return array;
+	}
+
+	/**
+	 * Read a key of a map: a string, or an id of the key dictionary, or an
+	 * announcement of a new id
+	 */
+	private static String __readKey(ByteBuf buffer, int depth, KeyDictionary dictionary) {
+		int type = buffer.getUnsignedByte(buffer.readerIndex());
+		if (dictionary != null) {
+			if (type <= 0x7f || type == 0xcc || type == 0xcd) {
+				var key = dictionary.getKey((Integer) __readValue(buffer, depth, null));
+				if (key == null) {
+					throw new IllegalArgumentException("Unknown key id");
+				}
+				return key;
+			} else if (type == 0x92) {
+				buffer.skipBytes(1);
+				var id = __readValue(buffer, depth, null);
+				var key = __readValue(buffer, depth, null);
+				if (!(id instanceof Integer) || !(key instanceof String)) {
+					throw new IllegalArgumentException("Invalid key announcement");
+				}
+				return dictionary.putKey((Integer) id, (String) key);
+			}
+		}
+		var key = __readValue(buffer, depth, null);
+		if (!(key instanceof String)) {
+			throw new IllegalArgumentException("The keys of a map must be strings");
+		}
+		return (String) key;
+	}
+
+	private static Object __readValue(ByteBuf buffer, int depth, KeyDictionary dictionary) {
+		int type = buffer.readUnsignedByte();
+
+		// the fixed formats
+		if (type <= 0x7f) {
+			return type;
+		} else if (type >= 0xe0) {
+			return (int) (byte) type;
+		} else if (type <= 0x8f) {
+			return __readMap(buffer, type & 0x0f, depth + 1, dictionary);
+		} else if (type <= 0x9f) {
+			return __readArray(buffer, type & 0x0f, depth + 1, dictionary);
+		} else if (type <= 0xbf) {
+			return __readString(buffer, type & 0x1f);
+		}
+
+		switch (type) {
+		case 0xc0:
+			return null;
+		case 0xc2:
+			return false;
+		case 0xc3:
+			return true;
+		case 0xc4:
+			return __readBytes(buffer, buffer.readUnsignedByte());
+		case 0xc5:
+			return __readBytes(buffer, buffer.readUnsignedShort());
+		case 0xc6:
+			return __readBytes(buffer, __readSize(buffer));
+		case 0xca:
+			return (double) buffer.readFloat();
+		case 0xcb:
+			return buffer.readDouble();
+		case 0xcc:
+			return (int) buffer.readUnsignedByte();
+		case 0xcd:
+			return buffer.readUnsignedShort();
+		case 0xce:
+			return __narrow(buffer.readUnsignedInt());
+		case 0xcf:
+			long unsigned = buffer.readLong();
+			if (unsigned < 0) {
+				return new BigInteger(Long.toUnsignedString(unsigned));
+			}
+			return __narrow(unsigned);
+		case 0xd0:
+			return (int) buffer.readByte();
+		case 0xd1:
+			return (int) buffer.readShort();
+		case 0xd2:
+			return buffer.readInt();
+		case 0xd3:
+			return __narrow(buffer.readLong());
+		case 0xd9:
+			return __readString(buffer, buffer.readUnsignedByte());
+		case 0xda:
+			return __readString(buffer, buffer.readUnsignedShort());
+		case 0xdb:
+			return __readString(buffer, __readSize(buffer));
+		case 0xdc:
+			return __readArray(buffer, buffer.readUnsignedShort(), depth + 1, dictionary);
+		case 0xdd:
+			return __readArray(buffer, __readSize(buffer), depth + 1, dictionary);
+		case 0xde:
+			return __readMap(buffer, buffer.readUnsignedShort(), depth + 1, dictionary);
+		case 0xdf:
+			return __readMap(buffer, __readSize(buffer), depth + 1, dictionary);
+		default:
+			// 0xc1 is never used, the others are the extension types
+			throw new IllegalArgumentException("Unsupported MessagePack type: " + type);
+		}
+	}
+
+	/**
+	 * @param value an integer value
+	 * @return an {@link Integer} if the value fits in it, otherwise a {@link Long}
+	 */
+	private static Object __narrow(long value) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			return (int) value;
+		}
+		return value;
+	}
+
+	private static String __readString(ByteBuf buffer, int length) {
+		if (length == 0) {
+			return "";
+		}
+		var string = buffer.toString(buffer.readerIndex(), length, StandardCharsets.UTF_8);
+		buffer.skipBytes(length);
+		return string;
+	}
+
+	private static byte[] __readBytes(ByteBuf buffer, int length) {
+		__checkSize(buffer, length, 1);
+		var bytes = new byte[length];
+		buffer.readBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @return a 4 bytes size, it can not be bigger than {@link Integer#MAX_VALUE}
+	 */
+	private static int __readSize(ByteBuf buffer) {
+		long size = buffer.readUnsignedInt();
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The size is too big: " + size);
+		}
+		return (int) size;
+	}
+
+	private static void __checkSize(ByteBuf buffer, int size, int minBytes) {
+		if ((long) size * minBytes > buffer.readableBytes()) {
+			throw new IndexOutOfBoundsException("The size is bigger than the readable bytes: " + size);
+		}
+	}
+
+	private static void __checkDepth(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("The message is nested too deep");
+		}
+	}
+
+}
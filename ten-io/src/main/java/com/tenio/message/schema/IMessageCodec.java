@@ -0,0 +1,82 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.schema;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Encodes and decodes one {@link Message} class. The codecs are generated at
+ * build time, see {@link com.tenio.message.schema.processor.MessageProcessor},
+ * they read and write the fields directly, see {@link WireFormat}.
+ * 
+ * @author kong
+ * 
+ * @param <M> the message class
+ */
+public interface IMessageCodec<M> {
+
+	/**
+	 * @return the message's id, see {@link Message#id()}
+	 */
+	int getId();
+
+	/**
+	 * @return the message class
+	 */
+	Class<M> getMessageClass();
+
+	/**
+	 * Write the fields of a message, the message's id is not written
+	 * 
+	 * @param message the message
+	 * @param buffer  the destination buffer, see {@link ByteBuf}
+	 */
+	void encode(M message, ByteBuf buffer);
+
+	/**
+	 * Read the fields of a message until the end of the buffer or the
+	 * {@link WireFormat#END} tag of a nested message
+	 * 
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @return a new message
+	 * @throws IndexOutOfBoundsException when the data is truncated
+	 * @throws IllegalArgumentException  when the data is malformed
+	 */
+	M decode(ByteBuf buffer);
+
+	/**
+	 * Read the fields of a nested message
+	 * 
+	 * @see #decode(ByteBuf)
+	 * 
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @param depth  the message's depth, <b>0</b> for a top-level message
+	 * @return a new message
+	 * @throws IndexOutOfBoundsException when the data is truncated
+	 * @throws IllegalArgumentException  when the data is malformed or the depth is
+	 *                                   greater than {@link WireFormat#MAX_DEPTH}
+	 */
+	M decode(ByteBuf buffer, int depth);
+
+}
@@ -0,0 +1,59 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.schema;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a schema message. Unlike a {@link com.tenio.entity.element.TObject},
+ * its fields are plain Java fields numbered by {@link Field}, and the message is
+ * written without any key name. A codec is generated for every message class
+ * at build time, see {@link com.tenio.message.schema.processor.MessageProcessor},
+ * so no reflection is used to encode or decode it.
+ * 
+ * <br>
+ * A message class must have a non-private constructor without parameters, and
+ * its numbered fields can not be private, static or final. The default values
+ * (0, false, null) are not written, so a decoded field which was not written
+ * gets its type's default value, not its initializer's one.
+ * 
+ * @author kong
+ * 
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Message {
+
+	/**
+	 * @return the unique id of the message on the wire, between 1 and
+	 *         {@link MessageRegistry#MAX_ID}
+	 */
+	int id();
+
+}
@@ -0,0 +1,202 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.schema;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Holds the codecs of all the {@link Message} classes. The generated codecs are
+ * listed in the service file
+ * <code>META-INF/services/com.tenio.message.schema.IMessageCodec</code> and are
+ * registered when this class is loaded, the other ones can be added by
+ * {@link #register(IMessageCodec)}.
+ * 
+ * <br>
+ * A schema message starts with the {@link #MARKER} byte and its id, so it can
+ * be told apart from a MessagePack message on the same connection. Each client
+ * chooses, message by message, which format it uses.
+ * 
+ * @author kong
+ * 
+ */
+public final class MessageRegistry {
+
+	/**
+	 * The first byte of a schema message. It is an extension type in MessagePack,
+	 * which can not start a MessagePack message.
+	 */
+	public static final byte MARKER = (byte) 0xC7;
+	/**
+	 * The maximum id of a message
+	 */
+	public static final int MAX_ID = 0xFFFF;
+	/**
+	 * The suffix of the generated codecs' names
+	 */
+	public static final String CODEC_SUFFIX = "Codec";
+
+	private static final Logger __logger = LogManager.getLogger(MessageRegistry.class);
+
+	/**
+	 * The codecs by their ids, the array is replaced on each registration
+	 */
+	private static volatile IMessageCodec<?>[] __codecs = new IMessageCodec<?>[0];
+	private static final ConcurrentHashMap<Class<?>, IMessageCodec<?>> __codecsByClass = new ConcurrentHashMap<Class<?>, IMessageCodec<?>>();
+
+	static {
+		var loader = ServiceLoader.load(IMessageCodec.class, MessageRegistry.class.getClassLoader());
+		for (IMessageCodec<?> codec : loader) {
+			register(codec);
+		}
+	}
+
+	private MessageRegistry() {
+
+	}
+
+	/**
+	 * Register a codec
+	 * 
+	 * @param codec the codec, see {@link IMessageCodec}
+	 * @throws IllegalArgumentException when the id is invalid or already used by
+	 *                                  another class
+	 */
+	public static synchronized void register(IMessageCodec<?> codec) {
+		int id = codec.getId();
+		if (id < 1 || id > MAX_ID) {
+			throw new IllegalArgumentException("Invalid message id: " + id);
+		}
+		var codecs = __codecs;
+		if (id < codecs.length && codecs[id] != null) {
+			if (codecs[id].getMessageClass() == codec.getMessageClass()) {
+				return;
+			}
+			throw new IllegalArgumentException("The message id " + id + " is used by both "
+					+ codecs[id].getMessageClass().getName() + " and " + codec.getMessageClass().getName());
+		}
+		var newCodecs = new IMessageCodec<?>[Math.max(codecs.length, id + 1)];
+		System.arraycopy(codecs, 0, newCodecs, 0, codecs.length);
+		newCodecs[id] = codec;
+		__codecsByClass.put(codec.getMessageClass(), codec);
+		__codecs = newCodecs;
+	}
+
+	/**
+	 * Register the generated codec of a message class, it is only needed when the
+	 * codec is not listed in the service file
+	 * 
+	 * @param clazz the message class, see {@link Message}
+	 * @throws IllegalArgumentException when the class has no generated codec
+	 */
+	public static void register(Class<?> clazz) {
+		var name = clazz.getName();
+		int start = name.lastIndexOf('.') + 1;
+		var codecName = name.substring(0, start) + name.substring(start).replace('$', '_') + CODEC_SUFFIX;
+		try {
+			var codec = Class.forName(codecName, true, clazz.getClassLoader()).getDeclaredConstructor().newInstance();
+			register((IMessageCodec<?>) codec);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("No generated codec for " + name, e);
+		}
+	}
+
+	/**
+	 * @param id the message's id
+	 * @return the codec, see {@link IMessageCodec}, or <b>null</b>
+	 */
+	public static IMessageCodec<?> getCodec(int id) {
+		var codecs = __codecs;
+		return id >= 0 && id < codecs.length ? codecs[id] : null;
+	}
+
+	/**
+	 * @param <M>   the message class
+	 * @param clazz the message class
+	 * @return the codec, see {@link IMessageCodec}, or <b>null</b>
+	 */
+	@SuppressWarnings("unchecked")
+	public static <M> IMessageCodec<M> getCodec(Class<M> clazz) {
+		return (IMessageCodec<M>) __codecsByClass.get(clazz);
+	}
+
+	/**
+	 * @param buffer the message's content, see {@link ByteBuf}
+	 * @return <b>true</b> if the content is a schema message
+	 */
+	public static boolean isMessage(ByteBuf buffer) {
+		return buffer.isReadable() && buffer.getByte(buffer.readerIndex()) == MARKER;
+	}
+
+	/**
+	 * Write a message with its marker and its id
+	 * 
+	 * @param message the message, see {@link Message}
+	 * @param buffer  the destination buffer, see {@link ByteBuf}
+	 * @return <b>true</b> if the message was written, <b>false</b> if its class
+	 *         has no codec
+	 */
+	@SuppressWarnings("unchecked")
+	public static boolean encode(Object message, ByteBuf buffer) {
+		var codec = (IMessageCodec<Object>) __codecsByClass.get(message.getClass());
+		if (codec == null) {
+			__logger.error("No codec for the message " + message.getClass().getName());
+			return false;
+		}
+		buffer.writeByte(MARKER);
+		WireFormat.writeVarint32(buffer, codec.getId());
+		codec.encode(message, buffer);
+		return true;
+	}
+
+	/**
+	 * Read a message, the buffer's reader index is moved to the end of the
+	 * message
+	 * 
+	 * @param buffer the message's content, see {@link ByteBuf}
+	 * @return a new message, or <b>null</b> if the message is unknown, malformed
+	 *         or truncated
+	 */
+	public static Object decode(ByteBuf buffer) {
+		if (!isMessage(buffer)) {
+			return null;
+		}
+		try {
+			buffer.skipBytes(1);
+			var codec = getCodec(WireFormat.readVarint32(buffer));
+			if (codec == null) {
+				return null;
+			}
+			return codec.decode(buffer);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+}
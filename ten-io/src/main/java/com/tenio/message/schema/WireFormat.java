@@ -0,0 +1,292 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.schema;
+
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * The wire format of the {@link Message} classes, it is used by the generated
+ * codecs. Every field is written as a tag, made of its number and its wire
+ * type, followed by its value:
+ * 
+ * <ul>
+ * <li>{@link #VARINT}: the integers and booleans, in a variable length (the
+ * signed values are zig-zag encoded so that the small negative values are
+ * short too)</li>
+ * <li>{@link #FIXED32}, {@link #FIXED64}: a float or a double</li>
+ * <li>{@link #LENGTH}: a string in UTF-8 or an array of bytes, preceded by its
+ * length</li>
+ * <li>{@link #GROUP}: a nested message, closed by the {@link #END} tag</li>
+ * </ul>
+ * 
+ * A field which holds its default value (0, <b>false</b> or <b>null</b>) is not
+ * written. A reader skips the fields it does not know, so the fields can be
+ * added without breaking the old clients.
+ * 
+ * @author kong
+ * 
+ */
+public final class WireFormat {
+
+	public static final int VARINT = 0;
+	public static final int FIXED64 = 1;
+	public static final int LENGTH = 2;
+	public static final int GROUP = 3;
+	public static final int END_GROUP = 4;
+	public static final int FIXED32 = 5;
+
+	/**
+	 * The tag which closes a nested message
+	 */
+	public static final int END = END_GROUP;
+	/**
+	 * The maximum number of a field
+	 */
+	public static final int MAX_INDEX = 0x1FFFFFFF;
+	/**
+	 * The maximum depth of the nested messages which can be skipped or decoded
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	private static final int TYPE_BITS = 3;
+	private static final int TYPE_MASK = 0x07;
+
+	private WireFormat() {
+
+	}
+
+	public static int getIndex(int tag) {
+		return tag >>> TYPE_BITS;
+	}
+
+	public static int getType(int tag) {
+		return tag & TYPE_MASK;
+	}
+
+	public static void writeTag(ByteBuf buffer, int index, int type) {
+		writeVarint32(buffer, (index << TYPE_BITS) | type);
+	}
+
+	/**
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @return the next tag
+	 */
+	public static int readTag(ByteBuf buffer) {
+		return readVarint32(buffer);
+	}
+
+	public static void writeBoolean(ByteBuf buffer, int index, boolean value) {
+		if (value) {
+			writeTag(buffer, index, VARINT);
+			buffer.writeByte(1);
+		}
+	}
+
+	public static void writeInt(ByteBuf buffer, int index, int value) {
+		if (value != 0) {
+			writeTag(buffer, index, VARINT);
+			writeVarint32(buffer, (value << 1) ^ (value >> 31));
+		}
+	}
+
+	public static void writeLong(ByteBuf buffer, int index, long value) {
+		if (value != 0) {
+			writeTag(buffer, index, VARINT);
+			writeVarint64(buffer, (value << 1) ^ (value >> 63));
+		}
+	}
+
+	public static void writeFloat(ByteBuf buffer, int index, float value) {
+		// the negative zero is written too
+		if (Float.floatToRawIntBits(value) != 0) {
+			writeTag(buffer, index, FIXED32);
+			buffer.writeFloat(value);
+		}
+	}
+
+	public static void writeDouble(ByteBuf buffer, int index, double value) {
+		if (Double.doubleToRawLongBits(value) != 0) {
+			writeTag(buffer, index, FIXED64);
+			buffer.writeDouble(value);
+		}
+	}
+
+	public static void writeString(ByteBuf buffer, int index, String value) {
+		if (value != null) {
+			writeTag(buffer, index, LENGTH);
+			writeVarint32(buffer, ByteBufUtil.utf8Bytes(value));
+			ByteBufUtil.writeUtf8(buffer, value);
+		}
+	}
+
+	public static void writeBytes(ByteBuf buffer, int index, byte[] value) {
+		if (value != null) {
+			writeTag(buffer, index, LENGTH);
+			writeVarint32(buffer, value.length);
+			buffer.writeBytes(value);
+		}
+	}
+
+	/**
+	 * Open a nested message, its fields are written next and it is closed by
+	 * {@link #writeEnd(ByteBuf)}
+	 * 
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @param index  the field's number
+	 */
+	public static void writeGroup(ByteBuf buffer, int index) {
+		writeTag(buffer, index, GROUP);
+	}
+
+	public static void writeEnd(ByteBuf buffer) {
+		writeVarint32(buffer, END);
+	}
+
+	public static boolean readBoolean(ByteBuf buffer) {
+		return readVarint64(buffer) != 0;
+	}
+
+	public static int readInt(ByteBuf buffer) {
+		int value = readVarint32(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static long readLong(ByteBuf buffer) {
+		long value = readVarint64(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static float readFloat(ByteBuf buffer) {
+		return buffer.readFloat();
+	}
+
+	public static double readDouble(ByteBuf buffer) {
+		return buffer.readDouble();
+	}
+
+	public static String readString(ByteBuf buffer) {
+		int length = __readLength(buffer);
+		var value = buffer.toString(buffer.readerIndex(), length, StandardCharsets.UTF_8);
+		buffer.skipBytes(length);
+		return value;
+	}
+
+	public static byte[] readBytes(ByteBuf buffer) {
+		var value = new byte[__readLength(buffer)];
+		buffer.readBytes(value);
+		return value;
+	}
+
+	/**
+	 * Skip the value of an unknown field, or of a field which has an unexpected
+	 * wire type
+	 * 
+	 * @param buffer the buffer, see {@link ByteBuf}
+	 * @param tag    the field's tag
+	 */
+	public static void skip(ByteBuf buffer, int tag) {
+		int depth = 0;
+		do {
+			switch (getType(tag)) {
+			case VARINT:
+				readVarint64(buffer);
+				break;
+			case FIXED64:
+				buffer.skipBytes(8);
+				break;
+			case FIXED32:
+				buffer.skipBytes(4);
+				break;
+			case LENGTH:
+				buffer.skipBytes(__readLength(buffer));
+				break;
+			case GROUP:
+				if (++depth > MAX_DEPTH) {
+					throw new IllegalArgumentException("The message is nested too deep");
+				}
+				break;
+			case END_GROUP:
+				depth--;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown wire type: " + getType(tag));
+			}
+			if (depth > 0) {
+				tag = readTag(buffer);
+			}
+		} while (depth > 0);
+	}
+
+	public static void writeVarint32(ByteBuf buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer.writeByte(value);
+	}
+
+	public static void writeVarint64(ByteBuf buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer.writeByte((int) value);
+	}
+
+	public static int readVarint32(ByteBuf buffer) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = buffer.readByte();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	public static long readVarint64(ByteBuf buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = buffer.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	private static int __readLength(ByteBuf buffer) {
+		int length = readVarint32(buffer);
+		if (length < 0 || length > buffer.readableBytes()) {
+			throw new IndexOutOfBoundsException("The length is bigger than the readable bytes: " + length);
+		}
+		return length;
+	}
+
+}
@@ -0,0 +1,493 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.schema.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import com.tenio.message.schema.Field;
+import com.tenio.message.schema.IMessageCodec;
+import com.tenio.message.schema.Message;
+import com.tenio.message.schema.MessageRegistry;
+import com.tenio.message.schema.WireFormat;
+
+/**
+ * Generates the codec of every {@link Message} class at build time. The codec
+ * of the class <code>Foo</code> is <code>FooCodec</code> in the same package
+ * (a nested class <code>Outer.Foo</code> gets <code>Outer_FooCodec</code>), it
+ * reads and writes the numbered fields directly, see {@link WireFormat}. All
+ * the generated codecs are listed in the service file of
+ * {@link IMessageCodec}, so they are found by the {@link MessageRegistry}.
+ * 
+ * <br>
+ * The processor is not registered as a service of this library, so it only
+ * runs in the builds which ask for it: with
+ * <code>-processor com.tenio.message.schema.processor.MessageProcessor</code>,
+ * or with the <code>annotationProcessors</code> (or
+ * <code>annotationProcessorPaths</code>) of the maven-compiler-plugin. The
+ * service file is merged with the one of the previous build, so an incremental
+ * build which only compiles some message classes keeps the other codecs.
+ * 
+ * @author kong
+ * 
+ */
+@SupportedAnnotationTypes("com.tenio.message.schema.Message")
+public final class MessageProcessor extends AbstractProcessor {
+
+	/**
+	 * The supported kinds of fields
+	 */
+	private enum Kind {
+		BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, BYTES, MESSAGE
+	}
+
+	/**
+	 * A numbered field of a message class
+	 */
+	private static final class FieldInfo {
+
+		final String name;
+		final int index;
+		final Kind kind;
+		/**
+		 * The codec of a nested message
+		 */
+		final String codec;
+
+		FieldInfo(String name, int index, Kind kind, String codec) {
+			this.name = name;
+			this.index = index;
+			this.kind = kind;
+			this.codec = codec;
+		}
+
+	}
+
+	/**
+	 * The generated codecs, merged into the service file at the end
+	 */
+	private final List<String> __codecs = new ArrayList<String>();
+	/**
+	 * The message classes by their ids
+	 */
+	private final Map<Integer, String> __ids = new HashMap<Integer, String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		for (var element : round.getElementsAnnotatedWith(Message.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				__error(element, "Only a class can be a @Message");
+				continue;
+			}
+			__process((TypeElement) element);
+		}
+		if (round.processingOver() && !__codecs.isEmpty()) {
+			__writeServiceFile();
+		}
+		return true;
+	}
+
+	private void __process(TypeElement type) {
+		int id = type.getAnnotation(Message.class).id();
+		if (id < 1 || id > MessageRegistry.MAX_ID) {
+			__error(type, "The message id must be between 1 and " + MessageRegistry.MAX_ID);
+			return;
+		}
+		var previous = __ids.putIfAbsent(id, type.getQualifiedName().toString());
+		if (previous != null) {
+			__error(type, "The message id " + id + " is already used by " + previous);
+			return;
+		}
+		if (!__isAccessible(type)) {
+			return;
+		}
+
+		var fields = new TreeMap<Integer, FieldInfo>();
+		for (var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			var annotation = field.getAnnotation(Field.class);
+			if (annotation == null) {
+				continue;
+			}
+			var info = __getField(field, annotation.value());
+			if (info == null) {
+				continue;
+			}
+			if (fields.put(info.index, info) != null) {
+				__error(field, "The field number " + info.index + " is used twice");
+			}
+		}
+
+		var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		var codecName = __getCodecName(type);
+		var source = __generate(packageName, codecName, type.getQualifiedName().toString(), id, fields.values());
+		var qualifiedName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+		try (var writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+			writer.write(source);
+			__codecs.add(qualifiedName);
+		} catch (IOException e) {
+			__error(type, "Can not write the codec: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The codec is in the same package, so it can access the package-private
+	 * constructor and fields
+	 */
+	private boolean __isAccessible(TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE)) {
+			__error(type, "A @Message class can not be abstract or private");
+			return false;
+		}
+		if (type.getNestingKind() != NestingKind.TOP_LEVEL
+				&& (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) {
+			__error(type, "A nested @Message class must be static");
+			return false;
+		}
+		for (var constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		__error(type, "A @Message class needs a non-private constructor without parameters");
+		return false;
+	}
+
+	private FieldInfo __getField(VariableElement field, int index) {
+		var modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+				|| modifiers.contains(Modifier.FINAL)) {
+			__error(field, "A @Field can not be private, static or final");
+			return null;
+		}
+		if (index < 1 || index > WireFormat.MAX_INDEX) {
+			__error(field, "The field number must be between 1 and " + WireFormat.MAX_INDEX);
+			return null;
+		}
+		var name = field.getSimpleName().toString();
+		var type = field.asType();
+		var kind = __getKind(type);
+		if (kind == null) {
+			__error(field, "Unsupported @Field type: " + type);
+			return null;
+		}
+		String codec = null;
+		if (kind == Kind.MESSAGE) {
+			var element = (TypeElement) ((DeclaredType) type).asElement();
+			var packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+			codec = (packageName.isEmpty() ? "" : packageName + ".") + __getCodecName(element);
+		}
+		return new FieldInfo(name, index, kind, codec);
+	}
+
+	private Kind __getKind(TypeMirror type) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+			return Kind.BOOLEAN;
+		case BYTE:
+			return Kind.BYTE;
+		case SHORT:
+			return Kind.SHORT;
+		case CHAR:
+			return Kind.CHAR;
+		case INT:
+			return Kind.INT;
+		case LONG:
+			return Kind.LONG;
+		case FLOAT:
+			return Kind.FLOAT;
+		case DOUBLE:
+			return Kind.DOUBLE;
+		case ARRAY:
+			return ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE ? Kind.BYTES : null;
+		case DECLARED:
+			var element = (TypeElement) ((DeclaredType) type).asElement();
+			if (element.getQualifiedName().contentEquals("java.lang.String")) {
+				return Kind.STRING;
+			}
+			return element.getAnnotation(Message.class) != null ? Kind.MESSAGE : null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @param type a message class
+	 * @return the simple name of its codec, the names of the enclosing classes are
+	 *         joined by '_'
+	 */
+	private String __getCodecName(TypeElement type) {
+		var name = type.getSimpleName().toString();
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing instanceof TypeElement) {
+			name = enclosing.getSimpleName() + "_" + name;
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return name + MessageRegistry.CODEC_SUFFIX;
+	}
+
+	private String __generate(String packageName, String codecName, String messageName, int id,
+			Iterable<FieldInfo> fields) {
+		var builder = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			builder.append("package ").append(packageName).append(";\n\n");
+		}
+		builder.append("import com.tenio.message.schema.IMessageCodec;\n");
+		builder.append("import com.tenio.message.schema.WireFormat;\n\n");
+		builder.append("import io.netty.buffer.ByteBuf;\n\n");
+		builder.append("/**\n * Generated by the MessageProcessor from {@link ").append(messageName)
+				.append("}, do not edit.\n */\n");
+		builder.append("public final class ").append(codecName).append(" implements IMessageCodec<")
+				.append(messageName).append("> {\n\n");
+
+		builder.append("\tpublic static final int ID = ").append(id).append(";\n");
+		for (var field : fields) {
+			if (field.kind == Kind.MESSAGE) {
+				builder.append("\tprivate static final ").append(field.codec).append(" __").append(field.name)
+						.append(" = new ").append(field.codec).append("();\n");
+			}
+		}
+
+		builder.append("\n\t@Override\n\tpublic int getId() {\n\t\treturn ID;\n\t}\n");
+		builder.append("\n\t@Override\n\tpublic Class<").append(messageName).append("> getMessageClass() {\n\t\treturn ")
+				.append(messageName).append(".class;\n\t}\n");
+
+		builder.append("\n\t@Override\n\tpublic void encode(").append(messageName)
+				.append(" message, ByteBuf buffer) {\n");
+		for (var field : fields) {
+			__generateWrite(builder, field);
+		}
+		builder.append("\t}\n");
+
+		builder.append("\n\t@Override\n\tpublic ").append(messageName).append(" decode(ByteBuf buffer) {\n");
+		builder.append("\t\treturn decode(buffer, 0);\n\t}\n");
+
+		// the nested messages are decoded recursively, so a client can not make the
+		// stack overflow
+		builder.append("\n\t@Override\n\tpublic ").append(messageName)
+				.append(" decode(ByteBuf buffer, int depth) {\n");
+		builder.append("\t\tif (depth > WireFormat.MAX_DEPTH) {\n");
+		builder.append("\t\t\tthrow new IllegalArgumentException(\"The message is nested too deep\");\n\t\t}\n");
+		builder.append("\t\t").append(messageName).append(" message = new ").append(messageName).append("();\n");
+		// the default values are not written, so the fields' initializers must not
+		// be kept
+		for (var field : fields) {
+			builder.append("\t\tmessage.").append(field.name).append(" = ").append(__getDefault(field.kind))
+					.append(";\n");
+		}
+		builder.append("\t\twhile (buffer.isReadable()) {\n");
+		builder.append("\t\t\tint tag = WireFormat.readTag(buffer);\n");
+		builder.append("\t\t\tif (tag == WireFormat.END) {\n\t\t\t\tbreak;\n\t\t\t}\n");
+		builder.append("\t\t\tswitch (tag) {\n");
+		for (var field : fields) {
+			__generateRead(builder, field);
+		}
+		builder.append("\t\t\tdefault:\n\t\t\t\tWireFormat.skip(buffer, tag);\n\t\t\t}\n");
+		builder.append("\t\t}\n\t\treturn message;\n\t}\n\n}\n");
+		return builder.toString();
+	}
+
+	private void __generateWrite(StringBuilder builder, FieldInfo field) {
+		var value = "message." + field.name;
+		switch (field.kind) {
+		case MESSAGE:
+			builder.append("\t\tif (").append(value).append(" != null) {\n");
+			builder.append("\t\t\tWireFormat.writeGroup(buffer, ").append(field.index).append(");\n");
+			builder.append("\t\t\t__").append(field.name).append(".encode(").append(value).append(", buffer);\n");
+			builder.append("\t\t\tWireFormat.writeEnd(buffer);\n\t\t}\n");
+			return;
+		default:
+			builder.append("\t\tWireFormat.").append(__getWriter(field.kind)).append("(buffer, ").append(field.index)
+					.append(", ").append(value).append(");\n");
+		}
+	}
+
+	private void __generateRead(StringBuilder builder, FieldInfo field) {
+		builder.append("\t\t\tcase ").append((field.index << 3) | __getWireType(field.kind)).append(":\n");
+		builder.append("\t\t\t\tmessage.").append(field.name).append(" = ");
+		switch (field.kind) {
+		case BYTE:
+			builder.append("(byte) WireFormat.readInt(buffer)");
+			break;
+		case SHORT:
+			builder.append("(short) WireFormat.readInt(buffer)");
+			break;
+		case CHAR:
+			builder.append("(char) WireFormat.readInt(buffer)");
+			break;
+		case MESSAGE:
+			builder.append("__").append(field.name).append(".decode(buffer, depth + 1)");
+			break;
+		default:
+			builder.append("WireFormat.").append(__getReader(field.kind)).append("(buffer)");
+		}
+		builder.append(";\n\t\t\t\tbreak;\n");
+	}
+
+	/**
+	 * @param kind a field's kind
+	 * @return the value of a field which is not written
+	 */
+	private String __getDefault(Kind kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return "false";
+		case BYTE:
+			return "(byte) 0";
+		case SHORT:
+			return "(short) 0";
+		case CHAR:
+			return "(char) 0";
+		case LONG:
+			return "0L";
+		case FLOAT:
+			return "0f";
+		case DOUBLE:
+			return "0d";
+		case STRING:
+		case BYTES:
+		case MESSAGE:
+			return "null";
+		default:
+			return "0";
+		}
+	}
+
+	private String __getWriter(Kind kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return "writeBoolean";
+		case LONG:
+			return "writeLong";
+		case FLOAT:
+			return "writeFloat";
+		case DOUBLE:
+			return "writeDouble";
+		case STRING:
+			return "writeString";
+		case BYTES:
+			return "writeBytes";
+		default:
+			return "writeInt";
+		}
+	}
+
+	private String __getReader(Kind kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return "readBoolean";
+		case LONG:
+			return "readLong";
+		case FLOAT:
+			return "readFloat";
+		case DOUBLE:
+			return "readDouble";
+		case STRING:
+			return "readString";
+		case BYTES:
+			return "readBytes";
+		default:
+			return "readInt";
+		}
+	}
+
+	private int __getWireType(Kind kind) {
+		switch (kind) {
+		case FLOAT:
+			return WireFormat.FIXED32;
+		case DOUBLE:
+			return WireFormat.FIXED64;
+		case STRING:
+		case BYTES:
+			return WireFormat.LENGTH;
+		case MESSAGE:
+			return WireFormat.GROUP;
+		default:
+			return WireFormat.VARINT;
+		}
+	}
+
+	private void __writeServiceFile() {
+		var path = "META-INF/services/" + IMessageCodec.class.getName();
+		var codecs = new LinkedHashSet<String>();
+		// the codecs of the previous build, which still exist
+		try (var reader = new BufferedReader(
+				processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path).openReader(true))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && processingEnv.getElementUtils().getTypeElement(line) != null) {
+					codecs.add(line);
+				}
+			}
+		} catch (IOException e) {
+			// no previous build
+		}
+		codecs.addAll(__codecs);
+		try (var writer = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path)
+				.openWriter()) {
+			for (var codec : codecs) {
+				writer.write(codec);
+				writer.write("\n");
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Can not write the service file: " + e.getMessage());
+		}
+	}
+
+	private void __error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.snapshot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The state of a group of entities at one moment, e.g. the positions of all the
+ * vehicles of a world in one update. Each entity has a unique id and up to
+ * {@link #MAX_FIELDS} integer fields, the decimal values should be quantized
+ * before (e.g. a position in centimeters). A snapshot is sent to a client as a
+ * delta against the last snapshot the client acknowledged, see
+ * {@link SnapshotHistory}.
+ * 
+ * <br>
+ * A snapshot must not be changed once it is sent, because it can be kept as
+ * the baseline of many clients. Create a new one for each update.
+ * 
+ * @author kong
+ * 
+ */
+public final class Snapshot {
+
+	/**
+	 * The maximum number of fields of one entity, so that the changed fields fit
+	 * in a positive integer mask
+	 */
+	public static final int MAX_FIELDS = 31;
+
+	/**
+	 * The entities' fields, sorted by the entities' ids
+	 */
+	private final TreeMap<Integer, int[]> __entities;
+
+	public static Snapshot newInstance() {
+		return new Snapshot();
+	}
+
+	private Snapshot() {
+		__entities = new TreeMap<Integer, int[]>();
+	}
+
+	/**
+	 * Put the fields of an entity, they are copied
+	 * 
+	 * @param entity the entity's id
+	 * @param fields the entity's fields, in the same order in all the snapshots
+	 * @return the snapshot itself
+	 * @throws IllegalArgumentException when there are more than
+	 *                                  {@link #MAX_FIELDS} fields
+	 */
+	public Snapshot put(int entity, int... fields) {
+		if (fields.length > MAX_FIELDS) {
+			throw new IllegalArgumentException("Too many fields: " + fields.length);
+		}
+		__entities.put(entity, fields.clone());
+		return this;
+	}
+
+	/**
+	 * @param entity the entity's id
+	 * @return the entity's fields, or <b>null</b> if the entity is not in this
+	 *         snapshot. The array must not be changed
+	 */
+	public int[] get(int entity) {
+		return __entities.get(entity);
+	}
+
+	/**
+	 * @param entity the entity's id
+	 * @return <b>true</b> if the entity is in this snapshot
+	 */
+	public boolean contains(int entity) {
+		return __entities.containsKey(entity);
+	}
+
+	/**
+	 * @param entity the entity's id
+	 */
+	public void remove(int entity) {
+		__entities.remove(entity);
+	}
+
+	/**
+	 * @return the ids of the entities in ascending order
+	 */
+	public Set<Integer> getEntities() {
+		return Collections.unmodifiableSet(__entities.keySet());
+	}
+
+	/**
+	 * @return the number of entities
+	 */
+	public int size() {
+		return __entities.size();
+	}
+
+	/**
+	 * @return a copy of this snapshot, which can be changed
+	 */
+	public Snapshot copy() {
+		var copy = new Snapshot();
+		__entities.forEach((entity, fields) -> copy.__entities.put(entity, fields.clone()));
+		return copy;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof Snapshot)) {
+			return false;
+		}
+		var other = ((Snapshot) object).__entities;
+		if (other.size() != __entities.size()) {
+			return false;
+		}
+		for (var entry : __entities.entrySet()) {
+			if (!Arrays.equals(entry.getValue(), other.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (var entry : __entities.entrySet()) {
+			hash = 31 * hash + entry.getKey();
+			hash = 31 * hash + Arrays.hashCode(entry.getValue());
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		var builder = new StringBuilder("{");
+		__entities.forEach((entity, fields) -> {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entity).append('=').append(Arrays.toString(fields));
+		});
+		return builder.append('}').toString();
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.snapshot;
+
+import com.tenio.entity.element.TArray;
+
+/**
+ * Write a snapshot as the delta against a baseline, the last snapshot which is
+ * acknowledged by the client, and read it back on the client side. A delta is
+ * a {@link TArray} of 4 elements:
+ * 
+ * <ul>
+ * <li>{@link #SEQUENCE}: the sequence of the snapshot</li>
+ * <li>{@link #BASELINE}: the sequence of the baseline, or {@link #FULL} when
+ * the snapshot is written in full</li>
+ * <li>{@link #REMOVED}: the array of the entities which are removed from the
+ * baseline</li>
+ * <li>{@link #ENTITIES}: for each changed or new entity, its id, the mask of
+ * its written fields (bit <code>i</code> for the field <code>i</code>) and the
+ * written fields in order</li>
+ * </ul>
+ * 
+ * A changed field is written as its difference with the baseline's field, so
+ * the small moves are written in one byte by the codecs. The differences wrap
+ * around like the 32-bit integers. The unchanged entities are not written at
+ * all. A new entity, or an entity whose number of fields changed, is written in
+ * full (after it is removed).
+ * 
+ * @author kong
+ * 
+ */
+public final class SnapshotDelta {
+
+	/**
+	 * The index of the snapshot's sequence
+	 */
+	public static final int SEQUENCE = 0;
+	/**
+	 * The index of the baseline's sequence
+	 */
+	public static final int BASELINE = 1;
+	/**
+	 * The index of the removed entities
+	 */
+	public static final int REMOVED = 2;
+	/**
+	 * The index of the changed entities
+	 */
+	public static final int ENTITIES = 3;
+	/**
+	 * The baseline's sequence of a snapshot which is written in full
+	 */
+	public static final int FULL = -1;
+
+	private SnapshotDelta() {
+	}
+
+	/**
+	 * Write a snapshot as the delta against a baseline
+	 * 
+	 * @param data             the destination, see {@link TArray}
+	 * @param sequence         the snapshot's sequence
+	 * @param snapshot         the snapshot, see {@link Snapshot}
+	 * @param baselineSequence the baseline's sequence
+	 * @param baseline         the baseline, or <b>null</b> to write the snapshot
+	 *                         in full
+	 * @return the destination
+	 */
+	public static TArray write(TArray data, int sequence, Snapshot snapshot, int baselineSequence,
+			Snapshot baseline) {
+		var removed = TArray.newInstance();
+		var entities = TArray.newInstance();
+		if (baseline != null) {
+			for (int entity : baseline.getEntities()) {
+				var fields = snapshot.get(entity);
+				if (fields == null || fields.length != baseline.get(entity).length) {
+					removed.put(entity);
+				}
+			}
+		}
+		for (int entity : snapshot.getEntities()) {
+			var fields = snapshot.get(entity);
+			var base = baseline != null ? baseline.get(entity) : null;
+			if (base == null || base.length != fields.length) {
+				// a new entity is written in full
+				entities.put(entity).put((1 << fields.length) - 1);
+				for (int field : fields) {
+					entities.put(field);
+				}
+				continue;
+			}
+			int mask = 0;
+			for (int i = 0; i < fields.length; i++) {
+				if (fields[i] != base[i]) {
+					mask |= 1 << i;
+				}
+			}
+			if (mask == 0) {
+				continue;
+			}
+			entities.put(entity).put(mask);
+			for (int i = 0; i < fields.length; i++) {
+				if ((mask & (1 << i)) != 0) {
+					entities.put(fields[i] - base[i]);
+				}
+			}
+		}
+		return data.put(sequence).put(baseline != null ? baselineSequence : FULL).put(removed).put(entities);
+	}
+
+	/**
+	 * @param data a delta, see {@link #write(TArray, int, Snapshot, int, Snapshot)}
+	 * @return the snapshot's sequence, it must be acknowledged by the client
+	 */
+	public static int getSequence(TArray data) {
+		return data.getInt(SEQUENCE);
+	}
+
+	/**
+	 * @param data a delta, see {@link #write(TArray, int, Snapshot, int, Snapshot)}
+	 * @return the baseline's sequence, or {@link #FULL}
+	 */
+	public static int getBaseline(TArray data) {
+		return data.getInt(BASELINE);
+	}
+
+	/**
+	 * Read a snapshot from a delta, on the client side
+	 * 
+	 * @param data     a delta, see
+	 *                 {@link #write(TArray, int, Snapshot, int, Snapshot)}
+	 * @param baseline the snapshot which has the sequence of
+	 *                 {@link #getBaseline(TArray)}, it is not changed. It can be
+	 *                 <b>null</b> for a full snapshot
+	 * @return the snapshot, or <b>null</b> if the delta is invalid or its baseline
+	 *         is missing
+	 */
+	public static Snapshot read(TArray data, Snapshot baseline) {
+		try {
+			Snapshot snapshot;
+			if (getBaseline(data) == FULL) {
+				snapshot = Snapshot.newInstance();
+			} else if (baseline != null) {
+				snapshot = baseline.copy();
+			} else {
+				return null;
+			}
+			for (var entity : data.getTArray(REMOVED)) {
+				snapshot.remove(((Number) entity).intValue());
+			}
+			var entities = data.getTArray(ENTITIES);
+			int index = 0;
+			while (index < entities.size()) {
+				int entity = entities.getInt(index++);
+				int mask = entities.getInt(index++);
+				if (mask < 0) {
+					return null;
+				}
+				int length = Integer.SIZE - Integer.numberOfLeadingZeros(mask);
+				var fields = snapshot.get(entity);
+				if (fields == null) {
+					fields = new int[length];
+				} else if (length > fields.length) {
+					return null;
+				}
+				for (int i = 0; i < length; i++) {
+					if ((mask & (1 << i)) != 0) {
+						fields[i] += entities.getInt(index++);
+					}
+				}
+				if (!snapshot.contains(entity)) {
+					snapshot.put(entity, fields);
+				}
+			}
+			return snapshot;
+		} catch (ClassCastException | IndexOutOfBoundsException | NullPointerException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message.snapshot;
+
+import com.tenio.entity.element.TArray;
+
+/**
+ * The snapshots which are sent to one client, it keeps the last ones until they
+ * are acknowledged, so that each snapshot is written as the delta against the
+ * last acknowledged one, see {@link SnapshotDelta}. When the client has not
+ * acknowledged any of the kept snapshots (it has just joined, or its
+ * acknowledgements are lost for too long), the next snapshot is written in
+ * full.
+ * 
+ * <br>
+ * The sequences start at <b>0</b> and wrap around at
+ * {@link Integer#MAX_VALUE}. The snapshots can be written by one thread and
+ * acknowledged by another one.
+ * 
+ * @author kong
+ * 
+ */
+public final class SnapshotHistory {
+
+	private static final int SEQUENCE_MASK = Integer.MAX_VALUE;
+
+	private final Snapshot[] __snapshots;
+	private final int[] __sequences;
+	private int __nextSequence;
+	/**
+	 * The last acknowledged sequence, or <b>-1</b>
+	 */
+	private int __acknowledged;
+
+	/**
+	 * @param size the number of kept snapshots, a client which acknowledges a
+	 *             snapshot later gets a full snapshot
+	 */
+	public SnapshotHistory(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Invalid size: " + size);
+		}
+		__snapshots = new Snapshot[size];
+		__sequences = new int[size];
+		__acknowledged = -1;
+	}
+
+	/**
+	 * @return the number of kept snapshots
+	 */
+	public int getSize() {
+		return __snapshots.length;
+	}
+
+	/**
+	 * Keep a snapshot and write it as the delta against the last acknowledged one
+	 * 
+	 * @param snapshot the snapshot, see {@link Snapshot}. It must not be changed
+	 *                 after this call
+	 * @param data     the destination, see {@link TArray}
+	 * @return the destination
+	 */
+	public synchronized TArray write(Snapshot snapshot, TArray data) {
+		var baseline = getBaseline();
+		int sequence = __nextSequence;
+		SnapshotDelta.write(data, sequence, snapshot, __acknowledged, baseline);
+		int slot = sequence % __snapshots.length;
+		__snapshots[slot] = snapshot;
+		__sequences[slot] = sequence;
+		__nextSequence = (sequence + 1) & SEQUENCE_MASK;
+		return data;
+	}
+
+	/**
+	 * Use a snapshot which is received by the client as the next baseline. The
+	 * older or unknown sequences are ignored.
+	 * 
+	 * @param sequence the received sequence, see
+	 *                 {@link SnapshotDelta#getSequence(TArray)}
+	 * @return <b>true</b> if the snapshot is the new baseline
+	 */
+	public synchronized boolean acknowledge(int sequence) {
+		if (sequence < 0 || __snapshots[sequence % __snapshots.length] == null
+				|| __sequences[sequence % __snapshots.length] != sequence) {
+			return false;
+		}
+		int age = __getAge(sequence);
+		if (age == 0 || age > __snapshots.length) {
+			return false;
+		}
+		if (__acknowledged >= 0 && age >= __getAge(__acknowledged)) {
+			return false;
+		}
+		__acknowledged = sequence;
+		return true;
+	}
+
+	/**
+	 * @return the last acknowledged sequence, or <b>-1</b>
+	 */
+	public synchronized int getAcknowledged() {
+		return __acknowledged;
+	}
+
+	/**
+	 * @return the baseline of the next snapshot, or <b>null</b> when the next
+	 *         snapshot is written in full
+	 */
+	public synchronized Snapshot getBaseline() {
+		if (__acknowledged < 0 || __getAge(__acknowledged) > __snapshots.length) {
+			return null;
+		}
+		int slot = __acknowledged % __snapshots.length;
+		return __sequences[slot] == __acknowledged ? __snapshots[slot] : null;
+	}
+
+	/**
+	 * @param sequence a sent sequence
+	 * @return the number of snapshots which are sent since this one, including
+	 *         itself
+	 */
+	private int __getAge(int sequence) {
+		return (__nextSequence - sequence) & SEQUENCE_MASK;
+	}
+
+}
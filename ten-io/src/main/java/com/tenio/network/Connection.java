@@ -24,10 +24,13 @@ THE SOFTWARE.
 package com.tenio.network;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.tenio.entity.AbstractPlayer;
 import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
+import com.tenio.message.codec.ICodec;
+import com.tenio.message.schema.Message;
 
 /**
  * A connection is created when the first request from client reach and pass in
@@ -53,14 +56,44 @@ public abstract class Connection {
 	 * Type of the connection
 	 */
 	private Type __type;
+	/**
+	 * The traffic counters of this connection, see {@link TrafficMetrics}
+	 */
+	private final TrafficMetrics __metrics;
+	/**
+	 * It is set when the server decides to close this connection, see
+	 * {@link #markClosing()}
+	 */
+	private final AtomicBoolean __closing = new AtomicBoolean();
 
 	public enum Type {
 		SOCKET, DATAGRAM, WEB_SOCKET
 	}
 
+	/**
+	 * The delivery guarantee of a message, it only takes effect on the Datagram
+	 * connections (the other ones are always reliable and ordered)
+	 */
+	public enum Delivery {
+		/**
+		 * Sent once, can be lost, duplicated or reordered
+		 */
+		UNRELIABLE,
+		/**
+		 * Sent again until it is acknowledged, delivered in the sending order
+		 */
+		RELIABLE_ORDERED,
+		/**
+		 * Sent once, the messages which are older than the last delivered one are
+		 * dropped
+		 */
+		UNRELIABLE_SEQUENCED
+	}
+
 	public Connection(IEventManager eventManager, Type type) {
 		_eventManager = eventManager;
 		__type = type;
+		__metrics = TrafficMetrics.newInstance(type);
 	}
 
 	public Type getType() {
@@ -71,6 +104,24 @@ public abstract class Connection {
 		return (__type == type);
 	}
 
+	/**
+	 * @return the traffic counters of this connection, see {@link TrafficMetrics}
+	 */
+	public TrafficMetrics getMetrics() {
+		return __metrics;
+	}
+
+	/**
+	 * Mark the connection as closing before its close is requested from another
+	 * thread.
+	 * 
+	 * @return <b>true</b> only for the first call, so that the close is requested
+	 *         once
+	 */
+	public boolean markClosing() {
+		return __closing.compareAndSet(false, true);
+	}
+
 	/**
 	 * Send a message to the client
 	 * 
@@ -78,15 +129,80 @@ public abstract class Connection {
 	 */
 	public abstract void send(TObject message);
 
+	/**
+	 * Send a message to the client with a delivery guarantee
+	 * 
+	 * @param message  the message content, see {@link TObject}
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 */
+	public abstract void send(TObject message, Delivery delivery);
+
+	/**
+	 * Send a schema message to the client, see {@link Message}. It is written by
+	 * its generated codec instead of the connection's codec.
+	 * 
+	 * @param message an instance of one {@link Message} class
+	 */
+	public abstract void sendMessage(Object message);
+
+	/**
+	 * Send a schema message to the client with a delivery guarantee
+	 * 
+	 * @see #sendMessage(Object)
+	 * 
+	 * @param message  an instance of one {@link Message} class
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 */
+	public abstract void sendMessage(Object message, Delivery delivery);
+
+	/**
+	 * Encode a message once, so that it can be sent to many connections
+	 * 
+	 * @param message the message content, see {@link TObject}
+	 * @return an encoded packet, see {@link IPacket}. It must be released after
+	 *         use
+	 */
+	public abstract IPacket newPacket(TObject message);
+
+	/**
+	 * Encode a schema message once, so that it can be sent to many connections
+	 * 
+	 * @param message an instance of one {@link Message} class
+	 * @return an encoded packet, see {@link IPacket}. It must be released after
+	 *         use
+	 */
+	public abstract IPacket newMessagePacket(Object message);
+
+	/**
+	 * Send an encoded message to the client, the packet is not released by this
+	 * method
+	 * 
+	 * @param packet the encoded message, see {@link IPacket}
+	 */
+	public abstract void send(IPacket packet);
+
+	/**
+	 * @return the codec of the {@link TObject} messages, see {@link ICodec}. It is
+	 *         configured for each transport, the client can choose another one by
+	 *         a handshake
+	 */
+	public abstract ICodec getCodec();
+
+	/**
+	 * Flush all the messages which are sent but still pending, it does nothing when
+	 * every message is flushed immediately
+	 */
+	public abstract void flush();
+
 	/**
 	 * Close a "connection" between a client with the server
 	 */
 	public abstract void close();
 
 	/**
-	 * Delete the keys which are used to identify a player in one "connection". This
-	 * method need to be implemented when the "connection" type is Socket or
-	 * WebSocket
+	 * Delete the keys which are used to identify a player in one "connection". For
+	 * a Datagram "connection", its address is detached from the shared channel.
+	 * The "connection" can not be used after this call
 	 */
 	public abstract void clean();
 
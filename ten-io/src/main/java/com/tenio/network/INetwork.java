@@ -51,4 +51,11 @@ public interface INetwork {
 	 */
 	void shutdown();
 
+	/**
+	 * @return the dispatcher which handles the inbound messages out of the network
+	 *         threads, see {@link MessageDispatcher}, or <b>null</b> if it is not
+	 *         enabled
+	 */
+	MessageDispatcher getDispatcher();
+
 }
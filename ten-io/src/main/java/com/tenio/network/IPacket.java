@@ -0,0 +1,46 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import com.tenio.entity.element.TObject;
+
+/**
+ * A packet holds a message which is already encoded, so that it can be sent to
+ * many connections without encoding the same message again (e.g. a room
+ * broadcast). Each connection applies its own framing on the shared data.
+ * Create a packet by {@link Connection#newPacket(TObject)} and always call
+ * {@link #release()} when it is no longer used.
+ * 
+ * @author kong
+ * 
+ */
+public interface IPacket {
+
+	/**
+	 * Release the encoded data. The packet can not be sent after this call, but
+	 * the pending sends are not affected.
+	 */
+	void release();
+
+}
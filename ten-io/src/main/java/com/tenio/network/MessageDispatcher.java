@@ -0,0 +1,203 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.tenio.logger.AbstractLogger;
+
+/**
+ * By default, all the inbound messages are handled on the network threads, so
+ * one slow handler can stall every connection sharing the same thread. The
+ * dispatcher moves the handling to its own worker threads. Each worker (stripe)
+ * is a single thread with its own queue and a key (a connection) is always
+ * mapped to the same stripe, so the messages of one player keep their order.
+ * <br>
+ * The number of pending messages per stripe is bounded, a message which
+ * exceeds the bound is refused and the caller applies the
+ * {@link OverflowPolicy}.
+ * 
+ * @author kong
+ * 
+ */
+public final class MessageDispatcher extends AbstractLogger {
+
+	/**
+	 * What happens when a stripe's queue is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The message is dropped
+		 */
+		DROP,
+		/**
+		 * The message is dropped and its connection is closed
+		 */
+		DISCONNECT
+	}
+
+	private final ExecutorService[] __stripes;
+	private final AtomicInteger[] __pending;
+	private final int __queueSize;
+	private final OverflowPolicy __overflowPolicy;
+	private final LongAdder __dropped;
+
+	private MessageDispatcher(int threads, int queueSize, OverflowPolicy overflowPolicy) {
+		__stripes = new ExecutorService[threads];
+		__pending = new AtomicInteger[threads];
+		for (int i = 0; i < threads; i++) {
+			__stripes[i] = Executors.newSingleThreadExecutor(
+					new ThreadFactoryBuilder().setNameFormat("tenio-dispatcher-" + i).setDaemon(true).build());
+			__pending[i] = new AtomicInteger();
+		}
+		__queueSize = queueSize;
+		__overflowPolicy = overflowPolicy;
+		__dropped = new LongAdder();
+	}
+
+	/**
+	 * @param threads        the number of worker threads (stripes)
+	 * @param queueSize      the maximum number of pending messages per stripe
+	 * @param overflowPolicy see {@link OverflowPolicy}
+	 * @return a new dispatcher instance
+	 */
+	public static MessageDispatcher newInstance(int threads, int queueSize, OverflowPolicy overflowPolicy) {
+		return new MessageDispatcher(threads, queueSize, overflowPolicy);
+	}
+
+	/**
+	 * Hand a task to the stripe of its key, it is refused when the stripe's queue
+	 * is full.
+	 * 
+	 * @param key  the ordering key (e.g. a connection), the tasks of one key are
+	 *             executed in order
+	 * @param task the handling task
+	 * @return <b>true</b> if the task was accepted, otherwise the caller should
+	 *         apply the {@link #getOverflowPolicy()}
+	 */
+	public boolean dispatch(Object key, Runnable task) {
+		int index = __getIndex(key);
+		if (__pending[index].incrementAndGet() > __queueSize) {
+			__pending[index].decrementAndGet();
+			__dropped.increment();
+			return false;
+		}
+		return __execute(index, task);
+	}
+
+	/**
+	 * Hand a task to the stripe of its key without checking the bound. It is used
+	 * for the tasks which can not be dropped (e.g. a connection is closed).
+	 * 
+	 * @param key  the ordering key
+	 * @param task the handling task
+	 * @return <b>true</b> if the task was accepted (the dispatcher is running)
+	 */
+	public boolean dispatchAlways(Object key, Runnable task) {
+		int index = __getIndex(key);
+		__pending[index].incrementAndGet();
+		return __execute(index, task);
+	}
+
+	private boolean __execute(int index, Runnable task) {
+		var pending = __pending[index];
+		try {
+			__stripes[index].execute(() -> {
+				try {
+					task.run();
+				} catch (Throwable e) {
+					error(e);
+				} finally {
+					pending.decrementAndGet();
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			pending.decrementAndGet();
+			return false;
+		}
+	}
+
+	private int __getIndex(Object key) {
+		int hash = System.identityHashCode(key);
+		// spread the bits, the identity hash codes can be weak in low bits
+		hash ^= (hash >>> 16);
+		return (hash & 0x7FFFFFFF) % __stripes.length;
+	}
+
+	/**
+	 * @return see {@link OverflowPolicy}
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return __overflowPolicy;
+	}
+
+	/**
+	 * @return the number of worker threads (stripes)
+	 */
+	public int getStripes() {
+		return __stripes.length;
+	}
+
+	/**
+	 * @param stripe the stripe's index
+	 * @return the number of pending messages in one stripe
+	 */
+	public int getQueueDepth(int stripe) {
+		return __pending[stripe].get();
+	}
+
+	/**
+	 * @return the total number of pending messages
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (var pending : __pending) {
+			depth += pending.get();
+		}
+		return depth;
+	}
+
+	/**
+	 * @return the total number of refused messages
+	 */
+	public long getDroppedCount() {
+		return __dropped.sum();
+	}
+
+	/**
+	 * Stop all the worker threads, the pending tasks are still executed
+	 */
+	public void shutdown() {
+		for (var stripe : __stripes) {
+			stripe.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The traffic counters of one connection or one transport: the number of
+ * messages and bytes in both directions, the time spent on decoding and
+ * encoding them, and the number of dropped inbound messages. Each connection
+ * owns its counters, which also count into the counters of its transport, see
+ * {@link #of(Connection.Type)}. The counters can be updated from any thread, a
+ * consistent view is taken by {@link #getSnapshot()}.
+ * 
+ * @author kong
+ * 
+ */
+public final class TrafficMetrics {
+
+	/**
+	 * The counters of each transport, see {@link Connection.Type}
+	 */
+	private static final Map<Connection.Type, TrafficMetrics> TRANSPORTS = new EnumMap<Connection.Type, TrafficMetrics>(
+			Connection.Type.class);
+
+	static {
+		for (var type : Connection.Type.values()) {
+			TRANSPORTS.put(type, new TrafficMetrics(null));
+		}
+	}
+
+	/**
+	 * The counters which also receive every update, can be <b>null</b>
+	 */
+	private final TrafficMetrics __parent;
+	private final LongAdder __readMessages = new LongAdder();
+	private final LongAdder __readBytes = new LongAdder();
+	private final LongAdder __writtenMessages = new LongAdder();
+	private final LongAdder __writtenBytes = new LongAdder();
+	private final LongAdder __decodeTime = new LongAdder();
+	private final LongAdder __encodeTime = new LongAdder();
+	private final LongAdder __droppedMessages = new LongAdder();
+
+	private TrafficMetrics(TrafficMetrics parent) {
+		__parent = parent;
+	}
+
+	/**
+	 * @param type the connection's type, see {@link Connection.Type}
+	 * @return new counters for one connection of this transport
+	 */
+	public static TrafficMetrics newInstance(Connection.Type type) {
+		return new TrafficMetrics(of(type));
+	}
+
+	/**
+	 * @param type the transport, see {@link Connection.Type}
+	 * @return the counters of all the connections of this transport
+	 */
+	public static TrafficMetrics of(Connection.Type type) {
+		return TRANSPORTS.get(type);
+	}
+
+	/**
+	 * Count an inbound message
+	 * 
+	 * @param bytes      the message's size in bytes
+	 * @param decodeTime the time in nanoseconds spent on decoding it
+	 */
+	public void addRead(int bytes, long decodeTime) {
+		__readMessages.increment();
+		__readBytes.add(bytes);
+		__decodeTime.add(decodeTime);
+		if (__parent != null) {
+			__parent.addRead(bytes, decodeTime);
+		}
+	}
+
+	/**
+	 * Count an outbound message
+	 * 
+	 * @param bytes      the message's size in bytes
+	 * @param encodeTime the time in nanoseconds spent on encoding it, 0 when it was
+	 *                   encoded for several connections
+	 */
+	public void addWritten(int bytes, long encodeTime) {
+		__writtenMessages.increment();
+		__writtenBytes.add(bytes);
+		__encodeTime.add(encodeTime);
+		if (__parent != null) {
+			__parent.addWritten(bytes, encodeTime);
+		}
+	}
+
+	/**
+	 * Count the time spent on encoding a message which is sent by
+	 * {@link #addWritten(int, long)} later
+	 * 
+	 * @param encodeTime the time in nanoseconds
+	 */
+	public void addEncodeTime(long encodeTime) {
+		__encodeTime.add(encodeTime);
+		if (__parent != null) {
+			__parent.addEncodeTime(encodeTime);
+		}
+	}
+
+	/**
+	 * Count an inbound message which is dropped before being handled (flood
+	 * limits, invalid packets, full dispatcher queue)
+	 */
+	public void addDropped() {
+		__droppedMessages.increment();
+		if (__parent != null) {
+			__parent.addDropped();
+		}
+	}
+
+	/**
+	 * @return the current values of the counters, see {@link Snapshot}
+	 */
+	public Snapshot getSnapshot() {
+		return new Snapshot(__readMessages.sum(), __readBytes.sum(), __writtenMessages.sum(), __writtenBytes.sum(),
+				__decodeTime.sum(), __encodeTime.sum(), __droppedMessages.sum());
+	}
+
+	/**
+	 * The immutable values of some traffic counters at one time
+	 */
+	public static final class Snapshot {
+
+		/**
+		 * The snapshot with all values at 0
+		 */
+		public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0);
+
+		private final long __readMessages;
+		private final long __readBytes;
+		private final long __writtenMessages;
+		private final long __writtenBytes;
+		private final long __decodeTime;
+		private final long __encodeTime;
+		private final long __droppedMessages;
+
+		private Snapshot(long readMessages, long readBytes, long writtenMessages, long writtenBytes, long decodeTime,
+				long encodeTime, long droppedMessages) {
+			__readMessages = readMessages;
+			__readBytes = readBytes;
+			__writtenMessages = writtenMessages;
+			__writtenBytes = writtenBytes;
+			__decodeTime = decodeTime;
+			__encodeTime = encodeTime;
+			__droppedMessages = droppedMessages;
+		}
+
+		/**
+		 * @param other the other snapshot
+		 * @return a new snapshot with the sums of both snapshots' values
+		 */
+		public Snapshot add(Snapshot other) {
+			return new Snapshot(__readMessages + other.__readMessages, __readBytes + other.__readBytes,
+					__writtenMessages + other.__writtenMessages, __writtenBytes + other.__writtenBytes,
+					__decodeTime + other.__decodeTime, __encodeTime + other.__encodeTime,
+					__droppedMessages + other.__droppedMessages);
+		}
+
+		public long getReadMessages() {
+			return __readMessages;
+		}
+
+		public long getReadBytes() {
+			return __readBytes;
+		}
+
+		public long getWrittenMessages() {
+			return __writtenMessages;
+		}
+
+		public long getWrittenBytes() {
+			return __writtenBytes;
+		}
+
+		/**
+		 * @return the time in nanoseconds spent on decoding the inbound messages
+		 */
+		public long getDecodeTime() {
+			return __decodeTime;
+		}
+
+		/**
+		 * @return the time in nanoseconds spent on encoding the outbound messages
+		 */
+		public long getEncodeTime() {
+			return __encodeTime;
+		}
+
+		public long getDroppedMessages() {
+			return __droppedMessages;
+		}
+
+		/**
+		 * @return the number of bytes in both directions
+		 */
+		public long getTotalBytes() {
+			return __readBytes + __writtenBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"{ read: %d messages, %d bytes; written: %d messages, %d bytes; decode: %d ns; encode: %d ns; dropped: %d }",
+					__readMessages, __readBytes, __writtenMessages, __writtenBytes, __decodeTime, __encodeTime,
+					__droppedMessages);
+		}
+
+	}
+
+}
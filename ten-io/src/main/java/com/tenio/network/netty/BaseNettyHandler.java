@@ -23,11 +23,24 @@ THE SOFTWARE.
 */
 package com.tenio.network.netty;
 
+import java.util.concurrent.TimeUnit;
+
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.LEvent;
+import com.tenio.configuration.constant.TEvent;
+import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
+import com.tenio.message.codec.KeyDictionary;
+import com.tenio.message.schema.MessageRegistry;
 import com.tenio.network.Connection;
+import com.tenio.network.MessageDispatcher;
+import com.tenio.network.MessageDispatcher.OverflowPolicy;
+import com.tenio.network.TrafficMetrics;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -42,9 +55,325 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 public abstract class BaseNettyHandler extends ChannelInboundHandlerAdapter {
 
 	protected IEventManager _eventManager;
+	/**
+	 * The inbound messages are handled by this dispatcher when it is enabled (not
+	 * <b>null</b>), otherwise they are handled on the network threads, see
+	 * {@link MessageDispatcher}
+	 */
+	private final MessageDispatcher __dispatcher;
+	/**
+	 * The maximum number of messages which can be written to a connection before
+	 * it is flushed, see {@link NettyConnection}
+	 */
+	private final int __flushMaxMessages;
+	/**
+	 * The maximum delay in milliseconds that a written message can wait for being
+	 * flushed, see {@link NettyConnection}
+	 */
+	private final int __flushMaxDelay;
+	/**
+	 * The maximum size in bytes of a packed Datagram packet, see
+	 * {@link NettyConnection}
+	 */
+	private final int __datagramMtu;
+	/**
+	 * The maximum number of messages per second that one connection can send, see
+	 * {@link FloodGuard}
+	 */
+	private final int __floodMessageRate;
+	/**
+	 * The maximum number of bytes per second that one connection can send, see
+	 * {@link FloodGuard}
+	 */
+	private final int __floodByteRate;
+	/**
+	 * What happens to a connection which exceeds its limits, see
+	 * {@link FloodGuard.Action}
+	 */
+	private final FloodGuard.Action __floodAction;
+	/**
+	 * The maximum number of keys in the key dictionary of one connection, see
+	 * {@link KeyDictionary}. The dictionaries are disabled when it is <b>0</b>
+	 */
+	private final int __keyDictionarySize;
 
-	public BaseNettyHandler(IEventManager eventManager) {
+	public BaseNettyHandler(IEventManager eventManager, MessageDispatcher dispatcher,
+			BaseConfiguration configuration) {
 		_eventManager = eventManager;
+		__dispatcher = dispatcher;
+		__flushMaxMessages = configuration.getInt(BaseConfiguration.NETWORK_FLUSH_MAX_MESSAGES);
+		__flushMaxDelay = configuration.getInt(BaseConfiguration.NETWORK_FLUSH_MAX_DELAY);
+		__datagramMtu = configuration.getInt(BaseConfiguration.DATAGRAM_MTU);
+		__floodMessageRate = configuration.getInt(BaseConfiguration.NETWORK_FLOOD_MESSAGE_RATE);
+		__floodByteRate = configuration.getInt(BaseConfiguration.NETWORK_FLOOD_BYTE_RATE);
+		__floodAction = FloodGuard.Action
+				.valueOf(configuration.getString(BaseConfiguration.NETWORK_FLOOD_ACTION).toUpperCase());
+		__keyDictionarySize = configuration.getInt(BaseConfiguration.NETWORK_KEY_DICTIONARY_SIZE);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		// all the messages written while reading are flushed once
+		var connection = _getConnection(ctx.channel());
+		if (connection != null) {
+			connection.flush();
+		} else {
+			ctx.flush();
+		}
+	}
+
+	/**
+	 * Create a new connection for a channel with the configured flush policy
+	 * 
+	 * @param type    the connection's type, see {@link Connection.Type}
+	 * @param channel the channel, see {@link Channel}
+	 * @return a new connection
+	 */
+	protected NettyConnection _newConnection(Connection.Type type, Channel channel) {
+		return NettyConnection.newInstance(_eventManager, type, channel, __flushMaxMessages, __flushMaxDelay,
+				__datagramMtu);
+	}
+
+	/**
+	 * @return a new flood guard for one connection, or <b>null</b> when there is
+	 *         no limit, see {@link FloodGuard}
+	 */
+	protected FloodGuard _newFloodGuard() {
+		if (__floodMessageRate <= 0 && __floodByteRate <= 0) {
+			return null;
+		}
+		return new FloodGuard(__floodMessageRate, __floodByteRate, System.nanoTime());
+	}
+
+	/**
+	 * @return the configured flood action, see {@link FloodGuard.Action}
+	 */
+	protected FloodGuard.Action _getFloodAction() {
+		return __floodAction;
+	}
+
+	/**
+	 * Check an inbound message of a connection-oriented channel against its flood
+	 * limits, it must be called before the message is decoded. A throttled channel
+	 * stops reading until its debt is paid.
+	 * 
+	 * @param ctx   the channel, see {@link ChannelHandlerContext}
+	 * @param guard the channel's flood guard, see {@link FloodGuard}. No limit when
+	 *              it is <b>null</b>
+	 * @param bytes the message's size in bytes
+	 * @return <b>true</b> if the message can be decoded and handled
+	 */
+	protected boolean _checkFlood(ChannelHandlerContext ctx, FloodGuard guard, int bytes) {
+		if (guard == null) {
+			return true;
+		}
+		long now = System.nanoTime();
+		if (__floodAction == FloodGuard.Action.THROTTLE) {
+			long delay = guard.acquire(bytes, now);
+			if (delay > 0) {
+				if (guard.markFlooding()) {
+					_floodDetected(_getConnection(ctx.channel()), String.valueOf(ctx.channel().remoteAddress()));
+				}
+				var config = ctx.channel().config();
+				if (config.isAutoRead()) {
+					config.setAutoRead(false);
+					ctx.executor().schedule(() -> {
+						config.setAutoRead(true);
+					}, delay, TimeUnit.NANOSECONDS);
+				}
+			}
+			return true;
+		}
+
+		if (guard.tryAcquire(bytes, now)) {
+			return true;
+		}
+		if (guard.markFlooding()) {
+			_floodDetected(_getConnection(ctx.channel()), String.valueOf(ctx.channel().remoteAddress()));
+		}
+		if (__floodAction == FloodGuard.Action.DISCONNECT) {
+			ctx.close();
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieve the configured codec of a transport
+	 * 
+	 * @param configuration the configuration, see {@link BaseConfiguration}
+	 * @param key           the transport's codec key, e.g.
+	 *                      {@link BaseConfiguration#SOCKET_CODEC}
+	 * @return the codec, see {@link ICodec}
+	 * @throws IllegalArgumentException when the codec is not registered, see
+	 *                                  {@link CodecRegistry}
+	 */
+	protected static ICodec _getCodec(BaseConfiguration configuration, String key) {
+		var name = configuration.getString(key);
+		var codec = CodecRegistry.getCodec(name);
+		if (codec == null) {
+			throw new IllegalArgumentException("Unknown codec: " + name);
+		}
+		return codec;
+	}
+
+	/**
+	 * Retrieve the codec of a connection-oriented channel (TCP, WebSocket)
+	 * 
+	 * @param channel      the channel, see {@link Channel}
+	 * @param connection   the channel's connection, see {@link Connection}, it
+	 *                     can be <b>null</b>
+	 * @param defaultCodec the transport's codec, see {@link ICodec}
+	 * @return the connection's codec, or the codec chosen by a handshake when the
+	 *         connection is not created yet, or the transport's codec
+	 */
+	protected ICodec _getCodec(Channel channel, Connection connection, ICodec defaultCodec) {
+		if (connection != null) {
+			return connection.getCodec();
+		}
+		var codec = channel.attr(NettyConnection.KEY_CODEC).get();
+		return codec != null ? codec : defaultCodec;
+	}
+
+	/**
+	 * Retrieve the key dictionary of a connection-oriented channel (TCP,
+	 * WebSocket), see {@link KeyDictionary}
+	 * 
+	 * @param channel    the channel, see {@link Channel}
+	 * @param connection the channel's connection, see {@link Connection}, it can
+	 *                   be <b>null</b>
+	 * @return the dictionary, or <b>null</b> when the client did not ask for one
+	 */
+	protected KeyDictionary _getKeyDictionary(Channel channel, Connection connection) {
+		if (connection instanceof NettyConnection) {
+			return ((NettyConnection) connection).getKeyDictionary();
+		}
+		return channel.attr(NettyConnection.KEY_DICTIONARY).get();
+	}
+
+	/**
+	 * Handle a handshake of a connection-oriented channel (TCP, WebSocket), see
+	 * {@link CodecRegistry}. The chosen codec is saved to the channel and to its
+	 * connection. When the client asks for a key dictionary, see
+	 * {@link CodecRegistry#FLAG_KEY_DICTIONARY}, a new one is given if they are
+	 * enabled and the codec supports them, so both sides start from an empty
+	 * dictionary again.
+	 * 
+	 * @param channel      the channel, see {@link Channel}
+	 * @param connection   the channel's connection, see {@link Connection}, it
+	 *                     can be <b>null</b>
+	 * @param content      the handshake, see {@link ByteBuf}
+	 * @param defaultCodec the transport's codec, see {@link ICodec}
+	 * @return the answer to the handshake, without the transport's framing
+	 */
+	protected ByteBuf _handshake(Channel channel, Connection connection, ByteBuf content, ICodec defaultCodec) {
+		var codec = CodecRegistry.readHandshake(content);
+		int flags = CodecRegistry.readHandshakeFlags(content);
+		if (codec == null) {
+			// an unknown codec, the current one is kept
+			codec = _getCodec(channel, connection, defaultCodec);
+		}
+		KeyDictionary dictionary = null;
+		if (flags >= 0 && (flags & CodecRegistry.FLAG_KEY_DICTIONARY) != 0 && __keyDictionarySize > 0
+				&& codec.supportsKeyDictionary()) {
+			dictionary = new KeyDictionary(__keyDictionarySize);
+		}
+		channel.attr(NettyConnection.KEY_CODEC).set(codec);
+		channel.attr(NettyConnection.KEY_DICTIONARY).set(dictionary);
+		if (connection instanceof NettyConnection) {
+			((NettyConnection) connection).setCodec(codec);
+			((NettyConnection) connection).setKeyDictionary(dictionary);
+		}
+		return _newHandshake(channel.alloc(), codec, flags, dictionary != null);
+	}
+
+	/**
+	 * @param allocator  the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec      the codec which is used from now on, see {@link ICodec}
+	 * @param flags      the requested flags, or <b>-1</b> when the handshake had
+	 *                   no flags
+	 * @param dictionary <b>true</b> when a key dictionary is used from now on
+	 * @return the answer to a handshake, see {@link CodecRegistry}
+	 */
+	protected static ByteBuf _newHandshake(ByteBufAllocator allocator, ICodec codec, int flags,
+			boolean dictionary) {
+		if (flags < 0) {
+			return CodecRegistry.newHandshake(allocator, codec);
+		}
+		return CodecRegistry.newHandshake(allocator, codec, dictionary ? CodecRegistry.FLAG_KEY_DICTIONARY : 0);
+	}
+
+	/**
+	 * Create a new connection with its codec
+	 * 
+	 * @see #_newConnection(Connection.Type, Channel)
+	 * 
+	 * @param type    the connection's type, see {@link Connection.Type}
+	 * @param channel the channel, see {@link Channel}
+	 * @param codec   the codec of the {@link TObject} messages, see {@link ICodec}
+	 * @return a new connection
+	 */
+	protected NettyConnection _newConnection(Connection.Type type, Channel channel, ICodec codec) {
+		var connection = _newConnection(type, channel);
+		connection.setCodec(codec);
+		if (type != Connection.Type.DATAGRAM) {
+			connection.setKeyDictionary(channel.attr(NettyConnection.KEY_DICTIONARY).get());
+		}
+		return connection;
+	}
+
+	/**
+	 * Decode a message, it is either a message of the connection's codec or a
+	 * schema message, see {@link MessageRegistry}. Each client chooses the format
+	 * of each message.
+	 * 
+	 * @param codec   the connection's codec, see {@link ICodec}
+	 * @param content the message's content, see {@link ByteBuf}
+	 * @return a {@link TObject}, a schema message, or <b>null</b> if the content
+	 *         can not be decoded
+	 */
+	protected Object _decode(ICodec codec, ByteBuf content) {
+		return _decode(codec, null, content);
+	}
+
+	/**
+	 * @see #_decode(ICodec, ByteBuf)
+	 * 
+	 * @param codec      the connection's codec, see {@link ICodec}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}, or <b>null</b>
+	 * @param content    the message's content, see {@link ByteBuf}
+	 * @return a {@link TObject}, a schema message, or <b>null</b> if the content
+	 *         can not be decoded
+	 */
+	protected Object _decode(ICodec codec, KeyDictionary dictionary, ByteBuf content) {
+		if (MessageRegistry.isMessage(content)) {
+			return MessageRegistry.decode(content);
+		}
+		return dictionary != null ? codec.decode(content, dictionary) : codec.decode(content);
+	}
+
+	/**
+	 * Retrieve the traffic counters of a connection, see {@link TrafficMetrics}
+	 * 
+	 * @param connection the connection, see {@link Connection}, it can be
+	 *                   <b>null</b>
+	 * @param type       the connection's type, see {@link Connection.Type}
+	 * @return the connection's counters, or its transport's counters when the
+	 *         connection is not created yet
+	 */
+	protected TrafficMetrics _getMetrics(Connection connection, Connection.Type type) {
+		return connection != null ? connection.getMetrics() : TrafficMetrics.of(type);
+	}
+
+	/**
+	 * Report a flooding connection, see {@link TEvent#FLOOD_DETECTED}
+	 * 
+	 * @param connection the connection, see {@link Connection}, it can be
+	 *                   <b>null</b>
+	 * @param address    the client's address
+	 */
+	protected void _floodDetected(Connection connection, String address) {
+		_eventManager.getExternal().emit(TEvent.FLOOD_DETECTED, connection, address, __floodAction);
 	}
 
 	/**
@@ -57,6 +386,45 @@ public abstract class BaseNettyHandler extends ChannelInboundHandlerAdapter {
 		return channel.attr(NettyConnection.KEY_THIS).get();
 	}
 
+	/**
+	 * Handle an inbound task. When the dispatcher is enabled, the task is executed
+	 * on the dispatcher's stripe of its key, otherwise it is executed immediately.
+	 * 
+	 * @param key  the ordering key, the tasks of one key are executed in order
+	 * @param task the handling task
+	 * @return <b>false</b> if the task was refused because of the dispatcher's
+	 *         overflow
+	 */
+	protected boolean _dispatch(Object key, Runnable task) {
+		if (__dispatcher == null) {
+			task.run();
+			return true;
+		}
+		return __dispatcher.dispatch(key, task);
+	}
+
+	/**
+	 * Handle an inbound task which can not be refused.
+	 * 
+	 * @see #_dispatch(Object, Runnable)
+	 * 
+	 * @param key  the ordering key, the tasks of one key are executed in order
+	 * @param task the handling task
+	 */
+	protected void _dispatchAlways(Object key, Runnable task) {
+		if (__dispatcher == null || !__dispatcher.dispatchAlways(key, task)) {
+			task.run();
+		}
+	}
+
+	/**
+	 * @return <b>true</b> if a connection should be closed when its messages are
+	 *         refused, see {@link OverflowPolicy}
+	 */
+	protected boolean _isDisconnectOnOverflow() {
+		return __dispatcher != null && __dispatcher.getOverflowPolicy() == OverflowPolicy.DISCONNECT;
+	}
+
 	/**
 	 * When a client is disconnected from your server for any reason, you can handle
 	 * it in this event
@@ -72,8 +440,10 @@ public abstract class BaseNettyHandler extends ChannelInboundHandlerAdapter {
 	protected void _channelInactive(ChannelHandlerContext ctx, boolean keepPlayerOnDisconnect) {
 		// get the connection first
 		var connection = _getConnection(ctx.channel());
-		_eventManager.getInternal().emit(LEvent.CONNECTION_CLOSE, connection, keepPlayerOnDisconnect);
-		connection = null;
+		// handled after all the pending messages of this connection
+		_dispatchAlways(connection != null ? connection : ctx.channel(), () -> {
+			_eventManager.getInternal().emit(LEvent.CONNECTION_CLOSE, connection, keepPlayerOnDisconnect);
+		});
 	}
 
 	/**
@@ -85,8 +455,10 @@ public abstract class BaseNettyHandler extends ChannelInboundHandlerAdapter {
 	protected void _exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
 		// get the connection first
 		var connection = _getConnection(ctx.channel());
-		_eventManager.getInternal().emit(LEvent.CONNECTION_EXCEPTION, ctx.channel().id().asLongText(), connection,
-				cause);
+		var channelId = ctx.channel().id().asLongText();
+		_dispatchAlways(connection != null ? connection : ctx.channel(), () -> {
+			_eventManager.getInternal().emit(LEvent.CONNECTION_EXCEPTION, channelId, connection, cause);
+		});
 	}
 
 }
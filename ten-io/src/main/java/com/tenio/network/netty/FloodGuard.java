@@ -0,0 +1,182 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty;
+
+/**
+ * Protect the server from a client which sends too many messages. Each
+ * connection owns two token buckets: one for the number of messages and one
+ * for the number of bytes per second. A bucket holds at most one second of its
+ * rate, so a client can send a short burst after a silence. The limits are
+ * checked before a message is decoded, so a flood costs as little as possible.
+ * <br>
+ * An instance is only used by its connection's network thread, it is not
+ * thread-safe.
+ * 
+ * @author kong
+ * 
+ */
+public final class FloodGuard {
+
+	/**
+	 * What happens to a connection which exceeds its limits
+	 */
+	public enum Action {
+		/**
+		 * The exceeding messages are dropped before decoding
+		 */
+		DROP,
+		/**
+		 * All the messages are handled, but the connection stops reading until its
+		 * buckets are refilled
+		 */
+		THROTTLE,
+		/**
+		 * The connection is closed
+		 */
+		DISCONNECT
+	}
+
+	private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+	/**
+	 * The allowed messages per second, 0 for no limit
+	 */
+	private final int __messageRate;
+	/**
+	 * The allowed bytes per second, 0 for no limit
+	 */
+	private final int __byteRate;
+	private double __messageTokens;
+	private double __byteTokens;
+	private long __lastRefill;
+	/**
+	 * Set when the limits are exceeded, cleared by the next accepted message
+	 */
+	private boolean __flooding;
+
+	/**
+	 * @param messageRate the allowed messages per second, 0 for no limit
+	 * @param byteRate    the allowed bytes per second, 0 for no limit
+	 * @param now         the current time in nanoseconds, see
+	 *                    {@link System#nanoTime()}
+	 */
+	public FloodGuard(int messageRate, int byteRate, long now) {
+		__messageRate = messageRate;
+		__byteRate = byteRate;
+		__messageTokens = messageRate;
+		__byteTokens = byteRate;
+		__lastRefill = now;
+	}
+
+	/**
+	 * Take the tokens of one message only if both buckets have enough of them. A
+	 * message which is bigger than the remaining bytes is still accepted while the
+	 * byte bucket is not empty, so that a message bigger than the byte rate is not
+	 * refused forever.
+	 * 
+	 * @param bytes the message's size in bytes
+	 * @param now   the current time in nanoseconds
+	 * @return <b>true</b> if the message is accepted
+	 */
+	public boolean tryAcquire(int bytes, long now) {
+		__refill(now);
+		if ((__messageRate > 0 && __messageTokens < 1) || (__byteRate > 0 && __byteTokens <= 0)) {
+			return false;
+		}
+		__take(bytes);
+		__flooding = false;
+		return true;
+	}
+
+	/**
+	 * Always take the tokens of one message, the buckets can fall into debt.
+	 * 
+	 * @param bytes the message's size in bytes
+	 * @param now   the current time in nanoseconds
+	 * @return the time in nanoseconds the connection should wait until its debt is
+	 *         paid, 0 if there is no debt
+	 */
+	public long acquire(int bytes, long now) {
+		__refill(now);
+		__take(bytes);
+		double wait = 0;
+		if (__messageRate > 0 && __messageTokens < 0) {
+			wait = -__messageTokens / __messageRate;
+		}
+		if (__byteRate > 0 && __byteTokens < 0) {
+			wait = Math.max(wait, -__byteTokens / __byteRate);
+		}
+		if (wait == 0) {
+			__flooding = false;
+			return 0;
+		}
+		return (long) Math.ceil(wait * NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Mark the connection as flooding after a refused or throttled message.
+	 * 
+	 * @return <b>true</b> only for the first violation since the last accepted
+	 *         message, so that a flood is reported once
+	 */
+	public boolean markFlooding() {
+		if (__flooding) {
+			return false;
+		}
+		__flooding = true;
+		return true;
+	}
+
+	/**
+	 * @return <b>true</b> if the limits are currently exceeded
+	 */
+	public boolean isFlooding() {
+		return __flooding;
+	}
+
+	private void __refill(long now) {
+		long elapsed = now - __lastRefill;
+		if (elapsed <= 0) {
+			return;
+		}
+		__lastRefill = now;
+		double seconds = elapsed / NANOS_PER_SECOND;
+		if (__messageRate > 0) {
+			__messageTokens = Math.min(__messageRate, __messageTokens + seconds * __messageRate);
+		}
+		if (__byteRate > 0) {
+			__byteTokens = Math.min(__byteRate, __byteTokens + seconds * __byteRate);
+		}
+	}
+
+	private void __take(int bytes) {
+		if (__messageRate > 0) {
+			__messageTokens -= 1;
+		}
+		if (__byteRate > 0) {
+			__byteTokens -= bytes;
+		}
+	}
+
+}
@@ -24,15 +24,26 @@ THE SOFTWARE.
 package com.tenio.network.netty;
 
 import java.net.InetSocketAddress;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
+import com.tenio.configuration.constant.Constants;
 import com.tenio.configuration.constant.LEvent;
 import com.tenio.entity.AbstractPlayer;
 import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
-import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
+import com.tenio.message.codec.KeyDictionary;
 import com.tenio.network.Connection;
+import com.tenio.network.IPacket;
+import com.tenio.network.netty.datagram.DatagramPacker;
+import com.tenio.network.netty.datagram.DatagramPlayerIndex;
+import com.tenio.network.netty.datagram.DatagramReliability;
 
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
@@ -40,7 +51,22 @@ import io.netty.util.AttributeKey;
 
 /**
  * Use <a href="https://netty.io/">Netty</a> to create a connection
- * instance @see {@link Connection}
+ * instance @see {@link Connection}. When the flush policy allows more than one
+ * message per flush, the sent messages are only written to the channel and
+ * flushed together: when the number of pending messages reaches the limit, when
+ * the maximum delay is over, after reading inbound data or by calling
+ * {@link #flush()}. It saves one system call per message. The batching state
+ * is only accessed on the channel's event loop, the messages sent from other
+ * threads are handed over to it in order. A Datagram connection can also send
+ * reliable or sequenced messages, see {@link DatagramReliability}, and pack
+ * its unreliable messages into packets up to the configured MTU, see
+ * {@link DatagramPacker}. The {@link TObject} messages are written by the
+ * connection's codec, see {@link ICodec}, which can be changed by the client's
+ * handshake. A TCP or WebSocket client can also ask for a key dictionary, see
+ * {@link KeyDictionary}, then its messages are encoded one at a time and
+ * written on the event loop in the same order, from any thread, so a key is
+ * always announced on the wire before its id. The shared packets,
+ * see {@link #newPacket(TObject)}, are encoded once with the keys in full.
  * 
  * @author kong
  * 
@@ -55,11 +81,21 @@ public class NettyConnection extends Connection {
 	 * Save the player's name, see {@link AbstractPlayer#getName()} to its channel
 	 */
 	public static final AttributeKey<String> KEY_ID = AttributeKey.valueOf("id");
+	/**
+	 * Save the codec chosen by a handshake to its channel, before the connection
+	 * is created (TCP, WebSocket)
+	 */
+	public static final AttributeKey<ICodec> KEY_CODEC = AttributeKey.valueOf("codec");
+	/**
+	 * Save the key dictionary asked by a handshake to its channel, before the
+	 * connection is created (TCP, WebSocket)
+	 */
+	public static final AttributeKey<KeyDictionary> KEY_DICTIONARY = AttributeKey.valueOf("dictionary");
 
 	/**
 	 * @see Channel
 	 */
-	private Channel __channel;
+	private volatile Channel __channel;
 	/**
 	 * @see AbstractPlayer#getName()
 	 */
@@ -69,11 +105,68 @@ public class NettyConnection extends Connection {
 	 */
 	private String __address;
 	private boolean __hasRemoteAddress;
+	/**
+	 * The maximum number of messages per flush, a value not greater than 1 means
+	 * every message is flushed immediately
+	 */
+	private final int __flushMaxMessages;
+	/**
+	 * The maximum delay in milliseconds before pending messages are flushed
+	 */
+	private final int __flushMaxDelay;
+	/**
+	 * The maximum size in bytes of a packed Datagram packet, a value not greater
+	 * than 0 means every message is sent in its own packet
+	 */
+	private final int __datagramMtu;
+	/**
+	 * Only accessed on the channel's event loop
+	 */
+	private int __pendingMessages;
+	private boolean __flushScheduled;
+	/**
+	 * Only used by a Datagram connection, it is created on the first use and only
+	 * accessed on the channel's event loop
+	 */
+	private DatagramReliability __reliability;
+	/**
+	 * Only used by a Datagram connection with packing, it is created on the first
+	 * use and only accessed on the channel's event loop
+	 */
+	private DatagramPacker __packer;
+	/**
+	 * Only used by a Datagram connection, the flood limits of its remote address,
+	 * only accessed on the channel's event loop
+	 */
+	private FloodGuard __floodGuard;
+	/**
+	 * The codec of the {@link TObject} messages, see {@link ICodec}
+	 */
+	private volatile ICodec __codec;
+	/**
+	 * The key dictionary of the {@link TObject} messages, see
+	 * {@link KeyDictionary}, or <b>null</b> when the keys are written in full
+	 */
+	private volatile KeyDictionary __dictionary;
+	/**
+	 * The messages encoded with the key dictionary, in the order of their ids.
+	 * They are only written by the channel's event loop, see
+	 * {@link #__writeOrdered(Channel)}
+	 */
+	private final Queue<ByteBuf> __ordered;
 
-	private NettyConnection(IEventManager eventManager, Type type, Channel channel) {
+	private NettyConnection(IEventManager eventManager, Type type, Channel channel, int flushMaxMessages,
+			int flushMaxDelay, int datagramMtu) {
 		super(eventManager, type);
 		__hasRemoteAddress = false;
 		__channel = channel;
+		__flushMaxMessages = flushMaxMessages;
+		__flushMaxDelay = flushMaxDelay;
+		__datagramMtu = datagramMtu;
+		__pendingMessages = 0;
+		__flushScheduled = false;
+		__codec = CodecRegistry.getDefault();
+		__ordered = new ConcurrentLinkedQueue<ByteBuf>();
 		// Fix address in a TCP and WebSocket instance
 		// and no need to save channel in Datagram connection, because of only one
 		// channel existed
@@ -85,28 +178,436 @@ public class NettyConnection extends Connection {
 	}
 
 	public static NettyConnection newInstance(IEventManager eventManager, Type type, Channel channel) {
-		return new NettyConnection(eventManager, type, channel);
+		return new NettyConnection(eventManager, type, channel, 1, 0, 0);
+	}
+
+	public static NettyConnection newInstance(IEventManager eventManager, Type type, Channel channel,
+			int flushMaxMessages, int flushMaxDelay) {
+		return new NettyConnection(eventManager, type, channel, flushMaxMessages, flushMaxDelay, 0);
+	}
+
+	public static NettyConnection newInstance(IEventManager eventManager, Type type, Channel channel,
+			int flushMaxMessages, int flushMaxDelay, int datagramMtu) {
+		return new NettyConnection(eventManager, type, channel, flushMaxMessages, flushMaxDelay, datagramMtu);
 	}
 
 	@Override
 	public void send(TObject message) {
+		__send(message);
+	}
+
+	@Override
+	public void sendMessage(Object message) {
+		__send(message);
+	}
+
+	/**
+	 * @param message a {@link TObject} or a schema message
+	 */
+	private void __send(Object message) {
+		// the connection can be cleaned by another thread at any time
+		var channel = __channel;
+		if (channel == null || (isType(Type.DATAGRAM) && !__hasRemoteAddress)) {
+			return;
+		}
+		var dictionary = __dictionary;
+		if (dictionary == null || !(message instanceof TObject)) {
+			__send(channel, message, null);
+			return;
+		}
+		// the message is encoded by the caller, because it can be reused after this
+		// call, but the ids are given in the order of the queue, which is the order
+		// of the writes on the event loop
+		synchronized (dictionary) {
+			int mark = dictionary.mark();
+			var buffer = __encode(channel, message, dictionary);
+			if (buffer == null) {
+				dictionary.rollback(mark);
+				return;
+			}
+			__ordered.offer(buffer);
+		}
+		if (channel.eventLoop().inEventLoop()) {
+			__writeOrdered(channel);
+		} else {
+			channel.eventLoop().execute(() -> __writeOrdered(channel));
+		}
+	}
+
+	/**
+	 * @param channel    the channel, see {@link Channel}
+	 * @param message    a {@link TObject} or a schema message
+	 * @param dictionary the key dictionary, see {@link KeyDictionary}, or
+	 *                   <b>null</b>
+	 */
+	private void __send(Channel channel, Object message, KeyDictionary dictionary) {
+		var buffer = __encode(channel, message, dictionary);
+		if (buffer != null) {
+			__writeFramed(channel, buffer);
+		}
+	}
+
+	/**
+	 * @param channel    the channel, see {@link Channel}
+	 * @param message    a {@link TObject} or a schema message
+	 * @param dictionary the key dictionary, see {@link KeyDictionary}, or
+	 *                   <b>null</b>
+	 * @return the encoded message without the header for WebSocket, or
+	 *         <b>null</b> if it can not be sent
+	 */
+	private ByteBuf __encode(Channel channel, Object message, KeyDictionary dictionary) {
+		long start = System.nanoTime();
+		var buffer = NettyPacket.encode(channel.alloc(), __codec, dictionary, message);
+		if (buffer == null) {
+			return null;
+		}
+		long encodeTime = System.nanoTime() - start;
 		if (isType(Type.SOCKET)) {
-			__channel.writeAndFlush(MsgPackConverter.serialize(message));
-		} else if (isType(Type.WEB_SOCKET)) {
-			__channel.writeAndFlush(
-					new BinaryWebSocketFrame(Unpooled.wrappedBuffer(MsgPackConverter.serialize(message))));
+			if (!NettyPacket.hasValidLength(buffer)) {
+				buffer.release();
+				return null;
+			}
+		} else {
+			// only TCP needs the data-length header
+			buffer.skipBytes(Constants.HEADER_BYTES);
+		}
+		getMetrics().addWritten(buffer.readableBytes(), encodeTime);
+		return buffer;
+	}
+
+	/**
+	 * Write the messages encoded with the key dictionary in their order, must be
+	 * called on the channel's event loop
+	 * 
+	 * @param channel the channel, see {@link Channel}
+	 */
+	private void __writeOrdered(Channel channel) {
+		ByteBuf buffer;
+		while ((buffer = __ordered.poll()) != null) {
+			if (channel.isActive() && __channel == channel) {
+				__writeFramed(channel, buffer);
+			} else {
+				buffer.release();
+			}
+		}
+	}
+
+	@Override
+	public void send(TObject message, Delivery delivery) {
+		__send(message, delivery);
+	}
+
+	@Override
+	public void sendMessage(Object message, Delivery delivery) {
+		__send(message, delivery);
+	}
+
+	/**
+	 * @param message  a {@link TObject} or a schema message
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 */
+	private void __send(Object message, Delivery delivery) {
+		if (!isType(Type.DATAGRAM) || delivery == Delivery.UNRELIABLE) {
+			__send(message);
+			return;
+		}
+		var channel = __channel;
+		if (channel == null || !__hasRemoteAddress) {
+			return;
+		}
+		long start = System.nanoTime();
+		var buffer = NettyPacket.encode(channel.alloc(), __codec, message);
+		if (buffer == null) {
+			return;
+		}
+		long encodeTime = System.nanoTime() - start;
+		// the reliability layer has its own header
+		buffer.skipBytes(Constants.HEADER_BYTES);
+		getMetrics().addWritten(buffer.readableBytes(), encodeTime);
+
+		if (channel.eventLoop().inEventLoop()) {
+			__sendReliable(buffer, delivery);
+		} else {
+			channel.eventLoop().execute(() -> __sendReliable(buffer, delivery));
+		}
+	}
+
+	private void __sendReliable(ByteBuf buffer, Delivery delivery) {
+		var reliability = getReliability();
+		if (reliability == null) {
+			buffer.release();
+		} else {
+			reliability.send(buffer, delivery);
+		}
+	}
+
+	/**
+	 * Retrieve the reliability layer of a Datagram connection, must be called on
+	 * the channel's event loop. When a reliable message can not be delivered, the
+	 * connection is detached from its player.
+	 * 
+	 * @return the reliability layer, see {@link DatagramReliability}, or
+	 *         <b>null</b> if the connection is not a Datagram one or is cleaned
+	 */
+	public DatagramReliability getReliability() {
+		var channel = __channel;
+		if (channel == null || !isType(Type.DATAGRAM) || !__hasRemoteAddress) {
+			return null;
+		}
+		if (__reliability == null) {
+			var remote = _sockAddress;
+			__reliability = new DatagramReliability(channel, remote, () -> {
+				var index = channel.attr(DatagramPlayerIndex.KEY_INDEX).get();
+				if (index != null) {
+					index.detach(remote, this);
+				}
+			});
+		}
+		return __reliability;
+	}
+
+	/**
+	 * @return the flood limits of a Datagram connection, see {@link FloodGuard},
+	 *         or <b>null</b> when there is no limit
+	 */
+	public FloodGuard getFloodGuard() {
+		return __floodGuard;
+	}
+
+	/**
+	 * Set the flood limits of a Datagram connection, the other connections are
+	 * limited by their handlers
+	 * 
+	 * @param floodGuard see {@link FloodGuard}
+	 */
+	public void setFloodGuard(FloodGuard floodGuard) {
+		__floodGuard = floodGuard;
+	}
+
+	@Override
+	public IPacket newPacket(TObject message) {
+		return __newPacket(message);
+	}
+
+	@Override
+	public IPacket newMessagePacket(Object message) {
+		return __newPacket(message);
+	}
+
+	/**
+	 * @param message a {@link TObject} or a schema message
+	 * @return an encoded packet, see {@link IPacket}
+	 */
+	private IPacket __newPacket(Object message) {
+		long start = System.nanoTime();
+		// the packet is also sent to other connections, so it is still encoded when
+		// this one is cleaned
+		var channel = __channel;
+		var allocator = channel == null ? ByteBufAllocator.DEFAULT : channel.alloc();
+		var packet = NettyPacket.newInstance(allocator, __codec, message);
+		// the shared packet's encoding is counted once, by the connection creating it
+		getMetrics().addEncodeTime(System.nanoTime() - start);
+		return packet;
+	}
+
+	@Override
+	public void send(IPacket packet) {
+		var channel = __channel;
+		if (channel == null || (isType(Type.DATAGRAM) && !__hasRemoteAddress)) {
+			return;
+		}
+		var nettyPacket = (NettyPacket) packet;
+		if (!nettyPacket.isEncodedBy(__codec)) {
+			// the packet was encoded for the connections with another codec
+			__send(nettyPacket.getMessage());
+			return;
+		}
+		var buffer = isType(Type.SOCKET) ? nettyPacket.retainFrame() : nettyPacket.retainContent();
+		if (buffer == null) {
+			return;
+		}
+		getMetrics().addWritten(buffer.readableBytes(), 0);
+		__writeFramed(channel, buffer);
+	}
+
+	/**
+	 * Write a framed buffer to the channel, WebSocket and UDP wrap it in their own
+	 * message types.
+	 * 
+	 * @param channel the channel, see {@link Channel}
+	 * @param buffer  the buffer, see {@link ByteBuf}
+	 */
+	private void __writeFramed(Channel channel, ByteBuf buffer) {
+		if (isType(Type.DATAGRAM) && __datagramMtu > 0) {
+			if (channel.eventLoop().inEventLoop()) {
+				__pack(channel, buffer);
+			} else {
+				channel.eventLoop().execute(() -> __pack(channel, buffer));
+			}
+			return;
+		}
+
+		Object message = buffer;
+		if (isType(Type.WEB_SOCKET)) {
+			message = new BinaryWebSocketFrame(buffer);
 		} else if (isType(Type.DATAGRAM)) {
-			if (__hasRemoteAddress) {
-				__channel.writeAndFlush(
-						new DatagramPacket(Unpooled.wrappedBuffer(MsgPackConverter.serialize(message)), _sockAddress));
+			message = new DatagramPacket(buffer, _sockAddress);
+		}
+
+		if (__flushMaxMessages <= 1) {
+			channel.writeAndFlush(message);
+			return;
+		}
+
+		if (channel.eventLoop().inEventLoop()) {
+			__write(channel, message);
+		} else {
+			var pending = message;
+			channel.eventLoop().execute(() -> __write(channel, pending));
+		}
+	}
+
+	/**
+	 * Write a message and decide when it is flushed, must be called on the
+	 * channel's event loop.
+	 * 
+	 * @param channel the channel, see {@link Channel}
+	 * @param message the message
+	 */
+	private void __write(Channel channel, Object message) {
+		channel.write(message);
+		if (++__pendingMessages >= __flushMaxMessages) {
+			__flush(channel);
+		} else if (!__flushScheduled) {
+			__flushScheduled = true;
+			channel.eventLoop().schedule(() -> {
+				__flushScheduled = false;
+				if (__pendingMessages > 0) {
+					__flush(channel);
+				}
+			}, __flushMaxDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Append a message to the current Datagram packet, which is sent when it is
+	 * full, at the end of a read, after the flush delay or by calling
+	 * {@link #flush()}. Must be called on the channel's event loop.
+	 * 
+	 * @param channel the channel, see {@link Channel}
+	 * @param buffer  the message
+	 */
+	private void __pack(Channel channel, ByteBuf buffer) {
+		if (__channel == null) {
+			buffer.release();
+			return;
+		}
+		if (__packer == null) {
+			__packer = new DatagramPacker(channel, _sockAddress, __datagramMtu);
+		}
+		__packer.add(buffer);
+
+		if (__packer.hasPending() && !__flushScheduled) {
+			__flushScheduled = true;
+			Runnable flushTask = () -> {
+				__flushScheduled = false;
+				if (__packer != null) {
+					__packer.flush();
+				}
+			};
+			if (__flushMaxDelay > 0) {
+				channel.eventLoop().schedule(flushTask, __flushMaxDelay, TimeUnit.MILLISECONDS);
+			} else {
+				channel.eventLoop().execute(flushTask);
 			}
 		}
 	}
 
+	@Override
+	public void flush() {
+		var channel = __channel;
+		if (channel == null) {
+			return;
+		}
+		if (isType(Type.DATAGRAM) && __datagramMtu > 0) {
+			if (channel.eventLoop().inEventLoop()) {
+				__flushPacker();
+			} else {
+				channel.eventLoop().execute(this::__flushPacker);
+			}
+			return;
+		}
+		if (__flushMaxMessages <= 1) {
+			return;
+		}
+		if (channel.eventLoop().inEventLoop()) {
+			__flush(channel);
+		} else {
+			channel.eventLoop().execute(() -> __flush(channel));
+		}
+	}
+
+	/**
+	 * Must be called on the channel's event loop.
+	 * 
+	 * @param channel the channel, see {@link Channel}
+	 */
+	private void __flush(Channel channel) {
+		__pendingMessages = 0;
+		channel.flush();
+	}
+
+	@Override
+	public ICodec getCodec() {
+		return __codec;
+	}
+
+	/**
+	 * Change the codec of the {@link TObject} messages, it is called when the
+	 * client sends a handshake, see {@link CodecRegistry}
+	 * 
+	 * @param codec the new codec, see {@link ICodec}
+	 */
+	public void setCodec(ICodec codec) {
+		__codec = codec;
+	}
+
+	/**
+	 * @return the key dictionary, see {@link KeyDictionary}, or <b>null</b> when
+	 *         the keys are written in full
+	 */
+	public KeyDictionary getKeyDictionary() {
+		return __dictionary;
+	}
+
+	/**
+	 * Change the key dictionary, it is called when the client sends a handshake,
+	 * see {@link CodecRegistry}. It is never used by a Datagram connection.
+	 * 
+	 * @param dictionary the new key dictionary, see {@link KeyDictionary}, or
+	 *                   <b>null</b> to write the keys in full
+	 */
+	public void setKeyDictionary(KeyDictionary dictionary) {
+		var current = __dictionary;
+		if (current == null) {
+			__dictionary = isType(Type.DATAGRAM) ? null : dictionary;
+			return;
+		}
+		// wait for the message being encoded with the old dictionary
+		synchronized (current) {
+			__dictionary = isType(Type.DATAGRAM) ? null : dictionary;
+		}
+	}
+
 	@Override
 	public void close() {
+		var channel = __channel;
+		// the connection is already cleaned
+		if (channel == null) {
+			return;
+		}
 		// this channel will be closed in the future
-		__channel.close();
+		channel.close();
 		// need to push event now
 		_eventManager.getInternal().emit(LEvent.MANUALY_CLOSE_CONNECTION, __id);
 	}
@@ -136,12 +637,46 @@ public class NettyConnection extends Connection {
 
 	@Override
 	public void clean() {
-		// only need for WebSocket and Socket
-		__channel.attr(KEY_THIS).set(null);
-		__channel.attr(KEY_ID).set(null);
+		var channel = __channel;
+		if (channel == null) {
+			return;
+		}
+		if (isType(Type.DATAGRAM)) {
+			// the channel is shared by all the UDP clients, only remove this address
+			var index = channel.attr(DatagramPlayerIndex.KEY_INDEX).get();
+			if (index != null && _sockAddress != null) {
+				index.remove(_sockAddress, this);
+			}
+			// release the pending reliable and packed messages
+			var eventLoop = channel.eventLoop();
+			if (eventLoop.inEventLoop()) {
+				__closeReliability();
+			} else {
+				eventLoop.execute(this::__closeReliability);
+			}
+		} else {
+			channel.attr(KEY_THIS).set(null);
+			channel.attr(KEY_ID).set(null);
+			channel.attr(KEY_DICTIONARY).set(null);
+		}
 		__channel = null;
 	}
 
+	private void __flushPacker() {
+		if (__packer != null) {
+			__packer.flush();
+		}
+	}
+
+	private void __closeReliability() {
+		if (__reliability != null) {
+			__reliability.close();
+		}
+		if (__packer != null) {
+			__packer.close();
+		}
+	}
+
 	@Override
 	public Object getAttr(String key) {
 		return __channel.attr(AttributeKey.valueOf(key)).get();
@@ -24,48 +24,101 @@ THE SOFTWARE.
 package com.tenio.network.netty;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.Constants;
 import com.tenio.event.IEventManager;
 import com.tenio.logger.AbstractLogger;
 import com.tenio.network.INetwork;
+import com.tenio.network.MessageDispatcher;
+import com.tenio.network.MessageDispatcher.OverflowPolicy;
+import com.tenio.network.netty.datagram.DatagramPlayerIndex;
 import com.tenio.network.netty.datagram.NettyDatagramInitializer;
 import com.tenio.network.netty.socket.NettySocketInitializer;
 import com.tenio.network.netty.ws.NettyWSInitializer;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
 
 /**
  * Use <a href="https://netty.io/">Netty</a> to handle a network instance @see
- * {@link INetwork}
+ * {@link INetwork}. Each transport (TCP, UDP, WebSocket) owns its event loop
+ * groups, so they can be sized independently and do not affect each other. The
+ * underlying implementation (nio or native epoll) is chosen by
+ * {@link NettyTransport}.
  * 
  * @author kong
  * 
  */
 public final class NettyNetwork extends AbstractLogger implements INetwork {
 
-	private EventLoopGroup __producer;
-	private EventLoopGroup __consumer;
+	private NettyTransport __transport;
+	private ByteBufAllocator __allocator;
+	private MessageDispatcher __dispatcher;
+
+	private EventLoopGroup __socketProducer;
+	private EventLoopGroup __socketConsumer;
+	private EventLoopGroup __datagramConsumer;
+	private EventLoopGroup __webSocketProducer;
+	private EventLoopGroup __webSocketConsumer;
 	private GlobalTrafficShapingHandlerCustomize __traficCounter;
 
 	private Channel __tcp;
-	private Channel __udp;
+	private List<Channel> __udp;
 	private Channel __ws;
 
 	@Override
 	public boolean start(IEventManager eventManager, BaseConfiguration configuration) {
-		__producer = new NioEventLoopGroup();
-		__consumer = new NioEventLoopGroup();
+		__transport = NettyTransport.newInstance(configuration.getString(BaseConfiguration.NETWORK_TRANSPORT));
+		__allocator = configuration.getString(BaseConfiguration.NETWORK_ALLOCATOR).equalsIgnoreCase("unpooled")
+				? UnpooledByteBufAllocator.DEFAULT
+				: PooledByteBufAllocator.DEFAULT;
+
+		// the inbound messages can be handled out of the network threads
+		int dispatcherThreads = configuration.getInt(BaseConfiguration.NETWORK_DISPATCHER_THREADS);
+		if (dispatcherThreads > 0) {
+			var overflowPolicy = OverflowPolicy
+					.valueOf(configuration.getString(BaseConfiguration.NETWORK_DISPATCHER_OVERFLOW).toUpperCase());
+			__dispatcher = MessageDispatcher.newInstance(dispatcherThreads,
+					configuration.getInt(BaseConfiguration.NETWORK_DISPATCHER_QUEUE_SIZE), overflowPolicy);
+		}
 
-		__traficCounter = new GlobalTrafficShapingHandlerCustomize(eventManager, __consumer,
+		if (configuration.isDefined(BaseConfiguration.SOCKET_PORT)) {
+			__socketProducer = __transport
+					.newEventLoopGroup(configuration.getInt(BaseConfiguration.SOCKET_PRODUCER_THREADS));
+			__socketConsumer = __transport
+					.newEventLoopGroup(configuration.getInt(BaseConfiguration.SOCKET_CONSUMER_THREADS));
+		}
+		if (configuration.isDefined(BaseConfiguration.DATAGRAM_PORT)) {
+			// every datagram channel should be read by its own thread
+			int datagramThreads = configuration.getInt(BaseConfiguration.DATAGRAM_CONSUMER_THREADS);
+			if (datagramThreads > 0) {
+				datagramThreads = Math.max(datagramThreads, __getDatagramChannels(configuration));
+			}
+			__datagramConsumer = __transport.newEventLoopGroup(datagramThreads);
+		}
+		if (configuration.isDefined(BaseConfiguration.WEBSOCKET_PORT)) {
+			__webSocketProducer = __transport
+					.newEventLoopGroup(configuration.getInt(BaseConfiguration.WEBSOCKET_PRODUCER_THREADS));
+			__webSocketConsumer = __transport
+					.newEventLoopGroup(configuration.getInt(BaseConfiguration.WEBSOCKET_CONSUMER_THREADS));
+		}
+
+		var trafficExecutor = __getTrafficExecutor();
+		if (trafficExecutor == null) {
+			return true;
+		}
+		__traficCounter = new GlobalTrafficShapingHandlerCustomize(eventManager, trafficExecutor,
 				Constants.TRAFFIC_COUNTER_WRITE_LIMIT, Constants.TRAFFIC_COUNTER_READ_LIMIT,
 				Constants.TRAFFIC_COUNTER_CHECK_INTERVAL);
 
@@ -107,8 +160,42 @@ public final class NettyNetwork extends AbstractLogger implements INetwork {
 	}
 
 	/**
-	 * Constructs a Datagram socket and binds it to the specified port on the local
-	 * host machine.
+	 * The traffic counter is shared by all transports, it runs its periodic
+	 * accounting on one of the consumer groups.
+	 * 
+	 * @return the first available consumer group, or <b>null</b> when no port is
+	 *         defined
+	 */
+	private EventLoopGroup __getTrafficExecutor() {
+		if (__socketConsumer != null) {
+			return __socketConsumer;
+		}
+		if (__webSocketConsumer != null) {
+			return __webSocketConsumer;
+		}
+		return __datagramConsumer;
+	}
+
+	/**
+	 * Several datagram channels can only share the same port with SO_REUSEPORT,
+	 * which is supported by the epoll transport.
+	 * 
+	 * @param configuration your own configuration, see {@link BaseConfiguration}
+	 * @return the number of datagram channels to bind
+	 */
+	private int __getDatagramChannels(BaseConfiguration configuration) {
+		int channels = Math.max(configuration.getInt(BaseConfiguration.DATAGRAM_CHANNELS), 1);
+		return __transport.isEpoll() ? channels : 1;
+	}
+
+	/**
+	 * Constructs Datagram sockets and binds them to the specified port on the
+	 * local host machine. When there are several sockets, the kernel spreads the
+	 * clients over them by their addresses (SO_REUSEPORT), so one client always
+	 * reaches the same socket. Every socket is registered to the next thread of
+	 * the consumer group, they share the same index of attached addresses and a
+	 * sub-connection always replies via the socket which received its first
+	 * packet.
 	 * 
 	 * @param eventManager  the system event management
 	 * @param configuration your own configuration, see {@link BaseConfiguration}
@@ -117,14 +204,39 @@ public final class NettyNetwork extends AbstractLogger implements INetwork {
 	 */
 	private void __bindUDP(IEventManager eventManager, BaseConfiguration configuration)
 			throws IOException, InterruptedException {
+		int channels = __getDatagramChannels(configuration);
+		if (channels < configuration.getInt(BaseConfiguration.DATAGRAM_CHANNELS)) {
+			info("DATAGRAM", buildgen("Only one channel is bound, the transport does not support SO_REUSEPORT"));
+		}
+
+		var index = new DatagramPlayerIndex(eventManager, __dispatcher);
 		var bootstrap = new Bootstrap();
-		bootstrap.group(__consumer).channel(NioDatagramChannel.class).option(ChannelOption.SO_BROADCAST, false)
-				.option(ChannelOption.SO_RCVBUF, 1024).option(ChannelOption.SO_SNDBUF, 1024)
-				.handler(new NettyDatagramInitializer(eventManager, __traficCounter, configuration));
+		bootstrap.group(__datagramConsumer).channel(__transport.getDatagramChannel())
+				.option(ChannelOption.ALLOCATOR, __allocator).option(ChannelOption.SO_BROADCAST, false)
+				.option(ChannelOption.SO_RCVBUF,
+						__getBufferSize(configuration, BaseConfiguration.DATAGRAM_RECEIVE_BUFFER))
+				.option(ChannelOption.SO_SNDBUF, __getBufferSize(configuration, BaseConfiguration.DATAGRAM_SEND_BUFFER))
+				.handler(new NettyDatagramInitializer(eventManager, __dispatcher, index, __traficCounter,
+						configuration));
+		__transport.applyDatagramOptions(bootstrap,
+				channels > 1 || configuration.getBoolean(BaseConfiguration.DATAGRAM_REUSE_PORT));
+
+		__udp = new ArrayList<Channel>(channels);
+		for (int i = 0; i < channels; i++) {
+			__udp.add(bootstrap.bind(configuration.getInt(BaseConfiguration.DATAGRAM_PORT)).sync().channel());
+		}
 
-		__udp = bootstrap.bind(configuration.getInt(BaseConfiguration.DATAGRAM_PORT)).sync().channel();
+		info("DATAGRAM", buildgen("Start at port: ", configuration.getInt(BaseConfiguration.DATAGRAM_PORT),
+				", channels: ", channels));
+		info("DATAGRAM", buildgen("Options: ", __udp.get(0).config().getOptions()));
 
-		info("DATAGRAM", buildgen("Start at port: ", configuration.getInt(BaseConfiguration.DATAGRAM_PORT)));
+		// detach the addresses which are idle for too long
+		long idleTimeout = TimeUnit.SECONDS.toMillis(configuration.getInt(BaseConfiguration.DATAGRAM_IDLE_TIMEOUT));
+		if (idleTimeout > 0) {
+			long period = Math.max(idleTimeout / 2, 1000);
+			__udp.get(0).eventLoop().scheduleAtFixedRate(() -> index.expire(idleTimeout), period, period,
+					TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
@@ -139,14 +251,26 @@ public final class NettyNetwork extends AbstractLogger implements INetwork {
 	private void __bindTCP(IEventManager eventManager, BaseConfiguration configuration)
 			throws IOException, InterruptedException {
 		var bootstrap = new ServerBootstrap();
-		bootstrap.group(__producer, __consumer).channel(NioServerSocketChannel.class)
-				.option(ChannelOption.SO_BACKLOG, 5).childOption(ChannelOption.SO_SNDBUF, 10240)
-				.childOption(ChannelOption.SO_RCVBUF, 10240).childOption(ChannelOption.SO_KEEPALIVE, true)
-				.childHandler(new NettySocketInitializer(eventManager, __traficCounter, configuration));
+		bootstrap.group(__socketProducer, __socketConsumer).channel(__transport.getServerSocketChannel())
+				.option(ChannelOption.ALLOCATOR, __allocator)
+				.option(ChannelOption.SO_BACKLOG, configuration.getInt(BaseConfiguration.SOCKET_BACKLOG))
+				.childOption(ChannelOption.ALLOCATOR, __allocator)
+				.childOption(ChannelOption.SO_SNDBUF, __getBufferSize(configuration, BaseConfiguration.SOCKET_SEND_BUFFER))
+				.childOption(ChannelOption.SO_RCVBUF,
+						__getBufferSize(configuration, BaseConfiguration.SOCKET_RECEIVE_BUFFER))
+				.childOption(ChannelOption.TCP_NODELAY, configuration.getBoolean(BaseConfiguration.SOCKET_TCP_NO_DELAY))
+				.childOption(ChannelOption.SO_KEEPALIVE, configuration.getBoolean(BaseConfiguration.SOCKET_KEEP_ALIVE))
+				.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+						new WriteBufferWaterMark(configuration.getInt(BaseConfiguration.SOCKET_LOW_WATER_MARK),
+								configuration.getInt(BaseConfiguration.SOCKET_HIGH_WATER_MARK)))
+				.childHandler(new NettySocketInitializer(eventManager, __dispatcher, __traficCounter, configuration));
+		__transport.applyServerOptions(bootstrap, configuration.getBoolean(BaseConfiguration.SOCKET_REUSE_PORT));
 
 		__tcp = bootstrap.bind(configuration.getInt(BaseConfiguration.SOCKET_PORT)).sync().channel();
 
 		info("SOCKET", buildgen("Start at port: ", configuration.getInt(BaseConfiguration.SOCKET_PORT)));
+		info("SOCKET", buildgen("Options: ", __tcp.config().getOptions(), ", connection options: ",
+				bootstrap.config().childOptions()));
 	}
 
 	/**
@@ -162,27 +286,84 @@ public final class NettyNetwork extends AbstractLogger implements INetwork {
 	private void __bindWS(IEventManager eventManager, BaseConfiguration configuration)
 			throws IOException, InterruptedException {
 		var bootstrap = new ServerBootstrap();
-		bootstrap.group(__producer, __consumer).channel(NioServerSocketChannel.class)
-				.option(ChannelOption.SO_BACKLOG, 5).childOption(ChannelOption.SO_SNDBUF, 1024)
-				.childOption(ChannelOption.SO_RCVBUF, 1024).childOption(ChannelOption.SO_KEEPALIVE, true)
-				.childHandler(new NettyWSInitializer(eventManager, __traficCounter, configuration));
+		bootstrap.group(__webSocketProducer, __webSocketConsumer).channel(__transport.getServerSocketChannel())
+				.option(ChannelOption.ALLOCATOR, __allocator)
+				.option(ChannelOption.SO_BACKLOG, configuration.getInt(BaseConfiguration.WEBSOCKET_BACKLOG))
+				.childOption(ChannelOption.ALLOCATOR, __allocator)
+				.childOption(ChannelOption.SO_SNDBUF,
+						__getBufferSize(configuration, BaseConfiguration.WEBSOCKET_SEND_BUFFER))
+				.childOption(ChannelOption.SO_RCVBUF,
+						__getBufferSize(configuration, BaseConfiguration.WEBSOCKET_RECEIVE_BUFFER))
+				.childOption(ChannelOption.TCP_NODELAY,
+						configuration.getBoolean(BaseConfiguration.WEBSOCKET_TCP_NO_DELAY))
+				.childOption(ChannelOption.SO_KEEPALIVE,
+						configuration.getBoolean(BaseConfiguration.WEBSOCKET_KEEP_ALIVE))
+				.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+						new WriteBufferWaterMark(configuration.getInt(BaseConfiguration.WEBSOCKET_LOW_WATER_MARK),
+								configuration.getInt(BaseConfiguration.WEBSOCKET_HIGH_WATER_MARK)))
+				.childHandler(new NettyWSInitializer(eventManager, __dispatcher, __traficCounter, configuration));
+		__transport.applyServerOptions(bootstrap, configuration.getBoolean(BaseConfiguration.WEBSOCKET_REUSE_PORT));
 
 		__ws = bootstrap.bind(configuration.getInt(BaseConfiguration.WEBSOCKET_PORT)).sync().channel();
 
 		info("WEB SOCKET", buildgen("Start at port: ", configuration.getInt(BaseConfiguration.WEBSOCKET_PORT)));
+		info("WEB SOCKET", buildgen("Options: ", __ws.config().getOptions(), ", connection options: ",
+				bootstrap.config().childOptions()));
+	}
+
+	/**
+	 * A buffer size value which is not positive leaves the option to the operating
+	 * system (a <b>null</b> option value is ignored by the bootstrap).
+	 * 
+	 * @param configuration your own configuration, see {@link BaseConfiguration}
+	 * @param key           the buffer size key
+	 * @return the buffer size in bytes or <b>null</b>
+	 */
+	private Integer __getBufferSize(BaseConfiguration configuration, String key) {
+		int size = configuration.getInt(key);
+		return size > 0 ? size : null;
 	}
 
 	@Override
 	public void shutdown() {
 		__close(__tcp);
-		__close(__udp);
+		if (__udp != null) {
+			__udp.forEach(channel -> __close(channel));
+		}
 		__close(__ws);
 
-		if (__producer != null) {
-			__producer.shutdownGracefully();
+		__shutdown(__socketProducer);
+		__shutdown(__socketConsumer);
+		__shutdown(__datagramConsumer);
+		__shutdown(__webSocketProducer);
+		__shutdown(__webSocketConsumer);
+
+		if (__dispatcher != null) {
+			__dispatcher.shutdown();
 		}
-		if (__consumer != null) {
-			__consumer.shutdownGracefully();
+	}
+
+	@Override
+	public MessageDispatcher getDispatcher() {
+		return __dispatcher;
+	}
+
+	/**
+	 * @return the number of bound datagram channels, it is only greater than 1
+	 *         when the transport supports SO_REUSEPORT
+	 */
+	public int getDatagramChannels() {
+		return __udp == null ? 0 : __udp.size();
+	}
+
+	/**
+	 * Gracefully shutdown an event loop group, see {@link EventLoopGroup}
+	 * 
+	 * @param group the group to shutdown
+	 */
+	private void __shutdown(EventLoopGroup group) {
+		if (group != null) {
+			group.shutdownGracefully();
 		}
 	}
 
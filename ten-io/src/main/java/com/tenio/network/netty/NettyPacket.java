@@ -0,0 +1,208 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty;
+
+import com.tenio.configuration.constant.Constants;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
+import com.tenio.message.codec.KeyDictionary;
+import com.tenio.message.schema.MessageRegistry;
+import com.tenio.network.IPacket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Use <a href="https://netty.io/">Netty</a> to create a packet instance @see
+ * {@link IPacket}. The message is encoded once in a reference-counted buffer,
+ * with the data-length header reserved in front of the content. A TCP
+ * connection sends the whole buffer, WebSocket and UDP connections only send
+ * the content. Each send gets its own retained view, so the buffer is freed
+ * when the last pending write completes. A {@link TObject} message is encoded
+ * by one codec, see {@link ICodec}, so the packet also keeps the message for
+ * the connections which use another codec.
+ * 
+ * @author kong
+ * 
+ */
+public final class NettyPacket implements IPacket {
+
+	/**
+	 * The maximum content length which can be described by the data-length header
+	 */
+	private static final int MAX_CONTENT_LENGTH = 0xFFFF;
+
+	private ByteBuf __buffer;
+	/**
+	 * The codec of a {@link TObject} message, <b>null</b> for a schema message
+	 */
+	private final ICodec __codec;
+	private final Object __message;
+
+	private NettyPacket(ByteBuf buffer, ICodec codec, Object message) {
+		__buffer = buffer;
+		__codec = codec;
+		__message = message;
+	}
+
+	/**
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param message   the message, a {@link TObject} or a schema message, see
+	 *                  {@link MessageRegistry}
+	 * @return a new packet, a {@link TObject} is written by the default codec
+	 */
+	public static NettyPacket newInstance(ByteBufAllocator allocator, Object message) {
+		return newInstance(allocator, CodecRegistry.getDefault(), message);
+	}
+
+	/**
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec     the codec of a {@link TObject} message, see {@link ICodec}
+	 * @param message   the message, a {@link TObject} or a schema message, see
+	 *                  {@link MessageRegistry}. It must not be changed while the
+	 *                  packet is used
+	 * @return a new packet
+	 */
+	public static NettyPacket newInstance(ByteBufAllocator allocator, ICodec codec, Object message) {
+		return new NettyPacket(encode(allocator, codec, message), message instanceof TObject ? codec : null,
+				message);
+	}
+
+	/**
+	 * Serialize a message straight into a buffer from the allocator. The
+	 * data-length header is reserved in front of the content and filled in place,
+	 * the header is skipped by the reader index when it is not needed.
+	 * 
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param message   the message, a {@link TObject} is written by the default
+	 *                  codec, see {@link CodecRegistry#getDefault()}, the other
+	 *                  messages by their schema codecs, see
+	 *                  {@link MessageRegistry}
+	 * @return the encoded buffer or <b>null</b> if the message can not be encoded
+	 */
+	public static ByteBuf encode(ByteBufAllocator allocator, Object message) {
+		return encode(allocator, CodecRegistry.getDefault(), message);
+	}
+
+	/**
+	 * @see #encode(ByteBufAllocator, Object)
+	 * 
+	 * @param allocator the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec     the codec of a {@link TObject} message, see {@link ICodec}
+	 * @param message   the message, a {@link TObject} or a schema message
+	 * @return the encoded buffer or <b>null</b> if the message can not be encoded
+	 */
+	public static ByteBuf encode(ByteBufAllocator allocator, ICodec codec, Object message) {
+		return encode(allocator, codec, null, message);
+	}
+
+	/**
+	 * @see #encode(ByteBufAllocator, Object)
+	 * 
+	 * @param allocator  the buffer's allocator, see {@link ByteBufAllocator}
+	 * @param codec      the codec of a {@link TObject} message, see
+	 *                   {@link ICodec}
+	 * @param dictionary the connection's key dictionary, see
+	 *                   {@link KeyDictionary}, or <b>null</b> to write the keys
+	 *                   in full
+	 * @param message    the message, a {@link TObject} or a schema message
+	 * @return the encoded buffer or <b>null</b> if the message can not be encoded
+	 */
+	public static ByteBuf encode(ByteBufAllocator allocator, ICodec codec, KeyDictionary dictionary,
+			Object message) {
+		var buffer = allocator.ioBuffer();
+		buffer.writerIndex(Constants.HEADER_BYTES);
+		boolean encoded;
+		if (message instanceof TObject && dictionary != null) {
+			encoded = codec.encode((TObject) message, buffer, dictionary);
+		} else if (message instanceof TObject) {
+			encoded = codec.encode((TObject) message, buffer);
+		} else {
+			encoded = MessageRegistry.encode(message, buffer);
+		}
+		if (!encoded) {
+			buffer.release();
+			return null;
+		}
+		buffer.setShort(0, buffer.readableBytes() - Constants.HEADER_BYTES);
+		return buffer;
+	}
+
+	/**
+	 * @param buffer the encoded buffer, see {@link #encode(ByteBufAllocator, Object)}
+	 * @return <b>true</b> if the content's length fits in the data-length header
+	 */
+	public static boolean hasValidLength(ByteBuf buffer) {
+		return buffer.readableBytes() - Constants.HEADER_BYTES <= MAX_CONTENT_LENGTH;
+	}
+
+	/**
+	 * @return a retained view of the data-length header and the content (TCP), or
+	 *         <b>null</b> if it can not be sent
+	 */
+	public ByteBuf retainFrame() {
+		if (__buffer == null || !hasValidLength(__buffer)) {
+			return null;
+		}
+		return __buffer.retainedDuplicate();
+	}
+
+	/**
+	 * @return a retained view of the content only (WebSocket, UDP), or
+	 *         <b>null</b> if it can not be sent
+	 */
+	public ByteBuf retainContent() {
+		if (__buffer == null) {
+			return null;
+		}
+		return __buffer.retainedSlice(__buffer.readerIndex() + Constants.HEADER_BYTES,
+				__buffer.readableBytes() - Constants.HEADER_BYTES);
+	}
+
+	/**
+	 * @param codec the codec of a connection, see {@link ICodec}
+	 * @return <b>true</b> if the encoded data can be sent to a connection with
+	 *         this codec
+	 */
+	public boolean isEncodedBy(ICodec codec) {
+		return __codec == null || __codec == codec;
+	}
+
+	/**
+	 * @return the message, a {@link TObject} or a schema message
+	 */
+	public Object getMessage() {
+		return __message;
+	}
+
+	@Override
+	public void release() {
+		if (__buffer != null) {
+			__buffer.release();
+			__buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty;
+
+import com.tenio.logger.AbstractLogger;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+/**
+ * Decides which <a href="https://netty.io/">Netty</a> transport is used by
+ * {@link NettyNetwork}. The native <b>epoll</b> transport is only available on
+ * Linux, when it can not be loaded the <b>nio</b> transport is used instead.
+ * 
+ * <ul>
+ * <li><i>nio:</i> Always use the Java NIO transport</li>
+ * <li><i>epoll:</i> Use the native epoll transport (edge-triggered,
+ * TCP_QUICKACK and optional SO_REUSEPORT), fall back to nio when it is not
+ * available</li>
+ * <li><i>auto:</i> Same as <i>epoll</i>, but do not complain when falling
+ * back</li>
+ * </ul>
+ * 
+ * @author kong
+ * 
+ */
+public final class NettyTransport extends AbstractLogger {
+
+	public static final String NIO = "nio";
+	public static final String EPOLL = "epoll";
+	public static final String AUTO = "auto";
+
+	private final boolean __epoll;
+
+	private NettyTransport(final String mode) {
+		if (EPOLL.equalsIgnoreCase(mode) || AUTO.equalsIgnoreCase(mode)) {
+			__epoll = Epoll.isAvailable();
+			if (!__epoll && EPOLL.equalsIgnoreCase(mode)) {
+				error(Epoll.unavailabilityCause(), "transport: ", mode, ", fall back to ", NIO);
+			}
+		} else {
+			__epoll = false;
+		}
+		info("TRANSPORT", __epoll ? EPOLL : NIO);
+	}
+
+	/**
+	 * @param mode the transport mode (<b>nio</b>, <b>epoll</b> or <b>auto</b>),
+	 *             any unknown value is treated as <b>nio</b>
+	 * @return a new transport instance
+	 */
+	public static NettyTransport newInstance(final String mode) {
+		return new NettyTransport(mode);
+	}
+
+	/**
+	 * @return <b>true</b> if the native epoll transport is in use
+	 */
+	public boolean isEpoll() {
+		return __epoll;
+	}
+
+	/**
+	 * @param threads the number of threads, <b>0</b> means the Netty default value
+	 *                (twice the number of available processors)
+	 * @return a new event loop group for the current transport
+	 */
+	public EventLoopGroup newEventLoopGroup(final int threads) {
+		return __epoll ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+	}
+
+	/**
+	 * @return the server socket channel class for the current transport
+	 */
+	public Class<? extends ServerChannel> getServerSocketChannel() {
+		return __epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+
+	/**
+	 * @return the datagram channel class for the current transport
+	 */
+	public Class<? extends DatagramChannel> getDatagramChannel() {
+		return __epoll ? EpollDatagramChannel.class : NioDatagramChannel.class;
+	}
+
+	/**
+	 * Apply the transport specific options for a server bootstrap (TCP and
+	 * WebSocket).
+	 * 
+	 * @param bootstrap the server bootstrap
+	 * @param reusePort set <b>true</b> to allow several processes binding the same
+	 *                  port (epoll only)
+	 */
+	public void applyServerOptions(final ServerBootstrap bootstrap, final boolean reusePort) {
+		if (!__epoll) {
+			return;
+		}
+		bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+				.option(EpollChannelOption.SO_REUSEPORT, reusePort)
+				.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+				.childOption(EpollChannelOption.TCP_QUICKACK, true);
+	}
+
+	/**
+	 * Apply the transport specific options for a datagram bootstrap.
+	 * 
+	 * @param bootstrap the datagram bootstrap
+	 * @param reusePort set <b>true</b> to allow several sockets binding the same
+	 *                  port (epoll only)
+	 */
+	public void applyDatagramOptions(final Bootstrap bootstrap, final boolean reusePort) {
+		if (!__epoll) {
+			return;
+		}
+		bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+				.option(EpollChannelOption.SO_REUSEPORT, reusePort);
+	}
+
+}
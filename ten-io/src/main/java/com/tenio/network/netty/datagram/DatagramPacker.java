@@ -0,0 +1,222 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty.datagram;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.AttributeKey;
+
+/**
+ * Packs the messages for one UDP client into as few packets as possible. The
+ * messages are appended to a packet until the next one does not fit in the
+ * configured MTU, then the packet is sent. The remaining messages are sent by
+ * {@link #flush()}, which is called at the end of a read, after the flush delay
+ * or at the end of a game tick. <br>
+ * Packet layout: [marker (1 byte)][kind (1 byte)] then for every message:
+ * [length (2 bytes)][message content or a framed packet, see
+ * {@link DatagramReliability}]. A packet which holds only one message is sent
+ * without the packing header, so it stays readable by any client. <br>
+ * An instance is not thread-safe, it must only be used on its channel's event
+ * loop.
+ * 
+ * @author kong
+ * 
+ */
+public final class DatagramPacker {
+
+	/**
+	 * Save the packers which are waiting for being flushed to their datagram
+	 * channel
+	 */
+	public static final AttributeKey<ArrayDeque<DatagramPacker>> KEY_PENDING = AttributeKey
+			.valueOf("datagram-packers");
+	/**
+	 * The kind of a packed packet, it follows the kinds used by
+	 * {@link DatagramReliability}
+	 */
+	public static final int KIND_PACKED = 3;
+	/**
+	 * The size of the packing header in bytes
+	 */
+	public static final int HEADER_BYTES = 2;
+	/**
+	 * The size of every message's length in bytes
+	 */
+	public static final int LENGTH_BYTES = 2;
+
+	private static final int MAX_LENGTH = 0xFFFF;
+
+	private final Channel __channel;
+	private final InetSocketAddress __remote;
+	private final int __mtu;
+	private ByteBuf __buffer;
+	private int __count;
+	private boolean __registered;
+	private boolean __closed;
+
+	/**
+	 * @param channel the datagram channel, see {@link Channel}
+	 * @param remote  the client's address
+	 * @param mtu     the maximum size of a packet in bytes
+	 */
+	public DatagramPacker(Channel channel, InetSocketAddress remote, int mtu) {
+		__channel = channel;
+		__remote = remote;
+		__mtu = mtu;
+	}
+
+	/**
+	 * @param content the datagram's content, see {@link ByteBuf}
+	 * @return <b>true</b> if the content packs several messages
+	 */
+	public static boolean isPacked(ByteBuf content) {
+		return content.readableBytes() >= HEADER_BYTES
+				&& content.getByte(content.readerIndex()) == DatagramReliability.MARKER
+				&& content.getByte(content.readerIndex() + 1) == KIND_PACKED;
+	}
+
+	/**
+	 * Read all the messages of a packed packet. A malformed packet is read until
+	 * its first invalid length.
+	 * 
+	 * @param content the datagram's content, see {@link ByteBuf}. It is not
+	 *                released by this method
+	 * @param handler receives every message's content in order. A content is only
+	 *                valid during the call
+	 */
+	public static void unpack(ByteBuf content, Consumer<ByteBuf> handler) {
+		int index = content.readerIndex() + HEADER_BYTES;
+		int end = content.writerIndex();
+		while (index + LENGTH_BYTES <= end) {
+			int length = content.getUnsignedShort(index);
+			index += LENGTH_BYTES;
+			if (length == 0 || index + length > end) {
+				return;
+			}
+			handler.accept(content.slice(index, length));
+			index += length;
+		}
+	}
+
+	/**
+	 * Flush all the packers which are waiting on a channel.
+	 * 
+	 * @param channel the datagram channel, see {@link Channel}
+	 */
+	public static void flushPending(Channel channel) {
+		var pending = channel.attr(KEY_PENDING).get();
+		if (pending == null) {
+			return;
+		}
+		DatagramPacker packer;
+		while ((packer = pending.poll()) != null) {
+			packer.__registered = false;
+			packer.flush();
+		}
+	}
+
+	/**
+	 * Append a message to the current packet.
+	 * 
+	 * @param payload the encoded message, see {@link ByteBuf}. It is released by
+	 *                this method
+	 */
+	public void add(ByteBuf payload) {
+		if (__closed) {
+			payload.release();
+			return;
+		}
+
+		int length = payload.readableBytes();
+		if (HEADER_BYTES + LENGTH_BYTES + length > __mtu || length > MAX_LENGTH) {
+			// it can not be packed, send it alone but keep the order
+			flush();
+			__write(payload);
+			return;
+		}
+
+		if (__buffer != null && __buffer.readableBytes() + LENGTH_BYTES + length > __mtu) {
+			flush();
+		}
+		if (__buffer == null) {
+			__buffer = __channel.alloc().ioBuffer(__mtu);
+			__buffer.writeByte(DatagramReliability.MARKER).writeByte(KIND_PACKED);
+			__count = 0;
+		}
+		__buffer.writeShort(length).writeBytes(payload);
+		payload.release();
+		__count++;
+
+		if (!__registered) {
+			var pending = __channel.attr(KEY_PENDING).get();
+			if (pending != null) {
+				pending.add(this);
+				__registered = true;
+			}
+		}
+	}
+
+	/**
+	 * Send the current packet.
+	 */
+	public void flush() {
+		if (__buffer == null) {
+			return;
+		}
+		var buffer = __buffer;
+		__buffer = null;
+		if (__count == 1) {
+			buffer.skipBytes(HEADER_BYTES + LENGTH_BYTES);
+		}
+		__write(buffer);
+	}
+
+	/**
+	 * @return <b>true</b> if there are messages waiting for being sent
+	 */
+	public boolean hasPending() {
+		return __buffer != null;
+	}
+
+	/**
+	 * Release the current packet, the instance can not be used anymore.
+	 */
+	public void close() {
+		__closed = true;
+		if (__buffer != null) {
+			__buffer.release();
+			__buffer = null;
+		}
+	}
+
+	private void __write(ByteBuf buffer) {
+		__channel.writeAndFlush(new DatagramPacket(buffer, __remote));
+	}
+
+}
@@ -0,0 +1,353 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty.datagram;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.tenio.configuration.constant.TEvent;
+import com.tenio.entity.AbstractPlayer;
+import com.tenio.event.IEventManager;
+import com.tenio.network.Connection;
+import com.tenio.network.MessageDispatcher;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AttributeKey;
+
+/**
+ * All the UDP clients share the same channel, so the sender's address is the
+ * only way to find the corresponding player of one packet. This index maps
+ * every attached address to its player and sub-connection. The lookup is
+ * lock-free and does not allocate, it is used for every inbound packet. <br>
+ * Every attached address also gets a session id, which the client can put in a
+ * binary header in front of its packets: [marker (1 byte)][kind (1
+ * byte)][session id (4 bytes)][sequence (4 bytes)]. The session id is checked
+ * against its slot in an array and the sequence against a sliding window of
+ * the last 64 sequences, so the invalid, replayed and stale packets are dropped
+ * before any decoding. A session id holds its slot's index in the low 16 bits
+ * and the slot's generation in the high 16 bits, so an old id is not valid
+ * anymore when its slot is reused. <br>
+ * An entry is removed when its sub-connection is cleaned (see
+ * {@link Connection#clean()}) or when it is idle for too long (see
+ * {@link #expire(long)}). When the server detaches an address by itself, its
+ * player loses the sub-connection on the dispatcher's stripe of the player (see
+ * {@link MessageDispatcher}), after the player's queued messages, and
+ * {@link TEvent#DETACH_UDP} is emitted.
+ * 
+ * @author kong
+ * 
+ */
+public final class DatagramPlayerIndex {
+
+	/**
+	 * Save the index to its datagram channels
+	 */
+	public static final AttributeKey<DatagramPlayerIndex> KEY_INDEX = AttributeKey.valueOf("datagram-index");
+	/**
+	 * The kind of a packet with a session header, it follows the kinds used by
+	 * {@link DatagramReliability} and {@link DatagramPacker}
+	 */
+	public static final int KIND_SESSION = 4;
+	/**
+	 * The size of the session header in bytes
+	 */
+	public static final int SESSION_HEADER_BYTES = 10;
+	/**
+	 * The session id which is never issued
+	 */
+	public static final int NO_SESSION = 0;
+
+	private static final int SLOT_BITS = 16;
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+	private static final int MAX_SLOTS = 1 << SLOT_BITS;
+	private static final int INITIAL_SLOTS = 1024;
+	private static final int REPLAY_WINDOW = 64;
+
+	private final IEventManager __eventManager;
+	/**
+	 * It can be <b>null</b>, then the players are detached on the calling thread
+	 */
+	private final MessageDispatcher __dispatcher;
+	private final ConcurrentHashMap<InetSocketAddress, Entry> __entries = new ConcurrentHashMap<>();
+	/**
+	 * The entries indexed by their sessions' slots, it is replaced by a bigger one
+	 * when all its slots are used
+	 */
+	private volatile AtomicReferenceArray<Entry> __sessions = new AtomicReferenceArray<Entry>(INITIAL_SLOTS);
+	/**
+	 * The following fields are guarded by the index itself
+	 */
+	private int[] __generations = new int[INITIAL_SLOTS];
+	private final ArrayDeque<Integer> __freeSlots = new ArrayDeque<Integer>();
+	private int __nextSlot;
+
+	/**
+	 * @param eventManager the system event management
+	 * @param dispatcher   the inbound messages' dispatcher, see
+	 *                     {@link MessageDispatcher}, it can be <b>null</b>
+	 */
+	public DatagramPlayerIndex(IEventManager eventManager, MessageDispatcher dispatcher) {
+		__eventManager = eventManager;
+		__dispatcher = dispatcher;
+	}
+
+	/**
+	 * @param content the datagram's content, see {@link ByteBuf}
+	 * @return <b>true</b> if the content starts with a session header
+	 */
+	public static boolean hasSession(ByteBuf content) {
+		return content.readableBytes() >= 2 && content.getByte(content.readerIndex()) == DatagramReliability.MARKER
+				&& content.getByte(content.readerIndex() + 1) == KIND_SESSION;
+	}
+
+	/**
+	 * Retrieve the player of a remote address and mark it as active.
+	 * 
+	 * @param remote the sender's address
+	 * @return the player, see {@link AbstractPlayer}, or <b>null</b> if the
+	 *         address is not attached
+	 */
+	public AbstractPlayer get(InetSocketAddress remote) {
+		var entry = __entries.get(remote);
+		if (entry == null) {
+			return null;
+		}
+		entry.__lastSeen = System.currentTimeMillis();
+		return entry.__player;
+	}
+
+	/**
+	 * Validate a packet's session header and mark its address as active. The
+	 * packets of one client must be checked on the same thread (one client always
+	 * reaches the same datagram channel).
+	 * 
+	 * @param session  the session id
+	 * @param sequence the packet's sequence
+	 * @param remote   the sender's address
+	 * @return the player, see {@link AbstractPlayer}, or <b>null</b> if the
+	 *         session is not valid for this address, or the packet is a duplicate
+	 *         or too old
+	 */
+	public AbstractPlayer get(int session, int sequence, InetSocketAddress remote) {
+		var sessions = __sessions;
+		int slot = session & SLOT_MASK;
+		if (session == NO_SESSION || slot >= sessions.length()) {
+			return null;
+		}
+		var entry = sessions.get(slot);
+		if (entry == null || entry.__session != session || !entry.__remote.equals(remote)
+				|| !entry.__acceptSequence(sequence)) {
+			return null;
+		}
+		entry.__lastSeen = System.currentTimeMillis();
+		return entry.__player;
+	}
+
+	/**
+	 * @param remote the sender's address
+	 * @return the sub-connection, see {@link Connection}, or <b>null</b> if the
+	 *         address is not attached
+	 */
+	public Connection getConnection(InetSocketAddress remote) {
+		var entry = __entries.get(remote);
+		return entry == null ? null : entry.__connection;
+	}
+
+	/**
+	 * Attach a remote address to a player.
+	 * 
+	 * @param remote     the sender's address
+	 * @param player     the player, see {@link AbstractPlayer}
+	 * @param connection the player's sub-connection, see {@link Connection}
+	 * @return the session id of this address, or {@link #NO_SESSION} when all the
+	 *         sessions are in use (the address is still attached)
+	 */
+	public int add(InetSocketAddress remote, AbstractPlayer player, Connection connection) {
+		var entry = new Entry(remote, player, connection);
+		__openSession(entry);
+		var previous = __entries.put(remote, entry);
+		if (previous != null) {
+			__closeSession(previous);
+		}
+		return entry.__session;
+	}
+
+	/**
+	 * Detach a remote address, only if it still belongs to the connection.
+	 * 
+	 * @param remote     the sender's address
+	 * @param connection the sub-connection, see {@link Connection}
+	 */
+	public void remove(InetSocketAddress remote, Connection connection) {
+		var entry = __entries.get(remote);
+		if (entry != null && entry.__connection == connection && __entries.remove(remote, entry)) {
+			__closeSession(entry);
+		}
+	}
+
+	/**
+	 * Detach a remote address, only if it still belongs to the connection. Its
+	 * player loses the sub-connection.
+	 * 
+	 * @param remote     the sender's address
+	 * @param connection the sub-connection, see {@link Connection}
+	 */
+	public void detach(InetSocketAddress remote, Connection connection) {
+		var entry = __entries.get(remote);
+		if (entry != null && entry.__connection == connection && __entries.remove(remote, entry)) {
+			__detach(entry);
+		}
+	}
+
+	/**
+	 * Detach all the addresses which have not sent any packet for a while. Their
+	 * players lose their sub-connections.
+	 * 
+	 * @param idleTime the maximum idle time in milliseconds
+	 */
+	public void expire(long idleTime) {
+		long deadline = System.currentTimeMillis() - idleTime;
+		__entries.forEach((remote, entry) -> {
+			if (entry.__lastSeen < deadline && __entries.remove(remote, entry)) {
+				__detach(entry);
+			}
+		});
+	}
+
+	/**
+	 * @return the number of attached addresses
+	 */
+	public int size() {
+		return __entries.size();
+	}
+
+	private void __detach(Entry entry) {
+		__closeSession(entry);
+		// use the same key as the player's messages, so they are handled first
+		var player = entry.__player;
+		var mainConnection = player.getConnection();
+		Runnable task = () -> {
+			// the player can be attached again in the meantime
+			if (player.removeSubConnection(entry.__connection)) {
+				__eventManager.getExternal().emit(TEvent.DETACH_UDP, player, entry.__connection);
+			}
+		};
+		if (__dispatcher == null
+				|| !__dispatcher.dispatchAlways(mainConnection != null ? mainConnection : player, task)) {
+			task.run();
+		}
+	}
+
+	private synchronized void __openSession(Entry entry) {
+		int slot;
+		if (!__freeSlots.isEmpty()) {
+			slot = __freeSlots.poll();
+		} else if (__nextSlot < MAX_SLOTS) {
+			slot = __nextSlot++;
+		} else {
+			return;
+		}
+
+		if (slot >= __generations.length) {
+			int length = Math.min(__generations.length * 2, MAX_SLOTS);
+			var sessions = new AtomicReferenceArray<Entry>(length);
+			for (int i = 0; i < __generations.length; i++) {
+				sessions.set(i, __sessions.get(i));
+			}
+			__generations = Arrays.copyOf(__generations, length);
+			__sessions = sessions;
+		}
+
+		// the generation is never 0, so the session id is never NO_SESSION
+		int generation = (__generations[slot] % SLOT_MASK) + 1;
+		__generations[slot] = generation;
+		entry.__session = (generation << SLOT_BITS) | slot;
+		__sessions.set(slot, entry);
+	}
+
+	private synchronized void __closeSession(Entry entry) {
+		if (entry.__session == NO_SESSION) {
+			return;
+		}
+		int slot = entry.__session & SLOT_MASK;
+		if (__sessions.get(slot) == entry) {
+			__sessions.set(slot, null);
+			__freeSlots.add(slot);
+		}
+	}
+
+	private static final class Entry {
+
+		private final InetSocketAddress __remote;
+		private final AbstractPlayer __player;
+		private final Connection __connection;
+		private volatile long __lastSeen;
+		private int __session;
+		/**
+		 * The sliding window of the accepted sequences, bit 0 is the highest one
+		 */
+		private boolean __hasSequence;
+		private int __highestSequence;
+		private long __sequenceBits;
+
+		private Entry(InetSocketAddress remote, AbstractPlayer player, Connection connection) {
+			__remote = remote;
+			__player = player;
+			__connection = connection;
+			__lastSeen = System.currentTimeMillis();
+			__session = NO_SESSION;
+		}
+
+		private boolean __acceptSequence(int sequence) {
+			if (!__hasSequence) {
+				__hasSequence = true;
+				__highestSequence = sequence;
+				__sequenceBits = 1;
+				return true;
+			}
+
+			// the difference is still right when the sequence wraps around
+			int distance = sequence - __highestSequence;
+			if (distance > 0) {
+				__sequenceBits = distance >= REPLAY_WINDOW ? 1 : (__sequenceBits << distance) | 1;
+				__highestSequence = sequence;
+				return true;
+			}
+			if (distance <= -REPLAY_WINDOW) {
+				return false;
+			}
+			long bit = 1L << -distance;
+			if ((__sequenceBits & bit) != 0) {
+				return false;
+			}
+			__sequenceBits |= bit;
+			return true;
+		}
+
+	}
+
+}
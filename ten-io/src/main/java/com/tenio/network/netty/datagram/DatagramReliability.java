@@ -0,0 +1,526 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network.netty.datagram;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.tenio.configuration.constant.Constants;
+import com.tenio.network.Connection.Delivery;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * A lightweight reliability layer for one UDP sub-connection. Its messages are
+ * wrapped in a small header which carries a 16 bits sequence number and the
+ * acknowledgements of the other side:
+ * 
+ * <ul>
+ * <li><i>Reliable ordered:</i> Every message is sent again until it is
+ * acknowledged, the receiver delivers them in the sending order (one lost
+ * message only delays the following ones of the same sub-connection)</li>
+ * <li><i>Unreliable sequenced:</i> A message is sent once, the receiver drops
+ * the messages which are older than the last delivered one</li>
+ * </ul>
+ * 
+ * The acknowledgement is cumulative (all the messages until this sequence are
+ * received) with a bit field for the next 32 messages, so only the missing
+ * messages are sent again. The retransmission timeout is calculated from the
+ * measured round-trip time (RFC 6298), and is doubled for every new attempt of
+ * the same message. The pending acknowledgements are piggybacked on the
+ * outgoing messages, or sent alone after one tick. <br>
+ * Packet layout: [marker (1 byte)][kind and flags (1 byte)][sequence (2
+ * bytes)][ack (2 bytes)][ack bits (4 bytes)][message content]. The marker is
+ * never used by MessagePack and the other built-in codecs, so the raw
+ * (unreliable) messages still work alongside. <br>
+ * An instance is not thread-safe, it must only be used on its channel's event
+ * loop.
+ * 
+ * @author kong
+ * 
+ */
+public final class DatagramReliability {
+
+	/**
+	 * The first byte of every framed packet (0xC1 is never used by MessagePack)
+	 */
+	public static final byte MARKER = (byte) 0xC1;
+	/**
+	 * The size of the header in bytes
+	 */
+	public static final int HEADER_BYTES = 10;
+
+	private static final int KIND_ACK = 0;
+	private static final int KIND_RELIABLE = 1;
+	private static final int KIND_SEQUENCED = 2;
+	// the next kind is used by DatagramPacker
+	private static final int KIND_MASK = 0x0F;
+	private static final int FLAG_ACK = 0x10;
+	private static final int SEQUENCE_MASK = 0xFFFF;
+	private static final int HALF_SEQUENCE = 0x8000;
+	private static final int ACK_BITS = 32;
+	/**
+	 * It must be a divisor of 65536, so the slots are still valid when the
+	 * sequence number wraps around
+	 */
+	private static final int WINDOW = Constants.RELIABLE_WINDOW_SIZE;
+
+	private final Channel __channel;
+	private final InetSocketAddress __remote;
+	private final Runnable __onBroken;
+	private final Runnable __timerTask;
+
+	/**
+	 * The reliable messages which are sent but not acknowledged yet, indexed by
+	 * their sequence numbers
+	 */
+	private final Pending[] __sent;
+	/**
+	 * The reliable messages which are waiting for free slots in the window
+	 */
+	private final ArrayDeque<ByteBuf> __waiting;
+	private int __nextSequence;
+	private int __oldestSequence;
+	private int __inFlight;
+	private int __nextSequenced;
+
+	/**
+	 * The reliable messages which are received out of order, indexed by their
+	 * sequence numbers
+	 */
+	private final ByteBuf[] __received;
+	private int __expectedSequence;
+	private boolean __hasReceived;
+	private boolean __ackPending;
+	private int __lastSequenced;
+	private boolean __hasSequenced;
+
+	private double __smoothedRtt;
+	private double __rttVariation;
+	private boolean __hasRtt;
+	private long __rto;
+
+	private long __resentCount;
+	private boolean __timerScheduled;
+	private boolean __closed;
+
+	/**
+	 * @param channel  the datagram channel, see {@link Channel}
+	 * @param remote   the client's address
+	 * @param onBroken called when a reliable message could not be delivered after
+	 *                 all the attempts, the instance is closed before
+	 */
+	public DatagramReliability(Channel channel, InetSocketAddress remote, Runnable onBroken) {
+		__channel = channel;
+		__remote = remote;
+		__onBroken = onBroken;
+		__timerTask = this::__onTimer;
+		__sent = new Pending[WINDOW];
+		__waiting = new ArrayDeque<ByteBuf>();
+		__received = new ByteBuf[WINDOW];
+		__rto = Constants.RELIABLE_INITIAL_RTO;
+	}
+
+	/**
+	 * @param content the datagram's content, see {@link ByteBuf}
+	 * @return <b>true</b> if the content is wrapped by this layer
+	 */
+	public static boolean isFramed(ByteBuf content) {
+		return content.isReadable() && content.getByte(content.readerIndex()) == MARKER;
+	}
+
+	/**
+	 * Send a message.
+	 * 
+	 * @param payload  the encoded message, see {@link ByteBuf}. It is released by
+	 *                 this method
+	 * @param delivery the delivery guarantee, see {@link Delivery}
+	 */
+	public void send(ByteBuf payload, Delivery delivery) {
+		if (__closed) {
+			payload.release();
+			return;
+		}
+
+		switch (delivery) {
+		case RELIABLE_ORDERED:
+			if (!__waiting.isEmpty() || !__hasFreeSlot()) {
+				__waiting.add(payload);
+			} else {
+				__sendReliable(payload);
+			}
+			break;
+
+		case UNRELIABLE_SEQUENCED:
+			var frame = __newFrame(KIND_SEQUENCED, __nextSequenced, payload);
+			__nextSequenced = (__nextSequenced + 1) & SEQUENCE_MASK;
+			__write(frame);
+			break;
+
+		default:
+			__channel.writeAndFlush(new DatagramPacket(payload, __remote));
+			break;
+		}
+	}
+
+	/**
+	 * Handle a framed packet from the client.
+	 * 
+	 * @param content the datagram's content, see {@link ByteBuf}. It is not
+	 *                released by this method
+	 * @param handler receives the messages' contents which can be delivered, in
+	 *                order. A content is only valid during the call
+	 */
+	public void receive(ByteBuf content, Consumer<ByteBuf> handler) {
+		if (__closed || content.readableBytes() < HEADER_BYTES) {
+			return;
+		}
+
+		int start = content.readerIndex();
+		int kindAndFlags = content.getUnsignedByte(start + 1);
+		int sequence = content.getUnsignedShort(start + 2);
+		if ((kindAndFlags & FLAG_ACK) != 0) {
+			__onAck(content.getUnsignedShort(start + 4), content.getInt(start + 6));
+		}
+
+		var payload = content.slice(start + HEADER_BYTES, content.readableBytes() - HEADER_BYTES);
+		switch (kindAndFlags & KIND_MASK) {
+		case KIND_RELIABLE:
+			__onReliable(sequence, payload, handler);
+			break;
+
+		case KIND_SEQUENCED:
+			// the older messages are useless
+			if (!__hasSequenced || __isNewer(sequence, __lastSequenced)) {
+				__hasSequenced = true;
+				__lastSequenced = sequence;
+				handler.accept(payload);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Release all the pending messages, the instance can not be used anymore.
+	 */
+	public void close() {
+		if (__closed) {
+			return;
+		}
+		__closed = true;
+		for (int i = 0; i < WINDOW; i++) {
+			if (__sent[i] != null) {
+				__sent[i].__frame.release();
+				__sent[i] = null;
+			}
+			if (__received[i] != null) {
+				__received[i].release();
+				__received[i] = null;
+			}
+		}
+		__waiting.forEach(payload -> payload.release());
+		__waiting.clear();
+		__inFlight = 0;
+	}
+
+	/**
+	 * @return the current retransmission timeout in milliseconds
+	 */
+	public long getRto() {
+		return __rto;
+	}
+
+	/**
+	 * @return the smoothed round-trip time in milliseconds, <b>0</b> when it is
+	 *         not measured yet
+	 */
+	public double getRtt() {
+		return __smoothedRtt;
+	}
+
+	/**
+	 * @return the number of reliable messages which are sent but not acknowledged
+	 *         yet
+	 */
+	public int getInFlight() {
+		return __inFlight;
+	}
+
+	/**
+	 * @return the number of reliable messages which are waiting for free slots
+	 */
+	public int getWaiting() {
+		return __waiting.size();
+	}
+
+	/**
+	 * @return the total number of times that the messages are sent again
+	 */
+	public long getResentCount() {
+		return __resentCount;
+	}
+
+	public boolean isClosed() {
+		return __closed;
+	}
+
+	private boolean __hasFreeSlot() {
+		return ((__nextSequence - __oldestSequence) & SEQUENCE_MASK) < WINDOW;
+	}
+
+	private void __sendReliable(ByteBuf payload) {
+		int sequence = __nextSequence;
+		__nextSequence = (sequence + 1) & SEQUENCE_MASK;
+
+		var pending = new Pending(sequence, __newFrame(KIND_RELIABLE, sequence, payload));
+		__sent[sequence % WINDOW] = pending;
+		__inFlight++;
+
+		__transmit(pending, System.nanoTime());
+		__scheduleTimer();
+	}
+
+	private void __transmit(Pending pending, long now) {
+		pending.__sentTime = now;
+		__stampAck(pending.__frame);
+		__channel.writeAndFlush(new DatagramPacket(pending.__frame.retainedDuplicate(), __remote));
+	}
+
+	private void __write(ByteBuf frame) {
+		__stampAck(frame);
+		__channel.writeAndFlush(new DatagramPacket(frame, __remote));
+	}
+
+	private ByteBuf __newFrame(int kind, int sequence, ByteBuf payload) {
+		var frame = __channel.alloc().ioBuffer(HEADER_BYTES + payload.readableBytes());
+		frame.writeByte(MARKER).writeByte(kind).writeShort(sequence).writeShort(0).writeInt(0);
+		frame.writeBytes(payload);
+		payload.release();
+		return frame;
+	}
+
+	/**
+	 * Write the latest acknowledgement into a frame's header, the frame keeps its
+	 * reader index at the beginning.
+	 */
+	private void __stampAck(ByteBuf frame) {
+		int kind = frame.getByte(1) & KIND_MASK;
+		if (!__hasReceived) {
+			frame.setByte(1, kind);
+			return;
+		}
+
+		int ackBits = 0;
+		for (int i = 0; i < ACK_BITS; i++) {
+			if (__received[((__expectedSequence + 1 + i) & SEQUENCE_MASK) % WINDOW] != null) {
+				ackBits |= 1 << i;
+			}
+		}
+		frame.setByte(1, kind | FLAG_ACK);
+		frame.setShort(4, (__expectedSequence - 1) & SEQUENCE_MASK);
+		frame.setInt(6, ackBits);
+		__ackPending = false;
+	}
+
+	private void __onReliable(int sequence, ByteBuf payload, Consumer<ByteBuf> handler) {
+		int distance = (sequence - __expectedSequence) & SEQUENCE_MASK;
+		if (distance >= HALF_SEQUENCE) {
+			// it is already delivered, but the acknowledgement was lost
+			if (__hasReceived) {
+				__requestAck();
+			}
+			return;
+		}
+		if (distance >= WINDOW) {
+			// the sender can not send so far ahead, ignore it
+			return;
+		}
+
+		__hasReceived = true;
+		__requestAck();
+
+		if (distance > 0) {
+			int slot = sequence % WINDOW;
+			if (__received[slot] == null) {
+				__received[slot] = payload.copy();
+			}
+			return;
+		}
+
+		handler.accept(payload);
+		__expectedSequence = (__expectedSequence + 1) & SEQUENCE_MASK;
+
+		// the following messages may be waiting for this one
+		ByteBuf next;
+		while ((next = __received[__expectedSequence % WINDOW]) != null) {
+			__received[__expectedSequence % WINDOW] = null;
+			__expectedSequence = (__expectedSequence + 1) & SEQUENCE_MASK;
+			try {
+				handler.accept(next);
+			} finally {
+				next.release();
+			}
+		}
+	}
+
+	private void __onAck(int ack, int ackBits) {
+		if (__inFlight == 0) {
+			return;
+		}
+
+		int range = (__nextSequence - __oldestSequence) & SEQUENCE_MASK;
+		int acknowledged = (ack + 1 - __oldestSequence) & SEQUENCE_MASK;
+		if (acknowledged > range) {
+			// an old or invalid acknowledgement
+			return;
+		}
+
+		long now = System.nanoTime();
+		for (int i = 0; i < acknowledged; i++) {
+			__acknowledge((__oldestSequence + i) & SEQUENCE_MASK, now);
+		}
+		for (int i = 0; i < ACK_BITS; i++) {
+			if ((ackBits & (1 << i)) != 0) {
+				int sequence = (ack + 2 + i) & SEQUENCE_MASK;
+				if (((sequence - __oldestSequence) & SEQUENCE_MASK) < range) {
+					__acknowledge(sequence, now);
+				}
+			}
+		}
+
+		while (__oldestSequence != __nextSequence && __sent[__oldestSequence % WINDOW] == null) {
+			__oldestSequence = (__oldestSequence + 1) & SEQUENCE_MASK;
+		}
+		while (!__waiting.isEmpty() && __hasFreeSlot()) {
+			__sendReliable(__waiting.poll());
+		}
+	}
+
+	private void __acknowledge(int sequence, long now) {
+		int slot = sequence % WINDOW;
+		var pending = __sent[slot];
+		if (pending == null || pending.__sequence != sequence) {
+			return;
+		}
+		// only the messages which are sent once give the right round-trip time
+		if (pending.__resends == 0) {
+			__updateRtt(TimeUnit.NANOSECONDS.toMicros(now - pending.__sentTime) / 1000.0);
+		}
+		pending.__frame.release();
+		__sent[slot] = null;
+		__inFlight--;
+	}
+
+	private void __updateRtt(double sample) {
+		if (!__hasRtt) {
+			__hasRtt = true;
+			__smoothedRtt = sample;
+			__rttVariation = sample / 2;
+		} else {
+			__rttVariation = 0.75 * __rttVariation + 0.25 * Math.abs(__smoothedRtt - sample);
+			__smoothedRtt = 0.875 * __smoothedRtt + 0.125 * sample;
+		}
+		long rto = (long) (__smoothedRtt + Math.max(Constants.RELIABLE_TICK, 4 * __rttVariation));
+		__rto = Math.min(Math.max(rto, Constants.RELIABLE_MIN_RTO), Constants.RELIABLE_MAX_RTO);
+	}
+
+	private void __requestAck() {
+		__ackPending = true;
+		__scheduleTimer();
+	}
+
+	private void __scheduleTimer() {
+		if (__timerScheduled || __closed) {
+			return;
+		}
+		__timerScheduled = true;
+		__channel.eventLoop().schedule(__timerTask, Constants.RELIABLE_TICK, TimeUnit.MILLISECONDS);
+	}
+
+	private void __onTimer() {
+		__timerScheduled = false;
+		if (__closed) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		int range = (__nextSequence - __oldestSequence) & SEQUENCE_MASK;
+		for (int i = 0; i < range; i++) {
+			var pending = __sent[((__oldestSequence + i) & SEQUENCE_MASK) % WINDOW];
+			if (pending == null) {
+				continue;
+			}
+			long timeout = Math.min(__rto << pending.__resends, Constants.RELIABLE_MAX_RTO);
+			if (now - pending.__sentTime < TimeUnit.MILLISECONDS.toNanos(timeout)) {
+				continue;
+			}
+			if (pending.__resends >= Constants.RELIABLE_MAX_RESENDS) {
+				close();
+				__onBroken.run();
+				return;
+			}
+			pending.__resends++;
+			__resentCount++;
+			__transmit(pending, now);
+		}
+
+		if (__ackPending) {
+			__write(__newFrame(KIND_ACK, 0, Unpooled.EMPTY_BUFFER));
+		}
+		if (__inFlight > 0) {
+			__scheduleTimer();
+		}
+	}
+
+	/**
+	 * @param sequence the sequence number
+	 * @param last     the last sequence number
+	 * @return <b>true</b> if the sequence number is newer than the last one (with
+	 *         wrap around)
+	 */
+	private static boolean __isNewer(int sequence, int last) {
+		int distance = (sequence - last) & SEQUENCE_MASK;
+		return distance != 0 && distance < HALF_SEQUENCE;
+	}
+
+	private static final class Pending {
+
+		private final int __sequence;
+		private final ByteBuf __frame;
+		private long __sentTime;
+		private int __resends;
+
+		private Pending(int sequence, ByteBuf frame) {
+			__sequence = sequence;
+			__frame = frame;
+		}
+
+	}
+
+}
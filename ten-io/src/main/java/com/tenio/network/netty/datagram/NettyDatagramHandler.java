@@ -23,27 +23,41 @@ THE SOFTWARE.
 */
 package com.tenio.network.netty.datagram;
 
+import java.net.InetSocketAddress;
+
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.ErrorMsg;
 import com.tenio.configuration.constant.LEvent;
 import com.tenio.configuration.constant.TEvent;
 import com.tenio.entity.AbstractPlayer;
+import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
-import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
 import com.tenio.network.Connection;
+import com.tenio.network.MessageDispatcher;
+import com.tenio.network.TrafficMetrics;
 import com.tenio.network.netty.BaseNettyHandler;
+import com.tenio.network.netty.FloodGuard;
 import com.tenio.network.netty.NettyConnection;
 
-import io.netty.channel.Channel;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * In this server, a UDP connection is treated as a sub-connection. That means
  * you need to create one main connection between one client and the server
  * first (a TCP connection). When it's finished, that client can send a request
- * for making a link.
+ * for making a link. Once it is attached, the client can also wrap its messages
+ * for the reliability layer, see {@link DatagramReliability}, or pack several
+ * messages in one packet, see {@link DatagramPacker}. The session id given by
+ * {@link TEvent#ATTACH_UDP_SUCCESS} lets the client put a small header in front
+ * of its packets, so they are validated before decoding, see
+ * {@link DatagramPlayerIndex}. An attached client can also choose the codec of
+ * its messages by a handshake, see {@link CodecRegistry}, the attach requests
+ * always use the configured codec.
  * 
  * @see BaseNettyHandler
  * 
@@ -52,34 +66,116 @@ import io.netty.util.AttributeKey;
  */
 public final class NettyDatagramHandler extends BaseNettyHandler {
 
-	public NettyDatagramHandler(IEventManager eventManager, BaseConfiguration configuration) {
-		super(eventManager);
+	/**
+	 * The index of attached remote addresses, see {@link DatagramPlayerIndex}
+	 */
+	private final DatagramPlayerIndex __index;
+	/**
+	 * When it is set, the attached clients must put the session header in front
+	 * of all their packets
+	 */
+	private final boolean __sessionRequired;
+	/**
+	 * The configured codec, see {@link ICodec}
+	 */
+	private final ICodec __codec;
+
+	public NettyDatagramHandler(IEventManager eventManager, MessageDispatcher dispatcher, DatagramPlayerIndex index,
+			BaseConfiguration configuration) {
+		super(eventManager, dispatcher, configuration);
+		__index = index;
+		__sessionRequired = configuration.getBoolean(BaseConfiguration.DATAGRAM_SESSION_REQUIRED);
+		__codec = _getCodec(configuration, BaseConfiguration.DATAGRAM_CODEC);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		// send the packed messages written while reading
+		DatagramPacker.flushPending(ctx.channel());
+		super.channelReadComplete(ctx);
 	}
 
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// get the message's content
-		byte[] content;
 		DatagramPacket datagram;
 		if (msg instanceof DatagramPacket) {
-			// get the packet and sender data, convert it to a bytes' array
 			datagram = (DatagramPacket) msg;
-			var buffer = datagram.content();
-			int readableBytes = buffer.readableBytes();
-			content = new byte[readableBytes];
-			buffer.readBytes(content);
 		} else {
+			ReferenceCountUtil.release(msg);
 			return;
 		}
 
-		// create a game object
-		var message = MsgPackConverter.unserialize(content);
+		var sender = datagram.sender();
+		AbstractPlayer player;
+		Connection connection = null;
+		TrafficMetrics metrics;
+
+		// create a game object directly from the packet's content
+		Object message;
+		try {
+			var content = datagram.content();
+			if (DatagramPlayerIndex.hasSession(content)) {
+				// the invalid, replayed or too old packets are dropped before decoding
+				if (content.readableBytes() < DatagramPlayerIndex.SESSION_HEADER_BYTES) {
+					TrafficMetrics.of(Connection.Type.DATAGRAM).addDropped();
+					return;
+				}
+				int start = content.readerIndex();
+				player = __index.get(content.getInt(start + 2), content.getInt(start + 6), sender);
+				if (player == null) {
+					TrafficMetrics.of(Connection.Type.DATAGRAM).addDropped();
+					return;
+				}
+				content.skipBytes(DatagramPlayerIndex.SESSION_HEADER_BYTES);
+			} else {
+				player = __index.get(sender);
+				// an attach request can only be a message of the configured codec
+				if ((player != null && __sessionRequired) || (player == null && !__codec.canDecode(content))) {
+					TrafficMetrics.of(Connection.Type.DATAGRAM).addDropped();
+					return;
+				}
+			}
+			if (player != null) {
+				connection = __index.getConnection(sender);
+			}
+			metrics = _getMetrics(connection, Connection.Type.DATAGRAM);
+
+			// an attached address which floods the server is refused before decoding
+			if (connection != null && !__checkFlood(connection, sender, content.readableBytes())) {
+				metrics.addDropped();
+				return;
+			}
+
+			if (CodecRegistry.isHandshake(content)) {
+				// only an attached address can change its codec
+				if (connection instanceof NettyConnection) {
+					__handshake(ctx, (NettyConnection) connection, content, sender);
+				} else {
+					metrics.addDropped();
+				}
+				return;
+			}
+
+			if (DatagramReliability.isFramed(content)) {
+				// only an attached address can use the packing and the reliability layer
+				if (connection != null) {
+					__receiveFramed(player, connection, content);
+				} else {
+					metrics.addDropped();
+				}
+				return;
+			}
+			message = __decode(connection != null ? connection.getCodec() : __codec, content, metrics);
+		} finally {
+			datagram.release();
+		}
 		if (message == null) {
 			return;
 		}
 
-		var player = __getPlayer(ctx.channel(), datagram.sender().toString());
-		// the condition for creating sub-connection
+		// the condition for creating sub-connection, the attachment is always handled
+		// on the network thread
 		if (player == null) {
 			player = (AbstractPlayer) _eventManager.getExternal().emit(TEvent.ATTACH_UDP_REQUEST, message);
 
@@ -88,40 +184,150 @@ public final class NettyDatagramHandler extends BaseNettyHandler {
 			} else if (!player.hasConnection()) {
 				_eventManager.getExternal().emit(TEvent.ATTACH_UDP_FAILED, message, ErrorMsg.MAIN_CONNECTION_NOT_FOUND);
 			} else {
-				__savePlayerRemote(ctx.channel(), datagram.sender().toString(), player.getName());
-				var connection = NettyConnection.newInstance(_eventManager, Connection.Type.DATAGRAM, ctx.channel());
-				connection.setSockAddress(datagram.sender());
-				player.setSubConnection(connection);
-				_eventManager.getExternal().emit(TEvent.ATTACH_UDP_SUCCESS, player);
+				var newConnection = _newConnection(Connection.Type.DATAGRAM, ctx.channel(), __codec);
+				newConnection.setSockAddress(sender);
+				newConnection.setFloodGuard(_newFloodGuard());
+				player.setSubConnection(newConnection);
+				int session = __index.add(sender, player, newConnection);
+				_eventManager.getExternal().emit(TEvent.ATTACH_UDP_SUCCESS, player, session);
 			}
 
 		} else {
-			_eventManager.getInternal().emit(LEvent.DATAGRAM_HANDLE, player, message);
+			__handle(player, message, metrics);
+		}
+
+	}
+
+	/**
+	 * Decode a message and count it in the traffic counters
+	 * 
+	 * @param codec   the sender's codec, see {@link ICodec}
+	 * @param content the message's content
+	 * @param metrics the sender's counters, see {@link TrafficMetrics}
+	 * @return the message, a {@link TObject} or a schema message, or <b>null</b>
+	 *         if it can not be decoded
+	 */
+	private Object __decode(ICodec codec, ByteBuf content, TrafficMetrics metrics) {
+		int bytes = content.readableBytes();
+		long start = System.nanoTime();
+		var message = _decode(codec, content);
+		if (message == null) {
+			metrics.addDropped();
+		} else {
+			metrics.addRead(bytes, System.nanoTime() - start);
 		}
+		return message;
+	}
 
+	/**
+	 * Check a packet of an attached address against its flood limits. The shared
+	 * channel can not stop reading for one client, so a throttled client's packets
+	 * are dropped, and a disconnected client loses its sub-connection.
+	 * 
+	 * @param connection the sender's sub-connection, see {@link Connection}
+	 * @param sender the sender's address
+	 * @param bytes  the packet's size in bytes
+	 * @return <b>true</b> if the packet can be decoded and handled
+	 */
+	private boolean __checkFlood(Connection connection, InetSocketAddress sender, int bytes) {
+		if (!(connection instanceof NettyConnection)) {
+			return true;
+		}
+		var guard = ((NettyConnection) connection).getFloodGuard();
+		if (guard == null || guard.tryAcquire(bytes, System.nanoTime())) {
+			return true;
+		}
+		if (guard.markFlooding()) {
+			_floodDetected(connection, sender.toString());
+		}
+		if (_getFloodAction() == FloodGuard.Action.DISCONNECT) {
+			__index.detach(sender, connection);
+		}
+		return false;
 	}
 
 	/**
-	 * Retrieve a player by special credentials.
+	 * Unpack a packed packet, see {@link DatagramPacker}, or pass the framed packet
+	 * to the reliability layer of its sub-connection, see
+	 * {@link DatagramReliability}. The delivered messages are handled in order.
 	 * 
-	 * @param channel a channel, see {@link Channel}
-	 * @param remote  the remote's address
-	 * @return a player, see {@link AbstractPlayer}
+	 * @param player     the sender, see {@link AbstractPlayer}
+	 * @param connection the sender's sub-connection, see {@link Connection}
+	 * @param content    the packet's content
 	 */
-	private AbstractPlayer __getPlayer(Channel channel, String remote) {
-		return channel.attr(AttributeKey.valueOf(remote)).get() != null ? (AbstractPlayer) _eventManager.getInternal()
-				.emit(LEvent.GET_PLAYER, (String) channel.attr(AttributeKey.valueOf(remote)).get()) : null;
+	private void __receiveFramed(AbstractPlayer player, Connection connection, ByteBuf content) {
+		var metrics = connection.getMetrics();
+		if (DatagramPacker.isPacked(content)) {
+			DatagramPacker.unpack(content, entry -> {
+				if (DatagramReliability.isFramed(entry)) {
+					__receiveFramed(player, connection, entry);
+				} else {
+					var message = __decode(connection.getCodec(), entry, metrics);
+					if (message != null) {
+						__handle(player, message, metrics);
+					}
+				}
+			});
+			return;
+		}
+
+		if (!(connection instanceof NettyConnection)) {
+			return;
+		}
+		var reliability = ((NettyConnection) connection).getReliability();
+		if (reliability == null) {
+			metrics.addDropped();
+			return;
+		}
+		reliability.receive(content, payload -> {
+			var message = __decode(connection.getCodec(), payload, metrics);
+			if (message != null) {
+				__handle(player, message, metrics);
+			}
+		});
 	}
 
 	/**
-	 * Save a player to one channel by special credentials.
+	 * Switch the codec of an attached address and answer with the chosen one. The
+	 * packets can be lost or reordered, so a key dictionary is never given
 	 * 
-	 * @param channel a channel, see {@link Channel}
-	 * @param remote  the remote's address
-	 * @param name    the player's name, see {@link AbstractPlayer#getName()}}
+	 * @param ctx        the channel, see {@link ChannelHandlerContext}
+	 * @param connection the sender's sub-connection, see {@link NettyConnection}
+	 * @param content    the handshake, see {@link ByteBuf}
+	 * @param sender     the sender's address
+	 */
+	private void __handshake(ChannelHandlerContext ctx, NettyConnection connection, ByteBuf content,
+			InetSocketAddress sender) {
+		var codec = CodecRegistry.readHandshake(content);
+		int flags = CodecRegistry.readHandshakeFlags(content);
+		if (codec != null) {
+			connection.setCodec(codec);
+		}
+		ctx.writeAndFlush(
+				new DatagramPacket(_newHandshake(ctx.alloc(), connection.getCodec(), flags, false), sender));
+	}
+
+	/**
+	 * @param player  the sender, see {@link AbstractPlayer}
+	 * @param message the decoded message, a {@link TObject} or a schema message
+	 * @param metrics the sender's counters, see {@link TrafficMetrics}
 	 */
-	private void __savePlayerRemote(Channel channel, String remote, String name) {
-		channel.attr(AttributeKey.valueOf(remote)).set(name);
+	private void __handle(AbstractPlayer player, Object message, TrafficMetrics metrics) {
+		// use the main connection as the key, so the messages from both connections
+		// of one player are handled in order
+		var mainConnection = player.getConnection();
+		boolean accepted = _dispatch(mainConnection != null ? mainConnection : player, () -> {
+			_eventManager.getInternal().emit(LEvent.DATAGRAM_HANDLE, player, message);
+		});
+		if (!accepted) {
+			metrics.addDropped();
+			// close on the connection's stripe, after its queued messages, so the
+			// disconnection does not race with their handling. It is only requested
+			// once, the next refused messages are just dropped
+			if (_isDisconnectOnOverflow() && mainConnection != null && mainConnection.markClosing()) {
+				_dispatchAlways(mainConnection, mainConnection::close);
+			}
+		}
 	}
 
 }
@@ -23,14 +23,15 @@ THE SOFTWARE.
 */
 package com.tenio.network.netty.datagram;
 
+import java.util.ArrayDeque;
+
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.event.IEventManager;
+import com.tenio.network.MessageDispatcher;
 import com.tenio.network.netty.GlobalTrafficShapingHandlerCustomize;
 
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.DatagramChannel;
-import io.netty.handler.codec.bytes.ByteArrayDecoder;
-import io.netty.handler.codec.bytes.ByteArrayEncoder;
 
 /**
  * This class for initializing a channel.
@@ -41,30 +42,35 @@ import io.netty.handler.codec.bytes.ByteArrayEncoder;
 public final class NettyDatagramInitializer extends ChannelInitializer<DatagramChannel> {
 
 	private final IEventManager __eventManager;
+	private final MessageDispatcher __dispatcher;
+	private final DatagramPlayerIndex __index;
 	private final GlobalTrafficShapingHandlerCustomize __trafficCounter;
 	private final BaseConfiguration __configuration;
 
-	public NettyDatagramInitializer(IEventManager eventManager, GlobalTrafficShapingHandlerCustomize trafficCounter,
+	public NettyDatagramInitializer(IEventManager eventManager, MessageDispatcher dispatcher,
+			DatagramPlayerIndex index, GlobalTrafficShapingHandlerCustomize trafficCounter,
 			BaseConfiguration configuration) {
 		__eventManager = eventManager;
+		__dispatcher = dispatcher;
+		__index = index;
 		__trafficCounter = trafficCounter;
 		__configuration = configuration;
 	}
 
 	@Override
 	protected void initChannel(DatagramChannel channel) throws Exception {
-		var pipeline = channel.pipeline();
+		// the sub-connections remove themselves from the index when they are cleaned
+		channel.attr(DatagramPlayerIndex.KEY_INDEX).set(__index);
+		// the packers which have messages to send at the end of a read
+		channel.attr(DatagramPacker.KEY_PENDING).set(new ArrayDeque<DatagramPacker>());
 
-		// converts each data chunk into a byte array (read-up)
-		pipeline.addLast("bytearray-decoder", new ByteArrayDecoder());
-		// converts bytes' array to data chunk (write-down)
-		pipeline.addLast("bytearray-encoder", new ByteArrayEncoder());
+		var pipeline = channel.pipeline();
 
 		// traffic counter
 		pipeline.addLast("traffic-counter", __trafficCounter);
 
 		// the logic handler
-		pipeline.addLast("handler", new NettyDatagramHandler(__eventManager, __configuration));
+		pipeline.addLast("handler", new NettyDatagramHandler(__eventManager, __dispatcher, __index, __configuration));
 	}
 
 }
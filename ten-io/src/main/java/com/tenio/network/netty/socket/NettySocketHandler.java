@@ -24,19 +24,25 @@ THE SOFTWARE.
 package com.tenio.network.netty.socket;
 
 import com.tenio.configuration.BaseConfiguration;
+import com.tenio.configuration.constant.Constants;
 import com.tenio.configuration.constant.LEvent;
+import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
-import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
 import com.tenio.network.Connection;
+import com.tenio.network.MessageDispatcher;
 import com.tenio.network.netty.BaseNettyHandler;
-import com.tenio.network.netty.NettyConnection;
+import com.tenio.network.netty.FloodGuard;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 
 /**
  * Receive all messages sent from clients. It converts serialize data to a
  * system's object for convenience and easy to use. It also handles the logic
- * for the processing of players and connections.
+ * for the processing of players and connections. A client can choose the
+ * codec of its messages by a handshake, see {@link CodecRegistry}.
  * 
  * @see BaseNettyHandler
  * 
@@ -54,11 +60,22 @@ public final class NettySocketHandler extends BaseNettyHandler {
 	 * {@link #_channelInactive(ChannelHandlerContext, boolean)}
 	 */
 	private final boolean __keepPlayerOnDisconnect;
+	/**
+	 * The flood limits of this channel, see {@link FloodGuard}
+	 */
+	private final FloodGuard __floodGuard;
+	/**
+	 * The configured codec, see {@link ICodec}
+	 */
+	private final ICodec __codec;
 
-	public NettySocketHandler(IEventManager eventManager, BaseConfiguration configuration) {
-		super(eventManager);
+	public NettySocketHandler(IEventManager eventManager, MessageDispatcher dispatcher,
+			BaseConfiguration configuration) {
+		super(eventManager, dispatcher, configuration);
 		__maxPlayer = configuration.getInt(BaseConfiguration.MAX_PLAYER) - 1;
 		__keepPlayerOnDisconnect = configuration.getBoolean(BaseConfiguration.KEEP_PLAYER_ON_DISCONNECT);
+		__floodGuard = _newFloodGuard();
+		__codec = _getCodec(configuration, BaseConfiguration.SOCKET_CODEC);
 	}
 
 	@Override
@@ -68,24 +85,81 @@ public final class NettySocketHandler extends BaseNettyHandler {
 
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-		// convert the bytes' array to a game message
-		var message = MsgPackConverter.unserialize((byte[]) msg);
-		if (message == null) {
+		// convert the frame to a game message, the frame is a slice of the read
+		// buffer, so it must be released after decoding
+		var buffer = (ByteBuf) msg;
+		// get the connection first
+		var connection = _getConnection(ctx.channel());
+		int bytes = buffer.readableBytes();
+		Object message;
+		long decodeTime;
+		ICodec codec;
+		try {
+			// a flooding client's frames are refused before decoding
+			if (!_checkFlood(ctx, __floodGuard, bytes)) {
+				_getMetrics(connection, Connection.Type.SOCKET).addDropped();
+				return;
+			}
+			if (CodecRegistry.isHandshake(buffer)) {
+				__handshake(ctx, connection, buffer);
+				return;
+			}
+			codec = _getCodec(ctx.channel(), connection, __codec);
+			long start = System.nanoTime();
+			message = _decode(codec, _getKeyDictionary(ctx.channel(), connection), buffer);
+			decodeTime = System.nanoTime() - start;
+		} finally {
+			buffer.release();
+		}
+		// a new connection must start with a message of its codec
+		if (message == null || (connection == null && !(message instanceof TObject))) {
+			_getMetrics(connection, Connection.Type.SOCKET).addDropped();
 			return;
 		}
 
-		// get the connection first
-		var connection = _getConnection(ctx.channel());
+		boolean accepted;
+		Connection receiver;
 		if (connection == null) { // the new connection
-			connection = NettyConnection.newInstance(_eventManager, Connection.Type.SOCKET, ctx.channel());
-			_eventManager.getInternal().emit(LEvent.CREATE_NEW_CONNECTION, __maxPlayer, __keepPlayerOnDisconnect,
-					connection, message);
+			var newConnection = _newConnection(Connection.Type.SOCKET, ctx.channel(), codec);
+			receiver = newConnection;
+			accepted = _dispatch(newConnection, () -> {
+				_eventManager.getInternal().emit(LEvent.CREATE_NEW_CONNECTION, __maxPlayer, __keepPlayerOnDisconnect,
+						newConnection, message);
+			});
 		} else {
-			_eventManager.getInternal().emit(LEvent.SOCKET_HANDLE, connection, message);
+			receiver = connection;
+			accepted = _dispatch(connection, () -> {
+				_eventManager.getInternal().emit(LEvent.SOCKET_HANDLE, connection, message);
+			});
+		}
+		receiver.getMetrics().addRead(bytes, decodeTime);
+		if (!accepted) {
+			receiver.getMetrics().addDropped();
+		}
+		if (!accepted && _isDisconnectOnOverflow()) {
+			ctx.close();
 		}
 
 	}
 
+	/**
+	 * Switch the channel's codec and key dictionary, then answer with the chosen
+	 * ones
+	 * 
+	 * @param ctx        the channel, see {@link ChannelHandlerContext}
+	 * @param connection the channel's connection, see {@link Connection}, it can
+	 *                   be <b>null</b>
+	 * @param content    the handshake, see {@link ByteBuf}
+	 */
+	private void __handshake(ChannelHandlerContext ctx, Connection connection, ByteBuf content) {
+		var answer = _handshake(ctx.channel(), connection, content, __codec);
+		var frame = ctx.alloc().ioBuffer(Constants.HEADER_BYTES + answer.readableBytes());
+		frame.writeShort(answer.readableBytes());
+		frame.writeBytes(answer);
+		answer.release();
+		ctx.writeAndFlush(frame);
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 		_exceptionCaught(ctx, cause);
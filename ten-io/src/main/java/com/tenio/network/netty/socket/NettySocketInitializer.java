@@ -26,14 +26,12 @@ package com.tenio.network.netty.socket;
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.Constants;
 import com.tenio.event.IEventManager;
+import com.tenio.network.MessageDispatcher;
 import com.tenio.network.netty.GlobalTrafficShapingHandlerCustomize;
 
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.bytes.ByteArrayDecoder;
-import io.netty.handler.codec.bytes.ByteArrayEncoder;
 
 /**
  * This class for initializing a channel.
@@ -44,12 +42,14 @@ import io.netty.handler.codec.bytes.ByteArrayEncoder;
 public final class NettySocketInitializer extends ChannelInitializer<SocketChannel> {
 
 	private final IEventManager __eventManager;
+	private final MessageDispatcher __dispatcher;
 	private final GlobalTrafficShapingHandlerCustomize __trafficCounter;
 	private final BaseConfiguration __configuration;
 
-	public NettySocketInitializer(IEventManager eventManager, GlobalTrafficShapingHandlerCustomize trafficCounter,
-			BaseConfiguration configuration) {
+	public NettySocketInitializer(IEventManager eventManager, MessageDispatcher dispatcher,
+			GlobalTrafficShapingHandlerCustomize trafficCounter, BaseConfiguration configuration) {
 		__eventManager = eventManager;
+		__dispatcher = dispatcher;
 		__trafficCounter = trafficCounter;
 		__configuration = configuration;
 	}
@@ -64,15 +64,11 @@ public final class NettySocketInitializer extends ChannelInitializer<SocketChann
 		// break each data chunk by newlines (read-up)
 		pipeline.addLast("length-decoder", new LengthFieldBasedFrameDecoder(Short.MAX_VALUE, 0, Constants.HEADER_BYTES,
 				0, Constants.HEADER_BYTES));
-		// convert each data chunk into a byte array (read-up)
-		pipeline.addLast("bytearray-decoder", new ByteArrayDecoder());
-		// add data-length package's head
-		pipeline.addLast("length-encoder", new LengthFieldPrepender(Constants.HEADER_BYTES));
-		// convert bytes' array to data chunk (write-down)
-		pipeline.addLast("bytearray-encoder", new ByteArrayEncoder());
+		// the outbound messages are already framed with their data-length header,
+		// see NettyConnection
 
 		// the logic handler
-		pipeline.addLast("handler", new NettySocketHandler(__eventManager, __configuration));
+		pipeline.addLast("handler", new NettySocketHandler(__eventManager, __dispatcher, __configuration));
 
 	}
 
@@ -27,6 +27,7 @@ import java.net.URISyntaxException;
 
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.event.IEventManager;
+import com.tenio.network.MessageDispatcher;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -58,10 +59,13 @@ public class NettyWSHandShake extends ChannelInboundHandlerAdapter {
 	private WebSocketServerHandshaker __handshaker;
 
 	private final IEventManager __eventManager;
+	private final MessageDispatcher __dispatcher;
 	private final BaseConfiguration __configuration;
 
-	public NettyWSHandShake(IEventManager eventManager, BaseConfiguration configuration) {
+	public NettyWSHandShake(IEventManager eventManager, MessageDispatcher dispatcher,
+			BaseConfiguration configuration) {
 		__eventManager = eventManager;
+		__dispatcher = dispatcher;
 		__configuration = configuration;
 	}
 
@@ -79,7 +83,7 @@ public class NettyWSHandShake extends ChannelInboundHandlerAdapter {
 
 				// add new handler to the existing pipeline to handle HandShake-WebSocket
 				// Messages
-				ctx.pipeline().replace(this, "handler", new NettyWSHandler(__eventManager, __configuration));
+				ctx.pipeline().replace(this, "handler", new NettyWSHandler(__eventManager, __dispatcher, __configuration));
 
 				// do the Handshake to upgrade connection from HTTP to WebSocket protocol
 				__handleHandshake(ctx, httpRequest);
@@ -97,7 +101,8 @@ public class NettyWSHandShake extends ChannelInboundHandlerAdapter {
 	 * @throws URISyntaxException the exception
 	 */
 	private void __handleHandshake(ChannelHandlerContext ctx, HttpRequest req) throws URISyntaxException {
-		var wsFactory = new WebSocketServerHandshakerFactory(__getWebSocketURL(req), null, true);
+		var wsFactory = new WebSocketServerHandshakerFactory(__getWebSocketURL(req), null, true,
+				__configuration.getInt(BaseConfiguration.WEBSOCKET_MAX_FRAME_SIZE));
 		__handshaker = wsFactory.newHandshaker(req);
 		if (__handshaker == null) {
 			WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
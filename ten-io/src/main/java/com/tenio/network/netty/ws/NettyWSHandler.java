@@ -25,19 +25,25 @@ package com.tenio.network.netty.ws;
 
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.LEvent;
+import com.tenio.entity.element.TObject;
 import com.tenio.event.IEventManager;
-import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
 import com.tenio.network.Connection;
+import com.tenio.network.MessageDispatcher;
 import com.tenio.network.netty.BaseNettyHandler;
-import com.tenio.network.netty.NettyConnection;
+import com.tenio.network.netty.FloodGuard;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * Receive all messages sent from clients. It converts serialize data to a
  * system's object for convenience and easy to use. It also handles the logic
- * for the processing of players and connections.
+ * for the processing of players and connections. A client can choose the
+ * codec of its messages by a handshake, see {@link CodecRegistry}.
  * 
  * @see BaseNettyHandler
  * 
@@ -55,11 +61,21 @@ public class NettyWSHandler extends BaseNettyHandler {
 	 * {@link #_channelInactive(ChannelHandlerContext, boolean)}
 	 */
 	private final boolean __keepPlayerOnDisconnect;
+	/**
+	 * The flood limits of this channel, see {@link FloodGuard}
+	 */
+	private final FloodGuard __floodGuard;
+	/**
+	 * The configured codec, see {@link ICodec}
+	 */
+	private final ICodec __codec;
 
-	public NettyWSHandler(IEventManager eventManager, BaseConfiguration configuration) {
-		super(eventManager);
+	public NettyWSHandler(IEventManager eventManager, MessageDispatcher dispatcher, BaseConfiguration configuration) {
+		super(eventManager, dispatcher, configuration);
 		__maxPlayer = configuration.getInt(BaseConfiguration.MAX_PLAYER) - 1;
 		__keepPlayerOnDisconnect = configuration.getBoolean(BaseConfiguration.KEEP_PLAYER_ON_DISCONNECT);
+		__floodGuard = _newFloodGuard();
+		__codec = _getCodec(configuration, BaseConfiguration.WEBSOCKET_CODEC);
 	}
 
 	@Override
@@ -71,31 +87,79 @@ public class NettyWSHandler extends BaseNettyHandler {
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// only allow this type of frame
 		if (msg instanceof BinaryWebSocketFrame) {
-			// convert the BinaryWebSocketFrame to bytes' array
-			var buffer = ((BinaryWebSocketFrame) msg).content();
-			var bytes = new byte[buffer.readableBytes()];
-			buffer.getBytes(buffer.readerIndex(), bytes);
-			buffer.release();
-
-			var message = MsgPackConverter.unserialize(bytes);
-			if (message == null) {
+			// read the game message directly from the frame's content
+			var frame = (BinaryWebSocketFrame) msg;
+			// get the connection first
+			var connection = _getConnection(ctx.channel());
+			int bytes = frame.content().readableBytes();
+			Object message;
+			long decodeTime;
+			ICodec codec;
+			try {
+				// a flooding client's frames are refused before decoding
+				if (!_checkFlood(ctx, __floodGuard, bytes)) {
+					_getMetrics(connection, Connection.Type.WEB_SOCKET).addDropped();
+					return;
+				}
+				if (CodecRegistry.isHandshake(frame.content())) {
+					__handshake(ctx, connection, frame.content());
+					return;
+				}
+				codec = _getCodec(ctx.channel(), connection, __codec);
+				long start = System.nanoTime();
+				message = _decode(codec, _getKeyDictionary(ctx.channel(), connection), frame.content());
+				decodeTime = System.nanoTime() - start;
+			} finally {
+				frame.release();
+			}
+			// a new connection must start with a message of its codec
+			if (message == null || (connection == null && !(message instanceof TObject))) {
+				_getMetrics(connection, Connection.Type.WEB_SOCKET).addDropped();
 				return;
 			}
 
-			// get the connection first
-			var connection = _getConnection(ctx.channel());
+			boolean accepted;
+			Connection receiver;
 			if (connection == null) { // the new connection
-				connection = NettyConnection.newInstance(_eventManager, Connection.Type.WEB_SOCKET, ctx.channel());
-				_eventManager.getInternal().emit(LEvent.CREATE_NEW_CONNECTION, __maxPlayer, __keepPlayerOnDisconnect,
-						connection, message);
+				var newConnection = _newConnection(Connection.Type.WEB_SOCKET, ctx.channel(), codec);
+				receiver = newConnection;
+				accepted = _dispatch(newConnection, () -> {
+					_eventManager.getInternal().emit(LEvent.CREATE_NEW_CONNECTION, __maxPlayer,
+							__keepPlayerOnDisconnect, newConnection, message);
+				});
 			} else {
-				_eventManager.getInternal().emit(LEvent.SOCKET_HANDLE, connection, message);
+				receiver = connection;
+				accepted = _dispatch(connection, () -> {
+					_eventManager.getInternal().emit(LEvent.SOCKET_HANDLE, connection, message);
+				});
+			}
+			receiver.getMetrics().addRead(bytes, decodeTime);
+			if (!accepted) {
+				receiver.getMetrics().addDropped();
+			}
+			if (!accepted && _isDisconnectOnOverflow()) {
+				ctx.close();
 			}
 
+		} else {
+			ReferenceCountUtil.release(msg);
 		}
 
 	}
 
+	/**
+	 * Switch the channel's codec and key dictionary, then answer with the chosen
+	 * ones
+	 * 
+	 * @param ctx        the channel, see {@link ChannelHandlerContext}
+	 * @param connection the channel's connection, see {@link Connection}, it can
+	 *                   be <b>null</b>
+	 * @param content    the handshake, see {@link ByteBuf}
+	 */
+	private void __handshake(ChannelHandlerContext ctx, Connection connection, ByteBuf content) {
+		ctx.writeAndFlush(new BinaryWebSocketFrame(_handshake(ctx.channel(), connection, content, __codec)));
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 		_exceptionCaught(ctx, cause);
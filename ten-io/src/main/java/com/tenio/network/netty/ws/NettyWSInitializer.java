@@ -25,14 +25,23 @@ package com.tenio.network.netty.ws;
 
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.event.IEventManager;
+import com.tenio.network.MessageDispatcher;
 import com.tenio.network.netty.GlobalTrafficShapingHandlerCustomize;
 
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
 
 /**
- * This class for initializing a channel.
+ * This class for initializing a channel. When the compression is enabled, the
+ * permessage-deflate extension is negotiated during the handshake and the
+ * messages smaller than the threshold are sent without compression. The
+ * fragmented frames are always aggregated into one message.
  * 
  * @author kong
  * 
@@ -40,14 +49,38 @@ import io.netty.handler.codec.http.HttpServerCodec;
 public final class NettyWSInitializer extends ChannelInitializer<SocketChannel> {
 
 	private final IEventManager __eventManager;
+	private final MessageDispatcher __dispatcher;
 	private final GlobalTrafficShapingHandlerCustomize __trafficCounter;
 	private final BaseConfiguration __configuration;
+	private final int __maxFrameSize;
+	private final boolean __compression;
+	private final WebSocketExtensionFilterProvider __compressionFilter;
 
-	public NettyWSInitializer(IEventManager eventManager, GlobalTrafficShapingHandlerCustomize trafficCounter,
-			BaseConfiguration configuration) {
+	public NettyWSInitializer(IEventManager eventManager, MessageDispatcher dispatcher,
+			GlobalTrafficShapingHandlerCustomize trafficCounter, BaseConfiguration configuration) {
 		__eventManager = eventManager;
+		__dispatcher = dispatcher;
 		__trafficCounter = trafficCounter;
 		__configuration = configuration;
+		__maxFrameSize = configuration.getInt(BaseConfiguration.WEBSOCKET_MAX_FRAME_SIZE);
+		__compression = configuration.getBoolean(BaseConfiguration.WEBSOCKET_COMPRESSION);
+
+		// the small messages do not benefit from the compression
+		int threshold = configuration.getInt(BaseConfiguration.WEBSOCKET_COMPRESSION_THRESHOLD);
+		WebSocketExtensionFilter encoderFilter = frame -> frame.content().readableBytes() < threshold;
+		__compressionFilter = new WebSocketExtensionFilterProvider() {
+
+			@Override
+			public WebSocketExtensionFilter encoderFilter() {
+				return encoderFilter;
+			}
+
+			@Override
+			public WebSocketExtensionFilter decoderFilter() {
+				return WebSocketExtensionFilter.NEVER_SKIP;
+			}
+
+		};
 	}
 
 	@Override
@@ -60,8 +93,23 @@ public final class NettyWSInitializer extends ChannelInitializer<SocketChannel>
 		// add http-codec for TCP hand shaker
 		pipeline.addLast("httpServerCodec", new HttpServerCodec());
 
+		// negotiate the compression during the handshake, it adds its own encoder and
+		// decoder after itself
+		if (__compression) {
+			pipeline.addLast("ws-compression", new WebSocketServerExtensionHandler(
+					new PerMessageDeflateServerExtensionHandshaker(
+							__configuration.getInt(BaseConfiguration.WEBSOCKET_COMPRESSION_LEVEL), false,
+							PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+							__configuration.getBoolean(BaseConfiguration.WEBSOCKET_COMPRESSION_SERVER_NO_CONTEXT),
+							__configuration.getBoolean(BaseConfiguration.WEBSOCKET_COMPRESSION_CLIENT_NO_CONTEXT),
+							__compressionFilter)));
+		}
+
+		// join the fragmented frames
+		pipeline.addLast("ws-aggregator", new WebSocketFrameAggregator(__maxFrameSize));
+
 		// the logic handler
-		pipeline.addLast("http-handshake", new NettyWSHandShake(__eventManager, __configuration));
+		pipeline.addLast("http-handshake", new NettyWSHandShake(__eventManager, __dispatcher, __configuration));
 	}
 
 }
@@ -0,0 +1,474 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.pool;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.tenio.configuration.constant.Constants;
+import com.tenio.exception.NullElementPoolException;
+
+/**
+ * The base of all element pools. Every thread keeps a small cache of free
+ * elements, so most of the calls to {@link #get()} and {@link #repay(Object)}
+ * do not touch any shared state. When a cache is empty or full, the elements
+ * are taken from or given back to a lock-free stack shared by all threads. The
+ * elements are found by their identities in a concurrent map, with a lookup key
+ * reused by each thread, so both methods take a constant time whatever the size
+ * of the pool is and do not allocate.
+ * 
+ * <br>
+ * The caches are registered in the pool. The free elements in the cache of a
+ * thread which has terminated are given back to the shared stack before the
+ * pool grows, and {@link #cleanup()} empties the caches of all threads (each
+ * thread empties its own cache on its next call).
+ * 
+ * <br>
+ * The pool grows by a bulk of elements when it is out of elements. When it
+ * holds more elements than its maximum size, the repaid elements are dropped
+ * until it shrinks back to this size.
+ * 
+ * <br>
+ * The usage of a pool is counted, see {@link PoolStatistics}, and its elements
+ * which are never repaid can be found, see {@link ElementLeakDetector}.
+ * 
+ * <br>
+ * This class writes its logs without using {@link com.tenio.logger.AbstractLogger},
+ * because the logger's {@link StringBuilder} pool is one of its sub-classes.
+ * 
+ * @author kong
+ * 
+ */
+public abstract class AbstractElementPool<Element> implements IElementPool<Element> {
+
+	/**
+	 * The maximum number of free elements in the cache of one thread
+	 */
+	private static final int THREAD_CACHE_SIZE = 16;
+	/**
+	 * The minimum time in nanoseconds between two leak checks started by growths
+	 */
+	private static final long LEAK_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final Logger __logger = LogManager.getLogger(getClass());
+
+	private final String __name;
+	private final int __initialSize;
+	private final int __growSize;
+	private final int __maxSize;
+
+	/**
+	 * All the elements which belong to this pool, they are found by their
+	 * identities, see {@link Slot}
+	 */
+	private final ConcurrentHashMap<Object, Slot<Element>> __slots;
+	/**
+	 * The free elements which are shared by all threads
+	 */
+	private final ConcurrentLinkedDeque<Slot<Element>> __shared;
+	/**
+	 * The free elements which are only used by the current thread
+	 */
+	private final ThreadLocal<ThreadCache<Element>> __cache;
+	/**
+	 * The caches of all the threads which use this pool, see {@link ThreadCache}
+	 */
+	private final ConcurrentLinkedQueue<ThreadCache<Element>> __caches;
+	/**
+	 * It is increased by {@link #cleanup()}, so each thread knows that its cache
+	 * must be emptied
+	 */
+	private volatile int __generation;
+	private final AtomicInteger __size;
+	private final PoolStatistics __statistics;
+	private volatile long __nextLeakCheck;
+
+	/**
+	 * @param name        the pool's name, used in the logs
+	 * @param initialSize the number of elements in the first bulk
+	 * @param growSize    the number of elements added when the pool is out of
+	 *                    elements
+	 * @param maxSize     the maximum number of elements kept by the pool
+	 */
+	protected AbstractElementPool(String name, int initialSize, int growSize, int maxSize) {
+		if (initialSize < 1 || growSize < 1 || maxSize < initialSize) {
+			throw new IllegalArgumentException("Invalid pool sizes: initial " + initialSize + ", grow " + growSize
+					+ ", max " + maxSize);
+		}
+		__name = name;
+		__initialSize = initialSize;
+		__growSize = growSize;
+		__maxSize = maxSize;
+		__slots = new ConcurrentHashMap<Object, Slot<Element>>(initialSize * 2);
+		__shared = new ConcurrentLinkedDeque<Slot<Element>>();
+		__caches = new ConcurrentLinkedQueue<ThreadCache<Element>>();
+		__cache = ThreadLocal.withInitial(() -> {
+			var cache = new ThreadCache<Element>(Thread.currentThread(), __generation);
+			__caches.offer(cache);
+			return cache;
+		});
+		__size = new AtomicInteger();
+		__statistics = new PoolStatistics();
+		__nextLeakCheck = System.nanoTime();
+	}
+
+	/**
+	 * Use the default sizes, see {@link Constants#BASE_ELEMENT_POOL},
+	 * {@link Constants#ADD_ELEMENT_POOL} and {@link Constants#MAX_ELEMENT_POOL}
+	 * 
+	 * @param name the pool's name, used in the logs
+	 */
+	protected AbstractElementPool(String name) {
+		this(name, Constants.BASE_ELEMENT_POOL, Constants.ADD_ELEMENT_POOL, Constants.MAX_ELEMENT_POOL);
+	}
+
+	/**
+	 * Create a new element for the pool. The elements are created on demand, so
+	 * this method is never called from the constructor.
+	 * 
+	 * @return a new element, or <b>null</b> if it can not be created
+	 */
+	protected abstract Element _createElement();
+
+	/**
+	 * Clear an element's data when it is repaid, it does nothing by default
+	 * 
+	 * @param element the repaid element
+	 */
+	protected void _resetElement(Element element) {
+
+	}
+
+	@Override
+	public Element get() {
+		var cache = __getCache().slots;
+		Slot<Element> slot;
+		do {
+			while ((slot = cache.pollFirst()) != null || (slot = __shared.pollFirst()) != null) {
+				// the dropped elements can still stay in the caches of other threads
+				if (!slot.dropped) {
+					__acquire(slot);
+					__statistics.recordHit();
+					return slot.element;
+				}
+			}
+		} while (__reclaim() > 0);
+		return __grow();
+	}
+
+	@Override
+	public void repay(Element element) {
+		var cache = __getCache();
+		Slot<Element> slot = null;
+		if (element != null) {
+			cache.lookup.element = element;
+			slot = __slots.get(cache.lookup);
+			cache.lookup.element = null;
+		}
+		if (slot == null) {
+			throw __repayError(element, "does not belong to this pool");
+		}
+		if (!slot.used.compareAndSet(true, false)) {
+			throw __repayError(element, "is already repaid");
+		}
+		slot.trace = null;
+		__statistics.recordRepaid();
+		_resetElement(element);
+
+		if (__size.get() > __maxSize) {
+			__drop(slot);
+			__statistics.recordDropped();
+			return;
+		}
+		if (cache.slots.size() < THREAD_CACHE_SIZE) {
+			cache.slots.offerFirst(slot);
+		} else {
+			__shared.offerFirst(slot);
+		}
+	}
+
+	@Override
+	public void cleanup() {
+		for (var slot : __slots.values()) {
+			slot.dropped = true;
+		}
+		__slots.clear();
+		__shared.clear();
+		__caches.clear();
+		// the other threads can not be touched here, they empty their caches later
+		__generation++;
+		__cache.remove();
+		__size.set(0);
+	}
+
+	@Override
+	public int getPoolSize() {
+		return __size.get();
+	}
+
+	@Override
+	public PoolStatistics getStatistics() {
+		return __statistics;
+	}
+
+	/**
+	 * Report the sampled elements which are in use for longer than the threshold
+	 * time, see {@link ElementLeakDetector}. Each element is reported once as a
+	 * warning with the stack of its acquisition.
+	 * 
+	 * @return the number of newly reported elements
+	 */
+	public int checkLeaks() {
+		if (!ElementLeakDetector.isEnabled()) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		long threshold = ElementLeakDetector.getThreshold();
+		int leaks = 0;
+		for (var slot : __slots.values()) {
+			var trace = slot.trace;
+			if (trace == null || trace.reported || now - trace.time < threshold || !slot.used.get()) {
+				continue;
+			}
+			trace.reported = true;
+			leaks++;
+			__statistics.recordLeak();
+			__logger.warn("[" + __name + "] LEAK: an element was not repaid for "
+					+ TimeUnit.NANOSECONDS.toSeconds(now - trace.time) + " seconds", trace);
+		}
+		return leaks;
+	}
+
+	/**
+	 * @return the cache of the current thread, it is emptied after a
+	 *         {@link #cleanup()}, see {@link ThreadCache}
+	 */
+	private ThreadCache<Element> __getCache() {
+		var cache = __cache.get();
+		int generation = __generation;
+		if (cache.generation != generation) {
+			cache.slots.clear();
+			cache.generation = generation;
+			__caches.offer(cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * Give the free elements in the caches of the terminated threads back to the
+	 * shared stack
+	 * 
+	 * @return the number of elements given back
+	 */
+	private int __reclaim() {
+		int reclaimed = 0;
+		for (var cache : __caches) {
+			// only the thread which unregisters the cache can read it
+			if (cache.owner.isAlive() || !__caches.remove(cache)) {
+				continue;
+			}
+			Slot<Element> slot;
+			while ((slot = cache.slots.pollFirst()) != null) {
+				if (!slot.dropped) {
+					__shared.offerLast(slot);
+					reclaimed++;
+				}
+			}
+		}
+		return reclaimed;
+	}
+
+	/**
+	 * Add a bulk of elements, the first one is used by the caller and the others
+	 * are shared
+	 * 
+	 * @return the element for the caller
+	 */
+	private Element __grow() {
+		int bulk = __size.get() == 0 ? __initialSize : __growSize;
+		Slot<Element> first = null;
+		for (int i = 0; i < bulk; i++) {
+			var element = _createElement();
+			if (element == null) {
+				continue;
+			}
+			var slot = new Slot<Element>(element);
+			__slots.put(slot, slot);
+			__size.incrementAndGet();
+			if (first == null) {
+				first = slot;
+			} else {
+				__shared.offerLast(slot);
+			}
+		}
+		if (first == null) {
+			return null;
+		}
+		__statistics.recordGrowth();
+		__statistics.recordMiss();
+
+		if (__logger.isInfoEnabled()) {
+			var builder = new StringBuilder();
+			builder.append("[").append(__name).append("] Increase the number of elements by ").append(bulk)
+					.append(" to ").append(__size.get());
+			__logger.info(builder.toString());
+		}
+
+		__acquire(first);
+		if (ElementLeakDetector.isEnabled()) {
+			long now = System.nanoTime();
+			if (now - __nextLeakCheck >= 0) {
+				__nextLeakCheck = now + LEAK_CHECK_INTERVAL;
+				checkLeaks();
+			}
+		}
+		return first.element;
+	}
+
+	/**
+	 * Mark an element as in use, and sample its acquisition when the leak
+	 * detection is enabled
+	 * 
+	 * @param slot the element's slot, see {@link Slot}
+	 */
+	private void __acquire(Slot<Element> slot) {
+		slot.used.set(true);
+		slot.trace = ElementLeakDetector.sample();
+	}
+
+	/**
+	 * @param element the repaid element
+	 * @param reason  why it can not be repaid
+	 * @return the exception to throw, see {@link NullElementPoolException}
+	 */
+	private NullElementPoolException __repayError(Element element, String reason) {
+		var builder = new StringBuilder();
+		builder.append("[").append(__name).append("] The repaid element ");
+		if (element != null) {
+			builder.append("of ").append(element.getClass().getSimpleName()).append(" ");
+		}
+		builder.append(reason).append(", it must be taken from the pool by get()");
+		var e = new NullElementPoolException(builder.toString());
+		__logger.error(e.getMessage(), e);
+		return e;
+	}
+
+	/**
+	 * Remove an element from the pool, so that it can be garbage collected
+	 * 
+	 * @param slot the element's slot, see {@link Slot}
+	 */
+	private void __drop(Slot<Element> slot) {
+		slot.dropped = true;
+		if (__slots.remove(slot) != null) {
+			__size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * The free elements which are only used by one thread, with its lookup key. It
+	 * is only read by another thread after its owner has terminated.
+	 */
+	private static final class ThreadCache<Element> {
+
+		final Thread owner;
+		final ArrayDeque<Slot<Element>> slots;
+		final Lookup lookup;
+		/**
+		 * The pool's generation when the cache was last emptied
+		 */
+		int generation;
+
+		ThreadCache(Thread owner, int generation) {
+			this.owner = owner;
+			slots = new ArrayDeque<Slot<Element>>(THREAD_CACHE_SIZE);
+			lookup = new Lookup();
+			this.generation = generation;
+		}
+
+	}
+
+	/**
+	 * A reusable key to find the slot of an element, see {@link Slot}
+	 */
+	private static final class Lookup {
+
+		Object element;
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(element);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Slot && ((Slot<?>) object).element == element;
+		}
+
+	}
+
+	/**
+	 * Holds an element and its state. Two slots are equal when they hold the same
+	 * element instance, so an element can be found by its identity even if its
+	 * class overrides {@link Object#equals(Object)}.
+	 */
+	private static final class Slot<Element> {
+
+		final Element element;
+		final AtomicBoolean used;
+		volatile boolean dropped;
+		/**
+		 * The sampled acquisition of the element in use, or <b>null</b>
+		 */
+		volatile ElementLeakDetector.Trace trace;
+
+		Slot(Element element) {
+			this.element = element;
+			used = new AtomicBoolean();
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(element);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (object instanceof Lookup) {
+				return ((Lookup) object).element == element;
+			}
+			return object instanceof Slot && ((Slot<?>) object).element == element;
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.pool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the pooled elements which are never repaid. One of every
+ * <code>sampling</code> acquisitions records the stack of its caller, when the
+ * element is still in use after the threshold time, it is reported as a leak
+ * with this stack, see {@link AbstractElementPool#checkLeaks()}. The pools
+ * check their leaks when they grow, because a pool which keeps growing is the
+ * usual symptom of a leak.
+ * 
+ * <br>
+ * Recording a stack is expensive, so the detection is disabled by default and
+ * the sampling should stay large in production.
+ * 
+ * @author kong
+ * 
+ */
+public final class ElementLeakDetector {
+
+	/**
+	 * One of this number of acquisitions is recorded, 0 to disable the detection
+	 */
+	private static volatile int __sampling = 0;
+	/**
+	 * The time in nanoseconds an element can stay in use before it is reported
+	 */
+	private static volatile long __threshold = TimeUnit.SECONDS.toNanos(60);
+
+	private ElementLeakDetector() {
+
+	}
+
+	/**
+	 * Set up the detection for all the pools
+	 * 
+	 * @param sampling  one of this number of acquisitions is recorded, 1 to record
+	 *                  all of them or 0 to disable the detection
+	 * @param threshold the time an element can stay in use before it is reported
+	 * @param unit      the threshold's time unit, see {@link TimeUnit}
+	 */
+	public static void configure(int sampling, long threshold, TimeUnit unit) {
+		__sampling = Math.max(0, sampling);
+		__threshold = unit.toNanos(threshold);
+	}
+
+	/**
+	 * @return <b>true</b> if the acquisitions are sampled
+	 */
+	public static boolean isEnabled() {
+		return __sampling > 0;
+	}
+
+	/**
+	 * @return the time in nanoseconds an element can stay in use before it is
+	 *         reported
+	 */
+	public static long getThreshold() {
+		return __threshold;
+	}
+
+	/**
+	 * @return a new trace of the current acquisition when it is sampled, see
+	 *         {@link Trace}, otherwise <b>null</b>
+	 */
+	static Trace sample() {
+		int sampling = __sampling;
+		if (sampling <= 0) {
+			return null;
+		}
+		if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+			return null;
+		}
+		return new Trace(Thread.currentThread().getName());
+	}
+
+	/**
+	 * The stack of one acquisition, it is never thrown
+	 */
+	static final class Trace extends Throwable {
+
+		private static final long serialVersionUID = -4460950346612155410L;
+
+		final long time;
+		volatile boolean reported;
+
+		Trace(String thread) {
+			super("Acquired by the thread " + thread, null, false, true);
+			time = System.nanoTime();
+		}
+
+	}
+
+}
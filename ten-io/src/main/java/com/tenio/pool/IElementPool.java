@@ -23,12 +23,15 @@ THE SOFTWARE.
 */
 package com.tenio.pool;
 
+import com.tenio.exception.NullElementPoolException;
+
 /**
  * In an application, you can have resources that are limited or time-consuming
  * to create a new one. A solution is to create a limited resource once and
  * reuse it. The object pool design will have the mechanism to create a bulk of
  * objects to pooling use. If the requirements of resources increases, the
- * current bulk's size will be also automatically increased.
+ * current bulk's size will be also automatically increased. The pools share
+ * one implementation, see {@link AbstractElementPool}.
  * 
  * @author kong
  * 
@@ -46,19 +49,28 @@ public interface IElementPool<Element> {
 	 * When you finished using an element, repay (free) it for the reusing
 	 * 
 	 * @param element the finished using element
+	 * @throws NullElementPoolException when the element does not belong to the
+	 *                                  pool or it is already repaid
 	 */
 	void repay(Element element);
 
 	/**
-	 * Clean up, after that all arrays will be set to <b>null</b>
+	 * Clean up, after that all the elements are released from the pool
 	 */
 	void cleanup();
 
 	/**
 	 * Retrieves the pool size
 	 * 
-	 * @return the total number of element or <b>-1</b> if any exceptions caused
+	 * @return the total number of elements kept by the pool
 	 */
 	int getPoolSize();
 
+	/**
+	 * Retrieves the usage counters of the pool
+	 * 
+	 * @return the counters, see {@link PoolStatistics}
+	 */
+	PoolStatistics getStatistics();
+
 }
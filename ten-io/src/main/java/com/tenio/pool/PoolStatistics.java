@@ -0,0 +1,139 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The usage counters of one {@link IElementPool}. A hit is counted when an
+ * element is taken from the free elements, a miss when the pool has to grow
+ * for it. The number of elements in use should come back to about the same
+ * value after each burst of requests, when it only increases, some elements
+ * are never repaid, see {@link ElementLeakDetector}.
+ * 
+ * @author kong
+ * 
+ */
+public final class PoolStatistics {
+
+	private final LongAdder __hits = new LongAdder();
+	private final LongAdder __misses = new LongAdder();
+	private final LongAdder __repaid = new LongAdder();
+	private final LongAdder __dropped = new LongAdder();
+	private final AtomicLong __growths = new AtomicLong();
+	private final AtomicLong __leaks = new AtomicLong();
+
+	void recordHit() {
+		__hits.increment();
+	}
+
+	void recordMiss() {
+		__misses.increment();
+	}
+
+	void recordRepaid() {
+		__repaid.increment();
+	}
+
+	void recordDropped() {
+		__dropped.increment();
+	}
+
+	void recordGrowth() {
+		__growths.incrementAndGet();
+	}
+
+	void recordLeak() {
+		__leaks.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of elements taken from the free elements
+	 */
+	public long getHits() {
+		return __hits.sum();
+	}
+
+	/**
+	 * @return the number of elements which could only be given after the pool
+	 *         grew
+	 */
+	public long getMisses() {
+		return __misses.sum();
+	}
+
+	/**
+	 * @return the number of times the pool grew
+	 */
+	public long getGrowths() {
+		return __growths.get();
+	}
+
+	/**
+	 * @return the number of repaid elements
+	 */
+	public long getRepaid() {
+		return __repaid.sum();
+	}
+
+	/**
+	 * @return the number of repaid elements which were dropped to shrink the pool
+	 */
+	public long getDropped() {
+		return __dropped.sum();
+	}
+
+	/**
+	 * @return the number of elements which are given but not repaid yet
+	 */
+	public long getInUse() {
+		return getHits() + getMisses() - getRepaid();
+	}
+
+	/**
+	 * @return the number of sampled elements reported as leaked, see
+	 *         {@link ElementLeakDetector}
+	 */
+	public long getLeaks() {
+		return __leaks.get();
+	}
+
+	/**
+	 * @return the ratio of the elements taken from the free elements, between 0
+	 *         and 1
+	 */
+	public double getHitRatio() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{ hits: %d, misses: %d, growths: %d, in use: %d, dropped: %d, leaks: %d }", getHits(),
+				getMisses(), getGrowths(), getInUse(), getDropped(), getLeaks());
+	}
+
+}
@@ -27,10 +27,12 @@ import com.tenio.api.HeartBeatApi;
 import com.tenio.api.MessageApi;
 import com.tenio.api.PlayerApi;
 import com.tenio.api.RoomApi;
+import com.tenio.api.SnapshotApi;
 import com.tenio.api.TaskApi;
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.event.IEventManager;
 import com.tenio.extension.IExtension;
+import com.tenio.network.INetwork;
 
 /**
  * This class manages the workflow of the current server. The instruction's
@@ -88,6 +90,11 @@ interface IServer {
 	 */
 	MessageApi getMessageApi();
 
+	/**
+	 * @return see {@link SnapshotApi}
+	 */
+	SnapshotApi getSnapshotApi();
+
 	/**
 	 * @return see {@link HeartBeatApi}
 	 */
@@ -98,4 +105,9 @@ interface IServer {
 	 */
 	TaskApi getTaskApi();
 
+	/**
+	 * @return see {@link INetwork}, or <b>null</b> if the server is not started
+	 */
+	INetwork getNetwork();
+
 }
@@ -154,7 +154,7 @@ final class InternalLogic extends AbstractLogger {
 
 		__on(LEvent.SOCKET_HANDLE, args -> {
 			var connection = __getConnection(args[0]);
-			var message = __getTObject(args[1]);
+			var message = args[1];
 
 			String id = connection.getId();
 			if (id != null) { // the player's identify
@@ -162,7 +162,7 @@ final class InternalLogic extends AbstractLogger {
 				if (player != null) {
 					__handle(player, false, message);
 				}
-			} else { // a new connection
+			} else if (message instanceof TObject) { // a new connection
 				__eventManager.getExternal().emit(TEvent.CONNECTION_SUCCESS, connection, message);
 			}
 
@@ -171,7 +171,7 @@ final class InternalLogic extends AbstractLogger {
 
 		__on(LEvent.DATAGRAM_HANDLE, args -> {
 			var player = __getPlayer(args[0]);
-			var message = __getTObject(args[1]);
+			var message = args[1];
 
 			// UDP is only attach connection, so if the main connection not found, the UDP
 			// must be stop handled
@@ -249,14 +249,25 @@ final class InternalLogic extends AbstractLogger {
 		return (Throwable) object;
 	}
 
-	private void __handle(AbstractPlayer player, boolean isSubConnection, TObject message) {
+	/**
+	 * @param player          the sender, see {@link AbstractPlayer}
+	 * @param isSubConnection <b>true</b> if the message came from the
+	 *                        sub-connection
+	 * @param message         a {@link TObject} or a schema message
+	 */
+	private void __handle(AbstractPlayer player, boolean isSubConnection, Object message) {
 		if (isSubConnection) {
 			debug("RECV PLAYER SUB", player.getName(), message.toString());
 		} else {
 			debug("RECV PLAYER", player.getName(), message.toString());
 		}
 		player.setCurrentReaderTime();
-		__eventManager.getExternal().emit(TEvent.RECEIVED_FROM_PLAYER, player, isSubConnection, message);
+		if (message instanceof TObject) {
+			__eventManager.getExternal().emit(TEvent.RECEIVED_FROM_PLAYER, player, isSubConnection, message);
+		} else {
+			__eventManager.getExternal().emit(TEvent.RECEIVED_MESSAGE_FROM_PLAYER, player, isSubConnection,
+					message);
+		}
 	}
 
 	private void __exception(AbstractPlayer player, Throwable cause) {
@@ -23,10 +23,13 @@ THE SOFTWARE.
 */
 package com.tenio.server;
 
+import java.util.concurrent.TimeUnit;
+
 import com.tenio.api.HeartBeatApi;
 import com.tenio.api.MessageApi;
 import com.tenio.api.PlayerApi;
 import com.tenio.api.RoomApi;
+import com.tenio.api.SnapshotApi;
 import com.tenio.api.TaskApi;
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.Constants;
@@ -45,10 +48,10 @@ import com.tenio.extension.IExtension;
 import com.tenio.logger.AbstractLogger;
 import com.tenio.network.INetwork;
 import com.tenio.network.netty.NettyNetwork;
+import com.tenio.pool.ElementLeakDetector;
 import com.tenio.task.ITaskManager;
 import com.tenio.task.TaskManager;
 import com.tenio.task.schedule.CCUScanTask;
-import com.tenio.task.schedule.EmptyRoomScanTask;
 import com.tenio.task.schedule.TimeOutScanTask;
 
 /**
@@ -78,6 +81,7 @@ public final class Server extends AbstractLogger implements IServer {
 		__heartbeatApi = new HeartBeatApi(__heartBeatManager);
 		__taskApi = new TaskApi(__taskManager);
 		__messageApi = new MessageApi(__eventManager);
+		__snapshotApi = new SnapshotApi(__messageApi);
 
 		__internalLogic = new InternalLogic(__eventManager, __playerManager, __roomManager);
 
@@ -104,6 +108,7 @@ public final class Server extends AbstractLogger implements IServer {
 	private final HeartBeatApi __heartbeatApi;
 	private final TaskApi __taskApi;
 	private final MessageApi __messageApi;
+	private final SnapshotApi __snapshotApi;
 
 	private final InternalLogic __internalLogic;
 	private IExtension __extension;
@@ -116,6 +121,10 @@ public final class Server extends AbstractLogger implements IServer {
 		// main server logic
 		__internalLogic.init();
 
+		// the leak detection of all element pools
+		ElementLeakDetector.configure(configuration.getInt(BaseConfiguration.POOL_LEAK_SAMPLING),
+				configuration.getInt(BaseConfiguration.POOL_LEAK_THRESHOLD), TimeUnit.SECONDS);
+
 		// datagram connection can not stand alone
 		if (!__checkDefinedMainConnection(configuration)) {
 			return false;
@@ -169,7 +178,7 @@ public final class Server extends AbstractLogger implements IServer {
 		__heartBeatManager.clear();
 		__roomManager.clear();
 		__playerManager.clear();
-		__taskManager.clear();
+		__taskManager.shutdown();
 		__eventManager.clear();
 		// exit
 		System.exit(0);
@@ -223,14 +232,17 @@ public final class Server extends AbstractLogger implements IServer {
 	}
 
 	private void __createAllSchedules(BaseConfiguration configuration) {
-		__taskManager.create(Constants.KEY_SCHEDULE_TIME_OUT_SCAN,
-				(new TimeOutScanTask(__eventManager, __playerApi, configuration.getInt(BaseConfiguration.IDLE_READER),
-						configuration.getInt(BaseConfiguration.IDLE_WRITER),
-						configuration.getInt(BaseConfiguration.TIMEOUT_SCAN))).run());
-		__taskManager.create(Constants.KEY_SCHEDULE_EMPTY_ROOM_SCAN,
-				(new EmptyRoomScanTask(__roomApi, configuration.getInt(BaseConfiguration.EMPTY_ROOM_SCAN))).run());
-		__taskManager.create(Constants.KEY_SCHEDULE_CCU_SCAN,
-				(new CCUScanTask(__eventManager, __playerApi, configuration.getInt(BaseConfiguration.CCU_SCAN))).run());
+		// all the tasks share the threads of one scheduler
+		__taskManager.initialize(configuration);
+		var timeOutScanTask = new TimeOutScanTask(__eventManager, __playerApi,
+				configuration.getInt(BaseConfiguration.IDLE_READER), configuration.getInt(BaseConfiguration.IDLE_WRITER),
+				configuration.getInt(BaseConfiguration.TIMEOUT_SCAN));
+		__taskManager.schedule(Constants.KEY_SCHEDULE_TIME_OUT_SCAN, timeOutScanTask, 0,
+				timeOutScanTask.getTickDuration(), 0, TimeUnit.MILLISECONDS);
+		// the empty rooms are removed by their manager, without scanning
+		__roomManager.initialize(configuration, __taskManager);
+		__taskManager.schedule(Constants.KEY_SCHEDULE_CCU_SCAN, new CCUScanTask(__eventManager, __playerApi), 0,
+				configuration.getInt(BaseConfiguration.CCU_SCAN), 0, TimeUnit.SECONDS);
 	}
 
 	@Override
@@ -248,6 +260,11 @@ public final class Server extends AbstractLogger implements IServer {
 		return __messageApi;
 	}
 
+	@Override
+	public SnapshotApi getSnapshotApi() {
+		return __snapshotApi;
+	}
+
 	@Override
 	public HeartBeatApi getHeartBeatApi() {
 		return __heartbeatApi;
@@ -258,6 +275,11 @@ public final class Server extends AbstractLogger implements IServer {
 		return __taskApi;
 	}
 
+	@Override
+	public INetwork getNetwork() {
+		return __network;
+	}
+
 	@Override
 	public IEventManager getEventManager() {
 		return __eventManager;
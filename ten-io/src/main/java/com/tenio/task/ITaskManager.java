@@ -24,13 +24,17 @@ THE SOFTWARE.
 package com.tenio.task;
 
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.tenio.configuration.BaseConfiguration;
 
 /**
  * This class uses Java scheduler ({@link ScheduledFuture}) to manage your
  * tasks. The scheduler is used to schedule a thread or task that executes at a
  * certain period of time or periodically at a fixed interval. It's useful when
  * you want to create a time counter before starting a match or send messages
- * periodically for one player.
+ * periodically for one player. All the scheduled tasks share the threads of
+ * one scheduler.
  * 
  * @author kong
  * 
@@ -38,13 +42,66 @@ import java.util.concurrent.ScheduledFuture;
 public interface ITaskManager {
 
 	/**
-	 * Create a new task.
+	 * Create the shared scheduler with the number of threads in your
+	 * configurations.
+	 * 
+	 * @param configuration see {@link BaseConfiguration}
+	 */
+	void initialize(BaseConfiguration configuration);
+
+	/**
+	 * Create the shared scheduler.
+	 * 
+	 * @param threads the number of the scheduler's threads
+	 */
+	void initialize(int threads);
+
+	/**
+	 * Create a new task, which is scheduled outside of the manager.
 	 * 
 	 * @param id   the unique id for management
 	 * @param task the running task, see {@link ScheduledFuture}
 	 */
 	void create(String id, ScheduledFuture<?> task);
 
+	/**
+	 * Schedule a new task on the shared scheduler. The run times of the task are
+	 * recorded, see {@link #getStatistics(String)}.
+	 * 
+	 * @param id           the unique id for management
+	 * @param task         the task
+	 * @param initialDelay the delay before the first run
+	 * @param period       the period between the starts of two runs, 0 to run the
+	 *                     task once
+	 * @param jitter       the maximum random time which is added to the initial
+	 *                     delay, so that the tasks with the same period do not run
+	 *                     at the same time
+	 * @param unit         the time unit, see {@link TimeUnit}
+	 * @return the scheduled task, see {@link ScheduledFuture}, or <b>null</b> if a
+	 *         task with the same id is still running or the manager is shut down
+	 */
+	ScheduledFuture<?> schedule(String id, Runnable task, long initialDelay, long period, long jitter, TimeUnit unit);
+
+	/**
+	 * Run a short task once on the shared scheduler, it is not managed by an id.
+	 * 
+	 * @param task  the task
+	 * @param delay the delay before running
+	 * @param unit  the time unit, see {@link TimeUnit}
+	 * @return the scheduled task, see {@link ScheduledFuture}, or <b>null</b> if
+	 *         the manager is shut down
+	 */
+	ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+	/**
+	 * Retrieve the run times of one task.
+	 * 
+	 * @param id the unique id
+	 * @return the statistics, see {@link TaskStatistics}, or <b>null</b> if the task
+	 *         does not exist or is not scheduled by the manager
+	 */
+	TaskStatistics getStatistics(String id);
+
 	/**
 	 * Kill or stop a running task.
 	 * 
@@ -65,4 +122,10 @@ public interface ITaskManager {
 	 */
 	int getRemainTime(String id);
 
+	/**
+	 * Kill all tasks and stop the shared scheduler. The manager can not be used
+	 * after this call, the next tasks are refused.
+	 */
+	void shutdown();
+
 }
@@ -25,11 +25,15 @@ package com.tenio.task;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.concurrent.GuardedBy;
 
+import com.tenio.configuration.BaseConfiguration;
 import com.tenio.exception.RunningScheduledTaskException;
 import com.tenio.logger.AbstractLogger;
 
@@ -38,7 +42,8 @@ import com.tenio.logger.AbstractLogger;
  * tasks. The scheduler is used to schedule a thread or task that executes at a
  * certain period of time or periodically at a fixed interval. It's useful when
  * you want to create a time counter before starting a match or send messages
- * periodically for one player.
+ * periodically for one player. The tasks which are scheduled by this manager
+ * share the threads of one scheduler, and their run times are recorded.
  * 
  * @see ITaskManager
  * 
@@ -52,6 +57,36 @@ public final class TaskManager extends AbstractLogger implements ITaskManager {
 	 */
 	@GuardedBy("this")
 	private final Map<String, ScheduledFuture<?>> __tasks = new HashMap<String, ScheduledFuture<?>>();
+	/**
+	 * The run times of the tasks which are scheduled by this manager
+	 */
+	@GuardedBy("this")
+	private final Map<String, TaskStatistics> __statistics = new HashMap<String, TaskStatistics>();
+	/**
+	 * The shared scheduler, it is created with one thread when a task is scheduled
+	 * before the initialization
+	 */
+	@GuardedBy("this")
+	private ScheduledExecutorService __scheduler;
+	/**
+	 * It is set by {@link #shutdown()}, then no task can be scheduled anymore
+	 */
+	@GuardedBy("this")
+	private boolean __shutdown;
+
+	@Override
+	public void initialize(BaseConfiguration configuration) {
+		initialize(configuration.getInt(BaseConfiguration.TASK_THREADS));
+	}
+
+	@Override
+	public synchronized void initialize(int threads) {
+		if (__scheduler != null || __shutdown) {
+			return;
+		}
+		__scheduler = Executors.newScheduledThreadPool(Math.max(1, threads));
+		info("INITIALIZE TASK SCHEDULER", buildgen(threads, " threads"));
+	}
 
 	@Override
 	public synchronized void create(String id, ScheduledFuture<?> task) {
@@ -70,6 +105,56 @@ public final class TaskManager extends AbstractLogger implements ITaskManager {
 		info("RUN TASK", buildgen(id, " >Time left> ", task.getDelay(TimeUnit.SECONDS), " seconds"));
 	}
 
+	@Override
+	public synchronized ScheduledFuture<?> schedule(String id, Runnable task, long initialDelay, long period,
+			long jitter, TimeUnit unit) {
+		if (__isRunning(id)) {
+			error(new RunningScheduledTaskException(), "task id: ", id);
+			return null;
+		}
+		// a finished task can be replaced
+		__tasks.remove(id);
+
+		var statistics = new TaskStatistics(period, unit);
+		Runnable measuredTask = () -> {
+			long start = System.nanoTime();
+			try {
+				task.run();
+			} catch (Throwable e) {
+				// a periodic task is not stopped by its exceptions
+				error(e, "task id: ", id);
+			} finally {
+				statistics.record(System.nanoTime() - start);
+			}
+		};
+
+		long delay = initialDelay;
+		if (jitter > 0) {
+			delay += ThreadLocalRandom.current().nextLong(jitter + 1);
+		}
+		var scheduler = __getScheduler();
+		if (scheduler == null) {
+			return null;
+		}
+		var future = period > 0 ? scheduler.scheduleAtFixedRate(measuredTask, delay, period, unit)
+				: scheduler.schedule(measuredTask, delay, unit);
+
+		create(id, future);
+		__statistics.put(id, statistics);
+		return future;
+	}
+
+	@Override
+	public synchronized ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		var scheduler = __getScheduler();
+		return scheduler == null ? null : scheduler.schedule(task, delay, unit);
+	}
+
+	@Override
+	public synchronized TaskStatistics getStatistics(String id) {
+		return __statistics.get(id);
+	}
+
 	@Override
 	public synchronized void kill(String id) {
 		var task = __tasks.get(id);
@@ -77,6 +162,7 @@ public final class TaskManager extends AbstractLogger implements ITaskManager {
 			task.cancel(true);
 			info("KILLED TASK", buildgen(id, " >Time left> ", task.getDelay(TimeUnit.SECONDS), " seconds"));
 			__tasks.remove(id);
+			__statistics.remove(id);
 		}
 	}
 
@@ -87,6 +173,37 @@ public final class TaskManager extends AbstractLogger implements ITaskManager {
 			info("KILLED TASK", buildgen(id, " >Time left> ", task.getDelay(TimeUnit.SECONDS), " seconds"));
 		});
 		__tasks.clear();
+		__statistics.clear();
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		__shutdown = true;
+		clear();
+		if (__scheduler != null) {
+			__scheduler.shutdownNow();
+			__scheduler = null;
+		}
+	}
+
+	private boolean __isRunning(String id) {
+		var task = __tasks.get(id);
+		return task != null && !task.isDone();
+	}
+
+	/**
+	 * @return the shared scheduler, or <b>null</b> after {@link #shutdown()}, so
+	 *         that no new thread keeps the application alive
+	 */
+	private ScheduledExecutorService __getScheduler() {
+		if (__shutdown) {
+			info("TASK SCHEDULER", "A task is refused after the shutdown");
+			return null;
+		}
+		if (__scheduler == null) {
+			initialize(1);
+		}
+		return __scheduler;
 	}
 
 	@Override
@@ -0,0 +1,121 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.task;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The run times of one task which is scheduled by the {@link ITaskManager}. An
+ * overrun is counted when a periodic task runs for longer than its period, the
+ * next runs are delayed then.
+ * 
+ * @author kong
+ * 
+ */
+public final class TaskStatistics {
+
+	/**
+	 * The period in nanoseconds, 0 for a task which runs once
+	 */
+	private final long __period;
+	private final AtomicLong __runs = new AtomicLong();
+	private final AtomicLong __totalTime = new AtomicLong();
+	private final AtomicLong __maxTime = new AtomicLong();
+	private final AtomicLong __overruns = new AtomicLong();
+	private volatile long __lastTime;
+
+	/**
+	 * @param period the task's period, 0 for a task which runs once
+	 * @param unit   the period's time unit, see {@link TimeUnit}
+	 */
+	public TaskStatistics(long period, TimeUnit unit) {
+		__period = unit.toNanos(period);
+	}
+
+	/**
+	 * Count one run of the task
+	 * 
+	 * @param time the run time in nanoseconds
+	 */
+	public void record(long time) {
+		__runs.incrementAndGet();
+		__totalTime.addAndGet(time);
+		__maxTime.accumulateAndGet(time, Math::max);
+		__lastTime = time;
+		if (__period > 0 && time > __period) {
+			__overruns.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of finished runs
+	 */
+	public long getRuns() {
+		return __runs.get();
+	}
+
+	/**
+	 * @return the total run time in nanoseconds
+	 */
+	public long getTotalTime() {
+		return __totalTime.get();
+	}
+
+	/**
+	 * @return the average run time in nanoseconds
+	 */
+	public long getAverageTime() {
+		long runs = __runs.get();
+		return runs == 0 ? 0 : __totalTime.get() / runs;
+	}
+
+	/**
+	 * @return the longest run time in nanoseconds
+	 */
+	public long getMaxTime() {
+		return __maxTime.get();
+	}
+
+	/**
+	 * @return the last run time in nanoseconds
+	 */
+	public long getLastTime() {
+		return __lastTime;
+	}
+
+	/**
+	 * @return the number of runs which took longer than the period
+	 */
+	public long getOverruns() {
+		return __overruns.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{ runs: %d, average: %d ns, max: %d ns, last: %d ns, overruns: %d }", getRuns(),
+				getAverageTime(), getMaxTime(), getLastTime(), getOverruns());
+	}
+
+}
@@ -23,43 +23,34 @@ THE SOFTWARE.
 */
 package com.tenio.task.schedule;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
 import com.tenio.api.PlayerApi;
 import com.tenio.configuration.BaseConfiguration;
 import com.tenio.configuration.constant.TEvent;
 import com.tenio.event.IEventManager;
 import com.tenio.logger.AbstractLogger;
+import com.tenio.task.ITaskManager;
 
 /**
  * To retrieve the CCU in period time. You can configure this time in your own
- * configurations, see {@link BaseConfiguration}
+ * configurations, see {@link BaseConfiguration}. The task is scheduled by the
+ * {@link ITaskManager}
  * 
  * @author kong
  * 
  */
-public final class CCUScanTask extends AbstractLogger {
+public final class CCUScanTask extends AbstractLogger implements Runnable {
 
 	private final IEventManager __eventManager;
-	/**
-	 * The period time for retrieving CCU
-	 */
-	private final int __ccuScanPeriod;
 	private final PlayerApi __playerApi;
 
-	public CCUScanTask(IEventManager eventManager, PlayerApi playerApi, int ccuScanPeriod) {
+	public CCUScanTask(IEventManager eventManager, PlayerApi playerApi) {
 		__eventManager = eventManager;
 		__playerApi = playerApi;
-		__ccuScanPeriod = ccuScanPeriod;
 	}
 
-	public ScheduledFuture<?> run() {
-		info("CCU SCAN TASK", "Running ...");
-		return Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
-			__eventManager.getExternal().emit(TEvent.CCU, __playerApi.countPlayers(), __playerApi.count());
-		}, 0, __ccuScanPeriod, TimeUnit.SECONDS);
+	@Override
+	public void run() {
+		__eventManager.getExternal().emit(TEvent.CCU, __playerApi.countPlayers(), __playerApi.count());
 	}
 
 }
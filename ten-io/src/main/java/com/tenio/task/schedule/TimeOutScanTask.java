@@ -23,89 +23,195 @@ THE SOFTWARE.
 */
 package com.tenio.task.schedule;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.tenio.api.PlayerApi;
 import com.tenio.configuration.BaseConfiguration;
+import com.tenio.configuration.constant.LEvent;
 import com.tenio.configuration.constant.TEvent;
 import com.tenio.entity.AbstractPlayer;
 import com.tenio.event.IEventManager;
 import com.tenio.logger.AbstractLogger;
+import com.tenio.task.ITaskManager;
 
 /**
  * For a player which is in IDLE mode, that means for a long time without
  * receiving or sending any data from the server or from a client. This task
- * will scan those IDLE players in period time and force them to log out. Those
- * players got a "timeout" error.
+ * forces those players to log out, they got a "timeout" error. <br>
+ * Each player's deadline is kept in a hashed timing wheel, so only the players
+ * whose deadlines are due are checked on each tick (the tick is the
+ * <i>timeoutScan</i> period, see {@link BaseConfiguration}). Refreshing a
+ * player's reader or writer time does not touch the wheel: when the deadline
+ * is due, it is computed again from the player's times, and the player is put
+ * back to the wheel if it was active in the meantime. The logged out players
+ * are dropped from the wheel on their next deadline. The task is scheduled by
+ * the {@link ITaskManager} with the tick as its period.
  * 
  * @author kong
  * 
  */
-public final class TimeOutScanTask extends AbstractLogger {
+public final class TimeOutScanTask extends AbstractLogger implements Runnable {
+
+	/**
+	 * The number of slots in the wheel, it must be a power of 2
+	 */
+	private static final int WHEEL_SIZE = 512;
 
 	private final IEventManager __eventManager;
 	private final PlayerApi __playerApi;
 	/**
-	 * The removable list of players
+	 * After a number of milliseconds without any message from the client. It can
+	 * be configured in your configurations, see {@link BaseConfiguration}
 	 */
-	private final List<AbstractPlayer> __removeables = new ArrayList<AbstractPlayer>();
+	private final long __idleReader;
 	/**
-	 * After a number of seconds without any message from the client. It can be
-	 * configured in your configurations, see {@link BaseConfiguration}
+	 * After a number of milliseconds without any message is sent to the client. It
+	 * can be configured in your configurations, see {@link BaseConfiguration}
 	 */
-	private final int __idleReader;
+	private final long __idleWriter;
 	/**
-	 * After a number of seconds without any message is sent to the client. It can
-	 * be configured in your configurations, see {@link BaseConfiguration}
+	 * The duration of one tick in milliseconds
+	 */
+	private final long __tickDuration;
+	/**
+	 * The new players, which are added to the wheel on the next tick
+	 */
+	private final ConcurrentLinkedQueue<AbstractPlayer> __newPlayers = new ConcurrentLinkedQueue<AbstractPlayer>();
+	/**
+	 * The wheel's slots, only accessed on the task's thread
 	 */
-	private final int __idleWriter;
+	private final List<ArrayDeque<Deadline>> __wheel;
 	/**
-	 * The period time for scanning IDLE players and log out those
+	 * The last handled tick, only accessed on the task's thread
 	 */
-	private final int __timeoutScanPeriod;
+	private long __currentTick;
 
 	public TimeOutScanTask(IEventManager eventManager, PlayerApi playerApi, int idleReader, int idleWriter,
 			int timeoutScanPeriod) {
 		__eventManager = eventManager;
 		__playerApi = playerApi;
-		__idleReader = idleReader;
-		__idleWriter = idleWriter;
-		__timeoutScanPeriod = timeoutScanPeriod;
+		__idleReader = idleReader * 1000L;
+		__idleWriter = idleWriter * 1000L;
+		__tickDuration = Math.max(1, timeoutScanPeriod) * 1000L;
+		__wheel = new ArrayList<ArrayDeque<Deadline>>(WHEEL_SIZE);
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			__wheel.add(new ArrayDeque<Deadline>());
+		}
+		__currentTick = System.currentTimeMillis() / __tickDuration;
+
+		// the players are watched from their logging in
+		__eventManager.getInternal().on(LEvent.PLAYER_ADDED, args -> {
+			__newPlayers.add((AbstractPlayer) args[0]);
+			return null;
+		});
+	}
+
+	@Override
+	public void run() {
+		tick(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the duration of one tick in milliseconds, it is the task's period
+	 */
+	public long getTickDuration() {
+		return __tickDuration;
+	}
+
+	/**
+	 * Add a player to the wheel, it can be called from any thread
+	 * 
+	 * @param player the player, see {@link AbstractPlayer}
+	 */
+	public void watch(AbstractPlayer player) {
+		__newPlayers.add(player);
 	}
 
-	public ScheduledFuture<?> run() {
-		info("TIME OUT TASK", "Running ...");
-		return Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
-			long currentTime = System.currentTimeMillis();
-
-			for (var player : __playerApi.gets().values()) {
-				// normal state, can check time out
-				if (!player.isIgnoreTimeout()) {
-					long writerTime = player.getWriterTime();
-					if (currentTime - writerTime >= (__idleWriter * 1000)) { // check writer time first
-						__removeables.add(player);
-						continue;
-					} else { // check reader time
-						long readerTime = player.getReaderTime();
-						if (currentTime - readerTime >= (__idleReader * 1000)) {
-							__removeables.add(player);
-						}
+	/**
+	 * Handle all the ticks until the current time, must be called on the task's
+	 * thread
+	 * 
+	 * @param currentTime the current time in milliseconds
+	 */
+	public void tick(long currentTime) {
+		AbstractPlayer player;
+		while ((player = __newPlayers.poll()) != null) {
+			__schedule(player, __getDeadline(player, currentTime));
+		}
+
+		var removables = new ArrayList<AbstractPlayer>();
+		long targetTick = currentTime / __tickDuration;
+		while (__currentTick < targetTick) {
+			__currentTick++;
+			var slot = __wheel.get((int) (__currentTick & (WHEEL_SIZE - 1)));
+			// the rescheduled deadlines can be put back to this slot, they are not checked
+			// again in this tick
+			for (int i = slot.size(); i > 0; i--) {
+				var deadline = slot.poll();
+				if (deadline.__tick > __currentTick) {
+					// a later round
+					slot.offer(deadline);
+				} else if (__playerApi.get(deadline.__player.getName()) == deadline.__player) {
+					long time = __getDeadline(deadline.__player, currentTime);
+					if (time <= currentTime) {
+						removables.add(deadline.__player);
+					} else {
+						__schedule(deadline.__player, time);
 					}
 				}
 			}
+		}
+
+		removables.forEach((removable) -> {
+			__eventManager.getExternal().emit(TEvent.PLAYER_TIMEOUT, removable);
+			__playerApi.logOut(removable);
+		});
+	}
+
+	/**
+	 * @return the number of players in the wheel, including the logged out ones
+	 *         which are not dropped yet
+	 */
+	public int size() {
+		int size = 0;
+		for (var slot : __wheel) {
+			size += slot.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @param player      the player, see {@link AbstractPlayer}
+	 * @param currentTime the current time in milliseconds
+	 * @return the time in milliseconds when the player is timed out, if it is not
+	 *         active until then
+	 */
+	private long __getDeadline(AbstractPlayer player, long currentTime) {
+		if (player.isIgnoreTimeout()) {
+			return currentTime + Math.min(__idleReader, __idleWriter);
+		}
+		return Math.min(player.getReaderTime() + __idleReader, player.getWriterTime() + __idleWriter);
+	}
+
+	private void __schedule(AbstractPlayer player, long time) {
+		// round up, a deadline is never handled before its time
+		long tick = Math.max((time + __tickDuration - 1) / __tickDuration, __currentTick + 1);
+		__wheel.get((int) (tick & (WHEEL_SIZE - 1))).offer(new Deadline(player, tick));
+	}
+
+	private static final class Deadline {
 
-			__removeables.forEach((player) -> {
-				__eventManager.getExternal().emit(TEvent.PLAYER_TIMEOUT, player);
-				__playerApi.logOut(player);
-			});
+		private final AbstractPlayer __player;
+		private final long __tick;
 
-			__removeables.clear();
+		private Deadline(AbstractPlayer player, long tick) {
+			__player = player;
+			__tick = tick;
+		}
 
-		}, 0, __timeoutScanPeriod, TimeUnit.SECONDS);
 	}
 
 }
@@ -25,6 +25,8 @@ package com.tenio.configuration;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,6 +55,36 @@ public final class ConfigurationTest {
 				() -> assertEquals("True", __configuration.getString(Configuration.CUSTOM_VALUE_4)));
 	}
 
+	@Test
+	public void getConfigurationNetworkShouldReturnTrueValue() {
+		assertAll("getNetworkConfiguration",
+				() -> assertEquals("auto", __configuration.getString(Configuration.NETWORK_TRANSPORT)),
+				() -> assertEquals(8031, __configuration.getInt(Configuration.SOCKET_PORT)),
+				() -> assertEquals(1, __configuration.getInt(Configuration.SOCKET_PRODUCER_THREADS)),
+				() -> assertEquals(0, __configuration.getInt(Configuration.SOCKET_CONSUMER_THREADS)),
+				() -> assertEquals(1, __configuration.getInt(Configuration.DATAGRAM_CONSUMER_THREADS)),
+				() -> assertEquals(2, __configuration.getInt(Configuration.DATAGRAM_CHANNELS)),
+				() -> assertEquals(200, __configuration.getInt(Configuration.NETWORK_FLOOD_MESSAGE_RATE)),
+				() -> assertEquals("drop", __configuration.getString(Configuration.NETWORK_FLOOD_ACTION)),
+				() -> assertEquals(128, __configuration.getInt(Configuration.NETWORK_KEY_DICTIONARY_SIZE)),
+				() -> assertEquals(0, __configuration.getInt(Configuration.POOL_LEAK_SAMPLING)),
+				() -> assertEquals(60, __configuration.getInt(Configuration.POOL_LEAK_THRESHOLD)),
+				() -> assertEquals(1200, __configuration.getInt(Configuration.DATAGRAM_MTU)),
+				() -> assertFalse(__configuration.getBoolean(Configuration.DATAGRAM_SESSION_REQUIRED)),
+				() -> assertEquals("msgpack", __configuration.getString(Configuration.SOCKET_CODEC)),
+				() -> assertEquals("msgpack", __configuration.getString(Configuration.DATAGRAM_CODEC)),
+				() -> assertEquals("msgpack", __configuration.getString(Configuration.WEBSOCKET_CODEC)),
+				() -> assertFalse(__configuration.getBoolean(Configuration.WEBSOCKET_REUSE_PORT)),
+				() -> assertEquals("pooled", __configuration.getString(Configuration.NETWORK_ALLOCATOR)),
+				() -> assertEquals(16, __configuration.getInt(Configuration.NETWORK_FLUSH_MAX_MESSAGES)),
+				() -> assertEquals(1024, __configuration.getInt(Configuration.SOCKET_BACKLOG)),
+				() -> assertTrue(__configuration.getBoolean(Configuration.SOCKET_TCP_NO_DELAY)),
+				() -> assertEquals(65536, __configuration.getInt(Configuration.WEBSOCKET_HIGH_WATER_MARK)),
+				() -> assertTrue(__configuration.getBoolean(Configuration.WEBSOCKET_COMPRESSION)),
+				() -> assertEquals(256, __configuration.getInt(Configuration.WEBSOCKET_COMPRESSION_THRESHOLD)),
+				() -> assertEquals(4194304, __configuration.getInt(Configuration.DATAGRAM_RECEIVE_BUFFER)));
+	}
+
 	@AfterEach
 	public void tearDown() {
 		// do nothing
@@ -49,6 +49,8 @@ import com.tenio.exception.DuplicatedRoomException;
 import com.tenio.exception.NullPlayerNameException;
 import com.tenio.model.PlayerModel;
 import com.tenio.model.RoomModel;
+import com.tenio.task.ITaskManager;
+import com.tenio.task.TaskManager;
 
 /**
  * @author kong
@@ -59,6 +61,7 @@ public final class PlayerRoomTest {
 
 	private IPlayerManager __playerManager;
 	private IRoomManager __roomManager;
+	private ITaskManager __taskManager;
 	private PlayerApi __playerApi;
 	private RoomApi __roomApi;
 
@@ -70,6 +73,7 @@ public final class PlayerRoomTest {
 		__eventManager = new EventManager();
 		__playerManager = new PlayerManager(__eventManager);
 		__roomManager = new RoomManager(__eventManager);
+		__taskManager = new TaskManager();
 		__playerApi = new PlayerApi(__playerManager, __roomManager);
 		__roomApi = new RoomApi(__roomManager);
 		__testPlayerName = "kong";
@@ -80,6 +84,7 @@ public final class PlayerRoomTest {
 	public void tearDown() {
 		__playerManager.clear();
 		__roomManager.clear();
+		__taskManager.shutdown();
 		__eventManager.clear();
 	}
 
@@ -253,4 +258,40 @@ public final class PlayerRoomTest {
 		assertAll("removeRoom", () -> assertFalse(__roomApi.contain(__testRoomId)), () -> assertTrue(removedResult));
 	}
 
+	@Test
+	public void emptyRoomShouldBeRemovedAfterItsTime() throws InterruptedException {
+		__roomManager.initialize(1, __taskManager);
+		var room = new RoomModel(__testRoomId, "Test Room", 3);
+		__roomApi.add(room);
+
+		assertTrue(__waitForRemoval(3000));
+	}
+
+	@Test
+	public void joinedRoomShouldNotBeRemoved() throws InterruptedException {
+		__roomManager.initialize(1, __taskManager);
+		var room = new RoomModel(__testRoomId, "Test Room", 3);
+		__roomApi.add(room);
+		var player = new PlayerModel(__testPlayerName);
+		__playerApi.login(player);
+		__playerApi.playerJoinRoom(room, player);
+
+		assertFalse(__waitForRemoval(1500));
+
+		// the room is scheduled again when its last player leaves
+		__playerApi.playerLeaveRoom(player, false);
+		assertTrue(__waitForRemoval(3000));
+	}
+
+	private boolean __waitForRemoval(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (System.currentTimeMillis() < deadline) {
+			if (!__roomApi.contain(__testRoomId)) {
+				return true;
+			}
+			Thread.sleep(50);
+		}
+		return false;
+	}
+
 }
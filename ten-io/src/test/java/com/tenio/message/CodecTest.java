@@ -0,0 +1,352 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.entity.element.TArray;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.BinaryCodec;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.ICodec;
+import com.tenio.message.codec.JsonCodec;
+import com.tenio.message.codec.KeyDictionary;
+import com.tenio.message.codec.MsgPackCodec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+/**
+ * @author kong
+ */
+public final class CodecTest {
+
+	private TObject __message;
+
+	@BeforeEach
+	public void initialize() {
+		var nested = TObject.newInstance();
+		nested.put("name", "nested \"quoted\"\n");
+		var array = TArray.newInstance();
+		array.put(1).put("two").put(nested);
+
+		__message = TObject.newInstance();
+		__message.put("string", "String");
+		__message.put("integer", 1993);
+		__message.put("negative", -7);
+		__message.put("long", 1L << 40);
+		__message.put("double", 1.5);
+		__message.put("boolean", true);
+		__message.put("null", null);
+		__message.put("array", array);
+	}
+
+	@Test
+	public void encodeAndDecodeShouldReturnTheSameMessageForEachCodec() {
+		for (var codec : new ICodec[] { new MsgPackCodec(), new BinaryCodec(), new JsonCodec() }) {
+			var buffer = __encode(codec, __message);
+			assertTrue(codec.canDecode(buffer), codec.getName());
+			assertEquals(__message, codec.decode(buffer), codec.getName());
+			assertFalse(buffer.isReadable());
+			buffer.release();
+		}
+	}
+
+	@Test
+	public void binaryCodecShouldKeepTheNumberTypes() {
+		var message = TObject.newInstance();
+		message.put("long", 1L);
+		message.put("float", 1.5f);
+		message.put("bytes", new byte[] { 1, 2, 3 });
+
+		var buffer = __encode(new BinaryCodec(), message);
+		var decoded = new BinaryCodec().decode(buffer);
+		buffer.release();
+
+		assertAll("binary", () -> assertEquals(1L, decoded.get("long")),
+				() -> assertEquals(1.5f, decoded.get("float")),
+				() -> assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decoded.get("bytes")));
+	}
+
+	@Test
+	public void binaryCodecShouldBeSmallerThanMessagePack() {
+		var message = TObject.newInstance();
+		message.put("id", 100000);
+		message.put("time", 1L << 40);
+		message.put("ratio", 0.5f);
+		message.put("hp", -20);
+		message.put("name", "player");
+
+		var binary = __encode(new BinaryCodec(), message);
+		var msgpack = __encode(new MsgPackCodec(), message);
+		assertTrue(binary.readableBytes() < msgpack.readableBytes());
+		binary.release();
+		msgpack.release();
+	}
+
+	@Test
+	public void jsonCodecShouldDecodeAHandWrittenMessage() {
+		var text = " {\"a\": 1, \"b\": [true, null, -2.5e1], \"c\": {\"d\": \"\\u0041\"}, \"e\": 10000000000} ";
+		var message = new JsonCodec().decode(Unpooled.wrappedBuffer(text.getBytes(StandardCharsets.UTF_8)));
+
+		assertAll("json", () -> assertEquals(1, message.get("a")),
+				() -> assertEquals(-25.0, message.getTArray("b").get(2)),
+				() -> assertNull(message.getTArray("b").get(1)),
+				() -> assertEquals("A", message.getTObject("c").getString("d")),
+				() -> assertEquals(10000000000L, message.get("e")));
+	}
+
+	@Test
+	public void decodeInvalidContentShouldReturnNull() {
+		var binary = __encode(new BinaryCodec(), __message);
+		binary.writerIndex(binary.writerIndex() - 1);
+
+		assertAll("invalid", () -> assertNull(new BinaryCodec().decode(binary)),
+				() -> assertNull(new BinaryCodec().decode(Unpooled.wrappedBuffer(new byte[] { (byte) 0xFE, 0x01 }))),
+				() -> assertNull(new BinaryCodec().decode(Unpooled.wrappedBuffer(new byte[] { (byte) 0xC0 }))),
+				() -> assertNull(
+						new BinaryCodec().decode(Unpooled.wrappedBuffer(new byte[] { (byte) 0xE1, 0x01, 'a', 0x07 }))),
+				() -> assertNull(__decodeJson("{\"a\": 1")), () -> assertNull(__decodeJson("{\"a\": 1} x")),
+				() -> assertNull(__decodeJson("[1, 2]")), () -> assertNull(__decodeJson("{\"a\": tru}")),
+				() -> assertNull(__decodeJson("{\"a\": \"\\x\"}")));
+		binary.release();
+	}
+
+	@Test
+	public void decodeTooDeepContentShouldReturnNull() {
+		var text = new StringBuilder("{\"a\":");
+		for (int i = 0; i < 40; i++) {
+			text.append('[');
+		}
+		for (int i = 0; i < 40; i++) {
+			text.append(']');
+		}
+		text.append('}');
+		assertNull(__decodeJson(text.toString()));
+	}
+
+	@Test
+	public void encodeUnsupportedValueShouldReturnFalse() {
+		var message = TObject.newInstance();
+		message.put("object", new Object());
+
+		for (var codec : new ICodec[] { new BinaryCodec(), new JsonCodec() }) {
+			var buffer = Unpooled.buffer();
+			assertFalse(codec.encode(message, buffer), codec.getName());
+			assertFalse(buffer.isReadable(), codec.getName());
+		}
+	}
+
+	@Test
+	public void registryShouldFindTheBuiltInCodecs() {
+		assertAll("registry", () -> assertSame(CodecRegistry.getDefault(), CodecRegistry.getCodec("msgpack")),
+				() -> assertEquals(BinaryCodec.ID, CodecRegistry.getCodec(" Binary ").getId()),
+				() -> assertEquals(JsonCodec.NAME, CodecRegistry.getCodec(JsonCodec.ID).getName()),
+				() -> assertNull(CodecRegistry.getCodec("xml")), () -> assertNull(CodecRegistry.getCodec(200)),
+				() -> assertThrows(IllegalArgumentException.class, () -> CodecRegistry.register(new OtherCodec())));
+	}
+
+	@Test
+	public void handshakeShouldCarryTheCodecId() {
+		var handshake = CodecRegistry.newHandshake(ByteBufAllocator.DEFAULT, CodecRegistry.getCodec(JsonCodec.NAME));
+		assertTrue(CodecRegistry.isHandshake(handshake));
+		assertEquals(JsonCodec.ID, CodecRegistry.readHandshake(handshake).getId());
+		handshake.release();
+
+		var unknown = Unpooled.wrappedBuffer(new byte[] { CodecRegistry.HANDSHAKE, (byte) 200 });
+		assertNull(CodecRegistry.readHandshake(unknown));
+		assertFalse(CodecRegistry.isHandshake(Unpooled.wrappedBuffer(new byte[] { CodecRegistry.HANDSHAKE })));
+	}
+
+	@Test
+	public void keyDictionaryShouldShrinkTheRepeatedKeys() {
+		for (var codec : new ICodec[] { new MsgPackCodec(), new BinaryCodec() }) {
+			assertTrue(codec.supportsKeyDictionary(), codec.getName());
+			var outbound = new KeyDictionary(16);
+			var inbound = new KeyDictionary(16);
+			int[] sizes = new int[KeyDictionary.THRESHOLD + 1];
+			for (int i = 0; i < sizes.length; i++) {
+				var buffer = __encode(codec, __message, outbound);
+				sizes[i] = buffer.readableBytes();
+				assertEquals(__message, codec.decode(buffer, inbound), codec.getName());
+				assertFalse(buffer.isReadable());
+				buffer.release();
+			}
+			// the keys are written in full, then announced, then replaced by their ids
+			assertTrue(sizes[KeyDictionary.THRESHOLD] < sizes[0], codec.getName());
+			int id = outbound.getId("string");
+			assertTrue(id >= 0, codec.getName());
+			assertSame(KeyDictionary.intern(new String("string")), inbound.getKey(id));
+		}
+		assertFalse(new JsonCodec().supportsKeyDictionary());
+	}
+
+	@Test
+	public void keyDictionaryShouldWriteTheKeysInFullWhenItIsFull() {
+		var message = TObject.newInstance();
+		message.put("x", 1);
+		message.put("y", 2);
+
+		var codec = new BinaryCodec();
+		var outbound = new KeyDictionary(1);
+		var inbound = new KeyDictionary(1);
+		for (int i = 0; i <= KeyDictionary.THRESHOLD; i++) {
+			var buffer = __encode(codec, message, outbound);
+			assertEquals(message, codec.decode(buffer, inbound));
+			buffer.release();
+		}
+		assertEquals(1, outbound.mark());
+		assertEquals(-1, outbound.index("unknown"));
+	}
+
+	@Test
+	public void keyDictionaryShouldRollBackTheNotSentIds() {
+		var dictionary = new KeyDictionary(16);
+		for (int i = 0; i < KeyDictionary.THRESHOLD - 1; i++) {
+			assertEquals(-1, dictionary.index("key"));
+		}
+		int mark = dictionary.mark();
+		assertEquals(0, dictionary.index("key"));
+		dictionary.rollback(mark);
+		assertEquals(-1, dictionary.getId("key"));
+		assertEquals(mark, dictionary.mark());
+
+		// an unsupported value must not leave its announced keys behind
+		var message = TObject.newInstance();
+		message.put("key", new Object());
+		assertThrows(RuntimeException.class, () -> new MsgPackCodec().encode(message, Unpooled.buffer(), dictionary));
+		assertEquals(mark, dictionary.mark());
+		assertFalse(new BinaryCodec().encode(message, Unpooled.buffer(), dictionary));
+		assertEquals(mark, dictionary.mark());
+	}
+
+	@Test
+	public void keyDictionaryShouldRefuseTheUnknownIds() {
+		var outbound = new KeyDictionary(16);
+		for (var codec : new ICodec[] { new MsgPackCodec(), new BinaryCodec() }) {
+			for (int i = 0; i < KeyDictionary.THRESHOLD; i++) {
+				__encode(codec, __message, outbound).release();
+			}
+			// the announcing messages were lost
+			var buffer = __encode(codec, __message, outbound);
+			assertNull(codec.decode(buffer, new KeyDictionary(16)), codec.getName());
+			buffer.release();
+			outbound = new KeyDictionary(16);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new KeyDictionary(0));
+		assertThrows(IllegalArgumentException.class, () -> new KeyDictionary(16).putKey(1, "key"));
+	}
+
+	@Test
+	public void handshakeShouldCarryTheFlags() {
+		var handshake = CodecRegistry.newHandshake(ByteBufAllocator.DEFAULT, new BinaryCodec(),
+				CodecRegistry.FLAG_KEY_DICTIONARY);
+		assertTrue(CodecRegistry.isHandshake(handshake));
+		assertEquals(BinaryCodec.ID, CodecRegistry.readHandshake(handshake).getId());
+		assertEquals(CodecRegistry.FLAG_KEY_DICTIONARY, CodecRegistry.readHandshakeFlags(handshake));
+		handshake.release();
+
+		handshake = CodecRegistry.newHandshake(ByteBufAllocator.DEFAULT, new BinaryCodec());
+		CodecRegistry.readHandshake(handshake);
+		assertEquals(-1, CodecRegistry.readHandshakeFlags(handshake));
+		handshake.release();
+	}
+
+	/**
+	 * A codec which uses the id of {@link JsonCodec}
+	 */
+	private static final class OtherCodec implements ICodec {
+
+		@Override
+		public int getId() {
+			return JsonCodec.ID;
+		}
+
+		@Override
+		public String getName() {
+			return "other";
+		}
+
+		@Override
+		public boolean canDecode(ByteBuf buffer) {
+			return false;
+		}
+
+		@Override
+		public TObject decode(ByteBuf buffer) {
+			return null;
+		}
+
+		@Override
+		public boolean encode(TObject message, ByteBuf buffer) {
+			return false;
+		}
+
+		@Override
+		public boolean supportsKeyDictionary() {
+			return false;
+		}
+
+		@Override
+		public TObject decode(ByteBuf buffer, KeyDictionary dictionary) {
+			return null;
+		}
+
+		@Override
+		public boolean encode(TObject message, ByteBuf buffer, KeyDictionary dictionary) {
+			return false;
+		}
+
+	}
+
+	private ByteBuf __encode(ICodec codec, TObject message) {
+		var buffer = Unpooled.buffer();
+		assertTrue(codec.encode(message, buffer), codec.getName());
+		return buffer;
+	}
+
+	private ByteBuf __encode(ICodec codec, TObject message, KeyDictionary dictionary) {
+		var buffer = Unpooled.buffer();
+		assertTrue(codec.encode(message, buffer, dictionary), codec.getName());
+		return buffer;
+	}
+
+	private TObject __decodeJson(String text) {
+		return new JsonCodec().decode(Unpooled.wrappedBuffer(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
@@ -23,7 +23,9 @@ THE SOFTWARE.
 */
 package com.tenio.message;
 
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.util.Arrays;
 
@@ -31,9 +33,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.tenio.configuration.constant.Constants;
+import com.tenio.entity.element.TArray;
 import com.tenio.entity.element.TObject;
 import com.tenio.message.codec.MessagePacker;
 import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.codec.MsgPackDecoder;
+
+import io.netty.buffer.Unpooled;
 
 /**
  * @author kong
@@ -73,4 +79,76 @@ public final class MessagePackingTest {
 		assertEquals(__message, MsgPackConverter.unserialize(packWithContent));
 	}
 
+	@Test
+	public void messageUnserializeFromDirectBufferShouldReturnTrue() {
+		// Copy the serialized message to a direct buffer
+		var bytes = MsgPackConverter.serialize(__message);
+		var buffer = Unpooled.directBuffer(bytes.length);
+		buffer.writeBytes(bytes);
+
+		// Revert the buffer to TObject message, the whole buffer should be read
+		assertEquals(__message, MsgPackConverter.unserialize(buffer));
+		assertEquals(0, buffer.readableBytes());
+		buffer.release();
+	}
+
+	@Test
+	public void nestedMapsAndArraysShouldBeUnserialized() {
+		var inner = TObject.newInstance();
+		inner.put("x", 10);
+		inner.put("y", -20);
+		var array = TArray.newInstance();
+		array.put("a").put(inner).put(null);
+		__message.put("inner", inner);
+		__message.put("array", array);
+		var bytes = MsgPackConverter.serialize(__message);
+
+		var message = MsgPackConverter.unserialize(bytes);
+		assertAll("nested", () -> assertEquals(__message, message),
+				() -> assertEquals(-20, message.getTObject("inner").getInt("y")),
+				() -> assertEquals(10, message.getTArray("array").getTObject(1).getInt("x")));
+	}
+
+	@Test
+	public void bigIntegersShouldNotBeTruncated() {
+		__message.put("long", 1L << 40);
+		__message.put("negative", -(1L << 40));
+		__message.put("small", 7L);
+		var bytes = MsgPackConverter.serialize(__message);
+
+		var message = MsgPackConverter.unserialize(bytes);
+		assertAll("integers", () -> assertEquals(1L << 40, message.getLong("long")),
+				() -> assertEquals(-(1L << 40), message.getLong("negative")),
+				() -> assertEquals(7L, message.getLong("small")));
+	}
+
+	@Test
+	public void truncatedOrInvalidMessageShouldReturnNull() {
+		var bytes = MsgPackConverter.serialize(__message);
+
+		assertAll("invalid", () -> assertNull(MsgPackConverter.unserialize(Arrays.copyOf(bytes, bytes.length - 1))),
+				// a map which claims more entries than its content
+				() -> assertNull(MsgPackConverter.unserialize(new byte[] { (byte) 0xdf, 0x7f, 0, 0, 0 })),
+				// an array instead of a map
+				() -> assertNull(MsgPackConverter.unserialize(new byte[] { (byte) 0x91, 0x01 })),
+				// an integer key
+				() -> assertNull(MsgPackConverter.unserialize(new byte[] { (byte) 0x81, 0x01, 0x01 })),
+				// an empty map
+				() -> assertNull(MsgPackConverter.unserialize(new byte[] { (byte) 0x80 })));
+	}
+
+	@Test
+	public void tooDeepMessageShouldReturnNull() {
+		var message = TObject.newInstance();
+		var current = message;
+		for (int i = 0; i < MsgPackDecoder.MAX_DEPTH + 1; i++) {
+			var inner = TObject.newInstance();
+			current.put("inner", inner);
+			current = inner;
+		}
+		current.put("value", 1);
+
+		assertNull(MsgPackConverter.unserialize(MsgPackConverter.serialize(message)));
+	}
+
 }
@@ -0,0 +1,257 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.message.schema.Field;
+import com.tenio.message.schema.Message;
+import com.tenio.message.schema.MessageRegistry;
+import com.tenio.message.schema.WireFormat;
+
+import io.netty.buffer.Unpooled;
+
+/**
+ * @author kong
+ */
+public final class SchemaMessageTest {
+
+	@Message(id = 1)
+	static final class Position {
+
+		@Field(1)
+		float x;
+		@Field(2)
+		float y;
+
+	}
+
+	@Message(id = 2)
+	static final class State {
+
+		@Field(1)
+		int id;
+		@Field(2)
+		long time;
+		@Field(3)
+		boolean alive;
+		@Field(4)
+		byte team;
+		@Field(5)
+		short health;
+		@Field(6)
+		char grade;
+		@Field(7)
+		double rotation;
+		@Field(8)
+		String name;
+		@Field(9)
+		byte[] data;
+		@Field(10)
+		Position position;
+
+	}
+
+	/**
+	 * A later version of {@link Position}, with one more field
+	 */
+	@Message(id = 3)
+	static final class PositionV2 {
+
+		@Field(1)
+		float x;
+		@Field(2)
+		float y;
+		@Field(3)
+		String zone;
+
+	}
+
+	/**
+	 * A message whose fields have initializers
+	 */
+	@Message(id = 4)
+	static final class Player {
+
+		@Field(1)
+		int hp = 100;
+		@Field(2)
+		boolean alive = true;
+		@Field(3)
+		String name = "player";
+
+	}
+
+	/**
+	 * A message which contains itself
+	 */
+	@Message(id = 5)
+	static final class Node {
+
+		@Field(1)
+		Node child;
+
+	}
+
+	@Test
+	public void messageEncodeAndDecodeShouldReturnTrue() {
+		var state = new State();
+		state.id = -7;
+		state.time = 1L << 40;
+		state.alive = true;
+		state.team = 3;
+		state.health = -300;
+		state.grade = 'A';
+		state.rotation = 1.5;
+		state.name = "vehicle";
+		state.data = new byte[] { 1, 2, 3 };
+		state.position = new Position();
+		state.position.x = 10.5f;
+		state.position.y = -2f;
+
+		var buffer = Unpooled.buffer();
+		assertTrue(MessageRegistry.encode(state, buffer));
+		var decoded = (State) MessageRegistry.decode(buffer);
+
+		assertAll("decode", () -> assertEquals(-7, decoded.id), () -> assertEquals(1L << 40, decoded.time),
+				() -> assertTrue(decoded.alive), () -> assertEquals(3, decoded.team),
+				() -> assertEquals(-300, decoded.health), () -> assertEquals('A', decoded.grade),
+				() -> assertEquals(1.5, decoded.rotation), () -> assertEquals("vehicle", decoded.name),
+				() -> assertArrayEquals(new byte[] { 1, 2, 3 }, decoded.data),
+				() -> assertEquals(10.5f, decoded.position.x), () -> assertEquals(-2f, decoded.position.y),
+				() -> assertFalse(buffer.isReadable()));
+	}
+
+	@Test
+	public void defaultValuesShouldNotBeWritten() {
+		var buffer = Unpooled.buffer();
+		MessageRegistry.encode(new State(), buffer);
+
+		// the marker and the id only
+		assertEquals(2, buffer.readableBytes());
+		var decoded = (State) MessageRegistry.decode(buffer);
+		assertAll("defaults", () -> assertEquals(0, decoded.id), () -> assertNull(decoded.name),
+				() -> assertNull(decoded.position));
+	}
+
+	@Test
+	public void defaultValuesShouldNotBeReplacedByTheInitializers() {
+		var player = new Player();
+		player.hp = 0;
+		player.alive = false;
+		player.name = null;
+		var buffer = Unpooled.buffer();
+		MessageRegistry.encode(player, buffer);
+
+		var decoded = (Player) MessageRegistry.decode(buffer);
+		assertAll("initializers", () -> assertEquals(0, decoded.hp), () -> assertFalse(decoded.alive),
+				() -> assertNull(decoded.name));
+
+		buffer = Unpooled.buffer();
+		MessageRegistry.encode(new Player(), buffer);
+		var initialized = (Player) MessageRegistry.decode(buffer);
+		assertAll("values", () -> assertEquals(100, initialized.hp), () -> assertTrue(initialized.alive),
+				() -> assertEquals("player", initialized.name));
+	}
+
+	@Test
+	public void schemaMessageShouldBeSmallerThanTObject() {
+		var position = new Position();
+		position.x = 10.5f;
+		position.y = -2f;
+		var object = TObject.newInstance();
+		object.put("x", 10.5f);
+		object.put("y", -2f);
+
+		var buffer = Unpooled.buffer();
+		MessageRegistry.encode(position, buffer);
+		assertTrue(buffer.readableBytes() < MsgPackConverter.serialize(object).length);
+	}
+
+	@Test
+	public void unknownFieldsShouldBeSkipped() {
+		var position = new PositionV2();
+		position.x = 1f;
+		position.zone = "north";
+		position.y = 2f;
+		var buffer = Unpooled.buffer();
+		MessageRegistry.getCodec(PositionV2.class).encode(position, buffer);
+
+		// an old reader only knows the first two fields
+		var decoded = MessageRegistry.getCodec(Position.class).decode(buffer);
+		assertAll("skip", () -> assertEquals(1f, decoded.x), () -> assertEquals(2f, decoded.y));
+	}
+
+	@Test
+	public void deeplyNestedMessageShouldReturnNull() {
+		var node = new Node();
+		node.child = new Node();
+		node.child.child = new Node();
+		var buffer = Unpooled.buffer();
+		MessageRegistry.encode(node, buffer);
+		var decoded = (Node) MessageRegistry.decode(buffer);
+
+		// a client sends many nested groups of the same field
+		var nested = Unpooled.buffer();
+		nested.writeByte(MessageRegistry.MARKER);
+		WireFormat.writeVarint32(nested, 5);
+		for (int i = 0; i < 100000; i++) {
+			WireFormat.writeGroup(nested, 1);
+		}
+
+		assertAll("nested", () -> assertNull(decoded.child.child.child),
+				() -> assertNull(MessageRegistry.decode(nested)));
+	}
+
+	@Test
+	public void messagePackShouldNotBeTakenForSchemaMessage() {
+		var object = TObject.newInstance();
+		object.put("key", "value");
+
+		assertFalse(MessageRegistry.isMessage(Unpooled.wrappedBuffer(MsgPackConverter.serialize(object))));
+	}
+
+	@Test
+	public void unknownOrTruncatedMessageShouldReturnNull() {
+		var state = new State();
+		state.name = "vehicle";
+		var buffer = Unpooled.buffer();
+		MessageRegistry.encode(state, buffer);
+		var truncated = buffer.slice(0, buffer.readableBytes() - 1);
+
+		assertAll("invalid", () -> assertNull(MessageRegistry.decode(truncated)),
+				() -> assertNull(MessageRegistry.decode(Unpooled.wrappedBuffer(new byte[] { MessageRegistry.MARKER,
+						(byte) 0xFF, 0x03 }))));
+	}
+
+}
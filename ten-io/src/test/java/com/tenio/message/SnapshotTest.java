@@ -0,0 +1,178 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.message;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.entity.element.TArray;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.MsgPackCodec;
+import com.tenio.message.snapshot.Snapshot;
+import com.tenio.message.snapshot.SnapshotDelta;
+import com.tenio.message.snapshot.SnapshotHistory;
+
+import io.netty.buffer.Unpooled;
+
+/**
+ * @author kong
+ */
+public final class SnapshotTest {
+
+	private static final int VEHICLES = 100;
+
+	private Snapshot __baseline;
+
+	@BeforeEach
+	public void initialize() {
+		__baseline = Snapshot.newInstance();
+		for (int i = 0; i < VEHICLES; i++) {
+			__baseline.put(i, i, 300 + i, 400 - i, 90);
+		}
+	}
+
+	@Test
+	public void deltaShouldRebuildTheSnapshot() {
+		var snapshot = __baseline.copy();
+		snapshot.put(3, 4, 301, 399, 91);
+		snapshot.put(200, 1, 2);
+		snapshot.remove(7);
+		snapshot.put(8, 1, 2, 3);
+
+		var data = SnapshotDelta.write(TArray.newInstance(), 1, snapshot, 0, __baseline);
+		assertAll("deltaShouldRebuildTheSnapshot",
+				() -> assertEquals(1, SnapshotDelta.getSequence(data)),
+				() -> assertEquals(0, SnapshotDelta.getBaseline(data)),
+				() -> assertEquals(snapshot, SnapshotDelta.read(data, __baseline)),
+				() -> assertNull(SnapshotDelta.read(data, null)));
+
+		var full = SnapshotDelta.write(TArray.newInstance(), 1, snapshot, 0, null);
+		assertEquals(SnapshotDelta.FULL, SnapshotDelta.getBaseline(full));
+		assertEquals(snapshot, SnapshotDelta.read(full, null));
+	}
+
+	@Test
+	public void deltaShouldOnlyWriteTheChangedFields() {
+		var snapshot = __baseline.copy();
+		snapshot.put(5, 5, 307, 393, 90);
+
+		var delta = SnapshotDelta.write(TArray.newInstance(), 1, snapshot, 0, __baseline);
+		// the id, the mask and the 2 moves
+		assertEquals(4, delta.getTArray(SnapshotDelta.ENTITIES).size());
+		assertEquals(0b0110, delta.getTArray(SnapshotDelta.ENTITIES).getInt(1));
+
+		var full = SnapshotDelta.write(TArray.newInstance(), 1, snapshot, 0, null);
+		assertTrue(__encode(delta) * 10 < __encode(full));
+	}
+
+	@Test
+	public void deltaShouldSurviveTheCodec() {
+		var snapshot = __baseline.copy();
+		snapshot.put(1, Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0);
+
+		var message = TObject.newInstance();
+		message.put("p", SnapshotDelta.write(TArray.newInstance(), 1, snapshot, 0, __baseline));
+		var codec = new MsgPackCodec();
+		var buffer = Unpooled.buffer();
+		assertTrue(codec.encode(message, buffer));
+		var decoded = codec.decode(buffer);
+		assertEquals(snapshot, SnapshotDelta.read(decoded.getTArray("p"), __baseline));
+	}
+
+	@Test
+	public void invalidDeltaShouldReturnNull() {
+		var data = TArray.newInstance();
+		data.put(1).put(SnapshotDelta.FULL).put(TArray.newInstance()).put(TArray.newInstance().put(1).put(-1));
+		assertNull(SnapshotDelta.read(data, null));
+
+		var truncated = TArray.newInstance();
+		truncated.put(1).put(SnapshotDelta.FULL).put(TArray.newInstance()).put(TArray.newInstance().put(1).put(3));
+		assertNull(SnapshotDelta.read(truncated, null));
+
+		assertNull(SnapshotDelta.read(TArray.newInstance().put(1), null));
+		assertThrows(IllegalArgumentException.class, () -> Snapshot.newInstance().put(1, new int[Snapshot.MAX_FIELDS + 1]));
+	}
+
+	@Test
+	public void historyShouldUseTheLastAcknowledgedSnapshot() {
+		var history = new SnapshotHistory(4);
+		var first = history.write(__baseline, TArray.newInstance());
+		assertEquals(SnapshotDelta.FULL, SnapshotDelta.getBaseline(first));
+
+		var next = __baseline.copy();
+		next.put(1, 1, 1, 1, 1);
+		var second = history.write(next, TArray.newInstance());
+		// nothing is acknowledged yet
+		assertEquals(SnapshotDelta.FULL, SnapshotDelta.getBaseline(second));
+
+		assertTrue(history.acknowledge(SnapshotDelta.getSequence(first)));
+		assertSame(__baseline, history.getBaseline());
+		var third = history.write(next, TArray.newInstance());
+		assertEquals(SnapshotDelta.getSequence(first), SnapshotDelta.getBaseline(third));
+		assertEquals(next, SnapshotDelta.read(third, __baseline));
+
+		assertTrue(history.acknowledge(SnapshotDelta.getSequence(third)));
+		// an older or an unknown acknowledgement is ignored
+		assertFalse(history.acknowledge(SnapshotDelta.getSequence(second)));
+		assertFalse(history.acknowledge(100));
+		assertFalse(history.acknowledge(-1));
+		assertEquals(SnapshotDelta.getSequence(third), history.getAcknowledged());
+		var fourth = history.write(next, TArray.newInstance());
+		assertTrue(SnapshotDelta.read(fourth, next).equals(next));
+		assertTrue(fourth.getTArray(SnapshotDelta.ENTITIES).isEmpty());
+	}
+
+	@Test
+	public void historyShouldSendAFullSnapshotWhenTheBaselineIsTooOld() {
+		var history = new SnapshotHistory(4);
+		var first = history.write(__baseline, TArray.newInstance());
+		assertTrue(history.acknowledge(SnapshotDelta.getSequence(first)));
+		for (int i = 0; i < history.getSize(); i++) {
+			history.write(__baseline, TArray.newInstance());
+		}
+		assertNull(history.getBaseline());
+		var data = history.write(__baseline, TArray.newInstance());
+		assertEquals(SnapshotDelta.FULL, SnapshotDelta.getBaseline(data));
+		// the acknowledgement of an overwritten snapshot is ignored
+		assertFalse(history.acknowledge(SnapshotDelta.getSequence(first)));
+		assertThrows(IllegalArgumentException.class, () -> new SnapshotHistory(0));
+	}
+
+	private int __encode(TArray data) {
+		var message = TObject.newInstance();
+		message.put("p", data);
+		var buffer = Unpooled.buffer();
+		assertTrue(new MsgPackCodec().encode(message, buffer));
+		return buffer.readableBytes();
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.configuration.constant.TEvent;
+import com.tenio.event.EventManager;
+import com.tenio.model.PlayerModel;
+import com.tenio.network.MessageDispatcher.OverflowPolicy;
+import com.tenio.network.netty.NettyConnection;
+import com.tenio.network.netty.datagram.DatagramPlayerIndex;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * @author kong
+ */
+public final class DatagramIndexTest {
+
+	private EventManager __eventManager;
+	private AtomicInteger __detached;
+	private EmbeddedChannel __channel;
+	private DatagramPlayerIndex __index;
+	private InetSocketAddress __remote;
+	private PlayerModel __player;
+	private NettyConnection __connection;
+	private int __session;
+
+	@BeforeEach
+	public void initialize() {
+		__eventManager = new EventManager();
+		__detached = new AtomicInteger();
+		__eventManager.getExternal().on(TEvent.DETACH_UDP, args -> {
+			__detached.incrementAndGet();
+			return null;
+		});
+		__eventManager.subscribe();
+		__channel = new EmbeddedChannel();
+		__index = new DatagramPlayerIndex(__eventManager, null);
+		__channel.attr(DatagramPlayerIndex.KEY_INDEX).set(__index);
+		__remote = new InetSocketAddress("127.0.0.1", 10000);
+		__player = new PlayerModel("kong");
+		__connection = NettyConnection.newInstance(__eventManager, Connection.Type.DATAGRAM, __channel);
+		__connection.setSockAddress(__remote);
+		__player.setSubConnection(__connection);
+		__session = __index.add(__remote, __player, __connection);
+	}
+
+	@Test
+	public void getAttachedAddressShouldReturnPlayer() {
+		assertEquals(__player, __index.get(new InetSocketAddress("127.0.0.1", 10000)));
+		assertNull(__index.get(new InetSocketAddress("127.0.0.1", 10001)));
+	}
+
+	@Test
+	public void removeSubConnectionShouldDetachAddress() {
+		__player.setSubConnection(null);
+
+		assertNull(__index.get(__remote));
+		assertEquals(0, __index.size());
+	}
+
+	@Test
+	public void expireIdleAddressShouldRemoveSubConnection() throws InterruptedException {
+		Thread.sleep(5);
+		__index.expire(1);
+
+		assertNull(__index.get(__remote));
+		assertFalse(__player.hasSubConnection());
+		assertEquals(1, __detached.get());
+	}
+
+	@Test
+	public void expiryShouldNotDetachTheNextSubConnection() throws InterruptedException {
+		var dispatcher = MessageDispatcher.newInstance(1, 4, OverflowPolicy.DROP);
+		var index = new DatagramPlayerIndex(__eventManager, dispatcher);
+		index.add(__remote, __player, __connection);
+
+		// the player's stripe is busy, so the expiry waits for it
+		var blocked = new CountDownLatch(1);
+		dispatcher.dispatch(__player, () -> {
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread.sleep(5);
+		index.expire(1);
+
+		// the player is attached again in the meantime
+		var connection = NettyConnection.newInstance(__eventManager, Connection.Type.DATAGRAM, __channel);
+		connection.setSockAddress(__remote);
+		__player.setSubConnection(connection);
+		index.add(__remote, __player, connection);
+		blocked.countDown();
+
+		var done = new CountDownLatch(1);
+		dispatcher.dispatchAlways(__player, done::countDown);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		dispatcher.shutdown();
+
+		assertAll("expiryShouldNotDetachTheNextSubConnection",
+				() -> assertSame(connection, __player.getSubConnection()),
+				() -> assertEquals(__player, index.get(__remote)), () -> assertEquals(0, __detached.get()));
+	}
+
+	@Test
+	public void sessionShouldRejectReplayedPackets() {
+		assertNotEquals(DatagramPlayerIndex.NO_SESSION, __session);
+		assertEquals(__player, __index.get(__session, 5, __remote));
+		assertNull(__index.get(__session, 5, __remote));
+		// a reordered packet is still accepted once
+		assertEquals(__player, __index.get(__session, 3, __remote));
+		assertNull(__index.get(__session, 3, __remote));
+		assertNull(__index.get(__session, 5 - 64, __remote));
+	}
+
+	@Test
+	public void sessionShouldOnlyBeValidForItsAddress() {
+		assertNull(__index.get(__session, 1, new InetSocketAddress("127.0.0.1", 10001)));
+		assertNull(__index.get(__session + 1, 1, __remote));
+	}
+
+	@Test
+	public void oldSessionShouldBeRejectedAfterReattaching() {
+		__player.setSubConnection(null);
+		var connection = NettyConnection.newInstance(__eventManager, Connection.Type.DATAGRAM, __channel);
+		connection.setSockAddress(__remote);
+		__player.setSubConnection(connection);
+		int session = __index.add(__remote, __player, connection);
+
+		assertNotEquals(__session, session);
+		assertNull(__index.get(__session, 1, __remote));
+		assertEquals(__player, __index.get(session, 1, __remote));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__channel.close();
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.configuration.constant.LEvent;
+import com.tenio.entity.element.TObject;
+import com.tenio.event.EventManager;
+import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.model.Configuration;
+import com.tenio.model.PlayerModel;
+import com.tenio.network.MessageDispatcher.OverflowPolicy;
+import com.tenio.network.netty.NettyConnection;
+import com.tenio.network.netty.datagram.DatagramPlayerIndex;
+import com.tenio.network.netty.datagram.NettyDatagramHandler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * @author kong
+ */
+public final class DispatcherTest {
+
+	private MessageDispatcher __dispatcher;
+
+	@BeforeEach
+	public void initialize() {
+		__dispatcher = MessageDispatcher.newInstance(4, 2, OverflowPolicy.DROP);
+	}
+
+	@Test
+	public void tasksOfOneKeyShouldBeExecutedInOrder() throws InterruptedException {
+		var key = new Object();
+		var results = Collections.synchronizedList(new ArrayList<Integer>());
+		var done = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			int value = i;
+			__dispatcher.dispatchAlways(key, () -> {
+				results.add(value);
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, results.get(i));
+		}
+	}
+
+	@Test
+	public void fullQueueShouldRefuseTask() throws InterruptedException {
+		var key = new Object();
+		var blocked = new CountDownLatch(1);
+		var started = new CountDownLatch(1);
+		__dispatcher.dispatch(key, () -> {
+			started.countDown();
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		started.await(5, TimeUnit.SECONDS);
+
+		boolean second = __dispatcher.dispatch(key, () -> {
+		});
+		boolean third = __dispatcher.dispatch(key, () -> {
+		});
+		int depth = __dispatcher.getQueueDepth();
+		blocked.countDown();
+
+		assertAll("fullQueueShouldRefuseTask", () -> assertTrue(second), () -> assertFalse(third),
+				() -> assertEquals(2, depth), () -> assertEquals(1, __dispatcher.getDroppedCount()));
+	}
+
+	@Test
+	public void forcedTaskShouldRunAfterTheQueuedTasksOfAFullQueue() throws InterruptedException {
+		var key = new Object();
+		var blocked = new CountDownLatch(1);
+		var started = new CountDownLatch(1);
+		var results = Collections.synchronizedList(new ArrayList<Integer>());
+		__dispatcher.dispatch(key, () -> {
+			started.countDown();
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			results.add(0);
+		});
+		started.await(5, TimeUnit.SECONDS);
+		__dispatcher.dispatch(key, () -> results.add(1));
+
+		boolean refused = __dispatcher.dispatch(key, () -> results.add(-1));
+		var done = new CountDownLatch(1);
+		boolean forced = __dispatcher.dispatchAlways(key, () -> {
+			results.add(2);
+			done.countDown();
+		});
+		blocked.countDown();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertAll("forcedTaskShouldRunAfterTheQueuedTasksOfAFullQueue", () -> assertFalse(refused),
+				() -> assertTrue(forced), () -> assertEquals(List.of(0, 1, 2), results));
+	}
+
+	@Test
+	public void refusedDatagramsShouldDisconnectThePlayerOnce() throws InterruptedException {
+		var dispatcher = MessageDispatcher.newInstance(1, 1, OverflowPolicy.DISCONNECT);
+		var eventManager = new EventManager();
+		// the server raises TEvent.DISCONNECT_PLAYER for each manual close
+		var closes = new AtomicInteger();
+		eventManager.getInternal().on(LEvent.MANUALY_CLOSE_CONNECTION, args -> {
+			closes.incrementAndGet();
+			return null;
+		});
+		eventManager.subscribe();
+
+		var index = new DatagramPlayerIndex(eventManager, dispatcher);
+		var datagramChannel = new EmbeddedChannel(
+				new NettyDatagramHandler(eventManager, dispatcher, index, new Configuration("TenIOConfig.example.xml")));
+		datagramChannel.attr(DatagramPlayerIndex.KEY_INDEX).set(index);
+		var socketChannel = new EmbeddedChannel() {
+			@Override
+			public SocketAddress remoteAddress() {
+				return new InetSocketAddress("127.0.0.1", 10001);
+			}
+		};
+		var remote = new InetSocketAddress("127.0.0.1", 10000);
+		var player = new PlayerModel("kong");
+		var mainConnection = NettyConnection.newInstance(eventManager, Connection.Type.SOCKET, socketChannel);
+		var subConnection = NettyConnection.newInstance(eventManager, Connection.Type.DATAGRAM, datagramChannel);
+		subConnection.setSockAddress(remote);
+		player.setConnection(mainConnection);
+		player.setSubConnection(subConnection);
+		index.add(remote, player, subConnection);
+
+		// the stripe is busy and its queue is full, so all the datagrams are refused
+		var blocked = new CountDownLatch(1);
+		dispatcher.dispatch(mainConnection, () -> {
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		var content = MsgPackConverter.serialize(message);
+		for (int i = 0; i < 10; i++) {
+			datagramChannel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(content),
+					new InetSocketAddress("127.0.0.1", 9999), remote));
+		}
+		blocked.countDown();
+
+		var done = new CountDownLatch(1);
+		dispatcher.dispatchAlways(mainConnection, done::countDown);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		dispatcher.shutdown();
+		datagramChannel.close();
+
+		assertAll("refusedDatagramsShouldDisconnectThePlayerOnce", () -> assertEquals(1, closes.get()),
+				() -> assertFalse(socketChannel.isOpen()));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__dispatcher.shutdown();
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.tenio.network.netty.FloodGuard;
+
+/**
+ * @author kong
+ */
+public final class FloodGuardTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	public void messagesOverTheRateShouldBeRefused() {
+		var guard = new FloodGuard(10, 0, 0);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(guard.tryAcquire(100, 0));
+		}
+		assertFalse(guard.tryAcquire(100, 0));
+
+		// a tenth of a second gives back one message
+		assertTrue(guard.tryAcquire(100, SECOND / 10));
+		assertFalse(guard.tryAcquire(100, SECOND / 10));
+	}
+
+	@Test
+	public void bytesOverTheRateShouldBeRefused() {
+		var guard = new FloodGuard(0, 1000, 0);
+		assertTrue(guard.tryAcquire(600, 0));
+		// the bucket is not empty yet, so a bigger message still passes once
+		assertTrue(guard.tryAcquire(600, 0));
+		assertFalse(guard.tryAcquire(1, 0));
+		assertTrue(guard.tryAcquire(1, SECOND));
+	}
+
+	@Test
+	public void aBucketShouldNotHoldMoreThanOneSecond() {
+		var guard = new FloodGuard(5, 0, 0);
+		int accepted = 0;
+		for (int i = 0; i < 20; i++) {
+			if (guard.tryAcquire(1, 10 * SECOND)) {
+				accepted++;
+			}
+		}
+		assertEquals(5, accepted);
+	}
+
+	@Test
+	public void throttlingShouldReturnTheTimeToPayTheDebt() {
+		var guard = new FloodGuard(10, 0, 0);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, guard.acquire(1, 0));
+		}
+		assertEquals(SECOND / 10, guard.acquire(1, 0));
+		assertEquals(SECOND / 5, guard.acquire(1, 0));
+		assertEquals(0, guard.acquire(1, SECOND / 2));
+	}
+
+	@Test
+	public void aFloodShouldBeReportedOnce() {
+		var guard = new FloodGuard(1, 0, 0);
+		assertTrue(guard.tryAcquire(1, 0));
+		assertFalse(guard.tryAcquire(1, 0));
+		assertTrue(guard.markFlooding());
+		assertFalse(guard.tryAcquire(1, 0));
+		assertFalse(guard.markFlooding());
+		assertTrue(guard.isFlooding());
+
+		assertTrue(guard.tryAcquire(1, SECOND));
+		assertFalse(guard.isFlooding());
+		assertTrue(guard.markFlooding());
+	}
+
+}
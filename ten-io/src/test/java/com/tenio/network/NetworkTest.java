@@ -23,17 +23,46 @@ THE SOFTWARE.
 */
 package com.tenio.network;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.tenio.configuration.BaseConfiguration;
+import com.tenio.configuration.constant.Constants;
+import com.tenio.configuration.constant.LEvent;
+import com.tenio.configuration.constant.TEvent;
+import com.tenio.entity.element.TObject;
 import com.tenio.event.EventManager;
 import com.tenio.event.IEventManager;
+import com.tenio.message.codec.BinaryCodec;
+import com.tenio.message.codec.CodecRegistry;
+import com.tenio.message.codec.JsonCodec;
+import com.tenio.message.codec.KeyDictionary;
+import com.tenio.message.codec.MessagePacker;
+import com.tenio.message.codec.MsgPackConverter;
 import com.tenio.model.Configuration;
 import com.tenio.network.netty.NettyNetwork;
+import com.tenio.network.netty.NettyTransport;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 
 /**
  * @author kong
@@ -62,6 +91,276 @@ public final class NetworkTest {
 		assertFalse(__network.start(__eventManager, __configuration));
 	}
 
+	@Test
+	public void sendMessageViaSocketShouldReturnTheSameMessage() throws Exception {
+		// echo the first message back to its connection
+		__eventManager.getInternal().on(LEvent.CREATE_NEW_CONNECTION, args -> {
+			var connection = (Connection) args[2];
+			connection.send((TObject) args[3]);
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		message.put("integer", 1993);
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.SOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream().write(MessagePacker.pack(MsgPackConverter.serialize(message)));
+
+			var in = new DataInputStream(socket.getInputStream());
+			var content = new byte[in.readUnsignedShort()];
+			in.readFully(content);
+			assertEquals(message, MsgPackConverter.unserialize(content));
+		}
+	}
+
+	@Test
+	public void socketHandshakeShouldSwitchTheConnectionCodec() throws Exception {
+		// echo the first message back to its connection
+		__eventManager.getInternal().on(LEvent.CREATE_NEW_CONNECTION, args -> {
+			var connection = (Connection) args[2];
+			connection.send((TObject) args[3]);
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		message.put("integer", 1993);
+		var codec = CodecRegistry.getCodec(JsonCodec.NAME);
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.SOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			var in = new DataInputStream(socket.getInputStream());
+			socket.getOutputStream()
+					.write(MessagePacker.pack(new byte[] { CodecRegistry.HANDSHAKE, (byte) codec.getId() }));
+			assertEquals(2, in.readUnsignedShort());
+			assertEquals(CodecRegistry.HANDSHAKE, in.readByte());
+			assertEquals(codec.getId(), in.readUnsignedByte());
+
+			var buffer = Unpooled.buffer();
+			codec.encode(message, buffer);
+			socket.getOutputStream().write(MessagePacker.pack(ByteBufUtil.getBytes(buffer)));
+
+			var content = new byte[in.readUnsignedShort()];
+			in.readFully(content);
+			assertEquals(message, codec.decode(Unpooled.wrappedBuffer(content)));
+		}
+	}
+
+	@Test
+	public void socketHandshakeWithKeyDictionaryShouldShrinkTheRepeatedKeys() throws Exception {
+		// send the first message back a few times
+		__eventManager.getInternal().on(LEvent.CREATE_NEW_CONNECTION, args -> {
+			var connection = (Connection) args[2];
+			for (int i = 0; i <= KeyDictionary.THRESHOLD; i++) {
+				connection.send((TObject) args[3]);
+			}
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		message.put("integer", 1993);
+		var codec = CodecRegistry.getCodec(BinaryCodec.NAME);
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.SOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			var in = new DataInputStream(socket.getInputStream());
+			socket.getOutputStream().write(MessagePacker.pack(new byte[] { CodecRegistry.HANDSHAKE,
+					(byte) codec.getId(), (byte) CodecRegistry.FLAG_KEY_DICTIONARY }));
+			assertEquals(3, in.readUnsignedShort());
+			assertEquals(CodecRegistry.HANDSHAKE, in.readByte());
+			assertEquals(codec.getId(), in.readUnsignedByte());
+			assertEquals(CodecRegistry.FLAG_KEY_DICTIONARY, in.readUnsignedByte());
+
+			var buffer = Unpooled.buffer();
+			codec.encode(message, buffer, new KeyDictionary(16));
+			socket.getOutputStream().write(MessagePacker.pack(ByteBufUtil.getBytes(buffer)));
+
+			var dictionary = new KeyDictionary(16);
+			int[] sizes = new int[KeyDictionary.THRESHOLD + 1];
+			for (int i = 0; i < sizes.length; i++) {
+				var content = new byte[in.readUnsignedShort()];
+				in.readFully(content);
+				sizes[i] = content.length;
+				assertEquals(message, codec.decode(Unpooled.wrappedBuffer(content), dictionary));
+			}
+			assertTrue(sizes[KeyDictionary.THRESHOLD] < sizes[0]);
+		}
+	}
+
+	@Test
+	public void keyDictionaryShouldKeepTheIdsInOrderAcrossThreads() throws Exception {
+		// another thread announces the keys while the network thread is busy, then
+		// the network thread sends the ids, they must be written after the
+		// announcements
+		__eventManager.getInternal().on(LEvent.CREATE_NEW_CONNECTION, args -> {
+			var connection = (Connection) args[2];
+			var message = (TObject) args[3];
+			var sender = new Thread(() -> {
+				for (int i = 0; i < KeyDictionary.THRESHOLD; i++) {
+					connection.send(message);
+				}
+			});
+			sender.start();
+			try {
+				sender.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			connection.send(message);
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		message.put("integer", 1993);
+		var codec = CodecRegistry.getCodec(BinaryCodec.NAME);
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.SOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			var in = new DataInputStream(socket.getInputStream());
+			socket.getOutputStream().write(MessagePacker.pack(new byte[] { CodecRegistry.HANDSHAKE,
+					(byte) codec.getId(), (byte) CodecRegistry.FLAG_KEY_DICTIONARY }));
+			in.readFully(new byte[Constants.HEADER_BYTES + CodecRegistry.HANDSHAKE_BYTES + 1]);
+
+			var buffer = Unpooled.buffer();
+			codec.encode(message, buffer);
+			socket.getOutputStream().write(MessagePacker.pack(ByteBufUtil.getBytes(buffer)));
+
+			var dictionary = new KeyDictionary(16);
+			for (int i = 0; i <= KeyDictionary.THRESHOLD; i++) {
+				var content = new byte[in.readUnsignedShort()];
+				in.readFully(content);
+				assertEquals(message, codec.decode(Unpooled.wrappedBuffer(content), dictionary));
+			}
+		}
+	}
+
+	@Test
+	public void sendMessagesOutsideReadingShouldBeFlushedAfterDelay() throws Exception {
+		// send some messages from another thread, they are flushed by the delay
+		__eventManager.getInternal().on(LEvent.CREATE_NEW_CONNECTION, args -> {
+			var connection = (Connection) args[2];
+			var message = (TObject) args[3];
+			new Thread(() -> {
+				for (int i = 0; i < 3; i++) {
+					connection.send(message);
+				}
+			}).start();
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.SOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream().write(MessagePacker.pack(MsgPackConverter.serialize(message)));
+
+			var in = new DataInputStream(socket.getInputStream());
+			for (int i = 0; i < 3; i++) {
+				var content = new byte[in.readUnsignedShort()];
+				in.readFully(content);
+				assertEquals(message, MsgPackConverter.unserialize(content));
+			}
+		}
+	}
+
+	@Test
+	public void sendPacketsFromManyClientsShouldAllReachTheAttachRequest() throws Exception {
+		int clients = 8;
+		var received = new CountDownLatch(clients);
+		__eventManager.getExternal().on(TEvent.ATTACH_UDP_REQUEST, args -> {
+			received.countDown();
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		var content = MsgPackConverter.serialize(message);
+
+		for (int i = 0; i < clients; i++) {
+			try (var socket = new DatagramSocket()) {
+				socket.send(new DatagramPacket(content, content.length, InetAddress.getLoopbackAddress(),
+						__configuration.getInt(BaseConfiguration.DATAGRAM_PORT)));
+			}
+		}
+
+		assertTrue(received.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void sendPacketsFromManyClientsShouldReachAllDatagramChannels() throws Exception {
+		// only epoll can bind several channels to one port
+		assumeTrue(NettyTransport.newInstance(NettyTransport.AUTO).isEpoll());
+		int clients = 64;
+		var received = new CountDownLatch(clients);
+		// every datagram channel is read by its own thread
+		var threads = Collections.synchronizedSet(new HashSet<Thread>());
+		__eventManager.getExternal().on(TEvent.ATTACH_UDP_REQUEST, args -> {
+			threads.add(Thread.currentThread());
+			received.countDown();
+			return null;
+		});
+		__eventManager.subscribe();
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		var message = TObject.newInstance();
+		message.put("string", "String");
+		var content = MsgPackConverter.serialize(message);
+
+		for (int i = 0; i < clients; i++) {
+			try (var socket = new DatagramSocket()) {
+				socket.send(new DatagramPacket(content, content.length, InetAddress.getLoopbackAddress(),
+						__configuration.getInt(BaseConfiguration.DATAGRAM_PORT)));
+			}
+		}
+
+		assertTrue(received.await(5, TimeUnit.SECONDS));
+		int channels = ((NettyNetwork) __network).getDatagramChannels();
+		assertEquals(__configuration.getInt(BaseConfiguration.DATAGRAM_CHANNELS), channels);
+		// the kernel spreads the clients by their addresses
+		assertEquals(channels, threads.size());
+	}
+
+	@Test
+	public void webSocketHandshakeShouldNegotiateCompression() throws Exception {
+		assertTrue(__network.start(__eventManager, __configuration));
+
+		try (var socket = new Socket("localhost", __configuration.getInt(BaseConfiguration.WEBSOCKET_PORT))) {
+			socket.setSoTimeout(5000);
+			var request = "GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+					+ "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n"
+					+ "Sec-WebSocket-Extensions: permessage-deflate\r\n\r\n";
+			socket.getOutputStream().write(request.getBytes("US-ASCII"));
+
+			var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+			assertTrue(reader.readLine().contains("101"));
+			boolean negotiated = false;
+			String line;
+			while ((line = reader.readLine()) != null && !line.isEmpty()) {
+				if (line.toLowerCase().startsWith("sec-websocket-extensions")) {
+					negotiated = line.contains("permessage-deflate");
+				}
+			}
+			assertTrue(negotiated);
+		}
+	}
+
 	@AfterEach
 	public void tearDown() {
 		__network.shutdown();
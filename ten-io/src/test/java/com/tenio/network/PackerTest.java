@@ -0,0 +1,149 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.entity.element.TObject;
+import com.tenio.event.EventManager;
+import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.network.netty.NettyConnection;
+import com.tenio.network.netty.datagram.DatagramPacker;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * @author kong
+ */
+public final class PackerTest {
+
+	private EmbeddedChannel __channel;
+	private InetSocketAddress __remote;
+	private DatagramPacker __packer;
+
+	@BeforeEach
+	public void initialize() {
+		__channel = new EmbeddedChannel();
+		__channel.attr(DatagramPacker.KEY_PENDING).set(new ArrayDeque<DatagramPacker>());
+		__remote = new InetSocketAddress("127.0.0.1", 10000);
+		__packer = new DatagramPacker(__channel, __remote, 64);
+	}
+
+	@Test
+	public void messagesShouldBePackedUntilTheMtu() {
+		for (int i = 0; i < 3; i++) {
+			__packer.add(Unpooled.wrappedBuffer(new byte[20]));
+		}
+
+		DatagramPacket packet = __channel.readOutbound();
+		assertTrue(DatagramPacker.isPacked(packet.content()));
+		var lengths = new ArrayList<Integer>();
+		DatagramPacker.unpack(packet.content(), entry -> lengths.add(entry.readableBytes()));
+		assertEquals(List.of(20, 20), lengths);
+		packet.release();
+		assertNull(__channel.readOutbound());
+		assertTrue(__packer.hasPending());
+	}
+
+	@Test
+	public void singleMessageShouldBeSentWithoutHeader() {
+		var message = __newMessage(1);
+		__packer.add(Unpooled.wrappedBuffer(MsgPackConverter.serialize(message)));
+		__packer.flush();
+
+		DatagramPacket packet = __channel.readOutbound();
+		assertFalse(DatagramPacker.isPacked(packet.content()));
+		assertEquals(message, MsgPackConverter.unserialize(packet.content()));
+		packet.release();
+	}
+
+	@Test
+	public void flushPendingShouldSendAllPackers() {
+		var other = new DatagramPacker(__channel, new InetSocketAddress("127.0.0.1", 10001), 64);
+		__packer.add(Unpooled.wrappedBuffer(new byte[10]));
+		other.add(Unpooled.wrappedBuffer(new byte[10]));
+
+		DatagramPacker.flushPending(__channel);
+
+		assertFalse(__packer.hasPending());
+		assertFalse(other.hasPending());
+		((DatagramPacket) __channel.readOutbound()).release();
+		((DatagramPacket) __channel.readOutbound()).release();
+	}
+
+	@Test
+	public void datagramConnectionShouldPackMessagesUntilFlush() {
+		var connection = NettyConnection.newInstance(new EventManager(), Connection.Type.DATAGRAM, __channel, 1, 0,
+				1200);
+		connection.setSockAddress(__remote);
+		for (int i = 0; i < 3; i++) {
+			connection.send(__newMessage(i));
+		}
+		assertNull(__channel.readOutbound());
+
+		connection.flush();
+
+		DatagramPacket packet = __channel.readOutbound();
+		var messages = __unpack(packet);
+		assertEquals(List.of(__newMessage(0), __newMessage(1), __newMessage(2)), messages);
+		assertNull(__channel.readOutbound());
+	}
+
+	private TObject __newMessage(int value) {
+		var message = TObject.newInstance();
+		message.put("value", value);
+		return message;
+	}
+
+	private List<TObject> __unpack(DatagramPacket packet) {
+		var messages = new ArrayList<TObject>();
+		try {
+			DatagramPacker.unpack(packet.content(), entry -> messages.add(MsgPackConverter.unserialize(entry)));
+		} finally {
+			packet.release();
+		}
+		return messages;
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__packer.close();
+		__channel.finishAndReleaseAll();
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.configuration.constant.Constants;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.network.netty.NettyPacket;
+
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * @author kong
+ */
+public final class PacketTest {
+
+	private TObject __message;
+	private NettyPacket __packet;
+
+	@BeforeEach
+	public void initialize() {
+		__message = TObject.newInstance();
+		__message.put("string", "String");
+		__message.put("integer", 1993);
+		__packet = NettyPacket.newInstance(ByteBufAllocator.DEFAULT, __message);
+	}
+
+	@Test
+	public void retainFrameShouldContainHeaderAndMessage() {
+		var frame = __packet.retainFrame();
+		int length = frame.readUnsignedShort();
+
+		assertEquals(frame.readableBytes(), length);
+		assertEquals(__message, MsgPackConverter.unserialize(frame));
+		frame.release();
+	}
+
+	@Test
+	public void retainContentShouldContainMessageOnly() {
+		var content = __packet.retainContent();
+		var frame = __packet.retainFrame();
+
+		assertEquals(frame.readableBytes() - Constants.HEADER_BYTES, content.readableBytes());
+		assertEquals(__message, MsgPackConverter.unserialize(content));
+		content.release();
+		frame.release();
+	}
+
+	@Test
+	public void retainedViewsShouldOutliveThePacket() {
+		var content = __packet.retainContent();
+		__packet.release();
+
+		assertEquals(1, content.refCnt());
+		assertEquals(__message, MsgPackConverter.unserialize(content));
+		content.release();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__packet.release();
+	}
+
+}
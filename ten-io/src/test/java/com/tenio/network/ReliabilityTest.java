@@ -0,0 +1,173 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.configuration.constant.Constants;
+import com.tenio.entity.element.TObject;
+import com.tenio.message.codec.MsgPackConverter;
+import com.tenio.network.Connection.Delivery;
+import com.tenio.network.netty.datagram.DatagramReliability;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * @author kong
+ */
+public final class ReliabilityTest {
+
+	private EmbeddedChannel __senderChannel;
+	private EmbeddedChannel __receiverChannel;
+	private DatagramReliability __sender;
+	private DatagramReliability __receiver;
+	private List<Object> __delivered;
+
+	@BeforeEach
+	public void initialize() {
+		__senderChannel = new EmbeddedChannel();
+		__receiverChannel = new EmbeddedChannel();
+		__sender = new DatagramReliability(__senderChannel, new InetSocketAddress("127.0.0.1", 10000), () -> {
+		});
+		__receiver = new DatagramReliability(__receiverChannel, new InetSocketAddress("127.0.0.1", 10001), () -> {
+		});
+		__delivered = new ArrayList<Object>();
+	}
+
+	@Test
+	public void reorderedReliableMessagesShouldBeDeliveredInOrder() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			__send(Delivery.RELIABLE_ORDERED, i);
+		}
+		var first = __takePacket(__senderChannel);
+		var second = __takePacket(__senderChannel);
+		var third = __takePacket(__senderChannel);
+
+		__receive(__receiver, third);
+		__receive(__receiver, first);
+		__receive(__receiver, second);
+
+		assertEquals(List.of(0, 1, 2), __delivered);
+
+		// the acknowledgement is sent after one tick
+		Thread.sleep(Constants.RELIABLE_TICK * 2);
+		__receiverChannel.runScheduledPendingTasks();
+		__receive(__sender, __takePacket(__receiverChannel));
+
+		assertEquals(0, __sender.getInFlight());
+	}
+
+	@Test
+	public void lostReliableMessageShouldBeSentAgain() throws InterruptedException {
+		__send(Delivery.RELIABLE_ORDERED, 0);
+		__takePacket(__senderChannel).release();
+
+		Thread.sleep(Constants.RELIABLE_INITIAL_RTO + Constants.RELIABLE_TICK * 2);
+		__senderChannel.runScheduledPendingTasks();
+		__receive(__receiver, __takePacket(__senderChannel));
+
+		assertEquals(1, __sender.getResentCount());
+		assertEquals(List.of(0), __delivered);
+	}
+
+	@Test
+	public void duplicatedReliableMessageShouldBeDeliveredOnce() {
+		__send(Delivery.RELIABLE_ORDERED, 0);
+		var packet = __takePacket(__senderChannel);
+		var copy = new DatagramPacket(packet.content().copy(), packet.recipient());
+
+		__receive(__receiver, packet);
+		__receive(__receiver, copy);
+
+		assertEquals(List.of(0), __delivered);
+	}
+
+	@Test
+	public void olderSequencedMessageShouldBeDropped() {
+		__send(Delivery.UNRELIABLE_SEQUENCED, 0);
+		__send(Delivery.UNRELIABLE_SEQUENCED, 1);
+		var older = __takePacket(__senderChannel);
+		var newer = __takePacket(__senderChannel);
+
+		__receive(__receiver, newer);
+		__receive(__receiver, older);
+
+		assertEquals(List.of(1), __delivered);
+		assertEquals(0, __sender.getInFlight());
+	}
+
+	@Test
+	public void closeShouldReleaseThePendingMessages() {
+		__send(Delivery.RELIABLE_ORDERED, 0);
+		__takePacket(__senderChannel).release();
+		__sender.close();
+
+		assertEquals(0, __sender.getInFlight());
+		__send(Delivery.RELIABLE_ORDERED, 1);
+		assertNull(__senderChannel.readOutbound());
+	}
+
+	private void __send(Delivery delivery, int value) {
+		var message = TObject.newInstance();
+		message.put("value", value);
+		__sender.send(Unpooled.wrappedBuffer(MsgPackConverter.serialize(message)), delivery);
+	}
+
+	private DatagramPacket __takePacket(EmbeddedChannel channel) {
+		DatagramPacket packet = channel.readOutbound();
+		assertNotNull(packet);
+		return packet;
+	}
+
+	private void __receive(DatagramReliability reliability, DatagramPacket packet) {
+		try {
+			reliability.receive(packet.content(), payload -> {
+				__delivered.add(MsgPackConverter.unserialize(payload).get("value"));
+			});
+		} finally {
+			packet.release();
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__sender.close();
+		__receiver.close();
+		__senderChannel.finishAndReleaseAll();
+		__receiverChannel.finishAndReleaseAll();
+	}
+
+}
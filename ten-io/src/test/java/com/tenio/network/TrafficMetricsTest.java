@@ -0,0 +1,76 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.network;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author kong
+ */
+public final class TrafficMetricsTest {
+
+	@Test
+	public void connectionCountersShouldCountIntoTheirTransport() {
+		var transport = TrafficMetrics.of(Connection.Type.WEB_SOCKET);
+		var before = transport.getSnapshot();
+
+		var metrics = TrafficMetrics.newInstance(Connection.Type.WEB_SOCKET);
+		metrics.addRead(100, 10);
+		metrics.addRead(50, 5);
+		metrics.addWritten(200, 20);
+		metrics.addEncodeTime(7);
+		metrics.addDropped();
+
+		var snapshot = metrics.getSnapshot();
+		assertAll("connection", () -> assertEquals(2, snapshot.getReadMessages()),
+				() -> assertEquals(150, snapshot.getReadBytes()), () -> assertEquals(1, snapshot.getWrittenMessages()),
+				() -> assertEquals(200, snapshot.getWrittenBytes()), () -> assertEquals(15, snapshot.getDecodeTime()),
+				() -> assertEquals(27, snapshot.getEncodeTime()), () -> assertEquals(1, snapshot.getDroppedMessages()),
+				() -> assertEquals(350, snapshot.getTotalBytes()));
+
+		// the other tests can use the same transport, so only the growth is checked
+		var after = transport.getSnapshot();
+		assertAll("transport", () -> assertEquals(2, after.getReadMessages() - before.getReadMessages()),
+				() -> assertEquals(350, after.getTotalBytes() - before.getTotalBytes()),
+				() -> assertEquals(1, after.getDroppedMessages() - before.getDroppedMessages()));
+	}
+
+	@Test
+	public void snapshotsShouldBeSummed() {
+		var first = TrafficMetrics.newInstance(Connection.Type.SOCKET);
+		first.addRead(10, 1);
+		var second = TrafficMetrics.newInstance(Connection.Type.DATAGRAM);
+		second.addWritten(20, 2);
+
+		var sum = first.getSnapshot().add(second.getSnapshot());
+		assertEquals(1, sum.getReadMessages());
+		assertEquals(1, sum.getWrittenMessages());
+		assertEquals(30, sum.getTotalBytes());
+		assertEquals(3, sum.getDecodeTime() + sum.getEncodeTime());
+	}
+
+}
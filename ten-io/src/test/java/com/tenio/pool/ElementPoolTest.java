@@ -0,0 +1,219 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.pool;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.tenio.api.pool.ObjectPool;
+import com.tenio.entity.element.TObject;
+import com.tenio.exception.NullElementPoolException;
+import com.tenio.logger.pool.StringBuilderPool;
+
+/**
+ * @author kong
+ */
+public final class ElementPoolTest {
+
+	@Test
+	public void repaidElementShouldBeReused() {
+		var pool = new StringBuilderPool();
+		var builder = pool.get();
+		pool.repay(builder);
+
+		assertSame(builder, pool.get());
+	}
+
+	@Test
+	public void equalElementsShouldBeFoundByIdentity() {
+		var pool = new ObjectPool();
+		var first = pool.get();
+		var second = pool.get();
+		pool.repay(first);
+
+		// both objects are empty so they are equal, but only the first one is free
+		assertThrows(NullElementPoolException.class, () -> pool.repay(first));
+		pool.repay(second);
+		assertNotSame(pool.get(), pool.get());
+	}
+
+	@Test
+	public void repayTwiceShouldCauseException() {
+		var pool = new StringBuilderPool();
+		var builder = pool.get();
+		pool.repay(builder);
+
+		assertThrows(NullElementPoolException.class, () -> pool.repay(builder));
+	}
+
+	@Test
+	public void poolShouldShrinkToItsMaxSize() {
+		var pool = new ObjectPool(4, 4, 8);
+		var objects = new ArrayList<TObject>();
+		for (int i = 0; i < 20; i++) {
+			objects.add(pool.get());
+		}
+		assertEquals(20, pool.getPoolSize());
+
+		for (var object : objects) {
+			pool.repay(object);
+		}
+		assertEquals(8, pool.getPoolSize());
+	}
+
+	@Test
+	public void statisticsShouldCountHitsMissesAndInUse() {
+		var pool = new ObjectPool(2, 2, 8);
+		var first = pool.get();
+		var second = pool.get();
+		pool.get();
+		pool.repay(first);
+		pool.repay(second);
+		var statistics = pool.getStatistics();
+
+		assertAll("statistics", () -> assertEquals(1, statistics.getHits()),
+				() -> assertEquals(2, statistics.getMisses()), () -> assertEquals(2, statistics.getGrowths()),
+				() -> assertEquals(1, statistics.getInUse()), () -> assertEquals(4, pool.getPoolSize()));
+	}
+
+	@Test
+	public void unreturnedSampledElementShouldBeReportedOnce() {
+		ElementLeakDetector.configure(1, 0, TimeUnit.SECONDS);
+		try {
+			var pool = new StringBuilderPool();
+			// the first growth checks the leaks too
+			var leaked = pool.get();
+			assertEquals(1, pool.getStatistics().getLeaks());
+
+			pool.repay(pool.get());
+			assertEquals(0, pool.checkLeaks());
+
+			var another = pool.get();
+			assertEquals(1, pool.checkLeaks());
+			assertEquals(2, pool.getStatistics().getLeaks());
+			pool.repay(leaked);
+			pool.repay(another);
+		} finally {
+			ElementLeakDetector.configure(0, 60, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void leaksShouldNotBeCheckedWhenDetectionIsDisabled() {
+		var pool = new StringBuilderPool();
+		pool.get();
+
+		assertEquals(0, pool.checkLeaks());
+	}
+
+	@Test
+	public void elementsShouldNotBeSharedBetweenThreads() throws Exception {
+		var pool = new ObjectPool();
+		int threads = 4;
+		int rounds = 10000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		var start = new CountDownLatch(1);
+		Set<TObject> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		var futures = new ArrayList<Future<Boolean>>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < rounds; i++) {
+					var object = pool.get();
+					if (!inUse.add(object)) {
+						return false;
+					}
+					object.put("round", i);
+					inUse.remove(object);
+					pool.repay(object);
+				}
+				return true;
+			}));
+		}
+		start.countDown();
+		for (var future : futures) {
+			assertTrue(future.get(10, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+
+		assertTrue(pool.getPoolSize() <= threads * 16 + 32);
+	}
+
+	@Test
+	public void elementsCachedByATerminatedThreadShouldBeReused() throws Exception {
+		var pool = new ObjectPool(32, 32, 1000);
+		var thread = new Thread(() -> {
+			var objects = new ArrayList<TObject>();
+			for (int i = 0; i < 32; i++) {
+				objects.add(pool.get());
+			}
+			objects.forEach(pool::repay);
+		});
+		thread.start();
+		thread.join();
+
+		for (int i = 0; i < 32; i++) {
+			pool.get();
+		}
+
+		assertEquals(32, pool.getPoolSize());
+	}
+
+	@Test
+	public void cleanupShouldEmptyTheCachesOfOtherThreads() throws Exception {
+		var pool = new ObjectPool();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		var cached = executor.submit(() -> {
+			var object = pool.get();
+			pool.repay(object);
+			return object;
+		}).get(10, TimeUnit.SECONDS);
+
+		pool.cleanup();
+
+		assertEquals(0, pool.getPoolSize());
+		var object = executor.submit(() -> pool.get()).get(10, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		assertNotSame(cached, object);
+		assertThrows(NullElementPoolException.class, () -> pool.repay(cached));
+	}
+
+}
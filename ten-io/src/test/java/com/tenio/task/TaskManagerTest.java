@@ -0,0 +1,140 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author kong
+ */
+public final class TaskManagerTest {
+
+	private ITaskManager __taskManager;
+
+	@BeforeEach
+	public void initialize() {
+		__taskManager = new TaskManager();
+		__taskManager.initialize(2);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__taskManager.shutdown();
+	}
+
+	@Test
+	public void periodicTaskShouldRecordItsRuns() throws InterruptedException {
+		var latch = new CountDownLatch(3);
+		assertNotNull(__taskManager.schedule("task", latch::countDown, 0, 10, 5, TimeUnit.MILLISECONDS));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		var statistics = __taskManager.getStatistics("task");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (statistics.getRuns() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(statistics.getRuns() >= 3);
+		__taskManager.kill("task");
+		assertNull(__taskManager.getStatistics("task"));
+	}
+
+	@Test
+	public void taskAfterShutdownShouldBeRefused() {
+		__taskManager.shutdown();
+		__taskManager.initialize(2);
+
+		assertNull(__taskManager.schedule(() -> {
+		}, 1, TimeUnit.SECONDS));
+		assertNull(__taskManager.schedule("task", () -> {
+		}, 1, 1, 0, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void runningTaskShouldNotBeReplaced() {
+		assertNotNull(__taskManager.schedule("task", () -> {
+		}, 1, 1, 0, TimeUnit.HOURS));
+		assertNull(__taskManager.schedule("task", () -> {
+		}, 1, 1, 0, TimeUnit.HOURS));
+	}
+
+	@Test
+	public void slowTaskShouldBeCountedAsOverrun() throws InterruptedException {
+		var runs = new AtomicInteger();
+		__taskManager.schedule("slow", () -> {
+			runs.incrementAndGet();
+			try {
+				Thread.sleep(30);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 0, 10, 0, TimeUnit.MILLISECONDS);
+
+		var statistics = __taskManager.getStatistics("slow");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (statistics.getRuns() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(statistics.getRuns() >= 2);
+		assertTrue(statistics.getOverruns() >= 2);
+		assertTrue(statistics.getMaxTime() >= TimeUnit.MILLISECONDS.toNanos(30));
+	}
+
+	@Test
+	public void failingTaskShouldKeepRunning() throws InterruptedException {
+		var latch = new CountDownLatch(2);
+		__taskManager.schedule("failing", () -> {
+			latch.countDown();
+			throw new IllegalStateException("expected");
+		}, 0, 10, 0, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void oneShotTaskShouldRunOnce() throws InterruptedException {
+		var latch = new CountDownLatch(1);
+		__taskManager.schedule("once", latch::countDown, 10, 0, 0, TimeUnit.MILLISECONDS);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		var statistics = __taskManager.getStatistics("once");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (statistics.getRuns() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, statistics.getRuns());
+		assertEquals(0, statistics.getOverruns());
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+The MIT License
+
+Copyright (c) 2016-2020 kong <congcoi123@gmail.com>
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+package com.tenio.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.tenio.api.PlayerApi;
+import com.tenio.configuration.constant.TEvent;
+import com.tenio.entity.AbstractPlayer;
+import com.tenio.entity.manager.IPlayerManager;
+import com.tenio.entity.manager.PlayerManager;
+import com.tenio.entity.manager.RoomManager;
+import com.tenio.event.EventManager;
+import com.tenio.event.IEventManager;
+import com.tenio.model.PlayerModel;
+import com.tenio.task.schedule.TimeOutScanTask;
+
+/**
+ * @author kong
+ */
+public final class TimeOutTest {
+
+	private IEventManager __eventManager;
+	private IPlayerManager __playerManager;
+	private PlayerApi __playerApi;
+	private TimeOutScanTask __task;
+	private List<AbstractPlayer> __timeouts;
+
+	@BeforeEach
+	public void initialize() {
+		__eventManager = new EventManager();
+		__playerManager = new PlayerManager(__eventManager);
+		__playerApi = new PlayerApi(__playerManager, new RoomManager(__eventManager));
+		// 2 seconds for reading, 3 seconds for writing, 1 second per tick
+		__task = new TimeOutScanTask(__eventManager, __playerApi, 2, 3, 1);
+		__timeouts = new ArrayList<AbstractPlayer>();
+		__eventManager.getExternal().on(TEvent.PLAYER_TIMEOUT, args -> {
+			__timeouts.add((AbstractPlayer) args[0]);
+			return null;
+		});
+		__eventManager.subscribe();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		__playerManager.clear();
+		__eventManager.clear();
+	}
+
+	@Test
+	public void idlePlayerShouldBeTimedOutAfterItsDeadline() {
+		var player = new PlayerModel("kong");
+		__playerApi.login(player);
+		long now = System.currentTimeMillis();
+
+		__task.tick(now);
+		assertEquals(1, __task.size());
+		__task.tick(now + 1000);
+		assertTrue(__timeouts.isEmpty());
+
+		__task.tick(now + 4000);
+		assertEquals(List.of(player), __timeouts);
+		assertFalse(__playerApi.contain("kong"));
+		assertEquals(0, __task.size());
+	}
+
+	@Test
+	public void ignoredPlayerShouldBeKeptInTheWheel() {
+		var player = new PlayerModel("kong");
+		player.setIgnoreTimeout(true);
+		__playerApi.login(player);
+		long now = System.currentTimeMillis();
+
+		__task.tick(now);
+		__task.tick(now + 10000);
+		assertTrue(__timeouts.isEmpty());
+		assertTrue(__playerApi.contain("kong"));
+		assertEquals(1, __task.size());
+	}
+
+	@Test
+	public void loggedOutPlayerShouldBeDroppedOnItsDeadline() {
+		var player = new PlayerModel("kong");
+		__playerApi.login(player);
+		long now = System.currentTimeMillis();
+
+		__task.tick(now);
+		__playerApi.logOut(player);
+		__task.tick(now + 4000);
+		assertTrue(__timeouts.isEmpty());
+		assertEquals(0, __task.size());
+	}
+
+	@Test
+	public void deadlinesAfterOneRoundShouldWaitForTheirRound() {
+		// more than one round of the wheel (512 ticks)
+		var task = new TimeOutScanTask(__eventManager, __playerApi, 600, 600, 1);
+		var player = new PlayerModel("kong");
+		long now = System.currentTimeMillis();
+		task.watch(player);
+		__playerApi.login(player);
+
+		task.tick(now);
+		task.tick(now + 520 * 1000);
+		assertTrue(__timeouts.isEmpty());
+		task.tick(now + 601 * 1000);
+		assertEquals(List.of(player), __timeouts);
+	}
+
+}
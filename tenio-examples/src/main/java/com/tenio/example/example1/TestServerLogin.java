@@ -23,7 +23,6 @@ THE SOFTWARE.
 */
 package com.tenio.example.example1;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import com.tenio.AbstractApp;
@@ -103,7 +102,7 @@ public final class TestServerLogin extends AbstractApp {
 				}
 
 				// Now you can send messages to the client
-				_taskApi.run(player.getName(), Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
+				_taskApi.run(player.getName(), () -> {
 					// Only sent 10 messages
 					if (player.counter >= 10) {
 						_taskApi.kill(player.getName());
@@ -123,7 +122,7 @@ public final class TestServerLogin extends AbstractApp {
 						e.printStackTrace();
 					}
 
-				}, 0, 1, TimeUnit.SECONDS));
+				}, 0, 1, TimeUnit.SECONDS);
 
 				return null;
 			});
@@ -115,6 +115,11 @@ public final class TestServerMovement extends AbstractApp {
 
 				info("DISCONNECT PLAYER", player.getName());
 
+				// the next player with this name starts with a full snapshot
+				if (Constants.USE_SNAPSHOTS) {
+					_snapshotApi.clean(player);
+				}
+
 				return null;
 			});
 
@@ -141,6 +146,18 @@ public final class TestServerMovement extends AbstractApp {
 				return null;
 			});
 
+			_on(TEvent.RECEIVED_FROM_PLAYER, args -> {
+				var player = this.<Inspector>_getPlayer(args[0]);
+				var message = _getTObject(args[2]);
+
+				// the client acknowledges each received snapshot by its sequence
+				if (Constants.USE_SNAPSHOTS && message.containsKey("a")) {
+					_snapshotApi.acknowledge(player, "p", message.getInt("a"));
+				}
+
+				return null;
+			});
+
 			_on(TEvent.ATTACH_UDP_FAILED, args -> {
 				String reason = _getString(args[1]);
 
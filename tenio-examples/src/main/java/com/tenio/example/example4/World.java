@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.List;
 
 import com.tenio.api.MessageApi;
+import com.tenio.api.SnapshotApi;
 import com.tenio.engine.heartbeat.AbstractHeartBeat;
 import com.tenio.engine.physic.common.BaseGameEntity;
 import com.tenio.engine.physic.common.InvertedAABBox2D;
@@ -21,10 +22,12 @@ import com.tenio.entity.AbstractPlayer;
 import com.tenio.entity.element.TArray;
 import com.tenio.entity.element.TObject;
 import com.tenio.example.example4.configuration.ParamLoader;
+import com.tenio.example.example4.constant.Constants;
 import com.tenio.example.example4.constant.SummingMethod;
 import com.tenio.example.example4.entity.Obstacle;
 import com.tenio.example.example4.entity.Vehicle;
 import com.tenio.example.example4.entity.Wall;
+import com.tenio.message.snapshot.Snapshot;
 import com.tenio.server.Server;
 import com.tenio.utility.MathUtility;
 
@@ -78,6 +81,7 @@ public final class World extends AbstractHeartBeat {
 	// for network communication
 	private Collection<AbstractPlayer> __inspectors = Server.getInstance().getPlayerApi().gets().values();
 	private MessageApi __messageApi = Server.getInstance().getMessageApi();
+	private SnapshotApi __snapshotApi = Server.getInstance().getSnapshotApi();
 	private TArray __ids = TArray.newInstance();
 	private TArray __pxs = TArray.newInstance();
 	private TArray __pys = TArray.newInstance();
@@ -448,6 +452,8 @@ public final class World extends AbstractHeartBeat {
 		__pxs.clear();
 		__pys.clear();
 		__prs.clear();
+		// a new snapshot for each update, the sent ones are kept as baselines
+		var snapshot = Constants.USE_SNAPSHOTS ? Snapshot.newInstance() : null;
 
 		__fps = frameRateSmoother.update(delta);
 
@@ -455,16 +461,27 @@ public final class World extends AbstractHeartBeat {
 		for (int i = 0; i < __vehicles.size(); ++i) {
 			__vehicles.get(i).update(delta);
 			// package data
-			__ids.put(i);
-			__pxs.put((int) __vehicles.get(i).getPosition().x);
-			__pys.put((int) __vehicles.get(i).getPosition().y);
-			__prs.put((int) __vehicles.get(i).getRotation());
+			if (snapshot != null) {
+				snapshot.put(i, (int) __vehicles.get(i).getPosition().x, (int) __vehicles.get(i).getPosition().y,
+						(int) __vehicles.get(i).getRotation());
+			} else {
+				__ids.put(i);
+				__pxs.put((int) __vehicles.get(i).getPosition().x);
+				__pys.put((int) __vehicles.get(i).getPosition().y);
+				__prs.put((int) __vehicles.get(i).getRotation());
+			}
 		}
 
-		// send to client (naive way)
 		for (var inspector : __inspectors) {
-			__messageApi.sendToPlayerSub(inspector, "p",
-					__messageApi.getArrayPack().put(__ids).put(__pxs).put(__pys).put(__prs));
+			if (snapshot != null) {
+				// send to client, only the changed fields since his last acknowledged
+				// snapshot
+				__snapshotApi.sendToPlayerSub(inspector, "p", snapshot);
+			} else {
+				// send to client (naive way)
+				__messageApi.sendToPlayerSub(inspector, "p",
+						__messageApi.getArrayPack().put(__ids).put(__pxs).put(__pys).put(__prs));
+			}
 		}
 
 	}
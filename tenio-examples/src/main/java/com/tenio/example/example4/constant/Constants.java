@@ -30,5 +30,12 @@ public final class Constants {
 
 	public static final int DESIGN_WIDTH = 500;
 	public static final int DESIGN_HEIGHT = 500;
+	/**
+	 * The vehicles are sent as delta-compressed snapshots on key "p" instead of
+	 * the full arrays of ids, positions and rotations. The client must decode them
+	 * with <code>SnapshotDelta</code> and acknowledge each one with
+	 * <code>{"a": sequence}</code>, so it stays disabled for the current client.
+	 */
+	public static final boolean USE_SNAPSHOTS = false;
 
 }